@@ -0,0 +1,44 @@
+package indi.vincent.aptos.benchmark;
+
+import indi.vincent.aptos.tools.AptosAccount;
+import indi.vincent.aptos.tools.AptosCryptoUtil;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * AptosAccount 构造时的十六进制编码
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class AccountBenchmark {
+
+    private byte[] privateKey;
+    private byte[] publicKey;
+    private byte[] address;
+
+    @Setup
+    public void setUp() {
+        this.privateKey = AptosCryptoUtil.randomPrivateKey();
+        this.publicKey = AptosCryptoUtil.createPublicKey(this.privateKey);
+        this.address = AptosCryptoUtil.createAddress(this.publicKey);
+    }
+
+    @Benchmark
+    public AptosAccount fromBytes() {
+        return new AptosAccount(this.privateKey, this.publicKey, this.address, "benchmark");
+    }
+}
@@ -0,0 +1,69 @@
+package indi.vincent.aptos.benchmark;
+
+import indi.vincent.aptos.tools.AptosCryptoUtil;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 密钥生成、地址摘要、签名和验签
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CryptoBenchmark {
+
+    /**
+     * claim_name 交易签名消息的大致长度
+     */
+    private static final int MESSAGE_SIZE = 160;
+
+    private byte[] privateKey;
+    private byte[] publicKey;
+    private byte[] message;
+    private byte[] signature;
+
+    @Setup
+    public void setUp() {
+        this.privateKey = AptosCryptoUtil.randomPrivateKey();
+        this.publicKey = AptosCryptoUtil.createPublicKey(this.privateKey);
+        this.message = new byte[MESSAGE_SIZE];
+        ThreadLocalRandom.current().nextBytes(this.message);
+        this.signature = AptosCryptoUtil.ed25519Sign(this.privateKey, this.publicKey, this.message);
+    }
+
+    @Benchmark
+    public byte[] keygen() {
+        byte[] privateKeyBytes = AptosCryptoUtil.randomPrivateKey();
+        byte[] publicKeyBytes = AptosCryptoUtil.createPublicKey(privateKeyBytes);
+        return AptosCryptoUtil.createAddress(publicKeyBytes);
+    }
+
+    @Benchmark
+    public byte[] aptosSHA256() {
+        return AptosCryptoUtil.aptosSHA256(this.publicKey);
+    }
+
+    @Benchmark
+    public byte[] sign() {
+        return AptosCryptoUtil.ed25519Sign(this.privateKey, this.publicKey, this.message);
+    }
+
+    @Benchmark
+    public boolean verify() {
+        return AptosCryptoUtil.ed25519Verify(this.publicKey, this.signature, this.message);
+    }
+}
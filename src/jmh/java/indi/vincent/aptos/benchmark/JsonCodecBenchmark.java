@@ -0,0 +1,99 @@
+package indi.vincent.aptos.benchmark;
+
+import cn.hutool.json.JSONUtil;
+import indi.vincent.aptos.tools.AptosClient;
+import indi.vincent.aptos.tools.AptosJsonCodec;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * AptosClient 请求和响应的 JSON 编解码，hutool 开头的方法作为对照
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class JsonCodecBenchmark {
+
+    private static final String ADDRESS = "0xf4eb1f3e838411ab992f81cabb25f29ea4eb2406cd167261273da587c3615792";
+
+    private AptosClient.SubmitTransactionParam submitTransactionParam;
+    private byte[] submitTransactionResponse;
+    private ByteArrayOutputStream output;
+
+    @Setup
+    public void setUp() {
+        AptosClient.TransactionPayload payload = new AptosClient.TransactionPayload();
+        payload.setType("script_function_payload");
+        payload.setFunction(ADDRESS + "::service::claim_name");
+        payload.setTypeArguments(Collections.emptyList());
+        payload.setArguments(Collections.singletonList("62656e63686d61726b"));
+
+        AptosClient.SignatureMessageParam param = new AptosClient.SignatureMessageParam();
+        param.setSender(ADDRESS);
+        param.setSequenceNumber("0");
+        param.setMaxGasAmount("2000");
+        param.setGasUnitPrice("1");
+        param.setExpirationTimestampSecs("1660000000");
+        param.setPayload(payload);
+
+        AptosClient.TransactionSignature signature = new AptosClient.TransactionSignature();
+        signature.setType("ed25519_signature");
+        signature.setPublicKey("0x" + repeat("ab", 32));
+        signature.setSignature("0x" + repeat("cd", 64));
+
+        this.submitTransactionParam = AptosClient.SubmitTransactionParam.of(param, signature);
+        this.output = new ByteArrayOutputStream(1024);
+
+        String response = JSONUtil.toJsonStr(this.submitTransactionParam);
+        response = "{\"type\":\"pending_transaction\",\"hash\":\"0x" + repeat("ef", 32) + "\"," + response.substring(1);
+        this.submitTransactionResponse = response.getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Benchmark
+    public int encode() throws IOException {
+        this.output.reset();
+        AptosJsonCodec.write(this.submitTransactionParam, this.output);
+        return this.output.size();
+    }
+
+    @Benchmark
+    public AptosClient.SubmitTransactionResponse decode() throws IOException {
+        return AptosJsonCodec.read(new ByteArrayInputStream(this.submitTransactionResponse), AptosClient.SubmitTransactionResponse.class);
+    }
+
+    @Benchmark
+    public byte[] hutoolEncode() {
+        return JSONUtil.toJsonStr(this.submitTransactionParam).getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Benchmark
+    public AptosClient.SubmitTransactionResponse hutoolDecode() {
+        return JSONUtil.toBean(new String(this.submitTransactionResponse, StandardCharsets.UTF_8), AptosClient.SubmitTransactionResponse.class);
+    }
+
+    private static String repeat(String value, int count) {
+        StringBuilder builder = new StringBuilder(value.length() * count);
+        for (int i = 0; i < count; i++) {
+            builder.append(value);
+        }
+        return builder.toString();
+    }
+}
@@ -0,0 +1,80 @@
+package indi.vincent.aptos.benchmark;
+
+import indi.vincent.aptos.tools.RegisteredNameIndex;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 在 lookup 之前过滤已知 Name 的开销，hashMap 开头的方法作为对照
+ * <p>
+ * known 查询索引中已有的 Name，unknown 查询不在索引中的 Name（大部分被 Bloom Filter 直接排除）。
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RegisteredNameIndexBenchmark {
+
+    private static final String ADDRESS = "0xf4eb1f3e838411ab992f81cabb25f29ea4eb2406cd167261273da587c3615792";
+    private static final int QUERIES = 1 << 16;
+
+    @Param({"1000000"})
+    private int names;
+
+    private RegisteredNameIndex index;
+    private Map<String, String> hashMap;
+    private String[] known;
+    private String[] unknown;
+    private int next;
+
+    @Setup
+    public void setUp() {
+        this.index = new RegisteredNameIndex(this.names, 0.01);
+        this.hashMap = new HashMap<>();
+        for (int i = 0; i < this.names; i++) {
+            this.index.put("name" + i, ADDRESS);
+            this.hashMap.put("name" + i, ADDRESS);
+        }
+        this.known = new String[QUERIES];
+        this.unknown = new String[QUERIES];
+        for (int i = 0; i < QUERIES; i++) {
+            this.known[i] = "name" + (i * 7919L % this.names);
+            this.unknown[i] = "candidate" + i;
+        }
+    }
+
+    @Benchmark
+    public boolean known() {
+        return this.index.contains(this.known[this.next++ & (QUERIES - 1)]);
+    }
+
+    @Benchmark
+    public boolean unknown() {
+        return this.index.contains(this.unknown[this.next++ & (QUERIES - 1)]);
+    }
+
+    @Benchmark
+    public boolean hashMapKnown() {
+        return this.hashMap.containsKey(this.known[this.next++ & (QUERIES - 1)]);
+    }
+
+    @Benchmark
+    public boolean hashMapUnknown() {
+        return this.hashMap.containsKey(this.unknown[this.next++ & (QUERIES - 1)]);
+    }
+}
@@ -0,0 +1,169 @@
+package indi.vincent.aptos.benchmark;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import cn.hutool.core.io.FileUtil;
+import cn.hutool.core.util.HexUtil;
+import indi.vincent.aptos.config.PipelineProperties;
+import indi.vincent.aptos.controller.NamesController;
+import indi.vincent.aptos.keystore.AptosKeystore;
+import indi.vincent.aptos.service.FaucetFundingStrategy;
+import indi.vincent.aptos.service.FundingAmount;
+import indi.vincent.aptos.service.RegistrationJobService;
+import indi.vincent.aptos.service.RegistrationJournal;
+import indi.vincent.aptos.service.RegistrationPipeline;
+import indi.vincent.aptos.tools.AptosClient;
+import indi.vincent.aptos.tools.AptosEndpointPool;
+import indi.vincent.aptos.tools.AptosFaucetClient;
+import indi.vincent.aptos.tools.AptosHttpClients;
+import indi.vincent.aptos.tools.AptosKeyPairPool;
+import indi.vincent.aptos.tools.AptosNameResolver;
+import indi.vincent.aptos.tools.ConfirmationTracker;
+import indi.vincent.aptos.tools.RegisteredNameIndex;
+import indi.vincent.aptos.tools.VanityAddressGrinder;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import okhttp3.OkHttpClient;
+import okhttp3.mockwebserver.Dispatcher;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.slf4j.LoggerFactory;
+import org.springframework.core.task.SyncTaskExecutor;
+import org.springframework.http.ResponseEntity;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * NamesController.create 的完整流程，节点、水龙头和 Aptos Names 都由本地 MockWebServer 模拟
+ * <p>
+ * 每次调用注册 batchSize 个新 Name，结果包含本地签名、Keystore 落盘和 HTTP 往返的开销。
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class RegistrationBenchmark {
+
+    private static final String MODULE_ADDRESS = "0xf4eb1f3e838411ab992f81cabb25f29ea4eb2406cd167261273da587c3615792";
+    private static final String FUNCTION = MODULE_ADDRESS + "::service::claim_name";
+
+    @Param({"1", "64"})
+    private int batchSize;
+
+    private final AtomicLong sequence = new AtomicLong();
+
+    private MockWebServer server;
+    private Path keystoreDirectory;
+    private AptosKeyPairPool keyPairPool;
+    private AptosKeystore keystore;
+    private ConfirmationTracker confirmationTracker;
+    private RegistrationJournal journal;
+    private RegistrationPipeline pipeline;
+    private NamesController controller;
+
+    @Setup
+    public void setUp() throws IOException {
+        // 流水线每个 Name 都会打印 INFO 日志，避免控制台输出成为瓶颈
+        ((Logger) LoggerFactory.getLogger(org.slf4j.Logger.ROOT_LOGGER_NAME)).setLevel(Level.WARN);
+
+        this.server = new MockWebServer();
+        this.server.setDispatcher(new AptosDispatcher());
+        this.server.start();
+        String host = this.server.url("").toString().replaceAll("/$", "");
+
+        OkHttpClient httpClient = AptosHttpClients.create(256, 256, 64, 300);
+        AptosClient aptosClient = new AptosClient(AptosEndpointPool.of(httpClient, host), AptosEndpointPool.of(httpClient, host));
+        AptosFaucetClient faucetClient = new AptosFaucetClient(host, httpClient);
+        AptosNameResolver nameResolver = new AptosNameResolver(aptosClient, 100000,
+                TimeUnit.HOURS.toMillis(24), TimeUnit.MINUTES.toMillis(5));
+
+        this.keystoreDirectory = Files.createTempDirectory("aptos-benchmark");
+        this.keystore = new AptosKeystore(this.keystoreDirectory, 64L << 20);
+        this.keyPairPool = new AptosKeyPairPool(4096, 1024, Runtime.getRuntime().availableProcessors());
+        this.confirmationTracker = new ConfirmationTracker(aptosClient, 64, 100, 1000, 0);
+        this.journal = new RegistrationJournal(this.keystoreDirectory.resolve("journal"), 64L << 20);
+        this.pipeline = new RegistrationPipeline(aptosClient, new FaucetFundingStrategy(aptosClient, faucetClient, FundingAmount.fixed(10000)), nameResolver,
+                new RegisteredNameIndex(100000, 0.01), this.keyPairPool,
+                this.keystore, this.confirmationTracker, this.journal, new VanityAddressGrinder("", 0, 1), new PipelineProperties(), new SimpleMeterRegistry(), FUNCTION);
+        this.controller = new NamesController(this.pipeline, new RegistrationJobService(this.pipeline, this.journal, false, 16, 1, 16, 10000), new SyncTaskExecutor());
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        this.pipeline.destroy();
+        this.confirmationTracker.close();
+        this.journal.close();
+        this.keyPairPool.close();
+        this.keystore.close();
+        this.server.shutdown();
+        FileUtil.del(this.keystoreDirectory);
+    }
+
+    @Benchmark
+    public ResponseEntity<?> create() {
+        List<String> names = new ArrayList<>(this.batchSize);
+        for (int i = 0; i < this.batchSize; i++) {
+            names.add("benchmark" + this.sequence.incrementAndGet());
+        }
+        return this.controller.create(names);
+    }
+
+    private static class AptosDispatcher extends Dispatcher {
+
+        private static final String HASH = "\"0x" + HexUtil.encodeHexStr(new byte[32]) + "\"";
+
+        @Override
+        public MockResponse dispatch(RecordedRequest request) {
+            String path = request.getPath() == null ? "" : request.getPath();
+            if (path.startsWith("/api/v1/address/")) {
+                return json("{}");
+            }
+            if (path.startsWith("/mint")) {
+                return json("[" + HASH + "]");
+            }
+            if (path.contains("/module/")) {
+                return json("{\"bytecode\":\"0x\",\"abi\":{\"address\":\"" + MODULE_ADDRESS + "\",\"name\":\"service\","
+                        + "\"exposed_functions\":[{\"name\":\"claim_name\",\"visibility\":\"public\",\"is_entry\":true,"
+                        + "\"generic_type_params\":[],\"params\":[\"&signer\",\"vector<u8>\"],\"return\":[]}]}}");
+            }
+            if (path.startsWith("/accounts/")) {
+                return json("{\"sequence_number\":\"0\",\"authentication_key\":\"" + path.substring("/accounts/".length()) + "\"}");
+            }
+            if (path.startsWith("/transactions/by_hash/")) {
+                return json("{\"type\":\"user_transaction\",\"hash\":" + HASH + ",\"version\":\"1\",\"success\":true,"
+                        + "\"vm_status\":\"Executed successfully\"}");
+            }
+            if (path.equals("/transactions")) {
+                return json("{\"type\":\"pending_transaction\",\"hash\":" + HASH + "}").setResponseCode(202);
+            }
+            if (path.equals("/")) {
+                return json("{\"chain_id\":34,\"ledger_version\":\"1\"}");
+            }
+            return new MockResponse().setResponseCode(404);
+        }
+
+        private static MockResponse json(String body) {
+            return new MockResponse().setHeader("Content-Type", "application/json").setBody(body);
+        }
+    }
+}
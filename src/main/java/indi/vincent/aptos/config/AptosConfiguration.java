@@ -0,0 +1,333 @@
+package indi.vincent.aptos.config;
+
+import cn.hutool.core.io.FileUtil;
+import cn.hutool.core.util.StrUtil;
+import indi.vincent.aptos.keystore.AptosKeystore;
+import indi.vincent.aptos.keystore.KeystoreMigrator;
+import indi.vincent.aptos.service.FaucetFundingStrategy;
+import indi.vincent.aptos.service.FundingAmount;
+import indi.vincent.aptos.service.FundingStrategy;
+import indi.vincent.aptos.service.RegistrationJournal;
+import indi.vincent.aptos.service.TreasuryFundingStrategy;
+import indi.vincent.aptos.tools.AptosAccount;
+import indi.vincent.aptos.tools.AdaptiveLimiter;
+import indi.vincent.aptos.tools.AptosClient;
+import indi.vincent.aptos.tools.AptosCryptoUtil;
+import indi.vincent.aptos.tools.AptosEndpoint;
+import indi.vincent.aptos.tools.AptosEndpointPool;
+import indi.vincent.aptos.tools.AptosFaucetClient;
+import indi.vincent.aptos.tools.AptosHttpClients;
+import indi.vincent.aptos.tools.AptosKeyPairPool;
+import indi.vincent.aptos.tools.AptosNameResolver;
+import indi.vincent.aptos.tools.ConfirmationTracker;
+import indi.vincent.aptos.tools.Futures;
+import indi.vincent.aptos.tools.GasEstimator;
+import indi.vincent.aptos.tools.RegisteredNameIndex;
+import indi.vincent.aptos.tools.VanityAddressGrinder;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import lombok.extern.slf4j.Slf4j;
+import okhttp3.OkHttpClient;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.util.unit.DataSize;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+@Slf4j
+@Configuration
+@EnableConfigurationProperties({PipelineProperties.class, LimitProperties.class, FundingProperties.class})
+public class AptosConfiguration {
+
+    /**
+     * 资金账户在 Keystore 中的名称，不是合法的 Name，不会和注册的账户冲突
+     */
+    public static final String TREASURY_NAME = "@treasury";
+
+    /**
+     * AptosClient 和 AptosFaucetClient 共用的 Dispatcher 和 ConnectionPool
+     */
+    @Bean
+    public OkHttpClient aptosHttpClient(@Value("${aptos.http.max-requests:256}") int maxRequests,
+                                        @Value("${aptos.http.max-requests-per-host:64}") int maxRequestsPerHost,
+                                        @Value("${aptos.http.max-idle-connections:64}") int maxIdleConnections,
+                                        @Value("${aptos.http.keep-alive-seconds:300}") long keepAliveSeconds,
+                                        MeterRegistry meterRegistry) {
+        return AptosHttpClients.create(maxRequests, maxRequestsPerHost, maxIdleConnections, keepAliveSeconds, meterRegistry);
+    }
+
+    /**
+     * aptos.fullnode 可以配置多个以逗号分隔的节点，请求在节点之间负载均衡
+     * <p>
+     * aptos.http.max-retries 用于查询和提交交易，提交的结果不确定时按发送方和 Sequence Number 在链上确认
+     * <p>
+     * aptos.gas.estimate=true 时通过模拟执行估算每笔交易的 Gas，否则使用 AptosClient 的默认值
+     */
+    @Bean
+    public AptosClient aptosClient(OkHttpClient aptosHttpClient,
+                                   @Value("${aptos.fullnode}") List<String> fullnodes,
+                                   @Value("${aptos.signing.local:true}") boolean localSigning,
+                                   @Value("${aptos.signing.verify:false}") boolean verifyLocalSigning,
+                                   @Value("${aptos.signing.verify-first:true}") boolean verifyFirstLocalSigning,
+                                   @Value("${aptos.signing.submit-bcs:false}") boolean submitBcs,
+                                   @Value("${aptos.names.host:" + AptosClient.DEFAULT_NAMES_HOST + "}") String namesHost,
+                                   @Value("${aptos.http.max-retries:3}") int maxRetries,
+                                   @Value("${aptos.http.retry-backoff:200ms}") Duration retryBackoff,
+                                   @Value("${aptos.balancer.eject-after-failures:3}") int ejectAfterFailures,
+                                   @Value("${aptos.balancer.eject-duration:30s}") Duration ejectDuration,
+                                   @Value("${aptos.balancer.hedge-percentile:0.95}") double hedgePercentile,
+                                   @Value("${aptos.balancer.min-hedge-delay:20ms}") Duration minHedgeDelay,
+                                   @Value("${aptos.balancer.min-hedge-samples:100}") int minHedgeSamples,
+                                   @Value("${aptos.gas.estimate:true}") boolean estimateGas,
+                                   @Value("${aptos.gas.ttl:10m}") Duration gasTtl,
+                                   @Value("${aptos.gas.safety-margin:0.5}") double gasSafetyMargin,
+                                   @Value("${aptos.gas.min-amount:10}") long minGasAmount,
+                                   @Value("${aptos.gas.max-amount:" + AptosClient.DEFAULT_MAX_GAS_AMOUNT + "}") long maxGasAmount,
+                                   LimitProperties limits,
+                                   MeterRegistry meterRegistry) {
+        List<AptosEndpointPool.Node> fullnodeNodes = new ArrayList<>(fullnodes.size());
+        for (String fullnode : fullnodes) {
+            String url = StrUtil.removeSuffix(fullnode.trim(), "/");
+            fullnodeNodes.add(new AptosEndpointPool.Node(url, endpoint("fullnode", url, limits.getFullnode(), aptosHttpClient, 0, Duration.ZERO, meterRegistry)));
+        }
+        String namesUrl = StrUtil.removeSuffix(namesHost.trim(), "/");
+        List<AptosEndpointPool.Node> namesNodes = Collections.singletonList(
+                new AptosEndpointPool.Node(namesUrl, endpoint("names", namesUrl, limits.getNames(), aptosHttpClient, 0, Duration.ZERO, meterRegistry)));
+        AptosClient aptosClient = new AptosClient(
+                pool("fullnode", fullnodeNodes, maxRetries, retryBackoff, ejectAfterFailures, ejectDuration, hedgePercentile, minHedgeDelay, minHedgeSamples, meterRegistry),
+                pool("names", namesNodes, maxRetries, retryBackoff, ejectAfterFailures, ejectDuration, hedgePercentile, minHedgeDelay, minHedgeSamples, meterRegistry));
+        aptosClient.setLocalSigning(localSigning);
+        aptosClient.setVerifyLocalSigning(verifyLocalSigning);
+        aptosClient.setVerifyFirstLocalSigning(verifyFirstLocalSigning);
+        aptosClient.setSubmitBcs(submitBcs);
+        Gauge.builder("aptos.client.senders", aptosClient, AptosClient::getSenderCount).register(meterRegistry);
+        if (estimateGas) {
+            GasEstimator estimator = new GasEstimator(aptosClient, gasTtl.toMillis(), gasSafetyMargin, minGasAmount, maxGasAmount);
+            aptosClient.setGasEstimator(estimator);
+            Gauge.builder("aptos.gas.unit-price", estimator, GasEstimator::getGasUnitPrice).register(meterRegistry);
+            FunctionCounter.builder("aptos.gas.simulations", estimator, GasEstimator::getSimulations).register(meterRegistry);
+            FunctionCounter.builder("aptos.gas.simulation-failures", estimator, GasEstimator::getSimulationFailures).register(meterRegistry);
+            FunctionCounter.builder("aptos.gas.cache-hits", estimator, GasEstimator::getCacheHits).register(meterRegistry);
+        }
+        return aptosClient;
+    }
+
+    @Bean
+    public AptosNameResolver aptosNameResolver(AptosClient aptosClient,
+                                               @Value("${aptos.names.cache-size:100000}") int cacheSize,
+                                               @Value("${aptos.names.registered-ttl:24h}") Duration registeredTtl,
+                                               @Value("${aptos.names.unregistered-ttl:5m}") Duration unregisteredTtl) {
+        return new AptosNameResolver(aptosClient, cacheSize, registeredTtl.toMillis(), unregisteredTtl.toMillis());
+    }
+
+    @Bean(destroyMethod = "close")
+    public ConfirmationTracker confirmationTracker(AptosClient aptosClient,
+                                                   @Value("${aptos.confirmation.max-concurrency:64}") int maxConcurrency,
+                                                   @Value("${aptos.confirmation.initial-delay:1s}") Duration initialDelay,
+                                                   @Value("${aptos.confirmation.max-delay:30s}") Duration maxDelay,
+                                                   @Value("${aptos.confirmation.expiration-grace:30s}") Duration expirationGrace,
+                                                   MeterRegistry meterRegistry) {
+        ConfirmationTracker tracker = new ConfirmationTracker(aptosClient, maxConcurrency,
+                initialDelay.toMillis(), maxDelay.toMillis(), expirationGrace.toMillis());
+        Gauge.builder("aptos.confirmations.pending", tracker, ConfirmationTracker::getPending).register(meterRegistry);
+        FunctionCounter.builder("aptos.confirmations", tracker, ConfirmationTracker::getSucceeded).tag("outcome", "success").register(meterRegistry);
+        FunctionCounter.builder("aptos.confirmations", tracker, ConfirmationTracker::getVmFailures).tag("outcome", "vm_failure").register(meterRegistry);
+        FunctionCounter.builder("aptos.confirmations", tracker, ConfirmationTracker::getExpired).tag("outcome", "expired").register(meterRegistry);
+        FunctionCounter.builder("aptos.confirmations.polls", tracker, ConfirmationTracker::getPolls).register(meterRegistry);
+        return tracker;
+    }
+
+    @Bean(destroyMethod = "close")
+    public AptosKeyPairPool aptosKeyPairPool(@Value("${aptos.keypool.capacity:4096}") int capacity,
+                                             @Value("${aptos.keypool.low-water-mark:1024}") int lowWaterMark,
+                                             @Value("${aptos.keypool.threads:0}") int threads,
+                                             MeterRegistry meterRegistry) {
+        AptosKeyPairPool pool = new AptosKeyPairPool(capacity, lowWaterMark, threads > 0 ? threads : Runtime.getRuntime().availableProcessors());
+        Gauge.builder("aptos.keypool.available", pool, AptosKeyPairPool::getAvailable).register(meterRegistry);
+        Gauge.builder("aptos.keypool.throughput", pool, AptosKeyPairPool::getThroughput).register(meterRegistry);
+        FunctionCounter.builder("aptos.keypool.generated", pool, AptosKeyPairPool::getGenerated).register(meterRegistry);
+        FunctionCounter.builder("aptos.keypool.taken", pool, AptosKeyPairPool::getTaken).register(meterRegistry);
+        FunctionCounter.builder("aptos.keypool.misses", pool, AptosKeyPairPool::getMisses).register(meterRegistry);
+        return pool;
+    }
+
+    /**
+     * aptos.vanity.prefix 为空时不搜索，keygen 阶段直接使用密钥池
+     */
+    @Bean(destroyMethod = "close")
+    public VanityAddressGrinder vanityAddressGrinder(@Value("${aptos.vanity.prefix:}") String prefix,
+                                                     @Value("${aptos.vanity.max-search-time:10s}") Duration maxSearchTime,
+                                                     @Value("${aptos.vanity.threads:0}") int threads,
+                                                     MeterRegistry meterRegistry) {
+        VanityAddressGrinder grinder = new VanityAddressGrinder(prefix, maxSearchTime.toMillis(),
+                threads > 0 ? threads : Runtime.getRuntime().availableProcessors());
+        Gauge.builder("aptos.vanity.keys-per-second", grinder, VanityAddressGrinder::getKeysPerSecond).register(meterRegistry);
+        FunctionCounter.builder("aptos.vanity.attempts", grinder, VanityAddressGrinder::getAttempts).register(meterRegistry);
+        FunctionCounter.builder("aptos.vanity.searches", grinder, VanityAddressGrinder::getFound).tag("outcome", "found").register(meterRegistry);
+        FunctionCounter.builder("aptos.vanity.searches", grinder, VanityAddressGrinder::getTimeouts).tag("outcome", "timeout").register(meterRegistry);
+        return grinder;
+    }
+
+    /**
+     * 账户 Keystore，日志保存在 aptos.keystore 下的 log 目录，首次启动时导入旧版的单文件账户
+     */
+    @Bean(destroyMethod = "close")
+    public AptosKeystore aptosKeystore(@Value("${aptos.keystore}") String keystore,
+                                       @Value("${aptos.keystore.segment-size:64MB}") DataSize segmentSize,
+                                       @Value("${aptos.keystore.migrate:true}") boolean migrate) {
+        Path legacyDirectory = FileUtil.file(keystore).toPath();
+        Path logDirectory = legacyDirectory.resolve("log");
+        AptosKeystore aptosKeystore = new AptosKeystore(logDirectory, segmentSize.toBytes());
+        if (migrate) {
+            KeystoreMigrator.migrateOnce(legacyDirectory, logDirectory, aptosKeystore);
+        }
+        return aptosKeystore;
+    }
+
+    /**
+     * 注册进度日志，保存在 aptos.keystore 下的 journal 目录
+     */
+    @Bean(destroyMethod = "close")
+    public RegistrationJournal registrationJournal(@Value("${aptos.keystore}") String keystore,
+                                                   @Value("${aptos.journal.segment-size:64MB}") DataSize segmentSize,
+                                                   MeterRegistry meterRegistry) {
+        RegistrationJournal journal = new RegistrationJournal(FileUtil.file(keystore).toPath().resolve("journal"), segmentSize.toBytes());
+        Gauge.builder("aptos.journal.unfinished", journal, j -> j.getUnfinished().size()).register(meterRegistry);
+        FunctionCounter.builder("aptos.journal.append-errors", journal, RegistrationJournal::getAppendErrors).register(meterRegistry);
+        return journal;
+    }
+
+    /**
+     * 已知已被注册的 Name，运行中由 lookup 结果和成功上链的注册交易填充，容量按 Keystore 中的账户数估计，不够时自动扩容
+     * <p>
+     * 启动时先加载进度日志中记录的已确认注册，它们在交易成功上链后才写入，不会包含注册失败的 Name。
+     * <p>
+     * Keystore 中的账户在注册交易提交之前就已写入，其中包括注册失败的 Name，因此默认不从 Keystore 加载；
+     * 确定 Keystore 中的 Name 都已注册成功时可以打开 aptos.names.index.from-keystore，进度日志中未完成的 Name 除外
+     */
+    @Bean
+    public RegisteredNameIndex registeredNameIndex(AptosKeystore aptosKeystore,
+                                                   RegistrationJournal registrationJournal,
+                                                   @Value("${aptos.names.index.false-positive-rate:0.01}") double falsePositiveRate,
+                                                   @Value("${aptos.names.index.from-keystore:false}") boolean fromKeystore,
+                                                   MeterRegistry meterRegistry) {
+        Map<String, String> registered = registrationJournal.getRegistered();
+        RegisteredNameIndex index = new RegisteredNameIndex(Math.max(aptosKeystore.size(), registered.size()), falsePositiveRate);
+        registered.forEach(index::put);
+        log.info("从进度日志加载已确认注册的 Name {} 个", registered.size());
+        if (fromKeystore) {
+            Set<String> unfinished = registrationJournal.getUnfinished().stream()
+                    .map(RegistrationJournal.Checkpoint::getName)
+                    .collect(Collectors.toSet());
+            aptosKeystore.forEachName((name, address) -> {
+                if (!unfinished.contains(name) && !TREASURY_NAME.equals(name)) {
+                    index.put(name, address);
+                }
+            });
+            log.info("从 Keystore 加载已注册的 Name {} 个，占用 {} 字节", index.size(), index.getMemoryBytes());
+        }
+        Gauge.builder("aptos.names.index.size", index, RegisteredNameIndex::size).register(meterRegistry);
+        Gauge.builder("aptos.names.index.memory", index, RegisteredNameIndex::getMemoryBytes).baseUnit("bytes").register(meterRegistry);
+        FunctionCounter.builder("aptos.names.index.lookups", index, RegisteredNameIndex::getHits).tag("outcome", "hit").register(meterRegistry);
+        FunctionCounter.builder("aptos.names.index.lookups", index, RegisteredNameIndex::getMisses).tag("outcome", "miss").register(meterRegistry);
+        FunctionCounter.builder("aptos.names.index.bloom-rejections", index, RegisteredNameIndex::getBloomRejections).register(meterRegistry);
+        return index;
+    }
+
+    /**
+     * 领取不是幂等的，水龙头不使用 aptos.http.max-retries，失败的领取由调用方决定是否重新发起
+     */
+    @Bean
+    public AptosFaucetClient aptosFaucetClient(OkHttpClient aptosHttpClient,
+                                               @Value("${aptos.faucet}") String faucet,
+                                               LimitProperties limits,
+                                               MeterRegistry meterRegistry) {
+        AptosFaucetClient aptosFaucetClient = new AptosFaucetClient(faucet, aptosHttpClient);
+        aptosFaucetClient.setEndpoint(endpoint("faucet", faucet, limits.getFaucet(), aptosHttpClient, 0, Duration.ZERO, meterRegistry));
+        return aptosFaucetClient;
+    }
+
+    /**
+     * 新账户的资金来源，treasury 模式下资金账户保存在 Keystore 中，名称为 {@value #TREASURY_NAME}
+     */
+    @Bean
+    public FundingStrategy fundingStrategy(FundingProperties properties,
+                                           AptosClient aptosClient,
+                                           AptosFaucetClient aptosFaucetClient,
+                                           ConfirmationTracker confirmationTracker,
+                                           AptosKeystore aptosKeystore,
+                                           MeterRegistry meterRegistry,
+                                           @Value("${aptos.function}") String aptosFunction) {
+        FundingAmount amount = new FundingAmount(aptosClient, aptosFunction, properties.getAmount(), properties.getFeeMargin());
+        if (properties.getMode() == FundingProperties.Mode.FAUCET) {
+            return new FaucetFundingStrategy(aptosClient, aptosFaucetClient, amount);
+        }
+        FundingProperties.Treasury treasury = properties.getTreasury();
+        AptosAccount account = treasuryAccount(treasury.getPrivateKey(), aptosKeystore);
+        log.info("资金账户：{}", account.getAddress());
+        TreasuryFundingStrategy strategy = new TreasuryFundingStrategy(aptosClient, aptosFaucetClient, confirmationTracker, account,
+                amount, treasury.getTopUpAmount(), treasury.getLowWaterMark(),
+                treasury.getTransferFunction(), treasury.getBatchFunction(), treasury.getTypeArguments(),
+                treasury.getMaxBatchSize(), treasury.getBatchWindow().toMillis(), treasury.getMaxInFlight());
+        Gauge.builder("aptos.funding.treasury.balance", strategy, TreasuryFundingStrategy::getBalance).register(meterRegistry);
+        FunctionCounter.builder("aptos.funding.treasury.transfers", strategy, TreasuryFundingStrategy::getTransfers).register(meterRegistry);
+        FunctionCounter.builder("aptos.funding.treasury.top-ups", strategy, TreasuryFundingStrategy::getTopUps).register(meterRegistry);
+        return strategy;
+    }
+
+    private static AptosAccount treasuryAccount(String privateKey, AptosKeystore aptosKeystore) {
+        if (StrUtil.isNotBlank(privateKey)) {
+            byte[] privateKeyBytes = AptosCryptoUtil.decodeHex(privateKey.trim());
+            byte[] publicKeyBytes = AptosCryptoUtil.createPublicKey(privateKeyBytes);
+            return new AptosAccount(privateKeyBytes, publicKeyBytes, AptosCryptoUtil.createAddress(publicKeyBytes), TREASURY_NAME);
+        }
+        AptosAccount stored = aptosKeystore.findByName(TREASURY_NAME);
+        if (stored != null) {
+            return stored;
+        }
+        // 不从 AptosKeyPairPool 取，资金账户落盘之后才能使用
+        byte[] privateKeyBytes = AptosCryptoUtil.randomPrivateKey();
+        byte[] publicKeyBytes = AptosCryptoUtil.createPublicKey(privateKeyBytes);
+        AptosAccount account = new AptosAccount(privateKeyBytes, publicKeyBytes, AptosCryptoUtil.createAddress(publicKeyBytes), TREASURY_NAME);
+        return Futures.join(aptosKeystore.append(account));
+    }
+
+    private static AptosEndpoint endpoint(String name, String url, LimitProperties.Limit limit, OkHttpClient httpClient,
+                                          int maxRetries, Duration retryBackoff, MeterRegistry meterRegistry) {
+        AdaptiveLimiter limiter = new AdaptiveLimiter(name, limit.getRate(), limit.getBurst(),
+                limit.getMinConcurrency(), limit.getInitialConcurrency(), limit.getMaxConcurrency(), limit.getLatencyTolerance());
+        Tags tags = Tags.of("endpoint", name, "node", url);
+        Gauge.builder("aptos.limiter.limit", limiter, AdaptiveLimiter::getLimit).tags(tags).register(meterRegistry);
+        Gauge.builder("aptos.limiter.in-flight", limiter, AdaptiveLimiter::getInFlight).tags(tags).register(meterRegistry);
+        Gauge.builder("aptos.limiter.waiting", limiter, AdaptiveLimiter::getWaiting).tags(tags).register(meterRegistry);
+        FunctionCounter.builder("aptos.limiter.throttled", limiter, AdaptiveLimiter::getThrottled).tags(tags).register(meterRegistry);
+        return new AptosEndpoint(httpClient, limiter, maxRetries, retryBackoff.toMillis());
+    }
+
+    private static AptosEndpointPool pool(String name, List<AptosEndpointPool.Node> nodes, int maxRetries, Duration retryBackoff,
+                                          int ejectAfterFailures, Duration ejectDuration, double hedgePercentile, Duration minHedgeDelay,
+                                          int minHedgeSamples, MeterRegistry meterRegistry) {
+        AptosEndpointPool pool = new AptosEndpointPool(nodes, maxRetries, retryBackoff.toMillis(), ejectAfterFailures,
+                ejectDuration.toMillis(), hedgePercentile, minHedgeDelay.toMillis(), minHedgeSamples);
+        for (AptosEndpointPool.Node node : nodes) {
+            Tags tags = Tags.of("endpoint", name, "node", node.getUrl());
+            Gauge.builder("aptos.balancer.outstanding", node, AptosEndpointPool.Node::getOutstanding).tags(tags).register(meterRegistry);
+            Gauge.builder("aptos.balancer.ejected", node, n -> n.isEjected() ? 1 : 0).tags(tags).register(meterRegistry);
+            FunctionCounter.builder("aptos.balancer.ejections", node, AptosEndpointPool.Node::getEjections).tags(tags).register(meterRegistry);
+        }
+        FunctionCounter.builder("aptos.balancer.hedges", pool, AptosEndpointPool::getHedges).tag("endpoint", name).register(meterRegistry);
+        FunctionCounter.builder("aptos.balancer.hedge-wins", pool, AptosEndpointPool::getHedgeWins).tag("endpoint", name).register(meterRegistry);
+        return pool;
+    }
+}
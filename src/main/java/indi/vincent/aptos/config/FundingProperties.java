@@ -0,0 +1,74 @@
+package indi.vincent.aptos.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 新账户的资金来源配置
+ */
+@Data
+@ConfigurationProperties(prefix = "aptos.funding")
+public class FundingProperties {
+
+    /**
+     * faucet：每个新账户向水龙头领取；treasury：从资金账户转账
+     */
+    private Mode mode = Mode.FAUCET;
+    /**
+     * 每个新账户的最少金额
+     */
+    private long amount = 10000;
+    /**
+     * 每个新账户的金额至少为注册交易估算的最大手续费乘以 (1 + feeMargin)
+     */
+    private double feeMargin = 0.2;
+    private Treasury treasury = new Treasury();
+
+    public enum Mode {
+        FAUCET, TREASURY
+    }
+
+    @Data
+    public static class Treasury {
+        /**
+         * 资金账户私钥，为空时使用 Keystore 中保存的资金账户，没有时生成一个
+         */
+        private String privateKey;
+        /**
+         * 每次向水龙头领取的金额
+         */
+        private long topUpAmount = 1000000;
+        /**
+         * 余额低于该值时在后台补充
+         */
+        private long lowWaterMark = 200000;
+        /**
+         * 单笔转账函数，参数为 (address, u64)，需要在收款账户不存在时创建账户
+         */
+        private String transferFunction = "0x1::aptos_account::transfer";
+        /**
+         * 批量转账函数，参数为 (vector&lt;address&gt;, vector&lt;u64&gt;)，为空时逐个转账
+         */
+        private String batchFunction;
+        /**
+         * 转账函数的类型参数
+         */
+        private List<String> typeArguments = new ArrayList<>();
+        /**
+         * 每笔批量转账的最大账户数
+         */
+        private int maxBatchSize = 64;
+        /**
+         * 批量转账等待更多账户的时间
+         */
+        private Duration batchWindow = Duration.ofMillis(50);
+        /**
+         * 已提交未上链的转账交易上限，需要低于节点 mempool 对单个账户的限制（默认 100）
+         */
+        private int maxInFlight = 32;
+    }
+}
@@ -0,0 +1,57 @@
+package indi.vincent.aptos.config;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * 各远端服务的客户端限流配置
+ */
+@Data
+@ConfigurationProperties(prefix = "aptos.limits")
+public class LimitProperties {
+
+    /**
+     * 全节点
+     */
+    private Limit fullnode = new Limit(200, 100, 4, 16, 64, 3.0);
+    /**
+     * 水龙头
+     */
+    private Limit faucet = new Limit(20, 10, 1, 4, 16, 3.0);
+    /**
+     * Aptos Names 查询接口
+     */
+    private Limit names = new Limit(50, 50, 2, 8, 32, 3.0);
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Limit {
+        /**
+         * 每秒最多发出的请求数，不大于 0 时不限制速率
+         */
+        private double rate;
+        /**
+         * 允许的突发请求数
+         */
+        private int burst;
+        /**
+         * 并发上限的最小值，连续收到 429 时不会低于该值
+         */
+        private int minConcurrency;
+        /**
+         * 初始并发上限
+         */
+        private int initialConcurrency;
+        /**
+         * 并发上限的最大值，响应正常时不会超过该值
+         */
+        private int maxConcurrency;
+        /**
+         * 延迟超过平滑延迟的倍数时降低并发
+         */
+        private double latencyTolerance;
+    }
+}
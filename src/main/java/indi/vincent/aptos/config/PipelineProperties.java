@@ -0,0 +1,57 @@
+package indi.vincent.aptos.config;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * 注册流水线各阶段的并发配置
+ */
+@Data
+@ConfigurationProperties(prefix = "aptos.pipeline")
+public class PipelineProperties {
+
+    /**
+     * lookup 阶段每个任务批量查询的 Name 数量
+     */
+    private int lookupBatchSize = 64;
+    /**
+     * 同时在流水线中处理（lookup 到提交交易）的 Name 数量上限，达到上限后调用线程等待，形成背压
+     */
+    private int maxInFlight = 4096;
+    /**
+     * 查询 Name 是否已被注册
+     */
+    private Stage lookup = new Stage(16, 4096);
+    /**
+     * 生成密钥并写入 Keystore
+     */
+    private Stage keygen = new Stage(Runtime.getRuntime().availableProcessors(), 4096);
+    /**
+     * 水龙头领取 TestCoin
+     */
+    private Stage fund = new Stage(16, 4096);
+    /**
+     * 组装交易并签名
+     */
+    private Stage sign = new Stage(32, 4096);
+    /**
+     * 提交交易
+     */
+    private Stage submit = new Stage(32, 4096);
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Stage {
+        /**
+         * 工作线程数
+         */
+        private int workers;
+        /**
+         * 等待队列长度，不能小于 maxInFlight 减去工作线程数：队列由准入许可限制，运行中不会被拒绝，只有关闭后提交的任务被拒绝
+         */
+        private int queueCapacity;
+    }
+}
@@ -1,75 +1,108 @@
 package indi.vincent.aptos.controller;
 
-import cn.hutool.core.io.FileUtil;
-import cn.hutool.core.util.HexUtil;
-import cn.hutool.json.JSONUtil;
-import indi.vincent.aptos.tools.AptosAccount;
-import indi.vincent.aptos.tools.AptosClient;
-import indi.vincent.aptos.tools.AptosCryptoUtil;
-import indi.vincent.aptos.tools.AptosFaucetClient;
+import indi.vincent.aptos.service.RegistrationJob;
+import indi.vincent.aptos.service.RegistrationJobService;
+import indi.vincent.aptos.service.RegistrationPipeline;
+import indi.vincent.aptos.service.SubmitResult;
+import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
 
-import java.math.BigInteger;
-import java.nio.charset.StandardCharsets;
-import java.util.Collections;
+import javax.servlet.http.HttpServletRequest;
+import java.io.IOException;
 import java.util.List;
-import java.util.Set;
-import java.util.stream.Collectors;
+import java.util.concurrent.RejectedExecutionException;
 
 @Slf4j
 @RestController
 @RequestMapping("/names")
+@RequiredArgsConstructor
 public class NamesController {
 
-    @Value("${aptos.function}")
-    private String aptosFunction;
-    @Value("${aptos.keystore}")
-    private String aptosKeystore;
+    private final RegistrationPipeline registrationPipeline;
+    private final RegistrationJobService registrationJobService;
+    private final TaskExecutor taskExecutor;
 
-    private final AptosClient aptosClient = new AptosClient("https://fullnode.devnet.aptoslabs.com");
-    private final AptosFaucetClient aptosFaucetClient = new AptosFaucetClient("https://faucet.devnet.aptoslabs.com");
+    @Value("${aptos.jobs.event-queue-capacity:4096}")
+    private int eventQueueCapacity = 4096;
 
+    @Value("${aptos.pipeline.lookup-batch-size:64}")
+    private int lookupBatchSize = 64;
+
+    @Value("${aptos.stream.max-in-flight:4096}")
+    private int streamMaxInFlight = 4096;
+
+    /**
+     * 注册一批 Name，按输入顺序返回每个 Name 的交易哈希或失败原因，单个 Name 失败不影响其他 Name
+     */
     @PostMapping
-    public ResponseEntity<?> create(@RequestBody List<String> names) {
+    public ResponseEntity<List<SubmitResult>> create(@RequestBody List<String> names) {
+        return ResponseEntity.ok(registrationPipeline.register(names).join());
+    }
 
-        Set<String> unregisteredNames = names.stream().filter(name -> {
-            String address = aptosClient.invokeGetAddress(name);
-            if (address != null) {
-                log.info("地址 {} -> 已经注册了 {}，跳过注册", address.toUpperCase(), name);
-            }
-            return address == null;
-        }).collect(Collectors.toSet());
+    /**
+     * 流式注册：请求体每行一个 Name，边读边注册，每个 Name 处理结束时返回一行 NDJSON 结果
+     */
+    @PostMapping(path = "/stream", consumes = {"application/x-ndjson", MediaType.TEXT_PLAIN_VALUE}, produces = "application/x-ndjson")
+    public ResponseEntity<StreamingResponseBody> stream(HttpServletRequest request) throws IOException {
+        return ResponseEntity.ok(new RegistrationStreamBody(registrationPipeline::register, request.getInputStream(), lookupBatchSize, streamMaxInFlight));
+    }
 
-        List<String> transactionHash = unregisteredNames.stream().map(name -> {
-            byte[] privateKeyBytes = AptosCryptoUtil.randomPrivateKey();
-            byte[] publicKeyBytes = AptosCryptoUtil.createPublicKey(privateKeyBytes);
-            byte[] addressBytes = AptosCryptoUtil.createAddress(publicKeyBytes);
-            AptosAccount account = new AptosAccount(privateKeyBytes, publicKeyBytes, addressBytes, name);
-            String filePath = aptosKeystore + account.getAddress().toUpperCase() + ".JSON";
-            FileUtil.writeString(JSONUtil.toJsonStr(account), filePath, StandardCharsets.UTF_8);
-            log.info("生成私钥文件：{} -> {}", filePath, name);
+    /**
+     * 创建注册任务，立即返回任务 ID；等待分派的任务已满时返回 503
+     */
+    @PostMapping("/jobs")
+    public ResponseEntity<RegistrationJob.Status> createJob(@RequestBody List<String> names) {
+        RegistrationJob job;
+        try {
+            job = registrationJobService.submit(names);
+        } catch (RejectedExecutionException e) {
+            log.warn("拒绝注册任务：{}", e.getMessage());
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).build();
+        }
+        return ResponseEntity.accepted()
+                .location(ServletUriComponentsBuilder.fromCurrentRequest().path("/{id}").buildAndExpand(job.getId()).toUri())
+                .body(job.status());
+    }
 
-            aptosFaucetClient.invokeMint(account.getAddress(), BigInteger.valueOf(10000L));
-            AptosClient.TransactionPayload transactionPayload = new AptosClient.TransactionPayload();
-            transactionPayload.setType("script_function_payload");
-            transactionPayload.setFunction(aptosFunction);
-            transactionPayload.setArguments(
-                    Collections.singletonList(
-                            HexUtil.encodeHexStr(name.getBytes(StandardCharsets.UTF_8))
-                    )
-            );
-            String hash = aptosClient.executeTransactionWithPayload(account, transactionPayload);
-            log.info("发送交易 {}，成功注册 {}", hash, name);
-            return hash;
-        }).collect(Collectors.toList());
+    /**
+     * 查询任务进度
+     */
+    @GetMapping("/jobs/{id}")
+    public ResponseEntity<RegistrationJob.Status> getJob(@PathVariable String id) {
+        RegistrationJob job = registrationJobService.find(id);
+        return job == null ? ResponseEntity.notFound().build() : ResponseEntity.ok(job.status());
+    }
 
-        return ResponseEntity.ok(transactionHash);
+    /**
+     * 以 Server-Sent Events 推送任务进度：订阅时和结束时推送 status 事件，每个 Name 处理结束时推送 result 事件
+     * <p>
+     * result 事件的 id 是结果的序号，订阅时先回放 Last-Event-ID 之后仍然保留的结果，没有 Last-Event-ID 时回放全部结果
+     */
+    @GetMapping("/jobs/{id}/events")
+    public ResponseEntity<SseEmitter> streamJob(@PathVariable String id,
+                                                @RequestHeader(value = "Last-Event-ID", defaultValue = "0") long lastEventId) {
+        RegistrationJob job = registrationJobService.find(id);
+        if (job == null) {
+            return ResponseEntity.notFound().build();
+        }
+        SseEmitter emitter = new SseEmitter(0L);
+        new RegistrationEventStream(job, emitter, taskExecutor, eventQueueCapacity).start(lastEventId);
+        return ResponseEntity.ok(emitter);
     }
 
 }
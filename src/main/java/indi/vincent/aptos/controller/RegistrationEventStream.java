@@ -0,0 +1,130 @@
+package indi.vincent.aptos.controller;
+
+import indi.vincent.aptos.service.RegistrationJob;
+import indi.vincent.aptos.service.RegistrationListener;
+import indi.vincent.aptos.service.RegistrationResult;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * 把注册任务的结果以 Server-Sent Events 推送给一个客户端
+ * <p>
+ * 流水线线程只把事件放入有界队列，由 executor 上的任务写出，慢客户端不会阻塞流水线；
+ * 队列满时断开该客户端。result 事件的 id 是结果的序号，客户端带上 Last-Event-ID 重连时从该序号之后回放，
+ * 回放的结果不占用队列容量。
+ */
+@Slf4j
+class RegistrationEventStream implements RegistrationListener {
+
+    private static final SseEmitter.SseEventBuilder COMPLETE = SseEmitter.event();
+
+    private final RegistrationJob job;
+    private final SseEmitter emitter;
+    private final Executor executor;
+    private final BlockingQueue<SseEmitter.SseEventBuilder> queue = new LinkedBlockingQueue<>();
+    private final int queueCapacity;
+    private final AtomicBoolean draining = new AtomicBoolean();
+    private volatile long replayUntil;
+    private volatile int replayed;
+    private volatile boolean closed;
+
+    RegistrationEventStream(RegistrationJob job, SseEmitter emitter, Executor executor, int queueCapacity) {
+        this.job = job;
+        this.emitter = emitter;
+        this.executor = executor;
+        this.queueCapacity = queueCapacity;
+        emitter.onCompletion(this::close);
+        emitter.onTimeout(this::close);
+        emitter.onError(error -> this.close());
+    }
+
+    /**
+     * 先推送当前进度，再回放 lastEventId 之后的结果并订阅之后的结果
+     *
+     * @param lastEventId 客户端已经收到的最后一个结果的序号，0 表示回放全部结果
+     */
+    void start(long lastEventId) {
+        this.enqueue(SseEmitter.event().name("status").data(this.job.status()));
+        // 订阅之前已经产生的结果一定是回放的
+        this.replayUntil = this.job.getLastSequence();
+        if (!this.job.subscribe(this, lastEventId)) {
+            this.enqueue(COMPLETE);
+        }
+    }
+
+    @Override
+    public void onResult(long sequence, RegistrationResult result) {
+        if (sequence <= this.replayUntil) {
+            this.replayed++;
+        }
+        this.enqueue(SseEmitter.event().id(String.valueOf(sequence)).name("result").data(result));
+    }
+
+    @Override
+    public void onComplete() {
+        this.enqueue(SseEmitter.event().name("status").data(this.job.status()));
+        this.enqueue(COMPLETE);
+    }
+
+    private void enqueue(SseEmitter.SseEventBuilder event) {
+        if (this.closed) {
+            return;
+        }
+        // 入队都在任务的锁内或订阅之前，不会并发
+        if (this.queue.size() >= this.queueCapacity + this.replayed || !this.queue.offer(event)) {
+            log.warn("注册任务 {} 的事件推送跟不上，断开客户端", this.job.getId());
+            this.close();
+            this.emitter.completeWithError(new IllegalStateException("Event stream overflow"));
+            return;
+        }
+        this.scheduleDrain();
+    }
+
+    private void scheduleDrain() {
+        if (this.draining.compareAndSet(false, true)) {
+            try {
+                this.executor.execute(this::drain);
+            } catch (RejectedExecutionException e) {
+                this.draining.set(false);
+                this.close();
+                this.emitter.completeWithError(e);
+            }
+        }
+    }
+
+    private void drain() {
+        SseEmitter.SseEventBuilder event;
+        while (!this.closed && (event = this.queue.poll()) != null) {
+            if (event == COMPLETE) {
+                this.close();
+                this.emitter.complete();
+                return;
+            }
+            try {
+                this.emitter.send(event);
+            } catch (IOException | IllegalStateException e) {
+                log.debug("注册任务 {} 的客户端已断开：{}", this.job.getId(), e.toString());
+                this.close();
+                return;
+            }
+        }
+        this.draining.set(false);
+        // 释放标记之后入队的事件需要重新调度
+        if (!this.closed && !this.queue.isEmpty()) {
+            this.scheduleDrain();
+        }
+    }
+
+    private void close() {
+        this.closed = true;
+        this.job.unsubscribe(this);
+        this.queue.clear();
+    }
+}
@@ -0,0 +1,155 @@
+package indi.vincent.aptos.controller;
+
+import cn.hutool.core.util.StrUtil;
+import cn.hutool.json.JSONUtil;
+import indi.vincent.aptos.service.RegistrationListener;
+import indi.vincent.aptos.service.RegistrationPipeline;
+import indi.vincent.aptos.service.RegistrationResult;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.function.BiConsumer;
+
+/**
+ * 边读请求体边注册，每个 Name 处理结束时写出一行 NDJSON 结果
+ * <p>
+ * 请求体每行一个 Name，可以是纯文本、JSON 字符串或带 name 字段的 JSON 对象。
+ * 读取和写出在同一个线程上交替进行：处理中的 Name 达到 maxInFlight 时停止读取，
+ * 等结果写出后再继续，客户端发送或接收变慢都会通过 TCP 反压到对方，内存占用只和 maxInFlight 有关。
+ * <p>
+ * 每读满 batchSize 个 Name，或者暂时没有更多输入时，把已读到的 Name 作为一批交给流水线，
+ * 只在批次内去重。
+ */
+@Slf4j
+class RegistrationStreamBody implements StreamingResponseBody, RegistrationListener {
+
+    /**
+     * 把一批 Name 交给流水线，通常是 {@link RegistrationPipeline#register(java.util.Collection, RegistrationListener)}
+     */
+    private final BiConsumer<List<String>, RegistrationListener> register;
+    private final InputStream input;
+    private final int batchSize;
+    private final int maxInFlight;
+    /**
+     * 元素数量不超过 maxInFlight
+     */
+    private final BlockingQueue<RegistrationResult> results = new LinkedBlockingQueue<>();
+
+    RegistrationStreamBody(BiConsumer<List<String>, RegistrationListener> register, InputStream input, int batchSize, int maxInFlight) {
+        this.register = register;
+        this.input = input;
+        this.batchSize = batchSize;
+        this.maxInFlight = maxInFlight;
+    }
+
+    @Override
+    public void writeTo(OutputStream outputStream) throws IOException {
+        BufferedReader reader = new BufferedReader(new InputStreamReader(this.input, StandardCharsets.UTF_8));
+        Writer writer = new BufferedWriter(new OutputStreamWriter(outputStream, StandardCharsets.UTF_8));
+        List<String> batch = new ArrayList<>(this.batchSize);
+        long read = 0;
+        long written = 0;
+        boolean eof = false;
+        while (!eof || written < read) {
+            RegistrationResult result;
+            while ((result = this.results.poll()) != null) {
+                this.write(writer, result);
+                written++;
+            }
+            if (!eof && read - written < this.maxInFlight) {
+                if (!batch.isEmpty() && !reader.ready()) {
+                    // 读取会阻塞，先处理已经读到的 Name
+                    read += this.dispatch(batch);
+                    writer.flush();
+                }
+                String line = reader.readLine();
+                if (line == null) {
+                    eof = true;
+                    read += this.dispatch(batch);
+                    continue;
+                }
+                String name;
+                try {
+                    name = parse(line);
+                } catch (RuntimeException e) {
+                    this.write(writer, RegistrationResult.failed(line, null, null, "Invalid line: " + e.getMessage()));
+                    continue;
+                }
+                if (name == null) {
+                    continue;
+                }
+                batch.add(name);
+                if (batch.size() >= this.batchSize) {
+                    read += this.dispatch(batch);
+                }
+            } else if (written < read) {
+                read += this.dispatch(batch);
+                writer.flush();
+                try {
+                    this.write(writer, this.results.take());
+                    written++;
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new IOException("Interrupted while waiting for registration results", e);
+                }
+            }
+        }
+        writer.flush();
+        log.info("流式注册结束，共处理 {} 个 Name", read);
+    }
+
+    @Override
+    public void onResult(RegistrationResult result) {
+        this.results.add(result);
+    }
+
+    /**
+     * @return 交给流水线的 Name 数量，即之后会收到的结果数量
+     */
+    private int dispatch(List<String> batch) {
+        if (batch.isEmpty()) {
+            return 0;
+        }
+        List<String> uniqueNames = new ArrayList<>(new LinkedHashSet<>(batch));
+        batch.clear();
+        this.register.accept(uniqueNames, this);
+        return uniqueNames.size();
+    }
+
+    private void write(Writer writer, RegistrationResult result) throws IOException {
+        writer.write(JSONUtil.toJsonStr(result));
+        writer.write('\n');
+    }
+
+    /**
+     * @return 空行返回 null
+     * @throws RuntimeException 不是合法的 JSON
+     */
+    static String parse(String line) {
+        String trimmed = StrUtil.trim(line);
+        if (StrUtil.isEmpty(trimmed)) {
+            return null;
+        }
+        if (trimmed.charAt(0) == '{') {
+            return StrUtil.trimToNull(JSONUtil.parseObj(trimmed).getStr("name"));
+        }
+        if (trimmed.charAt(0) == '"') {
+            return StrUtil.trimToNull(JSONUtil.parseArray("[" + trimmed + "]").getStr(0));
+        }
+        return trimmed;
+    }
+}
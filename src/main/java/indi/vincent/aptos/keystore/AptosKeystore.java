@@ -0,0 +1,116 @@
+package indi.vincent.aptos.keystore;
+
+import cn.hutool.json.JSONUtil;
+import indi.vincent.aptos.tools.AptosAccount;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.BiConsumer;
+
+/**
+ * 基于 {@link GroupCommitLog} 的账户 Keystore
+ * <p>
+ * 所有账户以 JSON 追加写入同一组分段日志，启动时回放日志在内存中建立
+ * Name -> 地址、地址 -> 记录位置两个索引，查询不需要扫描文件。
+ */
+public class AptosKeystore implements AutoCloseable {
+
+    private static final String PREFIX = "keystore";
+
+    private final Map<String, String> nameIndex = new ConcurrentHashMap<>();
+    private final Map<String, Long> addressIndex = new ConcurrentHashMap<>();
+    private final GroupCommitLog log;
+
+    /**
+     * @param directory   日志目录
+     * @param segmentSize 单个分段的最大字节数
+     */
+    public AptosKeystore(Path directory, long segmentSize) {
+        this.log = new GroupCommitLog(directory, PREFIX, segmentSize, (position, payload, length) -> {
+            AptosAccount account = JSONUtil.toBean(new String(payload, 0, length, StandardCharsets.UTF_8), AptosAccount.class);
+            this.index(account, position);
+        });
+    }
+
+    /**
+     * 保存账户
+     *
+     * @param account Aptos 账户
+     * @return 账户落盘后结束
+     */
+    public CompletableFuture<AptosAccount> append(AptosAccount account) {
+        byte[] payload = JSONUtil.toJsonStr(account).getBytes(StandardCharsets.UTF_8);
+        return this.log.append(payload).thenApply(position -> {
+            this.index(account, position);
+            return account;
+        });
+    }
+
+    /**
+     * 按地址查询账户
+     *
+     * @param address 账户地址
+     * @return 账户，不存在时为 null
+     */
+    public AptosAccount findByAddress(String address) {
+        Long position = this.addressIndex.get(normalize(address));
+        if (position == null) {
+            return null;
+        }
+        return JSONUtil.toBean(new String(this.log.read(position), StandardCharsets.UTF_8), AptosAccount.class);
+    }
+
+    /**
+     * 按 Name 查询账户
+     *
+     * @param name Name Service
+     * @return 最近一次为该 Name 生成的账户，不存在时为 null
+     */
+    public AptosAccount findByName(String name) {
+        String address = this.nameIndex.get(name);
+        return address == null ? null : this.findByAddress(address);
+    }
+
+    /**
+     * @param address 账户地址
+     * @return Keystore 中是否已有该地址
+     */
+    public boolean containsAddress(String address) {
+        return this.addressIndex.containsKey(normalize(address));
+    }
+
+    /**
+     * 遍历 Name -> 地址索引
+     */
+    public void forEachName(BiConsumer<String, String> consumer) {
+        this.nameIndex.forEach(consumer);
+    }
+
+    /**
+     * @return 账户数量
+     */
+    public int size() {
+        return this.addressIndex.size();
+    }
+
+    private void index(AptosAccount account, long position) {
+        String address = normalize(account.getAddress());
+        this.addressIndex.put(address, position);
+        if (account.getName() != null) {
+            this.nameIndex.put(account.getName(), address);
+        }
+    }
+
+    private static String normalize(String address) {
+        String hex = address.startsWith("0x") ? address.substring(2) : address;
+        return hex.toLowerCase();
+    }
+
+    @Override
+    public void close() {
+        this.log.close();
+    }
+}
@@ -0,0 +1,372 @@
+package indi.vincent.aptos.keystore;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.zip.CRC32;
+
+/**
+ * 分段的追加写日志
+ * <p>
+ * 记录格式为 [int 长度][int CRC32][内容]，文件写满 segmentSize 后切换到下一个分段。
+ * 所有写入由一个后台线程完成，一次取出队列中全部待写记录，写完后只调用一次 fsync（Group Commit），
+ * fsync 完成后 {@link #append(byte[])} 返回的 Future 才结束。
+ * 一批写入失败时截断回这一批之前的位置，不在文件中留下写了一半的记录；截断也失败时日志不再接受写入。
+ * <p>
+ * 记录位置用 long 表示：高 32 位为分段编号，低 32 位为分段内偏移量。
+ */
+@Slf4j
+public class GroupCommitLog implements AutoCloseable {
+
+    private static final int HEADER_SIZE = 8;
+    private static final int MAX_BATCH = 4096;
+    private static final PendingRecord CLOSE = new PendingRecord(new byte[0]);
+
+    private final Path directory;
+    private final String prefix;
+    private final long segmentSize;
+
+    private final BlockingQueue<PendingRecord> queue = new LinkedBlockingQueue<>();
+    private final Map<Integer, FileChannel> readers = new ConcurrentHashMap<>();
+    private final Thread writer;
+
+    private FileChannel channel;
+    private int segmentId;
+    private long segmentPosition;
+    private volatile boolean closed;
+    /**
+     * 写入失败且无法回滚，之后的写入全部失败
+     */
+    private volatile IOException failure;
+
+    /**
+     * 打开日志，回放已有记录后开始接受写入
+     *
+     * @param directory   日志目录
+     * @param prefix      分段文件名前缀
+     * @param segmentSize 单个分段的最大字节数
+     * @param consumer    回放时接收每条已有记录
+     */
+    public GroupCommitLog(Path directory, String prefix, long segmentSize, RecordConsumer consumer) {
+        if (segmentSize <= HEADER_SIZE || segmentSize > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Invalid segment size: " + segmentSize);
+        }
+        this.directory = directory;
+        this.prefix = prefix;
+        this.segmentSize = segmentSize;
+        try {
+            Files.createDirectories(directory);
+            this.replay(consumer);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        this.writer = new Thread(this::writeLoop, "aptos-" + prefix + "-writer");
+        this.writer.setDaemon(true);
+        this.writer.start();
+    }
+
+    /**
+     * 追加一条记录
+     *
+     * @param payload 记录内容
+     * @return 记录落盘后结束，值为记录位置
+     */
+    public CompletableFuture<Long> append(byte[] payload) {
+        if (payload.length == 0) {
+            // 长度为 0 的记录和文件末尾预分配或写了一半的零字节无法区分
+            throw new IllegalArgumentException("Empty record");
+        }
+        if (HEADER_SIZE + payload.length > this.segmentSize) {
+            throw new IllegalArgumentException("Record too large: " + payload.length);
+        }
+        PendingRecord record = new PendingRecord(payload);
+        if (this.closed) {
+            record.future.completeExceptionally(new IllegalStateException(this.prefix + " log is closed"));
+            return record.future;
+        }
+        if (this.failure != null) {
+            record.future.completeExceptionally(new IllegalStateException(this.prefix + " log has failed", this.failure));
+            return record.future;
+        }
+        this.queue.add(record);
+        if (this.closed && this.queue.remove(record)) {
+            // 和 close() 并发时写入线程可能已经取完队列，这条记录由这里结束
+            record.future.completeExceptionally(new IllegalStateException(this.prefix + " log is closed"));
+        }
+        return record.future;
+    }
+
+    /**
+     * 读取指定位置的记录
+     *
+     * @param position {@link #append(byte[])} 或回放时得到的记录位置
+     * @return 记录内容
+     */
+    public byte[] read(long position) {
+        int segment = (int) (position >>> 32);
+        long offset = position & 0xFFFFFFFFL;
+        try {
+            FileChannel reader = this.readers.computeIfAbsent(segment, id -> {
+                try {
+                    return FileChannel.open(this.segmentPath(id), StandardOpenOption.READ);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+            readFully(reader, header, offset);
+            header.flip();
+            int length = header.getInt();
+            int checksum = header.getInt();
+            ByteBuffer payload = ByteBuffer.allocate(length);
+            readFully(reader, payload, offset + HEADER_SIZE);
+            if (checksum(payload.array(), 0, length) != checksum) {
+                throw new IllegalStateException("Corrupted record at " + segment + ":" + offset);
+            }
+            return payload.array();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private void replay(RecordConsumer consumer) throws IOException {
+        TreeMap<Integer, Path> segments = new TreeMap<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(this.directory, this.prefix + "-*.log")) {
+            for (Path path : stream) {
+                String name = path.getFileName().toString();
+                segments.put(Integer.parseInt(name.substring(this.prefix.length() + 1, name.length() - ".log".length())), path);
+            }
+        }
+        this.segmentId = segments.isEmpty() ? 0 : segments.lastKey();
+        this.segmentPosition = 0;
+        byte[] payload = new byte[256];
+        for (Map.Entry<Integer, Path> segment : segments.entrySet()) {
+            long validLength;
+            try (FileChannel file = FileChannel.open(segment.getValue(), StandardOpenOption.READ)) {
+                MappedByteBuffer mapped = file.map(FileChannel.MapMode.READ_ONLY, 0, file.size());
+                while (mapped.remaining() >= HEADER_SIZE) {
+                    int offset = mapped.position();
+                    int length = mapped.getInt();
+                    int checksum = mapped.getInt();
+                    // 零字节的长度和 CRC32 恰好是一条有效的空记录，视为有效数据的结尾
+                    if (length <= 0 || length > mapped.remaining()) {
+                        mapped.position(offset);
+                        break;
+                    }
+                    if (payload.length < length) {
+                        payload = new byte[Math.max(length, payload.length << 1)];
+                    }
+                    mapped.get(payload, 0, length);
+                    if (checksum(payload, 0, length) != checksum) {
+                        mapped.position(offset);
+                        break;
+                    }
+                    consumer.accept(((long) segment.getKey() << 32) | offset, payload, length);
+                }
+                validLength = mapped.position();
+                if (validLength < file.size()) {
+                    log.warn("{} 分段 {} 在 {} 之后的内容不完整，已截断", this.prefix, segment.getValue(), validLength);
+                }
+            }
+            if (segment.getKey() == this.segmentId) {
+                this.segmentPosition = validLength;
+            } else if (validLength < Files.size(segment.getValue())) {
+                throw new IOException("Corrupted segment " + segment.getValue());
+            }
+        }
+        this.channel = FileChannel.open(this.segmentPath(this.segmentId),
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.READ);
+        this.channel.truncate(this.segmentPosition);
+        this.channel.position(this.segmentPosition);
+    }
+
+    private void writeLoop() {
+        List<PendingRecord> batch = new ArrayList<>();
+        boolean running = true;
+        while (running) {
+            try {
+                batch.add(this.queue.take());
+            } catch (InterruptedException e) {
+                continue;
+            }
+            this.queue.drainTo(batch, MAX_BATCH - batch.size());
+            running = !batch.remove(CLOSE);
+            this.writeBatch(batch);
+            batch.clear();
+        }
+        // close() 之后才进入队列的记录不再写入
+        this.failQueued();
+    }
+
+    private void failQueued() {
+        List<PendingRecord> pending = new ArrayList<>();
+        this.queue.drainTo(pending);
+        for (PendingRecord record : pending) {
+            if (record != CLOSE) {
+                record.future.completeExceptionally(new IllegalStateException(this.prefix + " log is closed"));
+            }
+        }
+    }
+
+    private void writeBatch(List<PendingRecord> batch) {
+        if (batch.isEmpty()) {
+            return;
+        }
+        if (this.failure != null) {
+            for (PendingRecord record : batch) {
+                record.future.completeExceptionally(new IllegalStateException(this.prefix + " log has failed", this.failure));
+            }
+            return;
+        }
+        int startSegmentId = this.segmentId;
+        long startPosition = this.segmentPosition;
+        try {
+            int batchSize = 0;
+            for (PendingRecord record : batch) {
+                batchSize += HEADER_SIZE + record.payload.length;
+            }
+            ByteBuffer buffer = ByteBuffer.allocate(batchSize);
+            for (PendingRecord record : batch) {
+                int recordSize = HEADER_SIZE + record.payload.length;
+                if (this.segmentPosition + buffer.position() + recordSize > this.segmentSize) {
+                    this.flush(buffer);
+                    this.rollSegment();
+                }
+                record.position = ((long) this.segmentId << 32) | (this.segmentPosition + buffer.position());
+                buffer.putInt(record.payload.length);
+                buffer.putInt(checksum(record.payload, 0, record.payload.length));
+                buffer.put(record.payload);
+            }
+            this.flush(buffer);
+            this.channel.force(false);
+            for (PendingRecord record : batch) {
+                record.future.complete(record.position);
+            }
+        } catch (IOException | RuntimeException e) {
+            log.error("{} 写入失败", this.prefix, e);
+            this.rollback(startSegmentId, startPosition);
+            for (PendingRecord record : batch) {
+                record.future.completeExceptionally(e);
+            }
+        }
+    }
+
+    /**
+     * 丢弃失败的一批记录：删除这一批新建的分段，把原来的分段截断到写入之前的位置。
+     * 否则写了一半的记录留在文件中，回放时会在这里截断，丢掉之后已经确认的记录
+     */
+    private void rollback(int startSegmentId, long startPosition) {
+        try {
+            if (this.segmentId != startSegmentId) {
+                this.channel.close();
+                for (int id = this.segmentId; id > startSegmentId; id--) {
+                    FileChannel reader = this.readers.remove(id);
+                    if (reader != null) {
+                        reader.close();
+                    }
+                    Files.deleteIfExists(this.segmentPath(id));
+                }
+                this.segmentId = startSegmentId;
+                this.channel = FileChannel.open(this.segmentPath(startSegmentId), StandardOpenOption.WRITE, StandardOpenOption.READ);
+            }
+            this.channel.truncate(startPosition);
+            this.channel.position(startPosition);
+            this.channel.force(false);
+            this.segmentPosition = startPosition;
+        } catch (IOException | RuntimeException e) {
+            log.error("{} 回滚失败，不再接受写入", this.prefix, e);
+            this.failure = e instanceof IOException ? (IOException) e : new IOException(e);
+        }
+    }
+
+    private void flush(ByteBuffer buffer) throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            this.segmentPosition += this.channel.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    private void rollSegment() throws IOException {
+        this.channel.force(false);
+        this.channel.close();
+        this.segmentId++;
+        this.segmentPosition = 0;
+        this.channel = FileChannel.open(this.segmentPath(this.segmentId),
+                StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE, StandardOpenOption.READ);
+    }
+
+    private Path segmentPath(int id) {
+        return this.directory.resolve(String.format("%s-%08d.log", this.prefix, id));
+    }
+
+    private static void readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            int read = channel.read(buffer, position + buffer.position());
+            if (read < 0) {
+                throw new IOException("Unexpected end of segment at " + position);
+            }
+        }
+    }
+
+    private static int checksum(byte[] bytes, int offset, int length) {
+        CRC32 crc32 = new CRC32();
+        crc32.update(bytes, offset, length);
+        return (int) crc32.getValue();
+    }
+
+    @Override
+    public void close() {
+        if (this.closed) {
+            return;
+        }
+        this.closed = true;
+        this.queue.add(CLOSE);
+        try {
+            this.writer.join();
+            this.failQueued();
+            this.channel.close();
+            for (FileChannel reader : this.readers.values()) {
+                reader.close();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * 回放时接收记录，payload 数组会被复用，只有前 length 个字节有效
+     */
+    @FunctionalInterface
+    public interface RecordConsumer {
+        void accept(long position, byte[] payload, int length);
+    }
+
+    private static class PendingRecord {
+        private final byte[] payload;
+        private final CompletableFuture<Long> future = new CompletableFuture<>();
+        private long position;
+
+        PendingRecord(byte[] payload) {
+            this.payload = payload;
+        }
+    }
+}
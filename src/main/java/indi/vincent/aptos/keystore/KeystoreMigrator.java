@@ -0,0 +1,81 @@
+package indi.vincent.aptos.keystore;
+
+import cn.hutool.json.JSONUtil;
+import indi.vincent.aptos.tools.AptosAccount;
+import indi.vincent.aptos.tools.Futures;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * 把旧版每个账户一个 JSON 文件的 Keystore 导入 {@link AptosKeystore}
+ * <p>
+ * 导入完成后在日志目录写入标记文件，之后启动不再重复扫描；旧文件保留不删除。
+ */
+@Slf4j
+public class KeystoreMigrator {
+
+    private static final String MARKER = ".migrated";
+
+    private KeystoreMigrator() {
+    }
+
+    /**
+     * 导入旧版 Keystore，已经导入过时直接返回
+     *
+     * @param legacyDirectory 旧版 Keystore 目录
+     * @param logDirectory    新 Keystore 的日志目录
+     * @param keystore        新 Keystore
+     * @return 本次导入的账户数量
+     */
+    public static int migrateOnce(Path legacyDirectory, Path logDirectory, AptosKeystore keystore) {
+        Path marker = logDirectory.resolve(MARKER);
+        if (Files.exists(marker)) {
+            return 0;
+        }
+        int migrated = migrate(legacyDirectory, keystore);
+        try {
+            Files.createDirectories(logDirectory);
+            Files.write(marker, String.valueOf(migrated).getBytes(StandardCharsets.UTF_8));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return migrated;
+    }
+
+    /**
+     * 导入旧版 Keystore 中的全部账户，Keystore 中已有的地址会被跳过
+     *
+     * @param legacyDirectory 旧版 Keystore 目录
+     * @param keystore        新 Keystore
+     * @return 导入的账户数量
+     */
+    public static int migrate(Path legacyDirectory, AptosKeystore keystore) {
+        if (!Files.isDirectory(legacyDirectory)) {
+            return 0;
+        }
+        List<CompletableFuture<AptosAccount>> futures = new ArrayList<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(legacyDirectory, "*.{JSON,json}")) {
+            for (Path file : stream) {
+                AptosAccount account = JSONUtil.toBean(new String(Files.readAllBytes(file), StandardCharsets.UTF_8), AptosAccount.class);
+                if (account.getAddress() == null || keystore.containsAddress(account.getAddress())) {
+                    continue;
+                }
+                futures.add(keystore.append(account));
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        Futures.join(CompletableFuture.allOf(futures.toArray(new CompletableFuture[0])));
+        log.info("从 {} 导入了 {} 个账户", legacyDirectory, futures.size());
+        return futures.size();
+    }
+}
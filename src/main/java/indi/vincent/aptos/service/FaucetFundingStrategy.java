@@ -0,0 +1,64 @@
+package indi.vincent.aptos.service;
+
+import indi.vincent.aptos.tools.AptosAccount;
+import indi.vincent.aptos.tools.AptosClient;
+import indi.vincent.aptos.tools.AptosFaucetClient;
+import indi.vincent.aptos.tools.Futures;
+import lombok.extern.slf4j.Slf4j;
+
+import java.math.BigInteger;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+/**
+ * 每个新账户单独向水龙头领取 TestCoin，金额见 {@link FundingAmount}
+ * <p>
+ * 领取不是幂等的，水龙头请求本身不重试。领取失败后先查询账户：账户已经创建说明领取已经生效，
+ * 否则按指数退避重新领取，最多 {@value #MAX_ATTEMPTS} 次。
+ */
+@Slf4j
+public class FaucetFundingStrategy implements FundingStrategy {
+
+    private static final int MAX_ATTEMPTS = 3;
+    private static final long RETRY_BACKOFF_MILLIS = 200;
+
+    private final AptosClient aptosClient;
+    private final AptosFaucetClient aptosFaucetClient;
+    private final FundingAmount amount;
+
+    public FaucetFundingStrategy(AptosClient aptosClient, AptosFaucetClient aptosFaucetClient, FundingAmount amount) {
+        this.aptosClient = aptosClient;
+        this.aptosFaucetClient = aptosFaucetClient;
+        this.amount = amount;
+    }
+
+    @Override
+    public CompletableFuture<Void> fund(AptosAccount account) {
+        return this.amount.getAsync().thenCompose(amount -> this.mint(account, BigInteger.valueOf(amount), 1));
+    }
+
+    private CompletableFuture<Void> mint(AptosAccount account, BigInteger amount, int attempt) {
+        return this.aptosFaucetClient.invokeMintAsync(account.getAddress(), amount)
+                .<CompletableFuture<Void>>handle((hashes, error) -> error == null
+                        ? CompletableFuture.completedFuture(null)
+                        : this.verify(account, amount, attempt, error))
+                .thenCompose(result -> result);
+    }
+
+    /**
+     * 领取失败时响应可能只是丢失了，账户已经存在时视为成功
+     */
+    private CompletableFuture<Void> verify(AptosAccount account, BigInteger amount, int attempt, Throwable error) {
+        return this.aptosClient.invokeGetAccountAsync(account.getAddress()).handle((response, lookupError) -> {
+            if (lookupError == null && response.getSequenceNumber() != null) {
+                return CompletableFuture.<Void>completedFuture(null);
+            }
+            if (lookupError != null || attempt >= MAX_ATTEMPTS) {
+                // 无法确认领取是否生效时不再领取
+                return Futures.<Void>failed(new CompletionException(Futures.unwrap(error)));
+            }
+            log.debug("账户 {} 第 {} 次领取失败，重新领取", account.getAddress(), attempt, error);
+            return Futures.delay(RETRY_BACKOFF_MILLIS << (attempt - 1)).thenCompose(ignored -> this.mint(account, amount, attempt + 1));
+        }).thenCompose(result -> result);
+    }
+}
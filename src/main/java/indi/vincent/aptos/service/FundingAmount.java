@@ -0,0 +1,67 @@
+package indi.vincent.aptos.service;
+
+import indi.vincent.aptos.tools.AptosClient;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * 每个新账户的金额
+ * <p>
+ * 不少于配置的金额，并且不少于注册交易估算的最大手续费乘以 (1 + feeMargin)。
+ * Gas 单价上涨后配置的金额可能不够支付 max_gas_amount * gas_unit_price，注册交易会因余额不足被拒绝。
+ */
+public class FundingAmount {
+
+    private final AptosClient aptosClient;
+    private final String function;
+    private final long minimum;
+    private final double feeMargin;
+
+    /**
+     * @param aptosClient 估算最大手续费，为 null 时金额固定为 minimum
+     * @param function    注册交易的入口函数
+     * @param minimum     配置的金额
+     * @param feeMargin   在最大手续费之上额外预留的比例
+     */
+    public FundingAmount(AptosClient aptosClient, String function, long minimum, double feeMargin) {
+        if (minimum < 0 || feeMargin < 0) {
+            throw new IllegalArgumentException("Invalid funding amount: " + minimum + " / " + feeMargin);
+        }
+        this.aptosClient = aptosClient;
+        this.function = function;
+        this.minimum = minimum;
+        this.feeMargin = feeMargin;
+    }
+
+    /**
+     * 固定金额，不考虑手续费
+     */
+    public static FundingAmount fixed(long amount) {
+        return new FundingAmount(null, null, amount, 0);
+    }
+
+    public long getMinimum() {
+        return this.minimum;
+    }
+
+    /**
+     * @return 按最近一次估算的最大手续费计算的金额
+     */
+    public long get() {
+        return this.aptosClient == null ? this.minimum : this.cover(this.aptosClient.getMaxTransactionFee(this.function));
+    }
+
+    /**
+     * @return 先刷新过期的 Gas 单价，再计算金额
+     */
+    public CompletableFuture<Long> getAsync() {
+        if (this.aptosClient == null) {
+            return CompletableFuture.completedFuture(this.minimum);
+        }
+        return this.aptosClient.getMaxTransactionFeeAsync(this.function).thenApply(this::cover);
+    }
+
+    private long cover(long fee) {
+        return Math.max(this.minimum, (long) Math.ceil(fee * (1 + this.feeMargin)));
+    }
+}
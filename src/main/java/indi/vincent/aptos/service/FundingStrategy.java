@@ -0,0 +1,17 @@
+package indi.vincent.aptos.service;
+
+import indi.vincent.aptos.tools.AptosAccount;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * 为新账户准备注册交易所需的 TestCoin
+ */
+public interface FundingStrategy {
+
+    /**
+     * @param account 新生成的账户，已经写入 Keystore
+     * @return 账户在链上创建并有足够余额后结束
+     */
+    CompletableFuture<Void> fund(AptosAccount account);
+}
@@ -0,0 +1,176 @@
+package indi.vincent.aptos.service;
+
+import lombok.Getter;
+import lombok.Value;
+
+import java.util.ArrayDeque;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 一次批量注册任务
+ * <p>
+ * 保存各阶段和各结果的计数，以及最近 resultLogCapacity 个结果；结果按从 1 开始的序号记录并转发给订阅者，
+ * 订阅时可以从某个序号之后回放，订阅之前和断线重连期间的结果不会丢失。
+ */
+public class RegistrationJob implements RegistrationListener {
+
+    private static final RegistrationStage[] STAGES = RegistrationStage.values();
+
+    @Getter
+    private final String id;
+    @Getter
+    private final int total;
+    private final long createdAt = System.currentTimeMillis();
+    private volatile long finishedAt;
+
+    private final LongAdder[] stages = new LongAdder[STAGES.length];
+    private final LongAdder skipped = new LongAdder();
+    private final LongAdder registered = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+
+    private final List<RegistrationListener> subscribers = new CopyOnWriteArrayList<>();
+    private final int resultLogCapacity;
+    private final ArrayDeque<RegistrationResult> results;
+    private long sequence;
+    private boolean finished;
+
+    /**
+     * 保留全部结果
+     */
+    public RegistrationJob(String id, int total) {
+        this(id, total, total);
+    }
+
+    /**
+     * @param resultLogCapacity 最多保留的结果数，超出时丢弃最早的结果
+     */
+    public RegistrationJob(String id, int total, int resultLogCapacity) {
+        this.id = id;
+        this.total = total;
+        this.resultLogCapacity = Math.max(resultLogCapacity, 0);
+        this.results = new ArrayDeque<>(Math.max(Math.min(total, this.resultLogCapacity), 1));
+        for (int i = 0; i < this.stages.length; i++) {
+            this.stages[i] = new LongAdder();
+        }
+    }
+
+    /**
+     * 订阅之后的进度和结果
+     *
+     * @return 任务已经结束时返回 false，不会再收到任何回调
+     */
+    public synchronized boolean subscribe(RegistrationListener subscriber) {
+        return this.subscribe(subscriber, this.sequence);
+    }
+
+    /**
+     * 先在当前线程回放序号大于 lastSequence 且仍然保留的结果，再订阅之后的进度和结果，两者之间不会遗漏或重复
+     *
+     * @param lastSequence 已经收到的最后一个结果的序号，0 表示回放全部结果
+     * @return 任务已经结束时回放后返回 false，不会再收到任何回调
+     */
+    public synchronized boolean subscribe(RegistrationListener subscriber, long lastSequence) {
+        long sequence = this.sequence - this.results.size();
+        for (RegistrationResult result : this.results) {
+            if (++sequence > lastSequence) {
+                subscriber.onResult(sequence, result);
+            }
+        }
+        if (this.finished) {
+            return false;
+        }
+        this.subscribers.add(subscriber);
+        return true;
+    }
+
+    /**
+     * @return 最后一个结果的序号，还没有结果时为 0
+     */
+    public synchronized long getLastSequence() {
+        return this.sequence;
+    }
+
+    public void unsubscribe(RegistrationListener subscriber) {
+        this.subscribers.remove(subscriber);
+    }
+
+    @Override
+    public void onStage(String name, RegistrationStage stage) {
+        this.stages[stage.ordinal()].increment();
+        for (RegistrationListener subscriber : this.subscribers) {
+            subscriber.onStage(name, stage);
+        }
+    }
+
+    @Override
+    public void onResult(RegistrationResult result) {
+        switch (result.getStatus()) {
+            case SKIPPED:
+                this.skipped.increment();
+                break;
+            case REGISTERED:
+                this.registered.increment();
+                break;
+            default:
+                this.failed.increment();
+        }
+        // 记录和转发在同一把锁内，订阅时的回放与之后的转发之间没有间隙
+        synchronized (this) {
+            long sequence = ++this.sequence;
+            if (this.resultLogCapacity > 0) {
+                if (this.results.size() == this.resultLogCapacity) {
+                    this.results.pollFirst();
+                }
+                this.results.addLast(result);
+            }
+            for (RegistrationListener subscriber : this.subscribers) {
+                subscriber.onResult(sequence, result);
+            }
+        }
+    }
+
+    @Override
+    public void onComplete() {
+        this.finishedAt = System.currentTimeMillis();
+        synchronized (this) {
+            this.finished = true;
+            for (RegistrationListener subscriber : this.subscribers) {
+                subscriber.onComplete();
+            }
+            this.subscribers.clear();
+        }
+    }
+
+    /**
+     * @return 当前进度的快照
+     */
+    public Status status() {
+        Map<RegistrationStage, Long> stageCounts = new EnumMap<>(RegistrationStage.class);
+        for (RegistrationStage stage : STAGES) {
+            stageCounts.put(stage, this.stages[stage.ordinal()].sum());
+        }
+        long finishedAt = this.finishedAt;
+        return new Status(this.id, this.total, stageCounts, this.skipped.sum(), this.registered.sum(), this.failed.sum(),
+                finishedAt != 0, this.createdAt, finishedAt == 0 ? null : finishedAt);
+    }
+
+    @Value
+    public static class Status {
+        String id;
+        int total;
+        /**
+         * 进入过各个阶段的 Name 数量
+         */
+        Map<RegistrationStage, Long> stages;
+        long skipped;
+        long registered;
+        long failed;
+        boolean finished;
+        long createdAt;
+        Long finishedAt;
+    }
+}
@@ -0,0 +1,110 @@
+package indi.vincent.aptos.service;
+
+import cn.hutool.cache.impl.LRUCache;
+import cn.hutool.core.thread.NamedThreadFactory;
+import cn.hutool.core.util.IdUtil;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 批量注册任务，提交后立即返回任务 ID，进度通过 {@link RegistrationJob} 查询或订阅
+ * <p>
+ * 最多保留 aptos.jobs.capacity 个任务，超出时淘汰最久未访问的任务。
+ * 任务在 aptos.jobs.workers 个后台线程上分派给流水线，流水线满时等待的是后台线程，不是请求线程；
+ * 最多 aptos.jobs.queue-capacity 个任务等待分派，超出时拒绝提交。
+ * 每个任务保留最近 aptos.jobs.result-log-capacity 个结果供订阅时回放。
+ */
+@Slf4j
+@Component
+public class RegistrationJobService implements DisposableBean {
+
+    private final RegistrationPipeline registrationPipeline;
+    private final RegistrationJournal registrationJournal;
+    private final boolean recover;
+    private final int resultLogCapacity;
+    private final LRUCache<String, RegistrationJob> jobs;
+    private final ThreadPoolExecutor executor;
+
+    public RegistrationJobService(RegistrationPipeline registrationPipeline,
+                                  RegistrationJournal registrationJournal,
+                                  @Value("${aptos.journal.recover:true}") boolean recover,
+                                  @Value("${aptos.jobs.capacity:1024}") int capacity,
+                                  @Value("${aptos.jobs.workers:2}") int workers,
+                                  @Value("${aptos.jobs.queue-capacity:64}") int queueCapacity,
+                                  @Value("${aptos.jobs.result-log-capacity:10000}") int resultLogCapacity) {
+        this.registrationPipeline = registrationPipeline;
+        this.registrationJournal = registrationJournal;
+        this.recover = recover;
+        this.resultLogCapacity = resultLogCapacity;
+        this.jobs = new LRUCache<>(capacity);
+        this.executor = new ThreadPoolExecutor(workers, workers, 60, TimeUnit.SECONDS, new LinkedBlockingQueue<>(queueCapacity),
+                new NamedThreadFactory("aptos-job-", true));
+    }
+
+    /**
+     * 提交一批 Name，不等待分派
+     *
+     * @param names 待注册的 Name
+     * @return 任务
+     * @throws RejectedExecutionException 等待分派的任务已满
+     */
+    public RegistrationJob submit(Collection<String> names) {
+        List<String> uniqueNames = new ArrayList<>(new LinkedHashSet<>(names));
+        RegistrationJob job = new RegistrationJob(IdUtil.fastSimpleUUID(), uniqueNames.size(), this.resultLogCapacity);
+        this.jobs.put(job.getId(), job);
+        try {
+            this.executor.execute(() -> this.registrationPipeline.register(uniqueNames, job).whenComplete((ignored, error) ->
+                    log.info("注册任务 {} 结束：{}", job.getId(), job.status())));
+        } catch (RejectedExecutionException e) {
+            this.jobs.remove(job.getId());
+            throw e;
+        }
+        log.info("创建注册任务 {}，共 {} 个 Name", job.getId(), job.getTotal());
+        return job;
+    }
+
+    /**
+     * 启动后把进度日志中未完成的 Name 作为一个任务继续处理
+     *
+     * @return 任务，没有未完成的 Name 或关闭了恢复时为 null
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public RegistrationJob resume() {
+        List<RegistrationJournal.Checkpoint> unfinished = this.registrationJournal.getUnfinished();
+        if (!this.recover || unfinished.isEmpty()) {
+            return null;
+        }
+        RegistrationJob job = new RegistrationJob(IdUtil.fastSimpleUUID(), unfinished.size(), this.resultLogCapacity);
+        this.jobs.put(job.getId(), job);
+        log.info("恢复注册任务 {}，共 {} 个未完成的 Name", job.getId(), job.getTotal());
+        this.executor.execute(() -> this.registrationPipeline.resume(unfinished, job).whenComplete((ignored, error) ->
+                log.info("注册任务 {} 结束：{}", job.getId(), job.status())));
+        return job;
+    }
+
+    /**
+     * @param id 任务 ID
+     * @return 任务，不存在或已被淘汰时为 null
+     */
+    public RegistrationJob find(String id) {
+        return this.jobs.get(id);
+    }
+
+    @Override
+    public void destroy() {
+        this.executor.shutdown();
+    }
+}
@@ -0,0 +1,325 @@
+package indi.vincent.aptos.service;
+
+import indi.vincent.aptos.keystore.GroupCommitLog;
+import indi.vincent.aptos.tools.Futures;
+import lombok.Value;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 注册进度日志
+ * <p>
+ * 每个 Name 完成一个阶段时追加一条检查点，写入由 {@link GroupCommitLog} 批量 fsync，流水线不等待落盘。
+ * 没来得及落盘的检查点只会让恢复时重做这一个阶段：重新领取 TestCoin 或重新签名提交，
+ * 重复提交的注册交易会因为 Name 已被注册而执行失败，不会注册两次。
+ * <p>
+ * 注册交易成功上链时写入 {@link Stage#REGISTERED}，它同时表示处理结束，并且一直保留，启动时用来恢复已注册 Name 的本地索引。
+ * <p>
+ * 启动时回放日志，得到每个 Name 最后一个检查点；已经结束的 Name 不再保留，已注册的 Name 单独保留。
+ * 回放后把已注册的 Name 和未完成的检查点写入新的分段，再按编号从小到大删除旧分段，避免日志无限增长。
+ * 压缩在任何一步中断都不影响下次回放：剩下的旧分段是原日志的后缀，新分段中的检查点就是每个 Name 最后的状态。
+ * <p>
+ * 字段以 Tab 分隔，字段中的反斜杠、Tab 和换行转义后写入。
+ */
+@Slf4j
+public class RegistrationJournal implements AutoCloseable {
+
+    private static final String PREFIX = "journal";
+    private static final char SEPARATOR = '\t';
+    private static final char ESCAPE = '\\';
+    private static final String COMPACT_DIRECTORY = "compact";
+
+    private final Path directory;
+    private final List<Checkpoint> unfinished;
+    private final Map<String, String> registered;
+    private final LongAdder appendErrors = new LongAdder();
+
+    private final GroupCommitLog commitLog;
+
+    /**
+     * @param directory   日志目录
+     * @param segmentSize 单个分段的最大字节数
+     */
+    public RegistrationJournal(Path directory, long segmentSize) {
+        this.directory = directory;
+        Map<String, Checkpoint> latest = new LinkedHashMap<>();
+        Map<String, String> registered = new LinkedHashMap<>();
+        long start = System.nanoTime();
+        GroupCommitLog replayed = new GroupCommitLog(directory, PREFIX, segmentSize, (position, payload, length) -> {
+            Checkpoint checkpoint = Checkpoint.decode(new String(payload, 0, length, StandardCharsets.UTF_8));
+            if (checkpoint.getStage() == Stage.FINISHED) {
+                latest.remove(checkpoint.getName());
+            } else if (checkpoint.getStage() == Stage.REGISTERED) {
+                latest.remove(checkpoint.getName());
+                registered.put(checkpoint.getName(), checkpoint.getAddress());
+            } else {
+                latest.put(checkpoint.getName(), checkpoint);
+            }
+        });
+        replayed.close();
+        this.unfinished = Collections.unmodifiableList(new ArrayList<>(latest.values()));
+        this.registered = Collections.unmodifiableMap(registered);
+        this.compact(segmentSize);
+        this.commitLog = new GroupCommitLog(directory, PREFIX, segmentSize, (position, payload, length) -> {
+        });
+        log.info("回放注册进度日志：{} 个未完成的 Name，{} 个已注册的 Name，耗时 {} 毫秒", this.unfinished.size(), this.registered.size(),
+                (System.nanoTime() - start) / 1000000);
+    }
+
+    /**
+     * @return 启动时回放得到的未完成 Name，按第一次出现的顺序排列
+     */
+    public List<Checkpoint> getUnfinished() {
+        return this.unfinished;
+    }
+
+    /**
+     * @return 启动时回放得到的已注册 Name -> 注册地址，按第一次注册的顺序排列
+     */
+    public Map<String, String> getRegistered() {
+        return this.registered;
+    }
+
+    /**
+     * @return 写入失败的检查点数量
+     */
+    public long getAppendErrors() {
+        return this.appendErrors.sum();
+    }
+
+    /**
+     * 一批 Name 开始处理
+     */
+    public void accepted(Collection<String> names) {
+        for (String name : names) {
+            this.append(new Checkpoint(name, Stage.ACCEPTED, null, null, 0));
+        }
+    }
+
+    /**
+     * 账户已经写入 Keystore
+     */
+    public void stored(String name, String address) {
+        this.append(new Checkpoint(name, Stage.STORED, address, null, 0));
+    }
+
+    /**
+     * 账户已经有余额
+     */
+    public void funded(String name, String address) {
+        this.append(new Checkpoint(name, Stage.FUNDED, address, null, 0));
+    }
+
+    /**
+     * 注册交易已经提交
+     */
+    public void submitted(String name, String address, String hash, long expirationTimestampSecs) {
+        this.append(new Checkpoint(name, Stage.SUBMITTED, address, hash, expirationTimestampSecs));
+    }
+
+    /**
+     * Name 处理结束，包括跳过和失败
+     */
+    public void finished(String name) {
+        this.append(new Checkpoint(name, Stage.FINISHED, null, null, 0));
+    }
+
+    /**
+     * 注册交易成功上链，Name 处理结束
+     */
+    public void registered(String name, String address) {
+        this.append(new Checkpoint(name, Stage.REGISTERED, address, null, 0));
+    }
+
+    private void append(Checkpoint checkpoint) {
+        this.commitLog.append(checkpoint.encode().getBytes(StandardCharsets.UTF_8)).whenComplete((position, error) -> {
+            if (error != null) {
+                this.appendErrors.increment();
+                log.debug("写入检查点 {} 失败：{}", checkpoint, error.toString());
+            }
+        });
+    }
+
+    /**
+     * 已注册的 Name 和未完成的检查点先写入 compact 目录并落盘，再以更大的分段编号移入日志目录，最后删除旧分段
+     */
+    private void compact(long segmentSize) {
+        Path staging = this.directory.resolve(COMPACT_DIRECTORY);
+        try {
+            // 上次压缩中断时留下的分段没有全部移入，已经移入的和旧分段一起回放过了
+            for (Path segment : segments(staging)) {
+                Files.delete(segment);
+            }
+            List<Path> previous = segments(this.directory);
+            try (GroupCommitLog compacted = new GroupCommitLog(staging, PREFIX, segmentSize, (position, payload, length) -> {
+            })) {
+                List<CompletableFuture<Long>> appends = new ArrayList<>(this.registered.size() + this.unfinished.size());
+                // 已注册的 Name 在前，之后重新开始处理的同一个 Name 回放时仍然是未完成
+                for (Map.Entry<String, String> entry : this.registered.entrySet()) {
+                    Checkpoint checkpoint = new Checkpoint(entry.getKey(), Stage.REGISTERED, entry.getValue(), null, 0);
+                    appends.add(compacted.append(checkpoint.encode().getBytes(StandardCharsets.UTF_8)));
+                }
+                for (Checkpoint checkpoint : this.unfinished) {
+                    appends.add(compacted.append(checkpoint.encode().getBytes(StandardCharsets.UTF_8)));
+                }
+                Futures.join(CompletableFuture.allOf(appends.toArray(new CompletableFuture[0])));
+            }
+            int next = previous.isEmpty() ? 0 : segmentId(previous.get(previous.size() - 1)) + 1;
+            for (Path segment : segments(staging)) {
+                Files.move(segment, this.directory.resolve(String.format("%s-%08d.log", PREFIX, next++)), StandardCopyOption.ATOMIC_MOVE);
+            }
+            Files.delete(staging);
+            for (Path segment : previous) {
+                Files.delete(segment);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * @return 目录下的分段，按编号从小到大排列
+     */
+    private static List<Path> segments(Path directory) throws IOException {
+        List<Path> segments = new ArrayList<>();
+        if (!Files.isDirectory(directory)) {
+            return segments;
+        }
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory, PREFIX + "-*.log")) {
+            for (Path path : stream) {
+                segments.add(path);
+            }
+        }
+        segments.sort(Comparator.comparingInt(RegistrationJournal::segmentId));
+        return segments;
+    }
+
+    private static int segmentId(Path segment) {
+        String name = segment.getFileName().toString();
+        return Integer.parseInt(name.substring(PREFIX.length() + 1, name.length() - ".log".length()));
+    }
+
+    @Override
+    public void close() {
+        this.commitLog.close();
+    }
+
+    public enum Stage {
+        /**
+         * 开始处理，恢复时从 lookup 开始
+         */
+        ACCEPTED,
+        /**
+         * 账户已写入 Keystore，恢复时从 fund 开始
+         */
+        STORED,
+        /**
+         * 账户已有余额，恢复时从 sign 开始
+         */
+        FUNDED,
+        /**
+         * 交易已提交，恢复时继续等待确认
+         */
+        SUBMITTED,
+        /**
+         * 处理结束
+         */
+        FINISHED,
+        /**
+         * 注册交易成功上链，处理结束
+         */
+        REGISTERED
+    }
+
+    /**
+     * 一个 Name 完成的最后一个阶段
+     */
+    @Value
+    public static class Checkpoint {
+        String name;
+        Stage stage;
+        String address;
+        String hash;
+        long expirationTimestampSecs;
+
+        String encode() {
+            StringBuilder builder = new StringBuilder(this.name.length() + 160).append(this.stage.name()).append(SEPARATOR);
+            escape(builder, this.name);
+            if (this.address != null) {
+                escape(builder.append(SEPARATOR), this.address);
+                if (this.hash != null) {
+                    escape(builder.append(SEPARATOR), this.hash);
+                    builder.append(SEPARATOR).append(this.expirationTimestampSecs);
+                }
+            }
+            return builder.toString();
+        }
+
+        static Checkpoint decode(String line) {
+            // 转义后的字段中没有 Tab，保留末尾的空字段
+            String[] fields = line.split(String.valueOf(SEPARATOR), -1);
+            if (fields.length < 2) {
+                throw new IllegalStateException("Invalid checkpoint: " + line);
+            }
+            return new Checkpoint(unescape(fields[1]), Stage.valueOf(fields[0]),
+                    fields.length > 2 ? unescape(fields[2]) : null,
+                    fields.length > 3 ? unescape(fields[3]) : null,
+                    fields.length > 4 ? Long.parseLong(fields[4]) : 0);
+        }
+
+        private static void escape(StringBuilder builder, String field) {
+            for (int i = 0; i < field.length(); i++) {
+                char c = field.charAt(i);
+                switch (c) {
+                    case ESCAPE:
+                        builder.append(ESCAPE).append(ESCAPE);
+                        break;
+                    case SEPARATOR:
+                        builder.append(ESCAPE).append('t');
+                        break;
+                    case '\n':
+                        builder.append(ESCAPE).append('n');
+                        break;
+                    case '\r':
+                        builder.append(ESCAPE).append('r');
+                        break;
+                    default:
+                        builder.append(c);
+                }
+            }
+        }
+
+        private static String unescape(String field) {
+            if (field.indexOf(ESCAPE) < 0) {
+                return field;
+            }
+            StringBuilder builder = new StringBuilder(field.length());
+            for (int i = 0; i < field.length(); i++) {
+                char c = field.charAt(i);
+                if (c != ESCAPE || i + 1 == field.length()) {
+                    builder.append(c);
+                    continue;
+                }
+                char escaped = field.charAt(++i);
+                builder.append(escaped == 't' ? SEPARATOR : escaped == 'n' ? '\n' : escaped == 'r' ? '\r' : escaped);
+            }
+            return builder.toString();
+        }
+    }
+}
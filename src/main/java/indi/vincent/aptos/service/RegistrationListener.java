@@ -0,0 +1,35 @@
+package indi.vincent.aptos.service;
+
+/**
+ * 接收注册流水线的进度，回调在流水线的工作线程上执行，实现不能阻塞
+ */
+public interface RegistrationListener {
+
+    RegistrationListener NONE = new RegistrationListener() {
+    };
+
+    /**
+     * Name 进入某个阶段
+     */
+    default void onStage(String name, RegistrationStage stage) {
+    }
+
+    /**
+     * Name 处理结束
+     */
+    default void onResult(RegistrationResult result) {
+    }
+
+    /**
+     * Name 处理结束，sequence 是结果在任务中的序号，从 1 开始；默认忽略序号
+     */
+    default void onResult(long sequence, RegistrationResult result) {
+        this.onResult(result);
+    }
+
+    /**
+     * 这一批 Name 全部处理结束
+     */
+    default void onComplete() {
+    }
+}
@@ -0,0 +1,585 @@
+package indi.vincent.aptos.service;
+
+import cn.hutool.core.collection.ListUtil;
+import cn.hutool.core.thread.NamedThreadFactory;
+import cn.hutool.core.util.HexUtil;
+import indi.vincent.aptos.config.PipelineProperties;
+import indi.vincent.aptos.keystore.AptosKeystore;
+import indi.vincent.aptos.tools.AptosAccount;
+import indi.vincent.aptos.tools.AptosClient;
+import indi.vincent.aptos.tools.AptosKeyPairPool;
+import indi.vincent.aptos.tools.AptosNameResolver;
+import indi.vincent.aptos.tools.ConfirmationTracker;
+import indi.vincent.aptos.tools.Futures;
+import indi.vincent.aptos.tools.RegisteredNameIndex;
+import indi.vincent.aptos.tools.VanityAddressGrinder;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.jvm.ExecutorServiceMetrics;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Name 注册流水线
+ * <p>
+ * 每个 Name 依次经过 lookup -> keygen -> fund -> sign -> submit 五个阶段，
+ * 每个阶段有独立的线程池，多个 Name 在不同阶段之间并发推进。
+ * 进入流水线的 Name 数量由 maxInFlight 个许可限制，调用线程在分派 Name 之前等待许可，
+ * 阶段任务只在阶段线程池中执行，不会在调用线程、OkHttp 回调线程或 Keystore 写入线程中执行。
+ * fund 阶段由 {@link FundingStrategy} 异步完成，不占用 fund 线程等待。
+ * 每个阶段完成后写入 {@link RegistrationJournal}，进程重启后通过 {@link #resume} 从最后完成的阶段继续。
+ */
+@Slf4j
+@Component
+public class RegistrationPipeline implements DisposableBean {
+
+    private final AptosClient aptosClient;
+    private final FundingStrategy fundingStrategy;
+    private final AptosNameResolver aptosNameResolver;
+    private final RegisteredNameIndex registeredNameIndex;
+    private final AptosKeyPairPool aptosKeyPairPool;
+    private final AptosKeystore aptosKeystore;
+    private final ConfirmationTracker confirmationTracker;
+    private final RegistrationJournal registrationJournal;
+    private final VanityAddressGrinder vanityAddressGrinder;
+    private final int lookupBatchSize;
+    private final int maxInFlight;
+    private final Semaphore admission;
+    private final String aptosFunction;
+
+    private final MeterRegistry meterRegistry;
+    private final Map<RegistrationStage, Timer> stageSuccessTimers = new EnumMap<>(RegistrationStage.class);
+    private final Map<RegistrationStage, Timer> stageErrorTimers = new EnumMap<>(RegistrationStage.class);
+
+    private final ThreadPoolExecutor lookupExecutor;
+    private final ThreadPoolExecutor keygenExecutor;
+    private final ThreadPoolExecutor fundExecutor;
+    private final ThreadPoolExecutor signExecutor;
+    private final ThreadPoolExecutor submitExecutor;
+
+    public RegistrationPipeline(AptosClient aptosClient,
+                                FundingStrategy fundingStrategy,
+                                AptosNameResolver aptosNameResolver,
+                                RegisteredNameIndex registeredNameIndex,
+                                AptosKeyPairPool aptosKeyPairPool,
+                                AptosKeystore aptosKeystore,
+                                ConfirmationTracker confirmationTracker,
+                                RegistrationJournal registrationJournal,
+                                VanityAddressGrinder vanityAddressGrinder,
+                                PipelineProperties properties,
+                                MeterRegistry meterRegistry,
+                                @Value("${aptos.function}") String aptosFunction) {
+        this.aptosClient = aptosClient;
+        this.fundingStrategy = fundingStrategy;
+        this.aptosNameResolver = aptosNameResolver;
+        this.registeredNameIndex = registeredNameIndex;
+        this.aptosKeyPairPool = aptosKeyPairPool;
+        this.aptosKeystore = aptosKeystore;
+        this.confirmationTracker = confirmationTracker;
+        this.registrationJournal = registrationJournal;
+        this.vanityAddressGrinder = vanityAddressGrinder;
+        if (properties.getLookupBatchSize() > properties.getMaxInFlight()) {
+            throw new IllegalArgumentException("Lookup batch size " + properties.getLookupBatchSize()
+                    + " exceeds max in flight " + properties.getMaxInFlight());
+        }
+        this.lookupBatchSize = properties.getLookupBatchSize();
+        this.maxInFlight = properties.getMaxInFlight();
+        this.admission = new Semaphore(this.maxInFlight, true);
+        Gauge.builder("aptos.pipeline.in-flight", this.admission, admission -> this.maxInFlight - admission.availablePermits())
+                .description("Names admitted to the registration pipeline and not yet submitted")
+                .register(meterRegistry);
+        this.aptosFunction = aptosFunction;
+        this.meterRegistry = meterRegistry;
+        for (RegistrationStage stage : RegistrationStage.values()) {
+            this.stageSuccessTimers.put(stage, stageTimer(meterRegistry, stage, "success"));
+            this.stageErrorTimers.put(stage, stageTimer(meterRegistry, stage, "error"));
+        }
+        this.lookupExecutor = newStageExecutor("lookup", properties.getLookup(), this.maxInFlight, meterRegistry);
+        this.keygenExecutor = newStageExecutor("keygen", properties.getKeygen(), this.maxInFlight, meterRegistry);
+        this.fundExecutor = newStageExecutor("fund", properties.getFund(), this.maxInFlight, meterRegistry);
+        this.signExecutor = newStageExecutor("sign", properties.getSign(), this.maxInFlight, meterRegistry);
+        this.submitExecutor = newStageExecutor("submit", properties.getSubmit(), this.maxInFlight, meterRegistry);
+    }
+
+    /**
+     * 注册一批 Name，已经被注册的 Name 会被跳过
+     * <p>
+     * lookup 阶段按 lookupBatchSize 分组批量查询，每组查询结束后立即进入后续阶段。
+     * 流水线中的 Name 达到 maxInFlight 时，调用线程等待前面的 Name 提交交易之后再分派。
+     *
+     * 每个 Name 单独处理错误，一个 Name 失败不影响其他 Name 的结果。
+     *
+     * @param names 待注册的 Name
+     * @return 按输入顺序（去重后）排列的每个 Name 的提交结果
+     */
+    public CompletableFuture<List<SubmitResult>> register(Collection<String> names) {
+        List<String> uniqueNames = new ArrayList<>(new LinkedHashSet<>(names));
+        this.registrationJournal.accepted(uniqueNames);
+        List<CompletableFuture<SubmitResult>> futures = new ArrayList<>(uniqueNames.size());
+        for (List<String> batch : ListUtil.partition(uniqueNames, this.lookupBatchSize)) {
+            this.admission.acquireUninterruptibly(batch.size());
+            CompletableFuture<Map<String, String>> addresses = this.lookupAsync(batch);
+            for (String name : batch) {
+                futures.add(submitResult(name, this.released(addresses.thenCompose(lookup -> this.registerOrSkip(name, lookup)))));
+            }
+        }
+        return CompletableFuture.allOf(futures.toArray(new CompletableFuture[0]))
+                .thenApply(ignored -> futures.stream()
+                        .map(CompletableFuture::join)
+                        .collect(Collectors.toList()));
+    }
+
+    /**
+     * 注册一批 Name，每个 Name 的交易上链（或失败）后立即通过 listener 通知，不在内存中保留结果
+     *
+     * @param names    待注册的 Name
+     * @param listener 接收进度和结果
+     * @return 全部 Name 处理结束后结束
+     */
+    public CompletableFuture<Void> register(Collection<String> names, RegistrationListener listener) {
+        List<String> uniqueNames = new ArrayList<>(new LinkedHashSet<>(names));
+        this.registrationJournal.accepted(uniqueNames);
+        return this.run(uniqueNames, Collections.emptyList(), listener);
+    }
+
+    /**
+     * 从进度日志的检查点继续处理：只开始处理的 Name 重新 lookup，其余 Name 从最后完成的阶段之后继续
+     *
+     * @param checkpoints 每个 Name 最后一个检查点
+     * @param listener    接收进度和结果
+     * @return 全部 Name 处理结束后结束
+     */
+    public CompletableFuture<Void> resume(Collection<RegistrationJournal.Checkpoint> checkpoints, RegistrationListener listener) {
+        List<String> accepted = new ArrayList<>();
+        List<RegistrationJournal.Checkpoint> started = new ArrayList<>();
+        for (RegistrationJournal.Checkpoint checkpoint : checkpoints) {
+            if (checkpoint.getStage() == RegistrationJournal.Stage.ACCEPTED) {
+                accepted.add(checkpoint.getName());
+            } else {
+                started.add(checkpoint);
+            }
+        }
+        return this.run(accepted, started, listener);
+    }
+
+    /**
+     * 注册单个 Name
+     *
+     * @param name 待注册的 Name
+     * @return 提交结果
+     */
+    public CompletableFuture<SubmitResult> register(String name) {
+        List<String> names = Collections.singletonList(name);
+        this.registrationJournal.accepted(names);
+        this.admission.acquireUninterruptibly();
+        return submitResult(name, this.released(this.lookupAsync(names).thenCompose(lookup -> this.registerOrSkip(name, lookup))));
+    }
+
+    private CompletableFuture<Void> run(List<String> names, List<RegistrationJournal.Checkpoint> checkpoints, RegistrationListener listener) {
+        CompletableFuture<Void> completion = new CompletableFuture<>();
+        AtomicInteger remaining = new AtomicInteger(names.size() + checkpoints.size());
+        Consumer<RegistrationResult> emit = result -> {
+            listener.onResult(result);
+            if (remaining.decrementAndGet() == 0) {
+                listener.onComplete();
+                completion.complete(null);
+            }
+        };
+        if (remaining.get() == 0) {
+            listener.onComplete();
+            completion.complete(null);
+            return completion;
+        }
+        for (RegistrationJournal.Checkpoint checkpoint : checkpoints) {
+            this.resume(checkpoint, listener).thenAccept(emit);
+        }
+        for (List<String> batch : ListUtil.partition(names, this.lookupBatchSize)) {
+            this.admission.acquireUninterruptibly(batch.size());
+            batch.forEach(name -> listener.onStage(name, RegistrationStage.LOOKUP));
+            this.lookupAsync(batch).whenComplete((addresses, error) -> {
+                for (String name : batch) {
+                    if (error != null) {
+                        this.admission.release();
+                        emit.accept(RegistrationResult.failed(name, null, null, Futures.unwrap(error).toString()));
+                    } else if (addresses.get(name) != null) {
+                        this.admission.release();
+                        this.registrationJournal.finished(name);
+                        emit.accept(RegistrationResult.skipped(name, addresses.get(name)));
+                    } else {
+                        this.confirmResult(name, this.released(this.registerUnregistered(name, listener)), listener).thenAccept(emit);
+                    }
+                }
+            });
+        }
+        return completion;
+    }
+
+    private CompletableFuture<RegistrationResult> resume(RegistrationJournal.Checkpoint checkpoint, RegistrationListener listener) {
+        String name = checkpoint.getName();
+        if (checkpoint.getStage() == RegistrationJournal.Stage.SUBMITTED) {
+            listener.onStage(name, RegistrationStage.CONFIRM);
+            return this.track(name, checkpoint.getAddress(), checkpoint.getHash(), checkpoint.getExpirationTimestampSecs())
+                    .thenApply(confirmation -> this.toResult(name, checkpoint.getAddress(), confirmation))
+                    .exceptionally(error -> RegistrationResult.failed(name, checkpoint.getAddress(), checkpoint.getHash(),
+                            Futures.unwrap(error).toString()));
+        }
+        AptosAccount account = this.aptosKeystore.findByAddress(checkpoint.getAddress());
+        if (account == null) {
+            this.registrationJournal.finished(name);
+            return CompletableFuture.completedFuture(RegistrationResult.failed(name, checkpoint.getAddress(), null,
+                    "Account not found in keystore"));
+        }
+        this.admission.acquireUninterruptibly();
+        CompletableFuture<Submission> submission = checkpoint.getStage() == RegistrationJournal.Stage.STORED
+                ? this.fundAndSubmit(name, CompletableFuture.completedFuture(account), listener)
+                : this.signAndSubmit(name, CompletableFuture.completedFuture(account), listener);
+        return this.confirmResult(name, this.released(submission), listener);
+    }
+
+    /**
+     * 本地索引中已知已被注册的 Name 直接返回地址，只有其余的 Name 进入 lookup 线程池查询 aptosnames
+     */
+    private CompletableFuture<Map<String, String>> lookupAsync(List<String> names) {
+        Map<String, String> known = new HashMap<>();
+        List<String> unknown = new ArrayList<>(names.size());
+        for (String name : names) {
+            String address = this.registeredNameIndex.contains(name) ? this.registeredNameIndex.get(name) : null;
+            if (address != null) {
+                log.debug("地址 {} -> 已经注册了 {}，跳过注册", address.toUpperCase(), name);
+                known.put(name, address);
+            } else {
+                unknown.add(name);
+            }
+        }
+        if (unknown.isEmpty()) {
+            return CompletableFuture.completedFuture(known);
+        }
+        CompletableFuture<Map<String, String>> addresses;
+        try {
+            addresses = CompletableFuture.supplyAsync(() -> {
+                Map<String, String> lookup = this.lookup(unknown);
+                lookup.putAll(known);
+                return lookup;
+            }, this.lookupExecutor);
+        } catch (RejectedExecutionException e) {
+            addresses = Futures.failed(e);
+        }
+        addresses.whenComplete((lookup, error) -> {
+            if (error != null && !isShutdown(error)) {
+                names.forEach(this.registrationJournal::finished);
+            }
+        });
+        return addresses;
+    }
+
+    private CompletableFuture<SubmitResult> registerOrSkip(String name, Map<String, String> addresses) {
+        String address = addresses.get(name);
+        if (address != null) {
+            this.registrationJournal.finished(name);
+            return CompletableFuture.completedFuture(SubmitResult.skipped(name, address));
+        }
+        return this.registerUnregistered(name, RegistrationListener.NONE).thenApply(submission -> submission.getHash() == null
+                ? SubmitResult.failed(name, submission.getSender(), submission.getMessage())
+                : SubmitResult.submitted(name, submission.getSender(), submission.getHash()));
+    }
+
+    /**
+     * 出错的 Name 转为失败结果，已提交的 Name 的结果不受影响
+     */
+    private static CompletableFuture<SubmitResult> submitResult(String name, CompletableFuture<SubmitResult> result) {
+        return result.exceptionally(error -> SubmitResult.failed(name, null, Futures.unwrap(error).toString()));
+    }
+
+    private CompletableFuture<RegistrationResult> confirmResult(String name, CompletableFuture<Submission> submission,
+                                                                RegistrationListener listener) {
+        return submission
+                .thenCompose(submitted -> {
+                    if (submitted.getHash() == null) {
+                        return CompletableFuture.completedFuture(
+                                RegistrationResult.failed(name, submitted.getSender(), null, submitted.getMessage()));
+                    }
+                    listener.onStage(name, RegistrationStage.CONFIRM);
+                    return submitted.getConfirmation().thenApply(confirmation -> this.toResult(name, submitted.getSender(), confirmation));
+                })
+                .exceptionally(error -> RegistrationResult.failed(name, null, null, Futures.unwrap(error).toString()));
+    }
+
+    private RegistrationResult toResult(String name, String sender, ConfirmationTracker.Confirmation confirmation) {
+        return confirmation.isSuccess()
+                ? RegistrationResult.registered(name, sender, confirmation.getHash())
+                : RegistrationResult.failed(name, sender, confirmation.getHash(), confirmation.getOutcome() + " " + confirmation.getVmStatus());
+    }
+
+    private CompletableFuture<Submission> registerUnregistered(String name, RegistrationListener listener) {
+        CompletableFuture<AptosAccount> stored = CompletableFuture.completedFuture(name)
+                .thenApplyAsync(this.stage(listener, name, RegistrationStage.KEYGEN, this::newAccount), this.keygenExecutor)
+                .thenCompose(this::store);
+        return this.fundAndSubmit(name, stored, listener);
+    }
+
+    private CompletableFuture<Submission> fundAndSubmit(String name, CompletableFuture<AptosAccount> account, RegistrationListener listener) {
+        return this.signAndSubmit(name,
+                account.thenComposeAsync(this.asyncStage(listener, name, RegistrationStage.FUND, this::fund), this.fundExecutor),
+                listener);
+    }
+
+    /**
+     * 出错或交易被节点拒绝时 Name 处理结束，交易上链后由 {@link #track} 结束；因为关闭而中断时保留检查点
+     */
+    private CompletableFuture<Submission> signAndSubmit(String name, CompletableFuture<AptosAccount> account, RegistrationListener listener) {
+        return account
+                .thenComposeAsync(this.asyncStage(listener, name, RegistrationStage.SIGN, this::sign), this.signExecutor)
+                .thenComposeAsync(this.asyncStage(listener, name, RegistrationStage.SUBMIT, transaction -> this.submit(name, transaction)), this.submitExecutor)
+                .whenComplete((submission, error) -> {
+                    if (error != null ? !isShutdown(error) : submission.getHash() == null) {
+                        this.registrationJournal.finished(name);
+                    }
+                });
+    }
+
+    /**
+     * 关闭时被线程池拒绝或取消的 Name 还没有处理完，下次启动时从检查点继续
+     */
+    private static boolean isShutdown(Throwable error) {
+        Throwable cause = Futures.unwrap(error);
+        return cause instanceof CancellationException || cause instanceof RejectedExecutionException;
+    }
+
+    /**
+     * Name 离开阶段线程池（提交交易、跳过或失败）后归还许可，之后只等待确认，不再占用阶段线程
+     */
+    private <T> CompletableFuture<T> released(CompletableFuture<T> future) {
+        return future.whenComplete((value, error) -> this.admission.release());
+    }
+
+    private Map<String, String> lookup(List<String> names) {
+        long start = System.nanoTime();
+        Map<String, String> addresses;
+        try {
+            addresses = this.aptosNameResolver.lookupAll(names);
+        } catch (RuntimeException e) {
+            this.stageErrorTimers.get(RegistrationStage.LOOKUP).record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            throw e;
+        }
+        this.stageSuccessTimers.get(RegistrationStage.LOOKUP).record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        addresses.forEach((name, address) -> {
+            if (address != null) {
+                this.registeredNameIndex.put(name, address);
+                log.info("地址 {} -> 已经注册了 {}，跳过注册", address.toUpperCase(), name);
+            }
+        });
+        return addresses;
+    }
+
+    /**
+     * 配置了地址前缀时搜索前缀匹配的账户，超时后使用密钥池中的随机账户
+     */
+    private AptosAccount newAccount(String name) {
+        if (this.vanityAddressGrinder.isEnabled()) {
+            AptosAccount account = this.vanityAddressGrinder.grind().getAccount();
+            if (account != null) {
+                account.setName(name);
+                return account;
+            }
+        }
+        return this.aptosKeyPairPool.take(name);
+    }
+
+    /**
+     * 账户落盘之后才能领取 TestCoin，避免进程退出后丢失已经有余额的私钥
+     */
+    private CompletableFuture<AptosAccount> store(AptosAccount account) {
+        return this.aptosKeystore.append(account).thenApply(stored -> {
+            log.info("保存私钥：{} -> {}", stored.getAddress().toUpperCase(), stored.getName());
+            this.registrationJournal.stored(stored.getName(), stored.getAddress());
+            return stored;
+        });
+    }
+
+    private CompletableFuture<AptosAccount> fund(AptosAccount account) {
+        return this.fundingStrategy.fund(account).thenApply(ignored -> {
+            this.registrationJournal.funded(account.getName(), account.getAddress());
+            return account;
+        });
+    }
+
+    private CompletableFuture<AptosClient.SubmitTransactionParam> sign(AptosAccount account) {
+        AptosClient.TransactionPayload transactionPayload = new AptosClient.TransactionPayload();
+        transactionPayload.setType("script_function_payload");
+        transactionPayload.setFunction(this.aptosFunction);
+        transactionPayload.setArguments(
+                Collections.singletonList(
+                        HexUtil.encodeHexStr(account.getName().getBytes(StandardCharsets.UTF_8))
+                )
+        );
+        return this.aptosClient.createSignedTransactionAsync(account, transactionPayload);
+    }
+
+    /**
+     * 每个账户只提交一笔交易，提交之后不再需要它的 Sequence Number
+     */
+    private CompletableFuture<Submission> submit(String name, AptosClient.SubmitTransactionParam transaction) {
+        return this.aptosClient.invokeSubmitTransactionAsync(transaction)
+                .whenComplete((response, error) -> this.aptosClient.evictSender(transaction.getSender()))
+                .thenApply(response -> {
+                    String hash = response.getHash();
+                    CompletableFuture<ConfirmationTracker.Confirmation> confirmation = null;
+                    if (hash != null) {
+                        long expirationTimestampSecs = Long.parseLong(transaction.getExpirationTimestampSecs());
+                        this.registrationJournal.submitted(name, transaction.getSender(), hash, expirationTimestampSecs);
+                        confirmation = this.track(name, transaction.getSender(), hash, expirationTimestampSecs);
+                    }
+                    log.info("发送交易 {}，注册 {}", hash, name);
+                    return new Submission(transaction.getSender(), hash, response.getMessage(), confirmation);
+                });
+    }
+
+    private CompletableFuture<ConfirmationTracker.Confirmation> track(String name, String sender, String hash, long expirationTimestampSecs) {
+        this.aptosNameResolver.put(name, sender);
+        CompletableFuture<ConfirmationTracker.Confirmation> confirmation = this.confirmationTracker.track(hash, expirationTimestampSecs);
+        long start = System.nanoTime();
+        confirmation.thenAccept(result -> {
+            Map<RegistrationStage, Timer> timers = result.isSuccess() ? this.stageSuccessTimers : this.stageErrorTimers;
+            timers.get(RegistrationStage.CONFIRM).record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            // 先写入进度日志再更新本地索引，索引中能查到时日志中一定已经有这条记录
+            if (result.isSuccess()) {
+                this.registrationJournal.registered(name, sender);
+            } else {
+                this.registrationJournal.finished(name);
+            }
+            this.confirm(name, sender, result);
+        });
+        return confirmation;
+    }
+
+    /**
+     * 交易成功上链后记入本地索引；没有成功上链时 Name 仍未注册，从缓存中移除提交时写入的地址
+     */
+    private void confirm(String name, String sender, ConfirmationTracker.Confirmation confirmation) {
+        if (confirmation.isSuccess()) {
+            this.registeredNameIndex.put(name, sender);
+            log.info("交易 {} 已确认，成功注册 {}", confirmation.getHash(), name);
+            return;
+        }
+        this.aptosNameResolver.invalidate(name);
+        this.registeredNameIndex.remove(name);
+        log.warn("交易 {} {}，注册 {} 失败：{}", confirmation.getHash(), confirmation.getOutcome(), name, confirmation.getVmStatus());
+    }
+
+    /**
+     * 通知 listener 进入阶段，并把阶段的执行时间记录到 aptos.pipeline.stage（不含在线程池中排队的时间）
+     */
+    private <T, R> Function<T, R> stage(RegistrationListener listener, String name, RegistrationStage stage, Function<T, R> action) {
+        return input -> {
+            listener.onStage(name, stage);
+            long start = System.nanoTime();
+            try {
+                R result = action.apply(input);
+                this.stageSuccessTimers.get(stage).record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+                return result;
+            } catch (RuntimeException e) {
+                this.stageErrorTimers.get(stage).record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+                throw e;
+            }
+        };
+    }
+
+    /**
+     * 异步阶段，执行时间记录到 Future 结束为止
+     */
+    private <T, R> Function<T, CompletableFuture<R>> asyncStage(RegistrationListener listener, String name, RegistrationStage stage,
+                                                                Function<T, CompletableFuture<R>> action) {
+        return input -> {
+            listener.onStage(name, stage);
+            long start = System.nanoTime();
+            CompletableFuture<R> result;
+            try {
+                result = action.apply(input);
+            } catch (RuntimeException e) {
+                result = Futures.failed(e);
+            }
+            return result.whenComplete((value, error) -> {
+                Map<RegistrationStage, Timer> timers = error == null ? this.stageSuccessTimers : this.stageErrorTimers;
+                timers.get(stage).record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            });
+        };
+    }
+
+    private static Timer stageTimer(MeterRegistry meterRegistry, RegistrationStage stage, String outcome) {
+        return Timer.builder("aptos.pipeline.stage")
+                .tag("stage", stage.name().toLowerCase())
+                .tag("outcome", outcome)
+                .register(meterRegistry);
+    }
+
+    /**
+     * 每个阶段中的任务数不超过准入许可数 maxInFlight，因此要求 workers + queueCapacity 不小于 maxInFlight，
+     * 运行中队列不会满，背压完全由准入许可在调用线程上完成。
+     * 不使用 CallerRunsPolicy：上游可能是 OkHttp 回调线程或 Keystore 写入线程，在这些线程中执行阻塞的阶段任务会拖住所有请求；
+     * 关闭后提交的任务被拒绝，对应的 Future 以异常结束
+     */
+    private static ThreadPoolExecutor newStageExecutor(String stage, PipelineProperties.Stage config, int maxInFlight,
+                                                       MeterRegistry meterRegistry) {
+        if ((long) config.getWorkers() + config.getQueueCapacity() < maxInFlight) {
+            throw new IllegalArgumentException("Stage " + stage + " workers " + config.getWorkers() + " plus queue capacity "
+                    + config.getQueueCapacity() + " is less than max in flight " + maxInFlight);
+        }
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(
+                config.getWorkers(), config.getWorkers(),
+                60, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(config.getQueueCapacity()),
+                new NamedThreadFactory("aptos-" + stage + "-", true),
+                new ThreadPoolExecutor.AbortPolicy()
+        );
+        new ExecutorServiceMetrics(executor, "aptos-" + stage, Tags.empty()).bindTo(meterRegistry);
+        return executor;
+    }
+
+    @Override
+    public void destroy() {
+        this.lookupExecutor.shutdown();
+        this.keygenExecutor.shutdown();
+        this.fundExecutor.shutdown();
+        this.signExecutor.shutdown();
+        this.submitExecutor.shutdown();
+    }
+
+    /**
+     * 提交结果，交易被节点拒绝时 hash 和 confirmation 为 null
+     */
+    @Getter
+    @AllArgsConstructor
+    private static class Submission {
+        private final String sender;
+        private final String hash;
+        private final String message;
+        private final CompletableFuture<ConfirmationTracker.Confirmation> confirmation;
+    }
+}
@@ -0,0 +1,49 @@
+package indi.vincent.aptos.service;
+
+import lombok.Value;
+
+/**
+ * 单个 Name 的最终处理结果
+ */
+@Value
+public class RegistrationResult {
+
+    String name;
+    Status status;
+    /**
+     * 已注册时为 Name 当前指向的地址，注册成功时为新账户地址
+     */
+    String address;
+    String hash;
+    /**
+     * 失败原因
+     */
+    String message;
+
+    public static RegistrationResult skipped(String name, String address) {
+        return new RegistrationResult(name, Status.SKIPPED, address, null, null);
+    }
+
+    public static RegistrationResult registered(String name, String address, String hash) {
+        return new RegistrationResult(name, Status.REGISTERED, address, hash, null);
+    }
+
+    public static RegistrationResult failed(String name, String address, String hash, String message) {
+        return new RegistrationResult(name, Status.FAILED, address, hash, message);
+    }
+
+    public enum Status {
+        /**
+         * Name 已经被注册，没有提交交易
+         */
+        SKIPPED,
+        /**
+         * 注册交易已上链并执行成功
+         */
+        REGISTERED,
+        /**
+         * 处理过程中出错，或交易执行失败、过期
+         */
+        FAILED
+    }
+}
@@ -0,0 +1,31 @@
+package indi.vincent.aptos.service;
+
+/**
+ * 注册流水线的阶段
+ */
+public enum RegistrationStage {
+    /**
+     * 查询 Name 是否已被注册
+     */
+    LOOKUP,
+    /**
+     * 取出密钥并写入 Keystore
+     */
+    KEYGEN,
+    /**
+     * 领取 TestCoin
+     */
+    FUND,
+    /**
+     * 组装交易并签名
+     */
+    SIGN,
+    /**
+     * 提交交易
+     */
+    SUBMIT,
+    /**
+     * 等待交易上链
+     */
+    CONFIRM
+}
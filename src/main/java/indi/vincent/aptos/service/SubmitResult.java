@@ -0,0 +1,49 @@
+package indi.vincent.aptos.service;
+
+import lombok.Value;
+
+/**
+ * 单个 Name 提交交易的结果，不等待交易上链
+ */
+@Value
+public class SubmitResult {
+
+    String name;
+    Status status;
+    /**
+     * 已注册时为 Name 当前指向的地址，提交交易时为新账户地址
+     */
+    String address;
+    String hash;
+    /**
+     * 失败原因
+     */
+    String message;
+
+    public static SubmitResult skipped(String name, String address) {
+        return new SubmitResult(name, Status.SKIPPED, address, null, null);
+    }
+
+    public static SubmitResult submitted(String name, String address, String hash) {
+        return new SubmitResult(name, Status.SUBMITTED, address, hash, null);
+    }
+
+    public static SubmitResult failed(String name, String address, String message) {
+        return new SubmitResult(name, Status.FAILED, address, null, message);
+    }
+
+    public enum Status {
+        /**
+         * Name 已经被注册，没有提交交易
+         */
+        SKIPPED,
+        /**
+         * 交易已被节点接受，还没有确认上链
+         */
+        SUBMITTED,
+        /**
+         * 查询、创建账户、领取 TestCoin、签名出错，或交易被节点拒绝
+         */
+        FAILED
+    }
+}
@@ -0,0 +1,367 @@
+package indi.vincent.aptos.service;
+
+import indi.vincent.aptos.tools.AptosAccount;
+import indi.vincent.aptos.tools.AptosClient;
+import indi.vincent.aptos.tools.AptosFaucetClient;
+import indi.vincent.aptos.tools.ConfirmationTracker;
+import indi.vincent.aptos.tools.Futures;
+import indi.vincent.aptos.tools.SequenceNumberManager;
+import lombok.extern.slf4j.Slf4j;
+
+import java.math.BigInteger;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Collectors;
+
+/**
+ * 从资金账户转账给新账户
+ * <p>
+ * 资金账户向水龙头领取一大笔 TestCoin，之后每个新账户由资金账户转账，水龙头的调用次数只和补充次数有关。
+ * 转账交易使用 AptosClient 在本地分配的 Sequence Number 并发签名和提交，不等待上一笔上链。
+ * 一笔转账被拒绝时 AptosClient 重新同步 Sequence Number，排在它后面、因为空洞被节点拒绝的转账用新的 Sequence Number 重新签名；
+ * 被节点接受但停在空洞后面的转账会过期，过期的交易不会再上链，同样重新同步后重新签名。每笔转账最多提交 {@value #MAX_SUBMIT_ATTEMPTS} 次。
+ * 已提交未上链的转账最多 maxInFlight 笔，不超过节点 mempool 对单个账户的限制。
+ * 配置了批量转账函数时，batchWindow 内的新账户合并为一笔交易，最多 maxBatchSize 个。
+ * <p>
+ * 每个新账户的金额见 {@link FundingAmount}，在加入转账时确定。
+ * 余额在本地记账：每笔转账预先扣除转账金额和估算的最大 Gas 费用，余额低于 lowWaterMark 时在后台补充，
+ * 余额不足时等待补充结束。进程启动时余额从 0 开始，第一次转账前会先补充一次。
+ * 转账因余额不足失败时清空本地余额，补充后重试一次。
+ */
+@Slf4j
+public class TreasuryFundingStrategy implements FundingStrategy {
+
+    /**
+     * 水龙头交易的过期时间未知，按提交后这么多秒计算
+     */
+    private static final long TOP_UP_EXPIRATION_SECS = 60;
+    /**
+     * 校验补充金额时按默认 Gas 上限计算，实际转账按 AptosClient 估算的最大手续费预留
+     */
+    private static final long DEFAULT_GAS_RESERVE = AptosClient.DEFAULT_MAX_GAS_AMOUNT * AptosClient.DEFAULT_GAS_UNIT_PRICE;
+    private static final String INSUFFICIENT_BALANCE = "INSUFFICIENT_BALANCE";
+    private static final int MAX_SUBMIT_ATTEMPTS = 3;
+
+    private final AptosClient aptosClient;
+    private final AptosFaucetClient aptosFaucetClient;
+    private final ConfirmationTracker confirmationTracker;
+    private final AptosAccount treasury;
+    private final FundingAmount amount;
+    private final long topUpAmount;
+    private final long lowWaterMark;
+    private final String transferFunction;
+    private final String batchFunction;
+    private final List<String> typeArguments;
+    private final int maxBatchSize;
+    private final long batchWindowMillis;
+    private final int maxInFlight;
+
+    private final Deque<CompletableFuture<Void>> waiting = new ArrayDeque<>();
+    private int inFlight;
+    private final List<PendingFunding> pending = new ArrayList<>();
+    private boolean flushScheduled;
+    private long balance;
+    private CompletableFuture<Void> topUp;
+
+    private final LongAdder transfers = new LongAdder();
+    private final LongAdder topUps = new LongAdder();
+
+    /**
+     * @param aptosClient         提交转账交易
+     * @param aptosFaucetClient   补充资金账户
+     * @param confirmationTracker 等待交易上链
+     * @param treasury            资金账户
+     * @param amount              每个新账户的金额
+     * @param topUpAmount         每次向水龙头领取的金额
+     * @param lowWaterMark        余额低于该值时补充
+     * @param transferFunction    单笔转账函数，参数为 (address, u64)
+     * @param batchFunction       批量转账函数，参数为 (vector&lt;address&gt;, vector&lt;u64&gt;)，为空时逐个转账
+     * @param typeArguments       转账函数的类型参数
+     * @param maxBatchSize        每笔批量转账的最大账户数
+     * @param batchWindowMillis   批量转账等待更多账户的时间
+     * @param maxInFlight         已提交未上链的转账交易上限
+     */
+    public TreasuryFundingStrategy(AptosClient aptosClient, AptosFaucetClient aptosFaucetClient, ConfirmationTracker confirmationTracker,
+                                   AptosAccount treasury, FundingAmount amount, long topUpAmount, long lowWaterMark,
+                                   String transferFunction, String batchFunction, List<String> typeArguments,
+                                   int maxBatchSize, long batchWindowMillis, int maxInFlight) {
+        boolean batch = batchFunction != null && !batchFunction.isEmpty();
+        int batchSize = batch ? Math.max(1, maxBatchSize) : 1;
+        if (topUpAmount < amount.getMinimum() * batchSize + DEFAULT_GAS_RESERVE) {
+            throw new IllegalArgumentException("Top-up amount " + topUpAmount + " cannot cover one transfer of "
+                    + batchSize + " accounts");
+        }
+        this.aptosClient = aptosClient;
+        this.aptosFaucetClient = aptosFaucetClient;
+        this.confirmationTracker = confirmationTracker;
+        this.treasury = treasury;
+        this.amount = amount;
+        this.topUpAmount = topUpAmount;
+        this.lowWaterMark = lowWaterMark;
+        this.transferFunction = transferFunction;
+        this.batchFunction = batch ? batchFunction : null;
+        this.typeArguments = typeArguments;
+        this.maxBatchSize = batchSize;
+        this.batchWindowMillis = batchWindowMillis;
+        this.maxInFlight = Math.max(1, maxInFlight);
+    }
+
+    @Override
+    public CompletableFuture<Void> fund(AptosAccount account) {
+        PendingFunding funding = new PendingFunding(account.getAddress(), this.amount.get());
+        if (this.batchFunction == null) {
+            this.transfer(Collections.singletonList(funding), true);
+            return funding.future;
+        }
+        List<PendingFunding> batch = null;
+        synchronized (this) {
+            this.pending.add(funding);
+            if (this.pending.size() >= this.maxBatchSize) {
+                batch = new ArrayList<>(this.pending);
+                this.pending.clear();
+            } else if (!this.flushScheduled) {
+                this.flushScheduled = true;
+                Futures.delay(this.batchWindowMillis).thenRun(this::flush);
+            }
+        }
+        if (batch != null) {
+            this.transfer(batch, true);
+        }
+        return funding.future;
+    }
+
+    public AptosAccount getTreasury() {
+        return this.treasury;
+    }
+
+    /**
+     * @return 本地记账的资金账户余额
+     */
+    public synchronized long getBalance() {
+        return this.balance;
+    }
+
+    /**
+     * @return 累计提交的转账交易数
+     */
+    public long getTransfers() {
+        return this.transfers.sum();
+    }
+
+    /**
+     * @return 累计补充次数
+     */
+    public long getTopUps() {
+        return this.topUps.sum();
+    }
+
+    private void flush() {
+        List<PendingFunding> batch;
+        synchronized (this) {
+            this.flushScheduled = false;
+            if (this.pending.isEmpty()) {
+                return;
+            }
+            batch = new ArrayList<>(this.pending);
+            this.pending.clear();
+        }
+        this.transfer(batch, true);
+    }
+
+    private void transfer(List<PendingFunding> batch, boolean retryOnInsufficientBalance) {
+        long gasReserve = this.aptosClient.getMaxTransactionFee(this.batchFunction != null ? this.batchFunction : this.transferFunction);
+        long cost = batch.stream().mapToLong(funding -> funding.amount).sum() + gasReserve;
+        CompletableFuture<Void> reserved = this.reserve(cost);
+        reserved.thenCompose(ignored -> this.acquire())
+                .thenCompose(ignored -> this.submit(batch, 1).whenComplete((confirmation, error) -> this.releaseInFlight()))
+                .whenComplete((confirmation, error) -> {
+                    if (error == null && confirmation.isSuccess()) {
+                        batch.forEach(funding -> funding.future.complete(null));
+                        return;
+                    }
+                    String reason = error != null
+                            ? Futures.unwrap(error).toString()
+                            : confirmation.getOutcome() + " " + confirmation.getVmStatus();
+                    // 补充失败时费用没有扣除，不需要退回
+                    if (!reserved.isCompletedExceptionally()) {
+                        if (confirmation == null || confirmation.getOutcome() == ConfirmationTracker.Outcome.EXPIRED) {
+                            this.release(cost);
+                        } else {
+                            // 执行失败的交易只消耗 Gas
+                            this.release(cost - gasReserve);
+                        }
+                    }
+                    if (retryOnInsufficientBalance && reason.contains(INSUFFICIENT_BALANCE)) {
+                        log.warn("资金账户 {} 余额不足，补充后重试：{}", this.treasury.getAddress(), reason);
+                        this.drain();
+                        this.transfer(batch, false);
+                        return;
+                    }
+                    IllegalStateException failure = new IllegalStateException("Treasury transfer failed: " + reason);
+                    batch.forEach(funding -> funding.future.completeExceptionally(failure));
+                });
+    }
+
+    private CompletableFuture<ConfirmationTracker.Confirmation> submit(List<PendingFunding> batch, int attempt) {
+        AptosClient.TransactionPayload payload = new AptosClient.TransactionPayload();
+        payload.setType("script_function_payload");
+        payload.setTypeArguments(new ArrayList<>(this.typeArguments));
+        if (this.batchFunction == null) {
+            payload.setFunction(this.transferFunction);
+            payload.setArguments(Arrays.asList(batch.get(0).address, String.valueOf(batch.get(0).amount)));
+        } else {
+            payload.setFunction(this.batchFunction);
+            payload.setArguments(Arrays.asList(
+                    batch.stream().map(funding -> funding.address).collect(Collectors.toList()),
+                    batch.stream().map(funding -> String.valueOf(funding.amount)).collect(Collectors.toList())));
+        }
+        return this.aptosClient.createSignedTransactionAsync(this.treasury, payload).thenCompose(transaction -> this.aptosClient
+                .invokeSubmitTransactionAsync(transaction)
+                .thenCompose(response -> {
+                    if (response.getHash() == null) {
+                        if (attempt < MAX_SUBMIT_ATTEMPTS && SequenceNumberManager.isSequenceError(response.getErrorCode(), response.getMessage())) {
+                            // 前面的转账被拒绝后留下了空洞，等 AptosClient 重新同步后用新的 Sequence Number 重新签名
+                            log.debug("资金账户转账 {}/{} 被拒绝，重新签名：{}", transaction.getSender(), transaction.getSequenceNumber(), response.getMessage());
+                            return this.submit(batch, attempt + 1);
+                        }
+                        throw new IllegalStateException(response.getErrorCode() + " " + response.getMessage());
+                    }
+                    this.transfers.increment();
+                    log.debug("资金账户转账 {}，{} 个账户", response.getHash(), batch.size());
+                    return this.confirmationTracker.track(response.getHash(), Long.parseLong(transaction.getExpirationTimestampSecs()))
+                            .thenCompose(confirmation -> {
+                                if (confirmation.getOutcome() != ConfirmationTracker.Outcome.EXPIRED) {
+                                    return CompletableFuture.completedFuture(confirmation);
+                                }
+                                // 过期的交易没有用掉 Sequence Number，后面的转账会卡在它后面
+                                this.aptosClient.resyncSender(this.treasury.getAddress());
+                                return attempt < MAX_SUBMIT_ATTEMPTS ? this.submit(batch, attempt + 1) : CompletableFuture.completedFuture(confirmation);
+                            });
+                }));
+    }
+
+    /**
+     * 占用一个在途转账的名额，已满时等待之前的转账上链
+     */
+    private synchronized CompletableFuture<Void> acquire() {
+        if (this.inFlight < this.maxInFlight) {
+            this.inFlight++;
+            return CompletableFuture.completedFuture(null);
+        }
+        CompletableFuture<Void> slot = new CompletableFuture<>();
+        this.waiting.add(slot);
+        return slot;
+    }
+
+    /**
+     * 转账上链（或失败）后把名额交给下一笔等待的转账
+     */
+    private void releaseInFlight() {
+        CompletableFuture<Void> next;
+        synchronized (this) {
+            next = this.waiting.poll();
+            if (next == null) {
+                this.inFlight--;
+                return;
+            }
+        }
+        next.complete(null);
+    }
+
+    /**
+     * 预先扣除一笔转账的费用，余额不足时等待补充
+     */
+    private CompletableFuture<Void> reserve(long cost) {
+        CompletableFuture<Void> topUp;
+        synchronized (this) {
+            if (this.balance >= cost) {
+                this.balance -= cost;
+                if (this.balance < this.lowWaterMark) {
+                    this.topUp();
+                }
+                return CompletableFuture.completedFuture(null);
+            }
+            topUp = this.topUp();
+        }
+        return topUp.thenCompose(ignored -> this.reserve(cost));
+    }
+
+    private synchronized void release(long cost) {
+        this.balance += cost;
+    }
+
+    private synchronized void drain() {
+        this.balance = 0;
+    }
+
+    /**
+     * 向水龙头领取 TestCoin，同一时刻只有一次补充在进行
+     */
+    private synchronized CompletableFuture<Void> topUp() {
+        if (this.topUp != null) {
+            return this.topUp;
+        }
+        CompletableFuture<Void> topUp = new CompletableFuture<>();
+        this.topUp = topUp;
+        log.info("补充资金账户 {}：{}", this.treasury.getAddress(), this.topUpAmount);
+        CompletableFuture<List<ConfirmationTracker.Confirmation>> mint;
+        try {
+            mint = this.aptosFaucetClient.invokeMintAsync(this.treasury.getAddress(), BigInteger.valueOf(this.topUpAmount))
+                    .thenCompose(this::confirmAll);
+        } catch (RuntimeException e) {
+            mint = Futures.failed(e);
+        }
+        mint.whenComplete((confirmations, error) -> {
+            Throwable failure = error != null ? Futures.unwrap(error) : null;
+            if (failure == null) {
+                List<ConfirmationTracker.Confirmation> failed = confirmations.stream()
+                        .filter(confirmation -> !confirmation.isSuccess())
+                        .collect(Collectors.toList());
+                if (!failed.isEmpty()) {
+                    failure = new IllegalStateException("Faucet transaction failed: " + failed);
+                }
+            }
+            synchronized (this) {
+                this.topUp = null;
+                if (failure == null) {
+                    this.balance += this.topUpAmount;
+                }
+            }
+            if (failure != null) {
+                log.warn("补充资金账户 {} 失败：{}", this.treasury.getAddress(), failure.toString());
+                topUp.completeExceptionally(new CompletionException(failure));
+            } else {
+                this.topUps.increment();
+                topUp.complete(null);
+            }
+        });
+        return topUp;
+    }
+
+    private CompletableFuture<List<ConfirmationTracker.Confirmation>> confirmAll(List<String> hashes) {
+        long expiration = System.currentTimeMillis() / 1000 + TOP_UP_EXPIRATION_SECS;
+        List<CompletableFuture<ConfirmationTracker.Confirmation>> confirmations = hashes.stream()
+                .map(hash -> this.confirmationTracker.track(hash.startsWith("0x") ? hash : "0x" + hash, expiration))
+                .collect(Collectors.toList());
+        return CompletableFuture.allOf(confirmations.toArray(new CompletableFuture[0]))
+                .thenApply(ignored -> confirmations.stream().map(CompletableFuture::join).collect(Collectors.toList()));
+    }
+
+    private static class PendingFunding {
+        private final String address;
+        private final long amount;
+        private final CompletableFuture<Void> future = new CompletableFuture<>();
+
+        PendingFunding(String address, long amount) {
+            this.address = address;
+            this.amount = amount;
+        }
+    }
+}
@@ -0,0 +1,290 @@
+package indi.vincent.aptos.tools;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 单个远端服务的客户端限流
+ * <p>
+ * 令牌桶限制请求速率，AIMD 调整并发上限：
+ * 响应正常时每个请求把上限增加 1 / limit，相当于每一轮并发增加 1；
+ * 收到 429 / 5xx 时上限减半；网络错误，或延迟超过平滑延迟的 latencyTolerance 倍时上限乘以 0.9。
+ * 每一轮最多减小一次：在上一次减小之前发出的请求已经按旧的上限发出，它们的 429 或超时不再减小上限，
+ * 否则同一批并发请求一起失败时上限会连续减半直到 minLimit。
+ * 上限始终在 [minLimit, maxLimit] 之间。
+ * <p>
+ * {@link #acquire()} 不会阻塞调用线程，拿不到许可时返回未完成的 Future，
+ * 按先来先得的顺序在许可释放或令牌补充后完成。
+ */
+public class AdaptiveLimiter {
+
+    private static final double THROTTLE_BACKOFF = 0.5;
+    private static final double LATENCY_BACKOFF = 0.9;
+    private static final double RTT_SMOOTHING = 0.05;
+    /**
+     * 平滑延迟稳定之前不根据延迟调整上限
+     */
+    private static final int WARMUP_SAMPLES = 20;
+
+    private final String name;
+    private final double permitsPerNano;
+    private final double burst;
+    private final int minLimit;
+    private final int maxLimit;
+    private final double latencyTolerance;
+
+    private final Deque<CompletableFuture<Permit>> waiters = new ArrayDeque<>();
+    private final LongAdder throttled = new LongAdder();
+
+    private double limit;
+    private int inFlight;
+    private double tokens;
+    private long refilledAt = System.nanoTime();
+    private double smoothedRttNanos;
+    private long samples;
+    /**
+     * 上一次减小并发上限的时间，初始为创建时间
+     */
+    private long decreasedAt = System.nanoTime();
+    private boolean wakeScheduled;
+
+    /**
+     * @param name             远端服务名称
+     * @param permitsPerSecond 每秒最多发出的请求数，不大于 0 时不限制速率
+     * @param burst            令牌桶容量，即允许的突发请求数
+     * @param minLimit         并发上限的最小值
+     * @param initialLimit     初始并发上限
+     * @param maxLimit         并发上限的最大值
+     * @param latencyTolerance 延迟超过平滑延迟的倍数时视为延迟突增，不大于 0 时不根据延迟调整
+     */
+    public AdaptiveLimiter(String name, double permitsPerSecond, int burst, int minLimit, int initialLimit, int maxLimit,
+                           double latencyTolerance) {
+        if (minLimit < 1 || initialLimit < minLimit || maxLimit < initialLimit) {
+            throw new IllegalArgumentException("Invalid concurrency limits: " + minLimit + " / " + initialLimit + " / " + maxLimit);
+        }
+        this.name = name;
+        this.permitsPerNano = permitsPerSecond / TimeUnit.SECONDS.toNanos(1);
+        this.burst = Math.max(1, burst);
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.latencyTolerance = latencyTolerance;
+        this.limit = initialLimit;
+        this.tokens = this.burst;
+    }
+
+    /**
+     * 申请一个许可，请求结束后必须调用 {@link Permit} 的一个释放方法
+     */
+    public CompletableFuture<Permit> acquire() {
+        CompletableFuture<Permit> future = new CompletableFuture<>();
+        List<CompletableFuture<Permit>> ready;
+        synchronized (this) {
+            this.waiters.addLast(future);
+            ready = this.dispatch();
+        }
+        this.grant(ready);
+        return future;
+    }
+
+    public String getName() {
+        return this.name;
+    }
+
+    /**
+     * @return 当前并发上限
+     */
+    public synchronized int getLimit() {
+        return (int) this.limit;
+    }
+
+    /**
+     * @return 正在进行的请求数
+     */
+    public synchronized int getInFlight() {
+        return this.inFlight;
+    }
+
+    /**
+     * @return 等待许可的请求数
+     */
+    public synchronized int getWaiting() {
+        return this.waiters.size();
+    }
+
+    /**
+     * @return 累计收到 429 / 5xx 的次数
+     */
+    public long getThrottled() {
+        return this.throttled.sum();
+    }
+
+    /**
+     * 在持有锁时调用，取出可以放行的等待者，由调用方在释放锁之后完成
+     */
+    private List<CompletableFuture<Permit>> dispatch() {
+        List<CompletableFuture<Permit>> ready = null;
+        this.refill();
+        while (!this.waiters.isEmpty() && this.inFlight < (int) this.limit) {
+            CompletableFuture<Permit> waiter = this.waiters.peekFirst();
+            if (waiter.isDone()) {
+                this.waiters.pollFirst();
+                continue;
+            }
+            if (this.permitsPerNano > 0) {
+                if (this.tokens < 1) {
+                    this.scheduleWake();
+                    break;
+                }
+                this.tokens -= 1;
+            }
+            this.waiters.pollFirst();
+            this.inFlight++;
+            if (ready == null) {
+                ready = new ArrayList<>();
+            }
+            ready.add(waiter);
+        }
+        return ready == null ? Collections.emptyList() : ready;
+    }
+
+    private void grant(List<CompletableFuture<Permit>> ready) {
+        for (CompletableFuture<Permit> waiter : ready) {
+            Permit permit = new Permit();
+            if (!waiter.complete(permit)) {
+                // 等待期间被取消
+                permit.ignore();
+            }
+        }
+    }
+
+    private void refill() {
+        if (this.permitsPerNano <= 0) {
+            return;
+        }
+        long now = System.nanoTime();
+        this.tokens = Math.min(this.burst, this.tokens + (now - this.refilledAt) * this.permitsPerNano);
+        this.refilledAt = now;
+    }
+
+    private void scheduleWake() {
+        if (this.wakeScheduled) {
+            return;
+        }
+        this.wakeScheduled = true;
+        long delayNanos = (long) Math.ceil((1 - this.tokens) / this.permitsPerNano);
+        Futures.delay(Math.max(1, TimeUnit.NANOSECONDS.toMillis(delayNanos))).thenRun(() -> {
+            List<CompletableFuture<Permit>> ready;
+            synchronized (this) {
+                this.wakeScheduled = false;
+                ready = this.dispatch();
+            }
+            this.grant(ready);
+        });
+    }
+
+    private void release(Outcome outcome, long startNanos) {
+        List<CompletableFuture<Permit>> ready;
+        synchronized (this) {
+            this.inFlight--;
+            switch (outcome) {
+                case SUCCESS:
+                    this.onSuccess(startNanos);
+                    break;
+                case THROTTLED:
+                    this.throttled.increment();
+                    this.decrease(startNanos, THROTTLE_BACKOFF);
+                    break;
+                case DROPPED:
+                    this.decrease(startNanos, LATENCY_BACKOFF);
+                    break;
+                default:
+                    break;
+            }
+            ready = this.dispatch();
+        }
+        this.grant(ready);
+    }
+
+    private void onSuccess(long startNanos) {
+        long rttNanos = System.nanoTime() - startNanos;
+        this.samples++;
+        if (this.samples == 1) {
+            this.smoothedRttNanos = rttNanos;
+            return;
+        }
+        if (this.latencyTolerance > 0 && this.samples > WARMUP_SAMPLES && rttNanos > this.smoothedRttNanos * this.latencyTolerance) {
+            this.decrease(startNanos, LATENCY_BACKOFF);
+        } else {
+            this.limit = Math.min(this.maxLimit, this.limit + 1 / this.limit);
+        }
+        this.smoothedRttNanos += (rttNanos - this.smoothedRttNanos) * RTT_SMOOTHING;
+    }
+
+    /**
+     * 乘法减小并发上限，请求在上一次减小之前发出时忽略
+     */
+    private void decrease(long startNanos, double backoff) {
+        if (startNanos - this.decreasedAt < 0) {
+            return;
+        }
+        this.limit = Math.max(this.minLimit, this.limit * backoff);
+        this.decreasedAt = System.nanoTime();
+    }
+
+    private enum Outcome {
+        SUCCESS, THROTTLED, DROPPED, IGNORED
+    }
+
+    /**
+     * 一次请求的许可，只能释放一次
+     */
+    public class Permit {
+
+        private final long startNanos = System.nanoTime();
+        private boolean released;
+
+        /**
+         * 请求正常结束，包括 4xx 等业务错误
+         */
+        public void success() {
+            this.release(Outcome.SUCCESS);
+        }
+
+        /**
+         * 远端返回 429 / 5xx
+         */
+        public void throttled() {
+            this.release(Outcome.THROTTLED);
+        }
+
+        /**
+         * 网络错误或超时
+         */
+        public void dropped() {
+            this.release(Outcome.DROPPED);
+        }
+
+        /**
+         * 请求没有发出，不影响并发上限
+         */
+        public void ignore() {
+            this.release(Outcome.IGNORED);
+        }
+
+        private void release(Outcome outcome) {
+            synchronized (this) {
+                if (this.released) {
+                    return;
+                }
+                this.released = true;
+            }
+            AdaptiveLimiter.this.release(outcome, this.startNanos);
+        }
+    }
+}
@@ -1,15 +1,18 @@
 package indi.vincent.aptos.tools;
 
 import cn.hutool.core.util.HexUtil;
-import lombok.AllArgsConstructor;
+import lombok.AccessLevel;
 import lombok.Builder;
 import lombok.Data;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
 import lombok.NoArgsConstructor;
+import lombok.Setter;
+import lombok.ToString;
+import org.bouncycastle.util.encoders.Hex;
 
 @Data
-@Builder
 @NoArgsConstructor
-@AllArgsConstructor
 public class AptosAccount {
 
     private String privateKey;
@@ -17,6 +20,28 @@ public class AptosAccount {
     private String address;
     private String name;
 
+    /**
+     * 解码后的密钥，签名时直接使用，不参与序列化
+     */
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    @EqualsAndHashCode.Exclude
+    @ToString.Exclude
+    private transient byte[] privateKeyBytes;
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    @EqualsAndHashCode.Exclude
+    @ToString.Exclude
+    private transient byte[] publicKeyBytes;
+
+    @Builder
+    public AptosAccount(String privateKey, String publicKey, String address, String name) {
+        this.privateKey = privateKey;
+        this.publicKey = publicKey;
+        this.address = address;
+        this.name = name;
+    }
+
     public AptosAccount(byte[] privateKeyBytes, byte[] publicKeyBytes, byte[] addressBytes, String name) {
         this(
                 HexUtil.encodeHexStr(privateKeyBytes),
@@ -24,5 +49,41 @@ public class AptosAccount {
                 HexUtil.encodeHexStr(addressBytes),
                 name
         );
+        this.privateKeyBytes = privateKeyBytes;
+        this.publicKeyBytes = publicKeyBytes;
+    }
+
+    public void setPrivateKey(String privateKey) {
+        this.privateKey = privateKey;
+        this.privateKeyBytes = null;
+    }
+
+    public void setPublicKey(String publicKey) {
+        this.publicKey = publicKey;
+        this.publicKeyBytes = null;
+    }
+
+    /**
+     * @return 私钥的字节数组，调用方不能修改
+     */
+    public byte[] privateKeyBytes() {
+        byte[] bytes = this.privateKeyBytes;
+        if (bytes == null) {
+            bytes = Hex.decode(this.privateKey);
+            this.privateKeyBytes = bytes;
+        }
+        return bytes;
+    }
+
+    /**
+     * @return 公钥的字节数组，调用方不能修改
+     */
+    public byte[] publicKeyBytes() {
+        byte[] bytes = this.publicKeyBytes;
+        if (bytes == null) {
+            bytes = Hex.decode(this.publicKey);
+            this.publicKeyBytes = bytes;
+        }
+        return bytes;
     }
 }
@@ -1,30 +1,100 @@
 package indi.vincent.aptos.tools;
 
 import cn.hutool.core.annotation.Alias;
-import cn.hutool.core.bean.BeanUtil;
-import cn.hutool.json.JSONUtil;
+import cn.hutool.core.util.StrUtil;
 import lombok.*;
+import lombok.extern.slf4j.Slf4j;
 import okhttp3.*;
+import org.bouncycastle.util.encoders.Hex;
 
-import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
 
+@Slf4j
 public class AptosClient {
 
-    private final String host;
-    private final OkHttpClient client;
-    private final MediaType mediaType;
+    public static final String DEFAULT_NAMES_HOST = "https://www.aptosnames.com";
+    /**
+     * 没有配置 {@link GasEstimator} 或估算失败时使用
+     */
+    public static final long DEFAULT_MAX_GAS_AMOUNT = 2000;
+    public static final long DEFAULT_GAS_UNIT_PRICE = 1;
+
+    private static final MediaType BCS_SIGNED_TRANSACTION = MediaType.parse("application/x.aptos.signed_transaction+bcs");
+
+    private final SequenceNumberManager sequenceNumberManager;
+
+    /**
+     * 入口函数 -> 除 signer 以外的参数类型
+     */
+    private final Map<String, CompletableFuture<List<String>>> functionParameterTypes = new ConcurrentHashMap<>();
+    private volatile CompletableFuture<Integer> chainId;
+
+    /**
+     * 在本地计算签名消息，不再请求 /transactions/signing_message
+     */
+    @Setter
+    private boolean localSigning = true;
+    /**
+     * 每笔交易都在本地计算签名消息的同时请求节点，两者不一致时使用节点的结果
+     */
+    @Setter
+    private boolean verifyLocalSigning = false;
+    /**
+     * 每个入口函数的第一笔交易用节点校验本地签名消息，一致后该函数不再请求节点，不一致时该函数之后都使用节点的结果
+     */
+    @Setter
+    private boolean verifyFirstLocalSigning = true;
+    /**
+     * 入口函数 -> 本地签名消息是否与节点一致，校验进行中时其他交易等待同一个结果，校验失败后移除以便下一笔交易重新校验
+     */
+    private final Map<String, CompletableFuture<Boolean>> verifiedFunctions = new ConcurrentHashMap<>();
+    private final LongAdder signingMismatches = new LongAdder();
+    /**
+     * 使用 BCS 编码提交交易，校验发现本地签名消息与节点不一致时自动关闭
+     */
+    @Setter
+    private volatile boolean submitBcs = false;
+    /**
+     * 全节点，请求在多个节点之间负载均衡
+     */
+    @Setter
+    private AptosEndpointPool fullnodes;
+    /**
+     * Aptos Names 查询接口
+     */
+    @Setter
+    private AptosEndpointPool names;
+    /**
+     * 为 null 时使用 {@link #DEFAULT_MAX_GAS_AMOUNT} 和 {@link #DEFAULT_GAS_UNIT_PRICE}
+     */
+    @Setter
+    private GasEstimator gasEstimator;
 
     public AptosClient(String host) {
-        this.host = host;
-        this.client = new OkHttpClient.Builder()
-                .connectTimeout(1, TimeUnit.MINUTES)
-                .callTimeout(1, TimeUnit.MINUTES)
-                .build();
-        this.mediaType = MediaType.parse("application/json");
+        this(host, AptosHttpClients.shared());
+    }
+
+    public AptosClient(String host, OkHttpClient client) {
+        this(AptosEndpointPool.of(client, host), AptosEndpointPool.of(client, DEFAULT_NAMES_HOST));
+    }
+
+    /**
+     * @param fullnodes 全节点
+     * @param names     Aptos Names 查询接口
+     */
+    public AptosClient(AptosEndpointPool fullnodes, AptosEndpointPool names) {
+        this.fullnodes = fullnodes;
+        this.names = names;
+        this.sequenceNumberManager = new SequenceNumberManager(this::fetchSequenceNumber);
     }
 
     /**
@@ -35,17 +105,53 @@ public class AptosClient {
      * @return 交易哈希
      */
     public String executeTransactionWithPayload(AptosAccount account, TransactionPayload transactionPayload) {
+        return Futures.join(this.executeTransactionWithPayloadAsync(account, transactionPayload));
+    }
 
-        SignatureMessageParam signatureMessageParam = this.doGenerateTransaction(account.getAddress(), transactionPayload);
-        SignatureMessageResponse signatureMessageResponse = this.invokeCreateTransactionSigningMessage(signatureMessageParam);
-        TransactionSignature transactionSignature = this.doSignatureTransaction(account, signatureMessageResponse);
+    /**
+     * 异步提交包含 Payload 数据的交易
+     *
+     * @param account            Aptos 账户
+     * @param transactionPayload 交易的 Payload
+     * @return 交易哈希
+     */
+    public CompletableFuture<String> executeTransactionWithPayloadAsync(AptosAccount account, TransactionPayload transactionPayload) {
+        return this.createSignedTransactionAsync(account, transactionPayload)
+                .thenCompose(this::invokeSubmitTransactionAsync)
+                .thenApply(SubmitTransactionResponse::getHash);
+    }
 
-        SubmitTransactionParam submitTransactionParam = new SubmitTransactionParam();
-        BeanUtil.copyProperties(signatureMessageParam, submitTransactionParam);
-        submitTransactionParam.setSignature(transactionSignature);
+    /**
+     * 组装交易并签名，返回可以直接提交的交易数据
+     *
+     * @param account            Aptos 账户
+     * @param transactionPayload 交易的 Payload
+     * @return 带有签名的交易数据
+     */
+    public SubmitTransactionParam createSignedTransaction(AptosAccount account, TransactionPayload transactionPayload) {
+        return Futures.join(this.createSignedTransactionAsync(account, transactionPayload));
+    }
 
-        SubmitTransactionResponse submitTransactionResponse = this.invokeSubmitTransaction(submitTransactionParam);
-        return submitTransactionResponse.getHash();
+    /**
+     * 异步组装交易并签名
+     *
+     * @param account            Aptos 账户
+     * @param transactionPayload 交易的 Payload
+     * @return 带有签名的交易数据
+     */
+    public CompletableFuture<SubmitTransactionParam> createSignedTransactionAsync(AptosAccount account, TransactionPayload transactionPayload) {
+        return this.doGenerateTransactionAsync(account.getAddress(), transactionPayload).thenCompose(signatureMessageParam ->
+                this.estimateGasAsync(account, signatureMessageParam).thenCompose(this::createSigningMessageAsync).thenApply(signingMessage -> {
+                    TransactionSignature transactionSignature = this.doSignatureTransaction(account, signingMessage);
+                    return SubmitTransactionParam.of(signatureMessageParam, transactionSignature);
+                }).whenComplete((submitTransactionParam, error) -> {
+                    if (error != null) {
+                        // 已分配的 Sequence Number 不会被提交，重新同步避免后续交易卡住
+                        this.sequenceNumberManager.resync(account.getAddress());
+                        this.sequenceNumberManager.release(account.getAddress(), Long.parseLong(signatureMessageParam.getSequenceNumber()));
+                    }
+                })
+        );
     }
 
 
@@ -56,14 +162,17 @@ public class AptosClient {
      * @return 账户数据
      */
     public AccountResponse invokeGetAccount(String address) {
-        try {
-            Request request = new Request.Builder().url(this.host + "/accounts/" + address).get().build();
-            Response response = this.client.newCall(request).execute();
-            String responseBody = Objects.requireNonNull(response.body()).string();
-            return JSONUtil.toBean(responseBody, AccountResponse.class);
-        } catch (IOException e) {
-            throw new RuntimeException(e);
-        }
+        return Futures.join(this.invokeGetAccountAsync(address));
+    }
+
+    /**
+     * 异步查询账户
+     *
+     * @param address 账户地址
+     * @return 账户数据
+     */
+    public CompletableFuture<AccountResponse> invokeGetAccountAsync(String address) {
+        return this.read("get_account", "/accounts/" + address, AccountResponse.class);
     }
 
     /**
@@ -73,34 +182,133 @@ public class AptosClient {
      * @return 地址
      */
     public String invokeGetAddress(String name) {
-        try {
-            Request request = new Request.Builder().url("https://www.aptosnames.com/api/v1/address/" + name).get().build();
-            Response response = this.client.newCall(request).execute();
-            String responseBody = Objects.requireNonNull(response.body()).string();
-            Object address = JSONUtil.getByPath(JSONUtil.parseObj(responseBody), "$.address");
-            return address == null || address.toString().equalsIgnoreCase("NULL") ? null : address.toString();
-        } catch (IOException e) {
-            throw new RuntimeException(e);
-        }
+        return Futures.join(this.invokeGetAddressAsync(name));
+    }
+
+    /**
+     * 异步查询 Name 对应的地址
+     *
+     * @param name Name Service
+     * @return 地址，未注册时为 null
+     */
+    public CompletableFuture<String> invokeGetAddressAsync(String name) {
+        return this.names.hedged("get_address", host -> get(host + "/api/v1/address/" + name, "get_address"), body -> {
+            String address = AptosJsonCodec.readField(body.byteStream(), "address");
+            return address == null || address.equalsIgnoreCase("NULL") ? null : address;
+        });
     }
 
     /**
-     * 获取发送放的 Sequence Number，组装 SignatureMessageParam
+     * 分配发送方的 Sequence Number，组装 SignatureMessageParam
      *
      * @param sender             发送方地址
      * @param transactionPayload 交易的 Payload
      * @return SignatureMessageParam 对象
      */
     public SignatureMessageParam doGenerateTransaction(String sender, TransactionPayload transactionPayload) {
-        AccountResponse response = this.invokeGetAccount(sender);
-        SignatureMessageParam signatureMessageParam = new SignatureMessageParam();
-        signatureMessageParam.setSequenceNumber(response.getSequenceNumber());
-        signatureMessageParam.setSender(sender);
-        signatureMessageParam.setMaxGasAmount("2000");
-        signatureMessageParam.setGasUnitPrice("1");
-        signatureMessageParam.setExpirationTimestampSecs(String.valueOf(System.currentTimeMillis() / 1000 + 600));
-        signatureMessageParam.setPayload(transactionPayload);
-        return signatureMessageParam;
+        return Futures.join(this.doGenerateTransactionAsync(sender, transactionPayload));
+    }
+
+    /**
+     * 异步分配发送方的 Sequence Number，组装 SignatureMessageParam
+     *
+     * @param sender             发送方地址
+     * @param transactionPayload 交易的 Payload
+     * @return SignatureMessageParam 对象
+     */
+    public CompletableFuture<SignatureMessageParam> doGenerateTransactionAsync(String sender, TransactionPayload transactionPayload) {
+        return this.sequenceNumberManager.allocateAsync(sender).thenApply(sequenceNumber -> {
+            SignatureMessageParam signatureMessageParam = new SignatureMessageParam();
+            signatureMessageParam.setSequenceNumber(String.valueOf(sequenceNumber));
+            signatureMessageParam.setSender(sender);
+            signatureMessageParam.setMaxGasAmount(String.valueOf(DEFAULT_MAX_GAS_AMOUNT));
+            signatureMessageParam.setGasUnitPrice(String.valueOf(DEFAULT_GAS_UNIT_PRICE));
+            signatureMessageParam.setExpirationTimestampSecs(String.valueOf(System.currentTimeMillis() / 1000 + 600));
+            signatureMessageParam.setPayload(transactionPayload);
+            return signatureMessageParam;
+        });
+    }
+
+    /**
+     * 用 {@link GasEstimator} 的估算结果替换默认的 max_gas_amount 和 gas_unit_price
+     */
+    private CompletableFuture<SignatureMessageParam> estimateGasAsync(AptosAccount sender, SignatureMessageParam signatureMessageParam) {
+        if (this.gasEstimator == null) {
+            return CompletableFuture.completedFuture(signatureMessageParam);
+        }
+        return this.gasEstimator.estimateAsync(sender, signatureMessageParam).thenApply(estimate -> {
+            signatureMessageParam.setMaxGasAmount(String.valueOf(estimate.getMaxGasAmount()));
+            signatureMessageParam.setGasUnitPrice(String.valueOf(estimate.getGasUnitPrice()));
+            return signatureMessageParam;
+        });
+    }
+
+    /**
+     * 调用入口函数的一笔交易最多花费的手续费
+     *
+     * @param function 入口函数
+     * @return max_gas_amount * gas_unit_price，还没有估算过时按默认值计算
+     */
+    public long getMaxTransactionFee(String function) {
+        return this.gasEstimator == null
+                ? DEFAULT_MAX_GAS_AMOUNT * DEFAULT_GAS_UNIT_PRICE
+                : this.gasEstimator.getMaxFee(function);
+    }
+
+    /**
+     * 与 {@link #getMaxTransactionFee} 相同，但 Gas 单价过期时先重新获取
+     *
+     * @param function 入口函数
+     * @return max_gas_amount * gas_unit_price
+     */
+    public CompletableFuture<Long> getMaxTransactionFeeAsync(String function) {
+        return this.gasEstimator == null
+                ? CompletableFuture.completedFuture(DEFAULT_MAX_GAS_AMOUNT * DEFAULT_GAS_UNIT_PRICE)
+                : this.gasEstimator.getMaxFeeAsync(function);
+    }
+
+    /**
+     * 在本地计算签名消息
+     *
+     * @param signatureMessageParam 交易数据
+     * @return 签名消息，交易中包含暂不支持本地编码的类型时返回 null
+     */
+    public byte[] doCreateSigningMessage(SignatureMessageParam signatureMessageParam) {
+        byte[] rawTransaction = this.doEncodeRawTransaction(signatureMessageParam);
+        return rawTransaction == null ? null : AptosTransactionEncoder.createSigningMessage(rawTransaction);
+    }
+
+    /**
+     * BCS 编码 RawTransaction，入口函数的参数类型从模块 ABI 中获取并缓存
+     *
+     * @param signatureMessageParam 交易数据
+     * @return RawTransaction 的 BCS 编码，交易中包含暂不支持本地编码的类型时返回 null
+     */
+    public byte[] doEncodeRawTransaction(SignatureMessageParam signatureMessageParam) {
+        return Futures.join(this.doEncodeRawTransactionAsync(signatureMessageParam));
+    }
+
+    /**
+     * 异步 BCS 编码 RawTransaction
+     *
+     * @param signatureMessageParam 交易数据
+     * @return RawTransaction 的 BCS 编码，交易中包含暂不支持本地编码的类型时返回 null
+     */
+    public CompletableFuture<byte[]> doEncodeRawTransactionAsync(SignatureMessageParam signatureMessageParam) {
+        CompletableFuture<List<String>> parameterTypes = this.getFunctionParameterTypesAsync(signatureMessageParam.getPayload().getFunction());
+        return parameterTypes.thenCombine(this.getChainIdAsync(),
+                        (types, chainId) -> AptosTransactionEncoder.encodeRawTransaction(signatureMessageParam, types, chainId))
+                .handle((rawTransaction, error) -> {
+                    if (error == null) {
+                        return rawTransaction;
+                    }
+                    Throwable cause = Futures.unwrap(error);
+                    if (cause instanceof IllegalArgumentException) {
+                        log.debug("无法在本地编码交易：{}", cause.getMessage());
+                        return null;
+                    }
+                    throw new CompletionException(cause);
+                });
     }
 
     /**
@@ -111,11 +319,22 @@ public class AptosClient {
      * @return 交易签名
      */
     public TransactionSignature doSignatureTransaction(AptosAccount account, SignatureMessageResponse signatureMessageResponse) {
-        String signatureHex = AptosCryptoUtil.ed25519Signature(account.getPrivateKey(), signatureMessageResponse.getMessage().substring(2));
+        return this.doSignatureTransaction(account, AptosCryptoUtil.decodeHex(signatureMessageResponse.getMessage()));
+    }
+
+    /**
+     * 使用 ED_25519 进行签名
+     *
+     * @param account        Aptos 账户
+     * @param signingMessage 待签名信息
+     * @return 交易签名
+     */
+    public TransactionSignature doSignatureTransaction(AptosAccount account, byte[] signingMessage) {
+        byte[] signature = AptosCryptoUtil.ed25519Sign(account.privateKeyBytes(), account.publicKeyBytes(), signingMessage);
         TransactionSignature transactionSignature = new TransactionSignature();
         transactionSignature.setType("ed25519_signature");
         transactionSignature.setPublicKey(account.getPublicKey());
-        transactionSignature.setSignature("0x" + signatureHex);
+        transactionSignature.setSignature(AptosCryptoUtil.toPrefixedHex(signature));
         return transactionSignature;
     }
 
@@ -130,15 +349,86 @@ public class AptosClient {
      * @return 需要签名的消息
      */
     public SignatureMessageResponse invokeCreateTransactionSigningMessage(SignatureMessageParam signatureMessageParam) {
-        try {
-            RequestBody requestBody = RequestBody.create(JSONUtil.toJsonStr(signatureMessageParam), this.mediaType);
-            Request request = new Request.Builder().url(this.host + "/transactions/signing_message").post(requestBody).build();
-            Response response = this.client.newCall(request).execute();
-            String responseBody = Objects.requireNonNull(response.body()).string();
-            return JSONUtil.toBean(responseBody, SignatureMessageResponse.class);
-        } catch (IOException e) {
-            throw new RuntimeException(e);
+        return Futures.join(this.invokeCreateTransactionSigningMessageAsync(signatureMessageParam));
+    }
+
+    /**
+     * 异步请求节点计算签名消息
+     *
+     * @param signatureMessageParam 包含 Payload 的请求数据
+     * @return 需要签名的消息
+     */
+    public CompletableFuture<SignatureMessageResponse> invokeCreateTransactionSigningMessageAsync(SignatureMessageParam signatureMessageParam) {
+        RequestBody requestBody = AptosJsonCodec.requestBody(signatureMessageParam);
+        return this.fullnodes.failover("signing_message", host -> post(host + "/transactions/signing_message", requestBody, "signing_message"),
+                body -> AptosJsonCodec.read(body.byteStream(), SignatureMessageResponse.class));
+    }
+
+    private CompletableFuture<byte[]> createSigningMessageAsync(SignatureMessageParam signatureMessageParam) {
+        String function = signatureMessageParam.getPayload().getFunction();
+        if (!this.localSigning || isMismatched(this.verifiedFunctions.get(function))) {
+            return this.invokeCreateTransactionSigningMessageBytesAsync(signatureMessageParam);
         }
+        return this.doEncodeRawTransactionAsync(signatureMessageParam).thenCompose(rawTransaction -> {
+            if (rawTransaction == null) {
+                return this.invokeCreateTransactionSigningMessageBytesAsync(signatureMessageParam);
+            }
+            byte[] signingMessage = AptosTransactionEncoder.createSigningMessage(rawTransaction);
+            if (this.verifyLocalSigning) {
+                return this.verifySigningMessageAsync(signatureMessageParam, signingMessage);
+            }
+            if (!this.verifyFirstLocalSigning) {
+                return CompletableFuture.completedFuture(signingMessage);
+            }
+            CompletableFuture<Boolean> verification = new CompletableFuture<>();
+            CompletableFuture<Boolean> existing = this.verifiedFunctions.putIfAbsent(function, verification);
+            if (existing != null) {
+                // 等待正在进行的校验，不一致或校验失败时这笔交易使用节点的结果
+                return existing.handle((matched, error) -> Boolean.TRUE.equals(matched)).thenCompose(matched -> matched
+                        ? CompletableFuture.completedFuture(signingMessage)
+                        : this.invokeCreateTransactionSigningMessageBytesAsync(signatureMessageParam));
+            }
+            return this.verifySigningMessageAsync(signatureMessageParam, signingMessage).whenComplete((message, error) -> {
+                if (error != null) {
+                    this.verifiedFunctions.remove(function, verification);
+                    verification.completeExceptionally(error);
+                } else {
+                    verification.complete(message == signingMessage);
+                }
+            });
+        });
+    }
+
+    /**
+     * 请求节点计算签名消息并与本地结果比较
+     *
+     * @return 一致时返回本地结果，不一致时返回节点结果
+     */
+    private CompletableFuture<byte[]> verifySigningMessageAsync(SignatureMessageParam signatureMessageParam, byte[] signingMessage) {
+        return this.invokeCreateTransactionSigningMessageBytesAsync(signatureMessageParam).thenApply(remoteSigningMessage -> {
+            if (Arrays.equals(signingMessage, remoteSigningMessage)) {
+                return signingMessage;
+            }
+            // 不一致的结果不会被之后一致的结果覆盖
+            this.verifiedFunctions.put(signatureMessageParam.getPayload().getFunction(), CompletableFuture.completedFuture(false));
+            this.signingMismatches.increment();
+            log.warn("本地签名消息与节点不一致，使用节点结果：{} != {}", Hex.toHexString(signingMessage), Hex.toHexString(remoteSigningMessage));
+            // 本地 BCS 编码与节点不一致，签名对应的是节点的编码，之后只能用 JSON 提交，由节点编码
+            if (this.submitBcs) {
+                log.warn("关闭 BCS 提交，改用 JSON 提交交易");
+                this.submitBcs = false;
+            }
+            return remoteSigningMessage;
+        });
+    }
+
+    private static boolean isMismatched(CompletableFuture<Boolean> verification) {
+        return verification != null && verification.isDone() && !verification.isCompletedExceptionally() && !verification.join();
+    }
+
+    private CompletableFuture<byte[]> invokeCreateTransactionSigningMessageBytesAsync(SignatureMessageParam signatureMessageParam) {
+        return this.invokeCreateTransactionSigningMessageAsync(signatureMessageParam)
+                .thenApply(signatureMessageResponse -> AptosCryptoUtil.decodeHex(signatureMessageResponse.getMessage()));
     }
 
     /**
@@ -154,15 +444,318 @@ public class AptosClient {
      * @return 带有交易哈希的响应
      */
     public SubmitTransactionResponse invokeSubmitTransaction(SubmitTransactionParam submitTransactionParam) {
-        try {
-            RequestBody requestBody = RequestBody.create(JSONUtil.toJsonStr(submitTransactionParam), this.mediaType);
-            Request request = new Request.Builder().url(this.host + "/transactions").post(requestBody).build();
-            Response response = this.client.newCall(request).execute();
-            String responseBody = Objects.requireNonNull(response.body()).string();
-            return JSONUtil.toBean(responseBody, SubmitTransactionResponse.class);
-        } catch (IOException e) {
-            throw new RuntimeException(e);
+        return Futures.join(this.invokeSubmitTransactionAsync(submitTransactionParam));
+    }
+
+    /**
+     * 异步提交交易
+     *
+     * @param submitTransactionParam 带有交易发送方签名的请求数据
+     * @return 带有交易哈希的响应
+     */
+    public CompletableFuture<SubmitTransactionResponse> invokeSubmitTransactionAsync(SubmitTransactionParam submitTransactionParam) {
+        CompletableFuture<byte[]> rawTransaction = this.submitBcs
+                ? this.doEncodeRawTransactionAsync(submitTransactionParam)
+                : CompletableFuture.completedFuture(null);
+        return rawTransaction.thenCompose(raw -> {
+            RequestBody requestBody = raw == null
+                    ? AptosJsonCodec.requestBody(submitTransactionParam)
+                    : RequestBody.create(this.doEncodeSignedTransaction(raw, submitTransactionParam.getSignature()), BCS_SIGNED_TRANSACTION);
+            // 各次重试提交的是同一笔签名交易，链上最多执行一次；重试的结果不可信时下面按链上记录确认
+            return this.fullnodes.failover("submit_transaction", host -> post(host + "/transactions", requestBody, "submit_transaction"),
+                    body -> AptosJsonCodec.read(body.byteStream(), SubmitTransactionResponse.class));
+        }).handle((submitTransactionResponse, error) -> {
+            if (error == null && submitTransactionResponse.getHash() != null) {
+                return CompletableFuture.completedFuture(submitTransactionResponse);
+            }
+            if (error == null && !SequenceNumberManager.isSequenceError(submitTransactionResponse.getErrorCode(), submitTransactionResponse.getMessage())) {
+                // 被拒绝的交易没有用掉这个 Sequence Number，之后的交易不能跳过它
+                this.sequenceNumberManager.resync(submitTransactionParam.getSender());
+                return CompletableFuture.completedFuture(submitTransactionResponse);
+            }
+            // 响应丢失后重试被 Sequence Number 拒绝，或重试次数用完，交易都可能已经上链
+            return this.findSubmittedTransactionAsync(submitTransactionParam).thenCompose(submitted -> {
+                if (submitted != null) {
+                    return CompletableFuture.completedFuture(submitted);
+                }
+                return this.resyncUnlessPendingAsync(submitTransactionParam).thenApply(ignored -> {
+                    if (error != null) {
+                        throw new CompletionException(Futures.unwrap(error));
+                    }
+                    return submitTransactionResponse;
+                });
+            });
+        }).thenCompose(submitTransactionResponse -> submitTransactionResponse).whenComplete((submitTransactionResponse, error) -> this.sequenceNumberManager.release(
+                submitTransactionParam.getSender(), Long.parseLong(submitTransactionParam.getSequenceNumber())));
+    }
+
+    /**
+     * 没有找到已上链的交易时，只有链上的 Sequence Number 已经越过这一笔交易，才能确定它不会再上链并立即重新同步；
+     * 否则交易可能还在 mempool 里，现在重新同步会把同一个 Sequence Number 分配给下一笔交易，
+     * 等交易过期后再查一次，仍然没有上链才重新同步
+     */
+    private CompletableFuture<Void> resyncUnlessPendingAsync(SubmitTransactionParam submitTransactionParam) {
+        String sender = submitTransactionParam.getSender();
+        long sequenceNumber = Long.parseLong(submitTransactionParam.getSequenceNumber());
+        return this.invokeGetAccountAsync(sender).handle((account, error) -> {
+            if (error == null && account.getSequenceNumber() != null && Long.parseLong(account.getSequenceNumber()) > sequenceNumber) {
+                this.sequenceNumberManager.resync(sender);
+                return null;
+            }
+            long expirationMillis = TimeUnit.SECONDS.toMillis(Long.parseLong(submitTransactionParam.getExpirationTimestampSecs()));
+            Futures.delay(expirationMillis - System.currentTimeMillis())
+                    .thenCompose(ignored -> this.findSubmittedTransactionAsync(submitTransactionParam))
+                    .thenAccept(submitted -> {
+                        if (submitted == null) {
+                            log.info("交易 {}/{} 过期没有上链，重新同步 Sequence Number", sender, sequenceNumber);
+                            this.sequenceNumberManager.resync(sender);
+                        }
+                    });
+            return null;
+        });
+    }
+
+    /**
+     * 按发送方和 Sequence Number 查询已上链的交易，签名相同时说明就是这一笔交易
+     *
+     * @return 已上链时返回带有哈希的响应，否则（包括查询失败）返回 null
+     */
+    private CompletableFuture<SubmitTransactionResponse> findSubmittedTransactionAsync(SubmitTransactionParam submitTransactionParam) {
+        String signature = submitTransactionParam.getSignature().getSignature();
+        return this.invokeGetAccountTransactionsAsync(submitTransactionParam.getSender(), Long.parseLong(submitTransactionParam.getSequenceNumber()), 1)
+                .handle((transactions, error) -> {
+                    if (error != null) {
+                        log.warn("查询交易 {}/{} 是否已上链失败", submitTransactionParam.getSender(), submitTransactionParam.getSequenceNumber(), error);
+                        return null;
+                    }
+                    for (TransactionResponse transaction : transactions) {
+                        if (transaction.getHash() != null
+                                && submitTransactionParam.getSequenceNumber().equals(transaction.getSequenceNumber())
+                                && transaction.getSignature() != null
+                                && StrUtil.equalsIgnoreCase(signature, transaction.getSignature().getSignature())) {
+                            SubmitTransactionResponse submitted = new SubmitTransactionResponse();
+                            submitted.setSender(submitTransactionParam.getSender());
+                            submitted.setSequenceNumber(submitTransactionParam.getSequenceNumber());
+                            submitted.setSignature(submitTransactionParam.getSignature());
+                            submitted.setHash(transaction.getHash());
+                            return submitted;
+                        }
+                    }
+                    return null;
+                });
+    }
+
+    /**
+     * 已经提交的交易过期没有上链，丢弃本地的 Sequence Number，之后的交易重新从链上查询
+     *
+     * @param address 发送方地址
+     */
+    public void resyncSender(String address) {
+        this.sequenceNumberManager.resync(address);
+    }
+
+    /**
+     * 发送方不再发送交易（例如只注册一个 Name 的新账户），提交过的交易全部结束后丢弃本地的 Sequence Number
+     *
+     * @param address 发送方地址
+     */
+    public void evictSender(String address) {
+        this.sequenceNumberManager.evict(address);
+    }
+
+    /**
+     * @return 本地保存了 Sequence Number 的发送方数量
+     */
+    public int getSenderCount() {
+        return this.sequenceNumberManager.size();
+    }
+
+    /**
+     * @return 本地签名消息与节点不一致的次数
+     */
+    public long getSigningMismatches() {
+        return this.signingMismatches.sum();
+    }
+
+    /**
+     * 模拟执行交易，不会上链，签名必须无效
+     * <p>
+     * API Doc: https://aptos.dev/rest-api#tag/transactions/operation/simulate_transaction
+     *
+     * @param submitTransactionParam 带有无效签名的交易数据
+     * @return 模拟执行的结果，节点返回错误时为只包含错误信息的列表
+     */
+    public CompletableFuture<List<TransactionResponse>> invokeSimulateTransactionAsync(SubmitTransactionParam submitTransactionParam) {
+        RequestBody requestBody = AptosJsonCodec.requestBody(submitTransactionParam);
+        return this.fullnodes.failover("simulate_transaction", host -> post(host + "/transactions/simulate", requestBody, "simulate_transaction"),
+                body -> AptosJsonCodec.readList(body.byteStream(), TransactionResponse.class));
+    }
+
+    /**
+     * 查询节点建议的 Gas 单价
+     * <p>
+     * API Doc: https://aptos.dev/rest-api#tag/transactions/operation/estimate_gas_price
+     *
+     * @return Gas 单价
+     */
+    public CompletableFuture<GasEstimateResponse> invokeEstimateGasPriceAsync() {
+        return this.read("estimate_gas_price", "/estimate_gas_price", GasEstimateResponse.class);
+    }
+
+    /**
+     * 查询链信息
+     * <p>
+     * API Doc: https://aptos.dev/rest-api#tag/general/operation/get_ledger_info
+     *
+     * @return 链信息
+     */
+    public LedgerInfoResponse invokeGetLedgerInfo() {
+        return Futures.join(this.invokeGetLedgerInfoAsync());
+    }
+
+    /**
+     * 异步查询链信息
+     *
+     * @return 链信息
+     */
+    public CompletableFuture<LedgerInfoResponse> invokeGetLedgerInfoAsync() {
+        return this.read("get_ledger_info", "/", LedgerInfoResponse.class);
+    }
+
+    /**
+     * 查询账户下的 Move 模块
+     * <p>
+     * API Doc: https://aptos.dev/rest-api#tag/accounts/operation/get_account_module
+     *
+     * @param address    模块地址
+     * @param moduleName 模块名称
+     * @return 模块数据，包含 ABI
+     */
+    public MoveModuleResponse invokeGetAccountModule(String address, String moduleName) {
+        return Futures.join(this.invokeGetAccountModuleAsync(address, moduleName));
+    }
+
+    /**
+     * 异步查询账户下的 Move 模块
+     *
+     * @param address    模块地址
+     * @param moduleName 模块名称
+     * @return 模块数据，包含 ABI
+     */
+    public CompletableFuture<MoveModuleResponse> invokeGetAccountModuleAsync(String address, String moduleName) {
+        return this.read("get_account_module", "/accounts/" + address + "/module/" + moduleName, MoveModuleResponse.class);
+    }
+
+    /**
+     * 按哈希查询交易
+     * <p>
+     * API Doc: https://aptos.dev/rest-api#tag/transactions/operation/get_transaction
+     *
+     * @param hash 交易哈希
+     * @return 交易，未上链时 type 为 pending_transaction，不存在时 code 为 404
+     */
+    public TransactionResponse invokeGetTransactionByHash(String hash) {
+        return Futures.join(this.invokeGetTransactionByHashAsync(hash));
+    }
+
+    /**
+     * 异步按哈希查询交易
+     *
+     * @param hash 交易哈希
+     * @return 交易，未上链时 type 为 pending_transaction，不存在时 code 为 404
+     */
+    public CompletableFuture<TransactionResponse> invokeGetTransactionByHashAsync(String hash) {
+        return this.read("get_transaction", "/transactions/by_hash/" + hash, TransactionResponse.class);
+    }
+
+    /**
+     * 查询账户发送的已上链交易
+     * <p>
+     * API Doc: https://aptos.dev/rest-api#tag/transactions/operation/get_account_transactions
+     *
+     * @param address 发送方地址
+     * @param start   起始 Sequence Number
+     * @param limit   最多返回的数量
+     * @return 按 Sequence Number 排列的交易，节点返回错误时为只包含错误信息的列表
+     */
+    public CompletableFuture<List<TransactionResponse>> invokeGetAccountTransactionsAsync(String address, long start, int limit) {
+        String operation = "get_account_transactions";
+        String path = "/accounts/" + address + "/transactions?start=" + start + "&limit=" + limit;
+        return this.fullnodes.hedged(operation, host -> get(host + path, operation),
+                body -> AptosJsonCodec.readList(body.byteStream(), TransactionResponse.class));
+    }
+
+    /**
+     * 全节点上的幂等查询，慢请求会发给另一个节点
+     */
+    private <T> CompletableFuture<T> read(String operation, String path, Class<T> responseType) {
+        return this.fullnodes.hedged(operation, host -> get(host + path, operation),
+                body -> AptosJsonCodec.read(body.byteStream(), responseType));
+    }
+
+    private static Request get(String url, String operation) {
+        return new Request.Builder().url(url).get().tag(String.class, operation).build();
+    }
+
+    private static Request post(String url, RequestBody requestBody, String operation) {
+        return new Request.Builder().url(url).post(requestBody).tag(String.class, operation).build();
+    }
+
+    private CompletableFuture<Long> fetchSequenceNumber(String address) {
+        return this.invokeGetAccountAsync(address).thenApply(response -> {
+            if (response.getSequenceNumber() == null) {
+                throw new IllegalStateException("Account " + address + " not found: " + response.getMessage());
+            }
+            return Long.parseLong(response.getSequenceNumber());
+        });
+    }
+
+    private CompletableFuture<Integer> getChainIdAsync() {
+        CompletableFuture<Integer> chainId = this.chainId;
+        if (chainId == null) {
+            chainId = this.invokeGetLedgerInfoAsync()
+                    .thenApply(ledgerInfo -> Objects.requireNonNull(ledgerInfo.getChainId(), "chain_id"));
+            this.chainId = chainId;
+            chainId.whenComplete((id, error) -> {
+                if (error != null) {
+                    this.chainId = null;
+                }
+            });
         }
+        return chainId;
+    }
+
+    private CompletableFuture<List<String>> getFunctionParameterTypesAsync(String function) {
+        String[] parts = function.split("::");
+        if (parts.length != 3) {
+            return Futures.failed(new IllegalArgumentException("Invalid function: " + function));
+        }
+        CompletableFuture<List<String>> parameterTypes = this.functionParameterTypes.computeIfAbsent(function, key ->
+                this.invokeGetAccountModuleAsync(parts[0], parts[1]).thenApply(module -> {
+                    if (module.getAbi() == null || module.getAbi().getExposedFunctions() == null) {
+                        throw new IllegalArgumentException("Module ABI not found: " + parts[0] + "::" + parts[1]);
+                    }
+                    MoveFunction moveFunction = module.getAbi().getExposedFunctions().stream()
+                            .filter(f -> parts[2].equals(f.getName()))
+                            .findFirst()
+                            .orElseThrow(() -> new IllegalArgumentException("Function not found in ABI: " + function));
+                    return AptosTransactionEncoder.withoutSigner(moveFunction.getParams());
+                }));
+        parameterTypes.whenComplete((types, error) -> {
+            // 网络错误不缓存，下次重新查询；ABI 中不存在的函数缓存失败结果，直接回退到节点计算签名消息
+            if (error != null && !(Futures.unwrap(error) instanceof IllegalArgumentException)) {
+                this.functionParameterTypes.remove(function, parameterTypes);
+            }
+        });
+        return parameterTypes;
+    }
+
+    private byte[] doEncodeSignedTransaction(byte[] rawTransaction, TransactionSignature transactionSignature) {
+        return AptosTransactionEncoder.encodeSignedTransaction(
+                rawTransaction,
+                AptosCryptoUtil.decodeHex(transactionSignature.getPublicKey()),
+                AptosCryptoUtil.decodeHex(transactionSignature.getSignature())
+        );
     }
 
 
@@ -172,6 +765,8 @@ public class AptosClient {
     public static class BaseResponse {
         private String code;
         private String message;
+        @Alias("error_code")
+        private String errorCode;
     }
 
     @Data
@@ -209,6 +804,20 @@ public class AptosClient {
     public static class SubmitTransactionParam extends SignatureMessageParam {
         @Alias("signature")
         private TransactionSignature signature;
+
+        public static SubmitTransactionParam of(SignatureMessageParam signatureMessageParam, TransactionSignature signature) {
+            SubmitTransactionParam submitTransactionParam = new SubmitTransactionParam();
+            submitTransactionParam.setSender(signatureMessageParam.getSender());
+            submitTransactionParam.setSequenceNumber(signatureMessageParam.getSequenceNumber());
+            submitTransactionParam.setMaxGasAmount(signatureMessageParam.getMaxGasAmount());
+            submitTransactionParam.setGasUnitPrice(signatureMessageParam.getGasUnitPrice());
+            submitTransactionParam.setGasCurrencyCode(signatureMessageParam.getGasCurrencyCode());
+            submitTransactionParam.setExpirationTimestampSecs(signatureMessageParam.getExpirationTimestampSecs());
+            submitTransactionParam.setPayload(signatureMessageParam.getPayload());
+            submitTransactionParam.setSecondarySigners(signatureMessageParam.getSecondarySigners());
+            submitTransactionParam.setSignature(signature);
+            return submitTransactionParam;
+        }
     }
 
     @Data
@@ -216,6 +825,40 @@ public class AptosClient {
     public static class SubmitTransactionResponse extends SubmitTransactionParam {
         @Alias("hash")
         private String hash;
+        private String code;
+        private String message;
+        @Alias("error_code")
+        private String errorCode;
+    }
+
+    @Data
+    @EqualsAndHashCode(callSuper = true)
+    public static class TransactionResponse extends BaseResponse {
+        @Alias("type")
+        private String type;
+        @Alias("hash")
+        private String hash;
+        @Alias("sender")
+        private String sender;
+        @Alias("sequence_number")
+        private String sequenceNumber;
+        @Alias("signature")
+        private TransactionSignature signature;
+        @Alias("version")
+        private String version;
+        @Alias("success")
+        private Boolean success;
+        @Alias("vm_status")
+        private String vmStatus;
+        @Alias("gas_used")
+        private String gasUsed;
+    }
+
+    @Data
+    @EqualsAndHashCode(callSuper = true)
+    public static class GasEstimateResponse extends BaseResponse {
+        @Alias("gas_estimate")
+        private Long gasEstimate;
     }
 
     @Data
@@ -249,4 +892,40 @@ public class AptosClient {
         private String message;
     }
 
+    @Data
+    @EqualsAndHashCode(callSuper = true)
+    public static class LedgerInfoResponse extends BaseResponse {
+        @Alias("chain_id")
+        private Integer chainId;
+        @Alias("ledger_version")
+        private String ledgerVersion;
+    }
+
+    @Data
+    @EqualsAndHashCode(callSuper = true)
+    public static class MoveModuleResponse extends BaseResponse {
+        @Alias("abi")
+        private MoveModuleAbi abi;
+    }
+
+    @Data
+    public static class MoveModuleAbi {
+        @Alias("address")
+        private String address;
+        @Alias("name")
+        private String name;
+        @Alias("exposed_functions")
+        private List<MoveFunction> exposedFunctions;
+    }
+
+    @Data
+    public static class MoveFunction {
+        @Alias("name")
+        private String name;
+        @Alias("is_entry")
+        private Boolean isEntry;
+        @Alias("params")
+        private List<String> params;
+    }
+
 }
\ No newline at end of file
@@ -0,0 +1,75 @@
+package indi.vincent.aptos.tools;
+
+import lombok.Getter;
+import okhttp3.Request;
+import okhttp3.Response;
+import okhttp3.ResponseBody;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * 远端服务返回 429 或 5xx
+ */
+@Getter
+public class AptosClientException extends RuntimeException {
+
+    private static final long BODY_PEEK_BYTES = 1024;
+
+    /**
+     * 请求所属的接口，见 {@link AptosHttpMetrics}
+     */
+    private final String operation;
+    private final int status;
+    private final String errorCode;
+    /**
+     * Retry-After 响应头，没有时为 0
+     */
+    private final long retryAfterMillis;
+
+    public AptosClientException(String operation, int status, String errorCode, long retryAfterMillis, String message) {
+        super(message);
+        this.operation = operation;
+        this.status = status;
+        this.errorCode = errorCode;
+        this.retryAfterMillis = retryAfterMillis;
+    }
+
+    /**
+     * 429 和 5xx 都是暂时性错误，可以稍后重试
+     */
+    public boolean isRetryable() {
+        return this.status == 429 || this.status >= 500;
+    }
+
+    /**
+     * 从响应创建异常，预读部分响应内容作为错误信息
+     */
+    public static AptosClientException of(Request request, Response response) {
+        String operation = request.tag(String.class);
+        String body = "";
+        String errorCode = null;
+        try (ResponseBody peek = response.peekBody(BODY_PEEK_BYTES)) {
+            body = peek.string();
+            errorCode = AptosJsonCodec.readField(new ByteArrayInputStream(body.getBytes(StandardCharsets.UTF_8)), "error_code");
+        } catch (IOException | RuntimeException ignored) {
+            // 响应不是 JSON 时只保留原始内容
+        }
+        return new AptosClientException(operation, response.code(), errorCode, retryAfterMillis(response),
+                operation + " " + request.url().host() + " returned " + response.code() + ": " + body);
+    }
+
+    private static long retryAfterMillis(Response response) {
+        String retryAfter = response.header("Retry-After");
+        if (retryAfter == null) {
+            return 0;
+        }
+        try {
+            return Math.max(0, Long.parseLong(retryAfter.trim()) * 1000);
+        } catch (NumberFormatException e) {
+            // HTTP-date 格式的 Retry-After 使用默认退避时间
+            return 0;
+        }
+    }
+}
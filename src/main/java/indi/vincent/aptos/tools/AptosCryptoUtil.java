@@ -1,16 +1,242 @@
 package indi.vincent.aptos.tools;
 
-import cn.hutool.core.util.RandomUtil;
 import org.bouncycastle.crypto.CryptoException;
 import org.bouncycastle.crypto.Signer;
+import org.bouncycastle.crypto.digests.SHA3Digest;
 import org.bouncycastle.crypto.params.Ed25519PrivateKeyParameters;
 import org.bouncycastle.crypto.params.Ed25519PublicKeyParameters;
 import org.bouncycastle.crypto.signers.Ed25519Signer;
-import org.bouncycastle.jcajce.provider.digest.SHA3;
+import org.bouncycastle.math.ec.rfc8032.Ed25519;
 import org.bouncycastle.util.encoders.Hex;
 
+import java.nio.ByteBuffer;
+import java.security.SecureRandom;
+import java.util.BitSet;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
 public class AptosCryptoUtil {
 
+    public static final int SIGNATURE_SIZE = Ed25519.SIGNATURE_SIZE;
+
+    private static final char[] HEX_DIGITS = "0123456789abcdef".toCharArray();
+
+    private static final ThreadLocal<SHA3Digest> SHA3_256 = ThreadLocal.withInitial(() -> new SHA3Digest(256));
+    private static final ThreadLocal<byte[]> MESSAGE_BUFFER = ThreadLocal.withInitial(() -> new byte[512]);
+    /**
+     * 每个线程一个 SecureRandom，密钥池的多个生成线程之间不竞争同一个实例
+     */
+    private static final ThreadLocal<SecureRandom> SECURE_RANDOM = ThreadLocal.withInitial(SecureRandom::new);
+
+    /**
+     * 生成 ED_25519 签名，使用调用方提供的公钥，不再从私钥重新推导
+     *
+     * @param privateKey 私钥
+     * @param publicKey  公钥
+     * @param message    消息
+     * @return 签名
+     */
+    public static byte[] ed25519Sign(byte[] privateKey, byte[] publicKey, byte[] message) {
+        byte[] signature = new byte[SIGNATURE_SIZE];
+        ed25519Sign(privateKey, publicKey, message, 0, message.length, signature, 0);
+        return signature;
+    }
+
+    /**
+     * 生成 ED_25519 签名，写入调用方提供的数组
+     * <p>
+     * 只有 SHA3 摘要按线程复用。BouncyCastle 1.70 的 {@link Ed25519#sign} 每次调用都会新建 SHA-512 摘要，
+     * 接收摘要参数的实现是私有的，{@link Ed25519Signer} 内部也调用同一个方法，因此签名时的这次分配无法避免。
+     *
+     * @param privateKey      私钥
+     * @param publicKey       公钥
+     * @param message         消息
+     * @param messageOffset   消息起始位置
+     * @param messageLength   消息长度
+     * @param signature       签名输出
+     * @param signatureOffset 签名写入位置
+     */
+    public static void ed25519Sign(byte[] privateKey, byte[] publicKey, byte[] message, int messageOffset, int messageLength,
+                                   byte[] signature, int signatureOffset) {
+        Ed25519.sign(privateKey, 0, publicKey, 0, message, messageOffset, messageLength, signature, signatureOffset);
+    }
+
+    /**
+     * 生成 ED_25519 签名，消息为 ByteBuffer 中 position 到 limit 之间的内容，不改变 position
+     *
+     * @param privateKey      私钥
+     * @param publicKey       公钥
+     * @param message         消息
+     * @param signature       签名输出
+     * @param signatureOffset 签名写入位置
+     */
+    public static void ed25519Sign(byte[] privateKey, byte[] publicKey, ByteBuffer message, byte[] signature, int signatureOffset) {
+        int length = message.remaining();
+        if (message.hasArray()) {
+            ed25519Sign(privateKey, publicKey, message.array(), message.arrayOffset() + message.position(), length, signature, signatureOffset);
+            return;
+        }
+        byte[] buffer = MESSAGE_BUFFER.get();
+        if (buffer.length < length) {
+            buffer = new byte[Math.max(length, buffer.length << 1)];
+            MESSAGE_BUFFER.set(buffer);
+        }
+        message.duplicate().get(buffer, 0, length);
+        ed25519Sign(privateKey, publicKey, buffer, 0, length, signature, signatureOffset);
+    }
+
+    /**
+     * 验证 ED_25519 签名
+     *
+     * @param publicKey 公钥
+     * @param signature 签名
+     * @param message   消息
+     * @return 签名是否有效，公钥或签名长度不正确时返回 false
+     */
+    public static boolean ed25519Verify(byte[] publicKey, byte[] signature, byte[] message) {
+        if (publicKey == null || signature == null || message == null
+                || publicKey.length != Ed25519.PUBLIC_KEY_SIZE || signature.length != SIGNATURE_SIZE) {
+            return false;
+        }
+        return Ed25519.verify(signature, 0, publicKey, 0, message, 0, message.length);
+    }
+
+    /**
+     * 在 ForkJoinPool.commonPool() 上并行验证一批 ED_25519 签名
+     *
+     * @param publicKeys 公钥
+     * @param signatures 签名
+     * @param messages   消息
+     * @return 第 i 位表示第 i 个签名是否有效
+     */
+    public static BitSet validateAll(List<byte[]> publicKeys, List<byte[]> signatures, List<byte[]> messages) {
+        return validateAll(publicKeys.toArray(new byte[0][]), signatures.toArray(new byte[0][]), messages.toArray(new byte[0][]));
+    }
+
+    /**
+     * 在 ForkJoinPool.commonPool() 上并行验证一批 ED_25519 签名
+     *
+     * @param publicKeys 公钥
+     * @param signatures 签名
+     * @param messages   消息
+     * @return 第 i 位表示第 i 个签名是否有效
+     */
+    public static BitSet validateAll(byte[][] publicKeys, byte[][] signatures, byte[][] messages) {
+        return validateAll(publicKeys, signatures, messages, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * 并行验证一批 ED_25519 签名
+     * <p>
+     * BouncyCastle 没有提供 ED_25519 批量验证，这里逐个验证，按 64 个一组拆分任务，
+     * 每个任务只写自己负责的 long，结果数组不需要加锁。
+     *
+     * @param publicKeys 公钥
+     * @param signatures 签名
+     * @param messages   消息
+     * @param pool       执行验证的线程池
+     * @return 第 i 位表示第 i 个签名是否有效
+     */
+    public static BitSet validateAll(byte[][] publicKeys, byte[][] signatures, byte[][] messages, ForkJoinPool pool) {
+        if (publicKeys.length != signatures.length || publicKeys.length != messages.length) {
+            throw new IllegalArgumentException("publicKeys, signatures and messages must have the same length");
+        }
+        long[] words = new long[(publicKeys.length + 63) >>> 6];
+        if (words.length > 0) {
+            pool.invoke(new ValidateTask(publicKeys, signatures, messages, words, 0, words.length));
+        }
+        return BitSet.valueOf(words);
+    }
+
+    private static class ValidateTask extends RecursiveAction {
+
+        /**
+         * 每个叶子任务验证的 long 数量，即 4 * 64 个签名
+         */
+        private static final int WORDS_PER_TASK = 4;
+
+        private final byte[][] publicKeys;
+        private final byte[][] signatures;
+        private final byte[][] messages;
+        private final long[] words;
+        private final int fromWord;
+        private final int toWord;
+
+        ValidateTask(byte[][] publicKeys, byte[][] signatures, byte[][] messages, long[] words, int fromWord, int toWord) {
+            this.publicKeys = publicKeys;
+            this.signatures = signatures;
+            this.messages = messages;
+            this.words = words;
+            this.fromWord = fromWord;
+            this.toWord = toWord;
+        }
+
+        @Override
+        protected void compute() {
+            if (this.toWord - this.fromWord > WORDS_PER_TASK) {
+                int middle = (this.fromWord + this.toWord) >>> 1;
+                invokeAll(
+                        new ValidateTask(this.publicKeys, this.signatures, this.messages, this.words, this.fromWord, middle),
+                        new ValidateTask(this.publicKeys, this.signatures, this.messages, this.words, middle, this.toWord)
+                );
+                return;
+            }
+            for (int word = this.fromWord; word < this.toWord; word++) {
+                long bits = 0;
+                int base = word << 6;
+                int end = Math.min(base + 64, this.publicKeys.length);
+                for (int i = base; i < end; i++) {
+                    if (ed25519Verify(this.publicKeys[i], this.signatures[i], this.messages[i])) {
+                        bits |= 1L << (i - base);
+                    }
+                }
+                this.words[word] = bits;
+            }
+        }
+    }
+
+    /**
+     * 十六进制编码并加上 0x 前缀
+     *
+     * @param bytes 字节数组
+     * @return 0x 开头的十六进制字符串
+     */
+    public static String toPrefixedHex(byte[] bytes) {
+        char[] chars = new char[2 + bytes.length * 2];
+        chars[0] = '0';
+        chars[1] = 'x';
+        for (int i = 0; i < bytes.length; i++) {
+            chars[2 + i * 2] = HEX_DIGITS[(bytes[i] >> 4) & 0xF];
+            chars[3 + i * 2] = HEX_DIGITS[bytes[i] & 0xF];
+        }
+        return new String(chars);
+    }
+
+    /**
+     * 解码十六进制字符串，允许带 0x 前缀
+     *
+     * @param hex 十六进制字符串
+     * @return 字节数组
+     */
+    public static byte[] decodeHex(String hex) {
+        int start = hex.startsWith("0x") || hex.startsWith("0X") ? 2 : 0;
+        int length = hex.length() - start;
+        if ((length & 1) != 0) {
+            throw new IllegalArgumentException("Invalid hex length: " + hex);
+        }
+        byte[] bytes = new byte[length / 2];
+        for (int i = 0; i < bytes.length; i++) {
+            int high = Character.digit(hex.charAt(start + i * 2), 16);
+            int low = Character.digit(hex.charAt(start + i * 2 + 1), 16);
+            if (high < 0 || low < 0) {
+                throw new IllegalArgumentException("Invalid hex: " + hex);
+            }
+            bytes[i] = (byte) ((high << 4) | low);
+        }
+        return bytes;
+    }
+
     /**
      * 生成 ED_25519 签名信息
      *
@@ -73,12 +299,28 @@ public class AptosCryptoUtil {
     }
 
     /**
-     * 随机生成一个私钥
+     * 用 SecureRandom 随机生成一个私钥
      *
      * @return 私钥的字节数组
      */
     public static byte[] randomPrivateKey() {
-        return RandomUtil.randomBytes(32);
+        byte[] privateKey = new byte[Ed25519.SECRET_KEY_SIZE];
+        SECURE_RANDOM.get().nextBytes(privateKey);
+        return privateKey;
+    }
+
+    /**
+     * 标准 SHA3 256 算法
+     *
+     * @param bytes 原始消息
+     * @return 摘要字节数组
+     */
+    public static byte[] sha3256(byte[] bytes) {
+        SHA3Digest digest = SHA3_256.get();
+        digest.update(bytes, 0, bytes.length);
+        byte[] result = new byte[digest.getDigestSize()];
+        digest.doFinal(result, 0);
+        return result;
     }
 
     /**
@@ -88,12 +330,12 @@ public class AptosCryptoUtil {
      * @return 摘要字节数组
      */
     public static byte[] aptosSHA256(byte[] bytes) {
-        SHA3.DigestSHA3 digestSHA3 = new SHA3.Digest256();
-        byte[] newBytes = new byte[bytes.length + 1];
-        System.arraycopy(bytes, 0, newBytes, 0, bytes.length);
-        newBytes[newBytes.length - 1] = 0;
-        digestSHA3.update(newBytes);
-        return digestSHA3.digest();
+        SHA3Digest digest = SHA3_256.get();
+        digest.update(bytes, 0, bytes.length);
+        digest.update((byte) 0);
+        byte[] result = new byte[digest.getDigestSize()];
+        digest.doFinal(result, 0);
+        return result;
     }
 
 }
\ No newline at end of file
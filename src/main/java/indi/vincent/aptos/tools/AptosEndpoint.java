@@ -0,0 +1,146 @@
+package indi.vincent.aptos.tools;
+
+import lombok.extern.slf4j.Slf4j;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.Response;
+import okhttp3.ResponseBody;
+
+import java.io.IOException;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * 一个远端服务（全节点、水龙头或 Aptos Names）的请求入口
+ * <p>
+ * 请求先从 {@link AdaptiveLimiter} 拿到许可再发出。429 和 5xx 转换为 {@link AptosClientException}，
+ * 和网络错误一起按指数退避加随机抖动重试，远端返回 Retry-After 时至少等待该时间；
+ * 重试次数用完后 Future 以最后一次的异常结束。其他状态码的响应照常交给解析方法。
+ */
+@Slf4j
+public class AptosEndpoint {
+
+    public static final int DEFAULT_MAX_RETRIES = 3;
+    public static final long DEFAULT_RETRY_BACKOFF_MILLIS = 200;
+
+    private static final int MAX_BACKOFF_SHIFT = 10;
+
+    private final OkHttpClient client;
+    private final AdaptiveLimiter limiter;
+    private final int maxRetries;
+    private final long retryBackoffMillis;
+
+    /**
+     * 不限流，使用默认的重试次数
+     */
+    public AptosEndpoint(OkHttpClient client) {
+        this(client, null, DEFAULT_MAX_RETRIES, DEFAULT_RETRY_BACKOFF_MILLIS);
+    }
+
+    /**
+     * @param client             OkHttpClient
+     * @param limiter            限流器，为 null 时不限流
+     * @param maxRetries         最大重试次数
+     * @param retryBackoffMillis 第一次重试前的等待时间，之后每次翻倍
+     */
+    public AptosEndpoint(OkHttpClient client, AdaptiveLimiter limiter, int maxRetries, long retryBackoffMillis) {
+        this.client = client;
+        this.limiter = limiter;
+        this.maxRetries = maxRetries;
+        this.retryBackoffMillis = retryBackoffMillis;
+    }
+
+    public AdaptiveLimiter getLimiter() {
+        return this.limiter;
+    }
+
+    /**
+     * 异步发送请求并解析响应
+     *
+     * @param request 请求，请求体需要可以重复写出
+     * @param parser  响应解析方法
+     * @return 解析结果
+     */
+    public <T> CompletableFuture<T> enqueue(Request request, AptosHttpClients.ResponseParser<T> parser) {
+        CompletableFuture<T> result = new CompletableFuture<>();
+        this.attempt(request, parser, 0, result);
+        return result;
+    }
+
+    private <T> void attempt(Request request, AptosHttpClients.ResponseParser<T> parser, int attempt, CompletableFuture<T> result) {
+        CompletableFuture<AdaptiveLimiter.Permit> permit = this.limiter == null
+                ? CompletableFuture.completedFuture(null)
+                : this.limiter.acquire();
+        permit.thenCompose(acquired -> {
+            if (result.isDone()) {
+                release(acquired, null, true);
+                return CompletableFuture.<T>completedFuture(null);
+            }
+            CompletableFuture<T> response = AptosHttpClients.enqueueResponse(this.client, request, r -> handle(request, r, parser));
+            result.whenComplete((value, error) -> {
+                if (result.isCancelled()) {
+                    response.cancel(false);
+                }
+            });
+            return response.whenComplete((value, error) -> release(acquired, error, false));
+        }).whenComplete((value, error) -> {
+            if (result.isDone()) {
+                return;
+            }
+            if (error == null) {
+                result.complete(value);
+                return;
+            }
+            Throwable cause = Futures.unwrap(error);
+            if (attempt >= this.maxRetries || !isRetryable(cause)) {
+                result.completeExceptionally(cause);
+                return;
+            }
+            long delay = backoff(this.retryBackoffMillis, attempt, cause);
+            log.debug("{} 第 {} 次重试，{} 毫秒后发出：{}", request.tag(String.class), attempt + 1, delay, cause.toString());
+            Futures.delay(delay).thenRun(() -> this.attempt(request, parser, attempt + 1, result));
+        });
+    }
+
+    /**
+     * 指数退避加随机抖动，远端返回 Retry-After 时至少等待该时间
+     */
+    static long backoff(long retryBackoffMillis, int attempt, Throwable cause) {
+        long backoff = retryBackoffMillis << Math.min(attempt, MAX_BACKOFF_SHIFT);
+        backoff += ThreadLocalRandom.current().nextLong(backoff / 2 + 1);
+        if (cause instanceof AptosClientException) {
+            backoff = Math.max(backoff, ((AptosClientException) cause).getRetryAfterMillis());
+        }
+        return backoff;
+    }
+
+    private static <T> T handle(Request request, Response response, AptosHttpClients.ResponseParser<T> parser) throws IOException {
+        if (response.code() == 429 || response.code() >= 500) {
+            throw AptosClientException.of(request, response);
+        }
+        ResponseBody body = response.body();
+        return parser.parse(body == null ? ResponseBody.create(new byte[0], null) : body);
+    }
+
+    static boolean isRetryable(Throwable cause) {
+        return cause instanceof AptosClientException ? ((AptosClientException) cause).isRetryable() : cause instanceof IOException;
+    }
+
+    private static void release(AdaptiveLimiter.Permit permit, Throwable error, boolean unused) {
+        if (permit == null) {
+            return;
+        }
+        Throwable cause = error == null ? null : Futures.unwrap(error);
+        if (unused || cause instanceof CancellationException) {
+            // 没有发出，或者对冲请求输掉后被取消，延迟不代表远端的状态
+            permit.ignore();
+        } else if (cause instanceof AptosClientException && ((AptosClientException) cause).isRetryable()) {
+            permit.throttled();
+        } else if (cause instanceof IOException) {
+            permit.dropped();
+        } else {
+            permit.success();
+        }
+    }
+}
@@ -0,0 +1,453 @@
+package indi.vincent.aptos.tools;
+
+import lombok.extern.slf4j.Slf4j;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+/**
+ * 同一服务的多个节点
+ * <p>
+ * 每个请求发给未被摘除的节点中进行中请求最少的一个。节点连续 ejectAfterFailures 次 429 / 5xx 或网络错误后
+ * 摘除 ejectMillis，恢复后再失败一次立即重新摘除，成功一次后恢复正常计数；所有节点都被摘除时使用最早恢复的节点。
+ * <p>
+ * 失败的请求按指数退避换一个节点重试。{@link #hedged} 用于幂等的查询：
+ * 请求超过该接口最近延迟的 hedgePercentile 分位数仍未返回时，向另一个节点再发一次，取先返回的结果并取消另一个。
+ * 该接口成功的请求少于 minHedgeSamples 次时分位数还不可靠，不发出对冲请求；除原节点外没有可用节点时也不发出，
+ * 对冲请求发给同一个节点只会加重它的负担。
+ * <p>
+ * 节点的 {@link AptosEndpoint} 只负责限流，不应再配置重试。
+ */
+@Slf4j
+public class AptosEndpointPool {
+
+    public static final int DEFAULT_EJECT_AFTER_FAILURES = 3;
+    public static final long DEFAULT_EJECT_MILLIS = TimeUnit.SECONDS.toMillis(30);
+    public static final double DEFAULT_HEDGE_PERCENTILE = 0.95;
+    public static final long DEFAULT_MIN_HEDGE_DELAY_MILLIS = 20;
+    public static final int DEFAULT_MIN_HEDGE_SAMPLES = 100;
+
+    private final List<Node> nodes;
+    private final int maxRetries;
+    private final long retryBackoffMillis;
+    private final int ejectAfterFailures;
+    private final long ejectMillis;
+    private final double hedgePercentile;
+    private final long minHedgeDelayMillis;
+    private final int minHedgeSamples;
+
+    private final AtomicInteger cursor = new AtomicInteger();
+    private final Map<String, LatencyWindow> latencies = new ConcurrentHashMap<>();
+    private final LongAdder hedges = new LongAdder();
+    private final LongAdder hedgeWins = new LongAdder();
+
+    /**
+     * @param nodes               节点
+     * @param maxRetries          最大重试次数
+     * @param retryBackoffMillis  第一次重试前的等待时间，之后每次翻倍
+     * @param ejectAfterFailures  连续失败多少次后摘除节点
+     * @param ejectMillis         节点摘除的时间
+     * @param hedgePercentile     查询超过该分位数的延迟后发出对冲请求
+     * @param minHedgeDelayMillis 对冲请求的最小延迟
+     * @param minHedgeSamples     接口至少有多少次成功请求的延迟之后才发出对冲请求
+     */
+    public AptosEndpointPool(List<Node> nodes, int maxRetries, long retryBackoffMillis, int ejectAfterFailures, long ejectMillis,
+                             double hedgePercentile, long minHedgeDelayMillis, int minHedgeSamples) {
+        if (nodes.isEmpty()) {
+            throw new IllegalArgumentException("At least one node is required");
+        }
+        if (hedgePercentile <= 0 || hedgePercentile >= 1) {
+            throw new IllegalArgumentException("Invalid hedge percentile: " + hedgePercentile);
+        }
+        if (minHedgeSamples < 1 || minHedgeSamples > LatencyWindow.SIZE) {
+            throw new IllegalArgumentException("Invalid min hedge samples: " + minHedgeSamples);
+        }
+        this.nodes = Collections.unmodifiableList(new ArrayList<>(nodes));
+        this.maxRetries = maxRetries;
+        this.retryBackoffMillis = retryBackoffMillis;
+        this.ejectAfterFailures = Math.max(1, ejectAfterFailures);
+        this.ejectMillis = ejectMillis;
+        this.hedgePercentile = hedgePercentile;
+        this.minHedgeDelayMillis = minHedgeDelayMillis;
+        this.minHedgeSamples = minHedgeSamples;
+    }
+
+    /**
+     * 使用默认配置、不限流的节点
+     *
+     * @param client OkHttpClient
+     * @param urls   节点地址
+     */
+    public static AptosEndpointPool of(OkHttpClient client, String... urls) {
+        List<Node> nodes = new ArrayList<>(urls.length);
+        for (String url : urls) {
+            nodes.add(new Node(url, new AptosEndpoint(client, null, 0, 0)));
+        }
+        return new AptosEndpointPool(nodes, AptosEndpoint.DEFAULT_MAX_RETRIES, AptosEndpoint.DEFAULT_RETRY_BACKOFF_MILLIS,
+                DEFAULT_EJECT_AFTER_FAILURES, DEFAULT_EJECT_MILLIS, DEFAULT_HEDGE_PERCENTILE, DEFAULT_MIN_HEDGE_DELAY_MILLIS,
+                DEFAULT_MIN_HEDGE_SAMPLES);
+    }
+
+    public List<Node> getNodes() {
+        return this.nodes;
+    }
+
+    /**
+     * @return 累计发出的对冲请求数
+     */
+    public long getHedges() {
+        return this.hedges.sum();
+    }
+
+    /**
+     * @return 对冲请求先于原请求返回的次数
+     */
+    public long getHedgeWins() {
+        return this.hedgeWins.sum();
+    }
+
+    /**
+     * 发送请求，失败时换一个节点重试，请求必须可以安全地重复发送
+     *
+     * @param operation 接口名称
+     * @param request   根据节点地址创建请求，请求体需要可以重复写出
+     * @param parser    响应解析方法
+     * @return 解析结果
+     */
+    public <T> CompletableFuture<T> failover(String operation, Function<String, Request> request,
+                                             AptosHttpClients.ResponseParser<T> parser) {
+        return new Exchange<>(operation, request, parser, false).start();
+    }
+
+    /**
+     * 发送幂等的查询，慢请求向另一个节点发出对冲请求，失败时换一个节点重试
+     *
+     * @param operation 接口名称，每个接口单独统计延迟
+     * @param request   根据节点地址创建请求
+     * @param parser    响应解析方法
+     * @return 解析结果
+     */
+    public <T> CompletableFuture<T> hedged(String operation, Function<String, Request> request,
+                                           AptosHttpClients.ResponseParser<T> parser) {
+        return new Exchange<>(operation, request, parser, this.nodes.size() > 1).start();
+    }
+
+    /**
+     * 选出进行中请求最少的可用节点，相同时轮流选择
+     *
+     * @param exclude 尽量避开的节点，例如刚失败的节点或对冲请求的原节点
+     */
+    private Node choose(Node exclude) {
+        long now = System.currentTimeMillis();
+        int size = this.nodes.size();
+        int start = Math.floorMod(this.cursor.getAndIncrement(), size);
+        Node best = null;
+        Node fallback = null;
+        for (int i = 0; i < size; i++) {
+            Node node = this.nodes.get((start + i) % size);
+            if (node == exclude) {
+                continue;
+            }
+            if (node.isEjected(now)) {
+                if (fallback == null || node.ejectedUntil < fallback.ejectedUntil) {
+                    fallback = node;
+                }
+                continue;
+            }
+            if (best == null || node.outstanding.get() < best.outstanding.get()) {
+                best = node;
+            }
+        }
+        if (best != null) {
+            return best;
+        }
+        if (exclude != null && !exclude.isEjected(now)) {
+            return exclude;
+        }
+        return fallback != null ? fallback : exclude;
+    }
+
+    private long hedgeDelay(String operation) {
+        LatencyWindow window = this.latencies.get(operation);
+        long percentileNanos = window == null ? -1 : window.percentile(this.hedgePercentile, this.minHedgeSamples);
+        if (percentileNanos < 0) {
+            return -1;
+        }
+        return Math.max(this.minHedgeDelayMillis, TimeUnit.NANOSECONDS.toMillis(percentileNanos));
+    }
+
+    private void recordLatency(String operation, long nanos) {
+        this.latencies.computeIfAbsent(operation, key -> new LatencyWindow()).record(nanos);
+    }
+
+    private void onFailure(Node node, Throwable cause) {
+        int failures = node.consecutiveFailures.incrementAndGet();
+        if (failures < this.ejectAfterFailures || this.nodes.size() == 1) {
+            return;
+        }
+        long now = System.currentTimeMillis();
+        if (node.isEjected(now)) {
+            return;
+        }
+        node.ejectedUntil = now + this.ejectMillis;
+        node.ejections.increment();
+        // 恢复后再失败一次就重新摘除
+        node.consecutiveFailures.set(this.ejectAfterFailures - 1);
+        log.warn("节点 {} 连续失败 {} 次，摘除 {} 毫秒：{}", node.url, failures, this.ejectMillis, cause.toString());
+    }
+
+    /**
+     * 一个节点
+     */
+    public static class Node {
+
+        private final String url;
+        private final AptosEndpoint endpoint;
+        private final AtomicInteger outstanding = new AtomicInteger();
+        private final AtomicInteger consecutiveFailures = new AtomicInteger();
+        private final LongAdder ejections = new LongAdder();
+        private volatile long ejectedUntil;
+
+        /**
+         * @param url      节点地址，不以 / 结尾
+         * @param endpoint 节点的限流
+         */
+        public Node(String url, AptosEndpoint endpoint) {
+            this.url = url;
+            this.endpoint = endpoint;
+        }
+
+        public String getUrl() {
+            return this.url;
+        }
+
+        public AptosEndpoint getEndpoint() {
+            return this.endpoint;
+        }
+
+        /**
+         * @return 进行中的请求数
+         */
+        public int getOutstanding() {
+            return this.outstanding.get();
+        }
+
+        /**
+         * @return 当前是否被摘除
+         */
+        public boolean isEjected() {
+            return this.isEjected(System.currentTimeMillis());
+        }
+
+        /**
+         * @return 累计被摘除的次数
+         */
+        public long getEjections() {
+            return this.ejections.sum();
+        }
+
+        private boolean isEjected(long now) {
+            return now < this.ejectedUntil;
+        }
+
+        private <T> CompletableFuture<T> enqueue(Request request, AptosHttpClients.ResponseParser<T> parser) {
+            this.outstanding.incrementAndGet();
+            CompletableFuture<T> future;
+            try {
+                future = this.endpoint.enqueue(request, parser);
+            } catch (RuntimeException e) {
+                future = Futures.failed(e);
+            }
+            future.whenComplete((value, error) -> this.outstanding.decrementAndGet());
+            return future;
+        }
+    }
+
+    /**
+     * 一次调用，包括重试和对冲请求
+     */
+    private final class Exchange<T> {
+
+        private final String operation;
+        private final Function<String, Request> request;
+        private final AptosHttpClients.ResponseParser<T> parser;
+        private final boolean hedge;
+        private final CompletableFuture<T> result = new CompletableFuture<>();
+        private final List<CompletableFuture<T>> calls = new CopyOnWriteArrayList<>();
+        private final AtomicBoolean settled = new AtomicBoolean();
+
+        private int attempts;
+        private int running;
+        private boolean hedged;
+        private Node lastNode;
+
+        Exchange(String operation, Function<String, Request> request, AptosHttpClients.ResponseParser<T> parser, boolean hedge) {
+            this.operation = operation;
+            this.request = request;
+            this.parser = parser;
+            this.hedge = hedge;
+        }
+
+        CompletableFuture<T> start() {
+            this.result.whenComplete((value, error) -> this.calls.forEach(call -> call.cancel(false)));
+            this.send(AptosEndpointPool.this.choose(null), false);
+            if (this.hedge) {
+                long delay = AptosEndpointPool.this.hedgeDelay(this.operation);
+                if (delay >= 0) {
+                    Futures.delay(delay).thenRun(this::sendHedge);
+                }
+            }
+            return this.result;
+        }
+
+        private void sendHedge() {
+            Node previous;
+            synchronized (this) {
+                if (this.result.isDone() || this.hedged || this.running == 0) {
+                    return;
+                }
+                this.hedged = true;
+                previous = this.lastNode;
+            }
+            Node node = AptosEndpointPool.this.choose(previous);
+            if (node == previous || node.isEjected()) {
+                // 其他节点都被摘除
+                return;
+            }
+            AptosEndpointPool.this.hedges.increment();
+            this.send(node, true);
+        }
+
+        private void send(Node node, boolean hedgeCall) {
+            synchronized (this) {
+                this.running++;
+                this.lastNode = node;
+            }
+            long start = System.nanoTime();
+            CompletableFuture<T> call;
+            try {
+                call = node.enqueue(this.request.apply(node.url), this.parser);
+            } catch (RuntimeException e) {
+                call = Futures.failed(e);
+            }
+            this.calls.add(call);
+            if (this.result.isDone()) {
+                call.cancel(false);
+            }
+            call.whenComplete((value, error) -> this.onComplete(node, start, hedgeCall, value, error));
+        }
+
+        private void onComplete(Node node, long start, boolean hedgeCall, T value, Throwable error) {
+            if (error == null) {
+                node.consecutiveFailures.set(0);
+                if (this.hedge) {
+                    AptosEndpointPool.this.recordLatency(this.operation, System.nanoTime() - start);
+                }
+                // 先计数再完成，调用方拿到结果时统计已经更新
+                if (this.settled.compareAndSet(false, true)) {
+                    if (hedgeCall) {
+                        AptosEndpointPool.this.hedgeWins.increment();
+                    }
+                    this.result.complete(value);
+                }
+                return;
+            }
+            Throwable cause = Futures.unwrap(error);
+            if (cause instanceof CancellationException) {
+                return;
+            }
+            boolean retryable = AptosEndpoint.isRetryable(cause);
+            if (retryable) {
+                AptosEndpointPool.this.onFailure(node, cause);
+            }
+            int attempt;
+            synchronized (this) {
+                this.running--;
+                if (this.result.isDone() || this.running > 0) {
+                    // 另一个请求还在进行，由它决定结果
+                    return;
+                }
+                if (!retryable || this.attempts >= AptosEndpointPool.this.maxRetries) {
+                    attempt = -1;
+                } else {
+                    attempt = this.attempts++;
+                    // 重试期间不再发出对冲请求
+                    this.hedged = true;
+                    this.running++;
+                }
+            }
+            if (attempt < 0) {
+                if (this.settled.compareAndSet(false, true)) {
+                    this.result.completeExceptionally(cause);
+                }
+                return;
+            }
+            long delay = AptosEndpoint.backoff(AptosEndpointPool.this.retryBackoffMillis, attempt, cause);
+            log.debug("{} 在 {} 失败，第 {} 次重试，{} 毫秒后发出：{}", this.operation, node.url, attempt + 1, delay, cause.toString());
+            Futures.delay(delay).thenRun(() -> {
+                synchronized (this) {
+                    this.running--;
+                }
+                if (!this.result.isDone()) {
+                    this.send(AptosEndpointPool.this.choose(node), false);
+                }
+            });
+        }
+    }
+
+    /**
+     * 最近若干次请求的延迟，每记录一定次数后重新计算分位数
+     */
+    private static final class LatencyWindow {
+
+        private static final int SIZE = 256;
+        private static final int RECOMPUTE_INTERVAL = 32;
+
+        private final long[] samples = new long[SIZE];
+        private final long[] sorted = new long[SIZE];
+        private int next;
+        private int count;
+        private int sinceRecompute;
+        private double percentile;
+        private long cached = -1;
+
+        synchronized void record(long nanos) {
+            this.samples[this.next] = nanos;
+            this.next = (this.next + 1) % SIZE;
+            this.count = Math.min(this.count + 1, SIZE);
+            this.sinceRecompute++;
+        }
+
+        /**
+         * @return 分位数，样本少于 minSamples 时返回 -1
+         */
+        synchronized long percentile(double percentile, int minSamples) {
+            int size = this.count;
+            if (size < minSamples) {
+                return -1;
+            }
+            if (this.cached < 0 || this.sinceRecompute >= RECOMPUTE_INTERVAL || this.percentile != percentile) {
+                System.arraycopy(this.samples, 0, this.sorted, 0, size);
+                Arrays.sort(this.sorted, 0, size);
+                this.cached = this.sorted[Math.min(size - 1, (int) Math.ceil(percentile * size) - 1)];
+                this.percentile = percentile;
+                this.sinceRecompute = 0;
+            }
+            return this.cached;
+        }
+    }
+}
@@ -1,13 +1,12 @@
 package indi.vincent.aptos.tools;
 
-import cn.hutool.json.JSONUtil;
+import lombok.Setter;
 import okhttp3.*;
 
-import java.io.IOException;
 import java.math.BigInteger;
 import java.util.List;
 import java.util.Objects;
-import java.util.concurrent.TimeUnit;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * Aptos TestCoin 水龙头
@@ -15,15 +14,20 @@ import java.util.concurrent.TimeUnit;
 public class AptosFaucetClient {
 
     private final String host;
-    private final OkHttpClient client;
     private final MediaType mediaType;
+    /**
+     * 水龙头请求的限流，不能配置重试：响应丢失时水龙头可能已经转账，重试会再领取一次
+     */
+    @Setter
+    private AptosEndpoint endpoint;
 
     public AptosFaucetClient(String host) {
+        this(host, AptosHttpClients.shared());
+    }
+
+    public AptosFaucetClient(String host, OkHttpClient client) {
         this.host = host;
-        this.client = new OkHttpClient.Builder()
-                .connectTimeout(1, TimeUnit.MINUTES)
-                .callTimeout(1, TimeUnit.MINUTES)
-                .build();
+        this.endpoint = new AptosEndpoint(client, null, 0, 0);
         this.mediaType = MediaType.parse("application/json");
     }
 
@@ -35,18 +39,23 @@ public class AptosFaucetClient {
      * @return 交易哈希
      */
     public List<String> invokeMint(String receiverAddress, BigInteger amount) {
-        try {
-            HttpUrl.Builder urlBuilder = Objects.requireNonNull(HttpUrl.parse(this.host + "/mint")).newBuilder();
-            urlBuilder.addQueryParameter("address", receiverAddress);
-            urlBuilder.addQueryParameter("amount", amount.toString());
-            RequestBody requestBody = RequestBody.create("", this.mediaType);
-            Request request = new Request.Builder().url(urlBuilder.build().toString()).post(requestBody).build();
-            Response response = this.client.newCall(request).execute();
-            String responseBody = Objects.requireNonNull(response.body()).string();
-            return JSONUtil.toList(responseBody, String.class);
-        } catch (IOException e) {
-            throw new RuntimeException(e);
-        }
+        return Futures.join(this.invokeMintAsync(receiverAddress, amount));
+    }
+
+    /**
+     * 异步领取 TestCoin
+     *
+     * @param receiverAddress 接收方地址
+     * @param amount          领取金额
+     * @return 交易哈希
+     */
+    public CompletableFuture<List<String>> invokeMintAsync(String receiverAddress, BigInteger amount) {
+        HttpUrl.Builder urlBuilder = Objects.requireNonNull(HttpUrl.parse(this.host + "/mint")).newBuilder();
+        urlBuilder.addQueryParameter("address", receiverAddress);
+        urlBuilder.addQueryParameter("amount", amount.toString());
+        RequestBody requestBody = RequestBody.create("", this.mediaType);
+        Request request = new Request.Builder().url(urlBuilder.build().toString()).post(requestBody).tag(String.class, "mint").build();
+        return this.endpoint.enqueue(request, body -> AptosJsonCodec.readStringList(body.byteStream()));
     }
 
-}
\ No newline at end of file
+}
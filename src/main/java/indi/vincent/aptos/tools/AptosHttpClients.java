@@ -0,0 +1,201 @@
+package indi.vincent.aptos.tools;
+
+import cn.hutool.core.thread.NamedThreadFactory;
+import io.micrometer.core.instrument.MeterRegistry;
+import okhttp3.*;
+
+import java.io.IOException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Aptos 客户端共用的 OkHttpClient
+ * <p>
+ * 所有客户端共享同一个 Dispatcher 和 ConnectionPool，异步请求通过 {@link Call#enqueue(Callback)} 发出，
+ * 并发数由 Dispatcher 的 maxRequests / maxRequestsPerHost 控制，而不是调用方的线程数。
+ * <p>
+ * 响应在 OkHttp 的回调线程上解析，但 Future 在单独的回调线程池中结束：
+ * Dispatcher 在回调返回之后才释放请求占用的并发数，如果后续动作在回调线程上阻塞（例如等待另一个请求），
+ * 并发数会被占满，新的请求无法发出。回调线程池的线程数固定，Future 的后续动作同样不能阻塞，
+ * 需要等待其他请求时使用异步接口组合，而不是 join。
+ */
+public class AptosHttpClients {
+
+    public static final int DEFAULT_MAX_REQUESTS = 256;
+    public static final int DEFAULT_MAX_REQUESTS_PER_HOST = 64;
+    public static final int DEFAULT_MAX_IDLE_CONNECTIONS = 64;
+    public static final long DEFAULT_KEEP_ALIVE_SECONDS = 300;
+
+    /**
+     * 结束 Future 的线程数，后续动作只做解析、签名等短小的计算，不允许阻塞
+     */
+    public static final int CALLBACK_THREADS = Math.max(4, Runtime.getRuntime().availableProcessors() * 2);
+
+    /**
+     * 结束 Future 的线程池，线程数固定；排队的任务数不超过在途请求数，由各 Dispatcher 的 maxRequests 限制
+     */
+    private static final ExecutorService CALLBACK_EXECUTOR = Executors.newFixedThreadPool(CALLBACK_THREADS, new NamedThreadFactory("aptos-callback-", true));
+
+    private static volatile OkHttpClient defaultClient;
+
+    private AptosHttpClients() {
+    }
+
+    /**
+     * 默认配置的共享 OkHttpClient
+     */
+    public static OkHttpClient shared() {
+        OkHttpClient client = defaultClient;
+        if (client == null) {
+            synchronized (AptosHttpClients.class) {
+                client = defaultClient;
+                if (client == null) {
+                    client = create(DEFAULT_MAX_REQUESTS, DEFAULT_MAX_REQUESTS_PER_HOST, DEFAULT_MAX_IDLE_CONNECTIONS, DEFAULT_KEEP_ALIVE_SECONDS);
+                    defaultClient = client;
+                }
+            }
+        }
+        return client;
+    }
+
+    /**
+     * 创建 OkHttpClient
+     *
+     * @param maxRequests        最大并发请求数
+     * @param maxRequestsPerHost 单个 Host 的最大并发请求数
+     * @param maxIdleConnections 连接池最大空闲连接数
+     * @param keepAliveSeconds   空闲连接保留时间
+     * @return OkHttpClient
+     */
+    public static OkHttpClient create(int maxRequests, int maxRequestsPerHost, int maxIdleConnections, long keepAliveSeconds) {
+        return builder(maxRequests, maxRequestsPerHost, maxIdleConnections, keepAliveSeconds).build();
+    }
+
+    /**
+     * 创建带有 Micrometer 指标的 OkHttpClient
+     *
+     * @param maxRequests        最大并发请求数
+     * @param maxRequestsPerHost 单个 Host 的最大并发请求数
+     * @param maxIdleConnections 连接池最大空闲连接数
+     * @param keepAliveSeconds   空闲连接保留时间
+     * @param registry           MeterRegistry
+     * @return OkHttpClient
+     * @see AptosHttpMetrics
+     */
+    public static OkHttpClient create(int maxRequests, int maxRequestsPerHost, int maxIdleConnections, long keepAliveSeconds,
+                                      MeterRegistry registry) {
+        OkHttpClient client = builder(maxRequests, maxRequestsPerHost, maxIdleConnections, keepAliveSeconds)
+                .addInterceptor(new AptosHttpMetrics(registry))
+                .build();
+        AptosHttpMetrics.bindClient(client, registry);
+        return client;
+    }
+
+    private static OkHttpClient.Builder builder(int maxRequests, int maxRequestsPerHost, int maxIdleConnections, long keepAliveSeconds) {
+        Dispatcher dispatcher = new Dispatcher();
+        dispatcher.setMaxRequests(maxRequests);
+        dispatcher.setMaxRequestsPerHost(maxRequestsPerHost);
+        return new OkHttpClient.Builder()
+                .dispatcher(dispatcher)
+                .connectionPool(new ConnectionPool(maxIdleConnections, keepAliveSeconds, TimeUnit.SECONDS))
+                .connectTimeout(1, TimeUnit.MINUTES)
+                .callTimeout(1, TimeUnit.MINUTES);
+    }
+
+    /**
+     * 异步发送请求并读取响应内容
+     *
+     * @param client  OkHttpClient
+     * @param request 请求
+     * @return 响应内容
+     */
+    public static CompletableFuture<String> enqueue(OkHttpClient client, Request request) {
+        return enqueue(client, request, ResponseBody::string);
+    }
+
+    /**
+     * 异步发送请求，在 OkHttp 的回调线程上直接从响应流解析结果，Future 在回调线程池中结束
+     *
+     * @param client  OkHttpClient
+     * @param request 请求
+     * @param parser  响应解析方法
+     * @return 解析结果
+     */
+    public static <T> CompletableFuture<T> enqueue(OkHttpClient client, Request request, ResponseParser<T> parser) {
+        return enqueueResponse(client, request, response -> {
+            ResponseBody body = response.body();
+            return parser.parse(body == null ? ResponseBody.create(new byte[0], null) : body);
+        });
+    }
+
+    /**
+     * 异步发送请求，在 OkHttp 的回调线程上处理完整的响应，处理结束后关闭响应，Future 在回调线程池中结束
+     *
+     * @param client  OkHttpClient
+     * @param request 请求
+     * @param handler 响应处理方法，可以读取状态码和响应头
+     * @return 处理结果
+     */
+    public static <T> CompletableFuture<T> enqueueResponse(OkHttpClient client, Request request, ResponseHandler<T> handler) {
+        CompletableFuture<T> future = new CompletableFuture<>();
+        Call call = client.newCall(request);
+        call.enqueue(new Callback() {
+            @Override
+            public void onFailure(Call call, IOException e) {
+                completeAsync(future, null, e);
+            }
+
+            @Override
+            public void onResponse(Call call, Response response) {
+                T result;
+                try (Response closeable = response) {
+                    result = handler.handle(closeable);
+                } catch (IOException | RuntimeException e) {
+                    completeAsync(future, null, e);
+                    return;
+                }
+                completeAsync(future, result, null);
+            }
+        });
+        future.whenComplete((body, error) -> {
+            if (future.isCancelled()) {
+                call.cancel();
+            }
+        });
+        return future;
+    }
+
+    private static <T> void completeAsync(CompletableFuture<T> future, T result, Throwable error) {
+        Runnable complete = () -> {
+            if (error == null) {
+                future.complete(result);
+            } else {
+                future.completeExceptionally(error);
+            }
+        };
+        try {
+            CALLBACK_EXECUTOR.execute(complete);
+        } catch (RejectedExecutionException e) {
+            complete.run();
+        }
+    }
+
+    /**
+     * 响应解析方法
+     */
+    @FunctionalInterface
+    public interface ResponseParser<T> {
+        T parse(ResponseBody body) throws IOException;
+    }
+
+    /**
+     * 完整响应的处理方法
+     */
+    @FunctionalInterface
+    public interface ResponseHandler<T> {
+        T handle(Response response) throws IOException;
+    }
+}
@@ -0,0 +1,100 @@
+package indi.vincent.aptos.tools;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.Timer;
+import okhttp3.Interceptor;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.Response;
+import okhttp3.ResponseBody;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Aptos HTTP 请求的 Micrometer 指标
+ * <p>
+ * 请求通过 {@code tag(String.class, operation)} 标记所属的接口，
+ * 耗时记录在 aptos.client.requests（operation / host / status / error），
+ * 进行中的请求数记录在 aptos.client.requests.active。
+ * 非 2xx 响应会预读最多 {@value #ERROR_PEEK_BYTES} 字节解析 error_code，不影响调用方读取响应。
+ */
+public class AptosHttpMetrics implements Interceptor {
+
+    public static final String REQUESTS = "aptos.client.requests";
+    public static final String ACTIVE_REQUESTS = "aptos.client.requests.active";
+
+    private static final String UNKNOWN = "unknown";
+    private static final String NONE = "none";
+    private static final long ERROR_PEEK_BYTES = 4096;
+
+    private final MeterRegistry registry;
+    private final Map<String, AtomicInteger> active = new ConcurrentHashMap<>();
+
+    public AptosHttpMetrics(MeterRegistry registry) {
+        this.registry = registry;
+    }
+
+    /**
+     * 注册 OkHttpClient 的连接池和 Dispatcher 指标
+     *
+     * @param client   OkHttpClient
+     * @param registry MeterRegistry
+     */
+    public static void bindClient(OkHttpClient client, MeterRegistry registry) {
+        Gauge.builder("aptos.http.connections", client.connectionPool(), pool -> pool.connectionCount())
+                .tag("state", "total").description("连接池中的连接数").register(registry);
+        Gauge.builder("aptos.http.connections", client.connectionPool(), pool -> pool.idleConnectionCount())
+                .tag("state", "idle").description("连接池中的空闲连接数").register(registry);
+        Gauge.builder("aptos.http.calls", client.dispatcher(), dispatcher -> dispatcher.runningCallsCount())
+                .tag("state", "running").description("正在执行的请求数").register(registry);
+        Gauge.builder("aptos.http.calls", client.dispatcher(), dispatcher -> dispatcher.queuedCallsCount())
+                .tag("state", "queued").description("在 Dispatcher 中排队的请求数").register(registry);
+    }
+
+    @Override
+    public Response intercept(Chain chain) throws IOException {
+        Request request = chain.request();
+        String operation = request.tag(String.class);
+        if (operation == null) {
+            operation = UNKNOWN;
+        }
+        AtomicInteger inFlight = this.active.computeIfAbsent(operation, key ->
+                this.registry.gauge(ACTIVE_REQUESTS, Tags.of("operation", key), new AtomicInteger()));
+        inFlight.incrementAndGet();
+        long start = System.nanoTime();
+        String status = "IO_ERROR";
+        String error = NONE;
+        try {
+            Response response = chain.proceed(request);
+            status = String.valueOf(response.code());
+            if (!response.isSuccessful()) {
+                error = errorCode(response);
+            }
+            return response;
+        } catch (IOException e) {
+            error = e.getClass().getSimpleName();
+            throw e;
+        } finally {
+            inFlight.decrementAndGet();
+            Timer.builder(REQUESTS)
+                    .tags("operation", operation, "host", request.url().host(), "status", status, "error", error)
+                    .register(this.registry)
+                    .record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    private static String errorCode(Response response) {
+        try (ResponseBody body = response.peekBody(ERROR_PEEK_BYTES)) {
+            String errorCode = AptosJsonCodec.readField(body.byteStream(), "error_code");
+            return errorCode == null ? NONE : errorCode;
+        } catch (IOException | RuntimeException e) {
+            return NONE;
+        }
+    }
+}
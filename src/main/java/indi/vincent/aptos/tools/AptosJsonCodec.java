@@ -0,0 +1,449 @@
+package indi.vincent.aptos.tools;
+
+import cn.hutool.core.annotation.Alias;
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.core.io.SerializedString;
+import okhttp3.MediaType;
+import okhttp3.RequestBody;
+import okio.BufferedSink;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Aptos REST 接口的流式 JSON 编解码
+ * <p>
+ * 请求直接写入 OkHttp 的 Sink，响应直接从 ResponseBody 的输入流解析，不再经过完整的 JSON 字符串。
+ * 字段名取自 {@link Alias}，没有 {@link Alias} 时使用字段名；每个类的字段映射只在第一次使用时通过反射计算。
+ * 与 Hutool 的默认行为一致，值为 null 的字段不输出。
+ */
+public class AptosJsonCodec {
+
+    private static final JsonFactory JSON_FACTORY = new JsonFactory();
+    private static final MediaType JSON = MediaType.parse("application/json");
+    private static final Map<Class<?>, ClassMapping> MAPPINGS = new ConcurrentHashMap<>();
+
+    private AptosJsonCodec() {
+    }
+
+    /**
+     * 创建请求体，在发送时才序列化并直接写入连接
+     *
+     * @param value 请求数据
+     * @return 请求体
+     */
+    public static RequestBody requestBody(Object value) {
+        return new RequestBody() {
+            @Override
+            public MediaType contentType() {
+                return JSON;
+            }
+
+            @Override
+            public void writeTo(BufferedSink sink) throws IOException {
+                write(value, sink.outputStream());
+            }
+        };
+    }
+
+    /**
+     * 序列化为 JSON
+     *
+     * @param value  数据
+     * @param output 输出流，写完后不会关闭
+     */
+    public static void write(Object value, OutputStream output) throws IOException {
+        try (JsonGenerator generator = JSON_FACTORY.createGenerator(output, JsonEncoding.UTF8)) {
+            generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+            writeValue(generator, value);
+        }
+    }
+
+    /**
+     * 解析 JSON 对象
+     *
+     * @param input 输入流，读完后不会关闭
+     * @param type  目标类型
+     * @return 解析结果
+     */
+    public static <T> T read(InputStream input, Class<T> type) throws IOException {
+        try (JsonParser parser = createParser(input)) {
+            parser.nextToken();
+            return type.cast(readObject(parser, mapping(type)));
+        }
+    }
+
+    /**
+     * 解析 JSON 对象数组
+     *
+     * @param input 输入流，读完后不会关闭
+     * @param type  元素类型
+     * @return 解析结果，顶层是单个对象（例如错误信息）时返回只包含该对象的列表
+     */
+    public static <T> List<T> readList(InputStream input, Class<T> type) throws IOException {
+        try (JsonParser parser = createParser(input)) {
+            parser.nextToken();
+            ClassMapping mapping = mapping(type);
+            List<T> list = new ArrayList<>();
+            if (parser.currentToken() == JsonToken.START_OBJECT) {
+                list.add(type.cast(readObject(parser, mapping)));
+                return list;
+            }
+            for (Object element : readObjectList(parser, mapping)) {
+                list.add(type.cast(element));
+            }
+            return list;
+        }
+    }
+
+    /**
+     * 解析 JSON 字符串数组
+     *
+     * @param input 输入流，读完后不会关闭
+     * @return 字符串列表
+     */
+    public static List<String> readStringList(InputStream input) throws IOException {
+        try (JsonParser parser = createParser(input)) {
+            parser.nextToken();
+            return readStringList(parser);
+        }
+    }
+
+    /**
+     * 只读取顶层对象的一个字段，其余内容跳过不解析
+     *
+     * @param input 输入流，读完后不会关闭
+     * @param name  字段名
+     * @return 字段的文本值，字段不存在或为 null 时返回 null
+     */
+    public static String readField(InputStream input, String name) throws IOException {
+        try (JsonParser parser = createParser(input)) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                return null;
+            }
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                boolean matched = name.equals(parser.getCurrentName());
+                JsonToken token = parser.nextToken();
+                if (matched) {
+                    return token.isScalarValue() && token != JsonToken.VALUE_NULL ? parser.getText() : null;
+                }
+                parser.skipChildren();
+            }
+            return null;
+        }
+    }
+
+    private static JsonParser createParser(InputStream input) throws IOException {
+        JsonParser parser = JSON_FACTORY.createParser(input);
+        parser.disable(JsonParser.Feature.AUTO_CLOSE_SOURCE);
+        return parser;
+    }
+
+    // ------------------------------------------------ write ------------------------------------------------
+
+    private static void writeValue(JsonGenerator generator, Object value) throws IOException {
+        if (value == null) {
+            generator.writeNull();
+        } else if (value instanceof String) {
+            generator.writeString((String) value);
+        } else if (value instanceof Boolean) {
+            generator.writeBoolean((Boolean) value);
+        } else if (value instanceof Number) {
+            generator.writeNumber(value.toString());
+        } else if (value instanceof Collection) {
+            generator.writeStartArray();
+            for (Object element : (Collection<?>) value) {
+                writeValue(generator, element);
+            }
+            generator.writeEndArray();
+        } else if (value instanceof Map) {
+            generator.writeStartObject();
+            for (Map.Entry<?, ?> entry : ((Map<?, ?>) value).entrySet()) {
+                if (entry.getValue() != null) {
+                    generator.writeFieldName(String.valueOf(entry.getKey()));
+                    writeValue(generator, entry.getValue());
+                }
+            }
+            generator.writeEndObject();
+        } else {
+            writeObject(generator, value, mapping(value.getClass()));
+        }
+    }
+
+    private static void writeObject(JsonGenerator generator, Object value, ClassMapping mapping) throws IOException {
+        generator.writeStartObject();
+        for (FieldMapping field : mapping.fields) {
+            Object fieldValue = field.get(value);
+            if (fieldValue != null) {
+                generator.writeFieldName(field.serializedName);
+                writeValue(generator, fieldValue);
+            }
+        }
+        generator.writeEndObject();
+    }
+
+    // ------------------------------------------------ read -------------------------------------------------
+
+    private static Object readObject(JsonParser parser, ClassMapping mapping) throws IOException {
+        if (parser.currentToken() == JsonToken.VALUE_NULL) {
+            return null;
+        }
+        if (parser.currentToken() != JsonToken.START_OBJECT) {
+            throw new IOException("Expected JSON object for " + mapping.type.getSimpleName() + " but got " + parser.currentToken());
+        }
+        Object target = mapping.newInstance();
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            FieldMapping field = mapping.byName.get(parser.getCurrentName());
+            parser.nextToken();
+            if (field == null) {
+                parser.skipChildren();
+                continue;
+            }
+            field.set(target, readField(parser, field));
+        }
+        return target;
+    }
+
+    private static Object readField(JsonParser parser, FieldMapping field) throws IOException {
+        JsonToken token = parser.currentToken();
+        if (token == JsonToken.VALUE_NULL) {
+            return null;
+        }
+        switch (field.kind) {
+            case STRING:
+                if (!token.isScalarValue()) {
+                    parser.skipChildren();
+                    return null;
+                }
+                return parser.getText();
+            case INTEGER:
+                return token.isNumeric() ? parser.getIntValue() : Integer.valueOf(parser.getText());
+            case LONG:
+                return token.isNumeric() ? parser.getLongValue() : Long.valueOf(parser.getText());
+            case BOOLEAN:
+                return token.isBoolean() ? parser.getBooleanValue() : Boolean.valueOf(parser.getText());
+            case OBJECT:
+                return readObject(parser, mapping(field.elementType));
+            case STRING_LIST:
+                return readStringList(parser);
+            case OBJECT_LIST:
+                return readObjectList(parser, mapping(field.elementType));
+            default:
+                return readAny(parser);
+        }
+    }
+
+    private static List<String> readStringList(JsonParser parser) throws IOException {
+        if (parser.currentToken() != JsonToken.START_ARRAY) {
+            throw new IOException("Expected JSON array but got " + parser.currentToken());
+        }
+        List<String> list = new ArrayList<>();
+        while (parser.nextToken() != JsonToken.END_ARRAY) {
+            if (parser.currentToken() == JsonToken.VALUE_NULL) {
+                list.add(null);
+            } else if (parser.currentToken().isScalarValue()) {
+                list.add(parser.getText());
+            } else {
+                parser.skipChildren();
+                list.add(null);
+            }
+        }
+        return list;
+    }
+
+    private static List<Object> readObjectList(JsonParser parser, ClassMapping mapping) throws IOException {
+        if (parser.currentToken() != JsonToken.START_ARRAY) {
+            throw new IOException("Expected JSON array but got " + parser.currentToken());
+        }
+        List<Object> list = new ArrayList<>();
+        while (parser.nextToken() != JsonToken.END_ARRAY) {
+            list.add(readObject(parser, mapping));
+        }
+        return list;
+    }
+
+    private static Object readAny(JsonParser parser) throws IOException {
+        switch (parser.currentToken()) {
+            case START_OBJECT:
+                Map<String, Object> map = new LinkedHashMap<>();
+                while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                    String name = parser.getCurrentName();
+                    parser.nextToken();
+                    map.put(name, readAny(parser));
+                }
+                return map;
+            case START_ARRAY:
+                List<Object> list = new ArrayList<>();
+                while (parser.nextToken() != JsonToken.END_ARRAY) {
+                    list.add(readAny(parser));
+                }
+                return list;
+            case VALUE_STRING:
+                return parser.getText();
+            case VALUE_NUMBER_INT:
+            case VALUE_NUMBER_FLOAT:
+                return parser.getNumberValue();
+            case VALUE_TRUE:
+                return Boolean.TRUE;
+            case VALUE_FALSE:
+                return Boolean.FALSE;
+            default:
+                return null;
+        }
+    }
+
+    // ----------------------------------------------- mapping -----------------------------------------------
+
+    private static ClassMapping mapping(Class<?> type) {
+        ClassMapping mapping = MAPPINGS.get(type);
+        if (mapping == null) {
+            mapping = new ClassMapping(type);
+            MAPPINGS.putIfAbsent(type, mapping);
+        }
+        return mapping;
+    }
+
+    private enum Kind {
+        STRING, INTEGER, LONG, BOOLEAN, OBJECT, STRING_LIST, OBJECT_LIST, ANY
+    }
+
+    private static class ClassMapping {
+        private final Class<?> type;
+        private final Constructor<?> constructor;
+        private final List<FieldMapping> fields = new ArrayList<>();
+        private final Map<String, FieldMapping> byName = new HashMap<>();
+
+        ClassMapping(Class<?> type) {
+            this.type = type;
+            try {
+                this.constructor = type.getDeclaredConstructor();
+                this.constructor.setAccessible(true);
+            } catch (NoSuchMethodException e) {
+                throw new IllegalArgumentException(type.getName() + " has no default constructor", e);
+            }
+            List<Class<?>> hierarchy = new ArrayList<>();
+            for (Class<?> current = type; current != null && current != Object.class; current = current.getSuperclass()) {
+                hierarchy.add(0, current);
+            }
+            // 子类中同名的字段覆盖父类字段
+            Map<String, FieldMapping> ordered = new LinkedHashMap<>();
+            for (Class<?> current : hierarchy) {
+                for (Field field : current.getDeclaredFields()) {
+                    if (Modifier.isStatic(field.getModifiers()) || Modifier.isTransient(field.getModifiers()) || field.isSynthetic()) {
+                        continue;
+                    }
+                    FieldMapping mapping = new FieldMapping(field);
+                    ordered.remove(mapping.name);
+                    ordered.put(mapping.name, mapping);
+                }
+            }
+            this.fields.addAll(ordered.values());
+            this.byName.putAll(ordered);
+        }
+
+        Object newInstance() {
+            try {
+                return this.constructor.newInstance();
+            } catch (ReflectiveOperationException e) {
+                throw new IllegalStateException("Cannot create " + this.type.getName(), e);
+            }
+        }
+    }
+
+    private static class FieldMapping {
+        private final Field field;
+        private final String name;
+        private final SerializedString serializedName;
+        private final Kind kind;
+        private final Class<?> elementType;
+
+        FieldMapping(Field field) {
+            field.setAccessible(true);
+            this.field = field;
+            Alias alias = field.getAnnotation(Alias.class);
+            this.name = alias == null ? field.getName() : alias.value();
+            this.serializedName = new SerializedString(this.name);
+
+            Class<?> type = field.getType();
+            if (type == String.class) {
+                this.kind = Kind.STRING;
+                this.elementType = null;
+            } else if (type == Integer.class || type == int.class) {
+                this.kind = Kind.INTEGER;
+                this.elementType = null;
+            } else if (type == Long.class || type == long.class) {
+                this.kind = Kind.LONG;
+                this.elementType = null;
+            } else if (type == Boolean.class || type == boolean.class) {
+                this.kind = Kind.BOOLEAN;
+                this.elementType = null;
+            } else if (List.class.isAssignableFrom(type)) {
+                Class<?> element = listElementType(field.getGenericType());
+                if (element == String.class) {
+                    this.kind = Kind.STRING_LIST;
+                    this.elementType = null;
+                } else if (isBean(element)) {
+                    this.kind = Kind.OBJECT_LIST;
+                    this.elementType = element;
+                } else {
+                    this.kind = Kind.ANY;
+                    this.elementType = null;
+                }
+            } else if (isBean(type)) {
+                this.kind = Kind.OBJECT;
+                this.elementType = type;
+            } else {
+                this.kind = Kind.ANY;
+                this.elementType = null;
+            }
+        }
+
+        Object get(Object target) {
+            try {
+                return this.field.get(target);
+            } catch (IllegalAccessException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+
+        void set(Object target, Object value) {
+            try {
+                this.field.set(target, value);
+            } catch (IllegalAccessException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+
+        private static Class<?> listElementType(Type type) {
+            if (type instanceof ParameterizedType) {
+                Type argument = ((ParameterizedType) type).getActualTypeArguments()[0];
+                if (argument instanceof Class) {
+                    return (Class<?>) argument;
+                }
+            }
+            return null;
+        }
+
+        private static boolean isBean(Class<?> type) {
+            return type != null && !type.isPrimitive() && !type.isArray() && !type.isInterface()
+                    && !type.getName().startsWith("java.");
+        }
+    }
+}
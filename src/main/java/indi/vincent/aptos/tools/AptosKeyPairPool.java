@@ -0,0 +1,162 @@
+package indi.vincent.aptos.tools;
+
+import cn.hutool.core.thread.NamedThreadFactory;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 预先生成的密钥池
+ * <p>
+ * 后台线程把生成好的账户放入有界队列，队列满后停止生成，
+ * 剩余数量降到低水位以下时重新开始生成直到填满。
+ * 队列为空时 {@link #take(String)} 在调用线程上直接生成，不会阻塞。
+ */
+public class AptosKeyPairPool implements AutoCloseable {
+
+    private final BlockingQueue<AptosAccount> pool;
+    private final int lowWaterMark;
+    private final Thread[] producers;
+    private final Object refillLock = new Object();
+
+    private final LongAdder generated = new LongAdder();
+    private final LongAdder generateNanos = new LongAdder();
+    private final LongAdder taken = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    private volatile boolean filling = true;
+    private volatile boolean running = true;
+
+    /**
+     * @param capacity     池中最多保存的账户数量
+     * @param lowWaterMark 剩余数量不超过该值时开始补充
+     * @param threads      后台生成线程数
+     */
+    public AptosKeyPairPool(int capacity, int lowWaterMark, int threads) {
+        if (lowWaterMark >= capacity) {
+            throw new IllegalArgumentException("lowWaterMark must be less than capacity");
+        }
+        this.pool = new ArrayBlockingQueue<>(capacity);
+        this.lowWaterMark = lowWaterMark;
+        this.producers = new Thread[threads];
+        ThreadFactory threadFactory = new NamedThreadFactory("aptos-keypool-", true);
+        for (int i = 0; i < threads; i++) {
+            this.producers[i] = threadFactory.newThread(this::produce);
+            this.producers[i].start();
+        }
+    }
+
+    /**
+     * 取出一个账户
+     *
+     * @param name 账户要注册的 Name
+     * @return 新账户
+     */
+    public AptosAccount take(String name) {
+        AptosAccount account = this.pool.poll();
+        if (account == null) {
+            this.misses.increment();
+            account = this.generate();
+        }
+        this.taken.increment();
+        if (!this.filling && this.pool.size() <= this.lowWaterMark) {
+            synchronized (this.refillLock) {
+                this.filling = true;
+                this.refillLock.notifyAll();
+            }
+        }
+        account.setName(name);
+        return account;
+    }
+
+    /**
+     * @return 池中可以直接取用的账户数量
+     */
+    public int getAvailable() {
+        return this.pool.size();
+    }
+
+    /**
+     * @return 后台线程累计生成的账户数量
+     */
+    public long getGenerated() {
+        return this.generated.sum();
+    }
+
+    /**
+     * @return 累计取出的账户数量
+     */
+    public long getTaken() {
+        return this.taken.sum();
+    }
+
+    /**
+     * @return 池为空、在调用线程上生成的次数
+     */
+    public long getMisses() {
+        return this.misses.sum();
+    }
+
+    /**
+     * @return 后台线程的生成速度，单位：个/秒
+     */
+    public double getThroughput() {
+        long nanos = this.generateNanos.sum();
+        return nanos == 0 ? 0 : this.generated.sum() * (double) TimeUnit.SECONDS.toNanos(1) / nanos * this.producers.length;
+    }
+
+    private void produce() {
+        AptosAccount pending = null;
+        while (this.running) {
+            try {
+                synchronized (this.refillLock) {
+                    while (this.running && !this.filling) {
+                        this.refillLock.wait();
+                    }
+                }
+                if (pending == null) {
+                    long start = System.nanoTime();
+                    pending = this.generate();
+                    this.generateNanos.add(System.nanoTime() - start);
+                    this.generated.increment();
+                }
+                if (this.pool.offer(pending)) {
+                    pending = null;
+                } else {
+                    this.filling = false;
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    private AptosAccount generate() {
+        byte[] privateKeyBytes = AptosCryptoUtil.randomPrivateKey();
+        byte[] publicKeyBytes = AptosCryptoUtil.createPublicKey(privateKeyBytes);
+        byte[] addressBytes = AptosCryptoUtil.createAddress(publicKeyBytes);
+        return new AptosAccount(privateKeyBytes, publicKeyBytes, addressBytes, null);
+    }
+
+    /**
+     * 停止后台线程并等待它们退出，之后 {@link #take(String)} 在调用线程上生成
+     */
+    @Override
+    public void close() {
+        this.running = false;
+        for (Thread producer : this.producers) {
+            producer.interrupt();
+        }
+        try {
+            for (Thread producer : this.producers) {
+                producer.join();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,154 @@
+package indi.vincent.aptos.tools;
+
+import cn.hutool.cache.impl.LRUCache;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * 带缓存的 Name -> 地址查询
+ * <p>
+ * 已注册和未注册的结果分别使用不同的过期时间，缓存容量有上限，超出时淘汰最久未使用的 Name。
+ * 同一个 Name 的并发查询只会发出一次请求；查询期间调用了 put 或 invalidate 时，查询结果不写入缓存。
+ */
+public class AptosNameResolver {
+
+    /**
+     * 未注册结果在缓存中的占位值
+     */
+    private static final String UNREGISTERED = "";
+
+    private final AptosClient aptosClient;
+    private final LRUCache<String, String> cache;
+    private final long registeredTtlMillis;
+    private final long unregisteredTtlMillis;
+    private final ConcurrentMap<String, CompletableFuture<String>> inFlight = new ConcurrentHashMap<>();
+
+    /**
+     * @param aptosClient           Aptos 客户端
+     * @param capacity              缓存的最大 Name 数量
+     * @param registeredTtlMillis   已注册结果的过期时间
+     * @param unregisteredTtlMillis 未注册结果的过期时间
+     */
+    public AptosNameResolver(AptosClient aptosClient, int capacity, long registeredTtlMillis, long unregisteredTtlMillis) {
+        this.aptosClient = aptosClient;
+        this.cache = new LRUCache<>(capacity);
+        this.registeredTtlMillis = registeredTtlMillis;
+        this.unregisteredTtlMillis = unregisteredTtlMillis;
+    }
+
+    /**
+     * 查询 Name 对应的地址
+     *
+     * @param name Name Service
+     * @return 地址，未注册时为 null
+     */
+    public String lookup(String name) {
+        return Futures.join(this.lookupAsync(name));
+    }
+
+    /**
+     * 异步查询 Name 对应的地址
+     *
+     * @param name Name Service
+     * @return 地址，未注册时为 null
+     */
+    public CompletableFuture<String> lookupAsync(String name) {
+        String cached = this.cache.get(name, false);
+        if (cached != null) {
+            return CompletableFuture.completedFuture(UNREGISTERED.equals(cached) ? null : cached);
+        }
+        CompletableFuture<String> future = this.inFlight.get(name);
+        if (future != null) {
+            return future;
+        }
+        CompletableFuture<String> created = new CompletableFuture<>();
+        future = this.inFlight.putIfAbsent(name, created);
+        if (future != null) {
+            return future;
+        }
+        CompletableFuture<String> request;
+        try {
+            request = this.aptosClient.invokeGetAddressAsync(name);
+        } catch (RuntimeException e) {
+            request = Futures.failed(e);
+        }
+        request.whenComplete((address, error) -> {
+            // put 或 invalidate 已经移除了这次查询，查询结果已过时，不再写入缓存
+            this.inFlight.computeIfPresent(name, (key, current) -> {
+                if (current != created) {
+                    return current;
+                }
+                if (error == null) {
+                    this.store(name, address);
+                }
+                return null;
+            });
+            if (error != null) {
+                created.completeExceptionally(error);
+            } else {
+                created.complete(address);
+            }
+        });
+        return created;
+    }
+
+    /**
+     * 批量查询，未命中缓存的 Name 并发查询
+     *
+     * @param names Name 列表
+     * @return Name -> 地址，按输入顺序排列，未注册的 Name 对应 null
+     */
+    public Map<String, String> lookupAll(Collection<String> names) {
+        List<String> uniqueNames = new ArrayList<>(new LinkedHashSet<>(names));
+        List<CompletableFuture<String>> futures = new ArrayList<>(uniqueNames.size());
+        for (String name : uniqueNames) {
+            futures.add(this.lookupAsync(name));
+        }
+        Map<String, String> addresses = new LinkedHashMap<>();
+        for (int i = 0; i < uniqueNames.size(); i++) {
+            addresses.put(uniqueNames.get(i), Futures.join(futures.get(i)));
+        }
+        return addresses;
+    }
+
+    /**
+     * 记录已知的查询结果，例如本机刚刚注册成功的 Name
+     *
+     * @param name    Name Service
+     * @param address 地址，未注册时为 null
+     */
+    public void put(String name, String address) {
+        this.inFlight.compute(name, (key, current) -> {
+            this.store(name, address);
+            return null;
+        });
+    }
+
+    /**
+     * 丢弃缓存中的查询结果
+     *
+     * @param name Name Service
+     */
+    public void invalidate(String name) {
+        this.inFlight.compute(name, (key, current) -> {
+            this.cache.remove(name);
+            return null;
+        });
+    }
+
+    private void store(String name, String address) {
+        if (address == null) {
+            this.cache.put(name, UNREGISTERED, this.unregisteredTtlMillis);
+        } else {
+            this.cache.put(name, address, this.registeredTtlMillis);
+        }
+    }
+}
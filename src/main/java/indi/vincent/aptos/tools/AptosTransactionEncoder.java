@@ -0,0 +1,281 @@
+package indi.vincent.aptos.tools;
+
+import cn.hutool.core.util.StrUtil;
+import org.bouncycastle.util.encoders.Hex;
+
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * 在本地完成交易的 BCS 编码，代替 /transactions/signing_message 接口
+ * <p>
+ * 签名消息 = SHA3-256("APTOS::RawTransaction") || BCS(RawTransaction)
+ */
+public class AptosTransactionEncoder {
+
+    private static final byte[] RAW_TRANSACTION_PREFIX = AptosCryptoUtil.sha3256("APTOS::RawTransaction".getBytes(StandardCharsets.UTF_8));
+
+    private static final int ADDRESS_LENGTH = 32;
+
+    private static final int PAYLOAD_SCRIPT_FUNCTION = 2;
+    private static final int AUTHENTICATOR_ED25519 = 0;
+
+    private static final int TYPE_TAG_BOOL = 0;
+    private static final int TYPE_TAG_U8 = 1;
+    private static final int TYPE_TAG_U64 = 2;
+    private static final int TYPE_TAG_U128 = 3;
+    private static final int TYPE_TAG_ADDRESS = 4;
+    private static final int TYPE_TAG_SIGNER = 5;
+    private static final int TYPE_TAG_VECTOR = 6;
+    private static final int TYPE_TAG_STRUCT = 7;
+
+    private static final String STRING_TYPE = "0x1::string::String";
+
+    private AptosTransactionEncoder() {
+    }
+
+    /**
+     * 计算待签名的消息
+     *
+     * @param rawTransaction BCS 编码后的 RawTransaction
+     * @return 签名消息的字节数组
+     */
+    public static byte[] createSigningMessage(byte[] rawTransaction) {
+        byte[] message = new byte[RAW_TRANSACTION_PREFIX.length + rawTransaction.length];
+        System.arraycopy(RAW_TRANSACTION_PREFIX, 0, message, 0, RAW_TRANSACTION_PREFIX.length);
+        System.arraycopy(rawTransaction, 0, message, RAW_TRANSACTION_PREFIX.length, rawTransaction.length);
+        return message;
+    }
+
+    /**
+     * BCS 编码 RawTransaction
+     *
+     * @param param          交易数据
+     * @param parameterTypes 入口函数除 signer 以外的参数类型，来自模块 ABI
+     * @param chainId        链 ID
+     * @return RawTransaction 的 BCS 编码
+     * @throws IllegalArgumentException 交易中包含暂不支持本地编码的类型
+     */
+    public static byte[] encodeRawTransaction(AptosClient.SignatureMessageParam param, List<String> parameterTypes, int chainId) {
+        BcsSerializer serializer = new BcsSerializer();
+        serializer.writeFixedBytes(decodeAddress(param.getSender()));
+        serializer.writeU64(parseU64(param.getSequenceNumber()));
+        encodePayload(serializer, param.getPayload(), parameterTypes);
+        serializer.writeU64(parseU64(param.getMaxGasAmount()));
+        serializer.writeU64(parseU64(param.getGasUnitPrice()));
+        serializer.writeU64(parseU64(param.getExpirationTimestampSecs()));
+        serializer.writeU8(checkU8(chainId));
+        return serializer.toByteArray();
+    }
+
+    /**
+     * BCS 编码 SignedTransaction，可以直接以 application/x.aptos.signed_transaction+bcs 提交
+     *
+     * @param rawTransaction BCS 编码后的 RawTransaction
+     * @param publicKey      ED_25519 公钥
+     * @param signature      ED_25519 签名
+     * @return SignedTransaction 的 BCS 编码
+     */
+    public static byte[] encodeSignedTransaction(byte[] rawTransaction, byte[] publicKey, byte[] signature) {
+        BcsSerializer serializer = new BcsSerializer(rawTransaction.length + 128);
+        serializer.writeFixedBytes(rawTransaction);
+        serializer.writeUleb128(AUTHENTICATOR_ED25519);
+        serializer.writeBytes(publicKey);
+        serializer.writeBytes(signature);
+        return serializer.toByteArray();
+    }
+
+    /**
+     * 从 ABI 参数列表中去掉 signer 参数，signer 由交易发送方隐式提供
+     *
+     * @param params ABI 中的参数类型
+     * @return 需要编码的参数类型
+     */
+    public static List<String> withoutSigner(Collection<String> params) {
+        List<String> types = new ArrayList<>();
+        for (String param : params) {
+            String type = param.trim();
+            if (!"signer".equals(type) && !"&signer".equals(type)) {
+                types.add(type);
+            }
+        }
+        return types;
+    }
+
+    /**
+     * 解析地址，允许省略 0x 前缀和前导零
+     *
+     * @param address 十六进制地址
+     * @return 32 字节地址
+     */
+    public static byte[] decodeAddress(String address) {
+        String hex = strip0x(address);
+        if (hex.length() > ADDRESS_LENGTH * 2) {
+            throw new IllegalArgumentException("Invalid address: " + address);
+        }
+        return Hex.decode(StrUtil.padPre(hex, ADDRESS_LENGTH * 2, '0'));
+    }
+
+    private static void encodePayload(BcsSerializer serializer, AptosClient.TransactionPayload payload, List<String> parameterTypes) {
+        if (!"script_function_payload".equals(payload.getType()) && !"entry_function_payload".equals(payload.getType())) {
+            throw new IllegalArgumentException("Unsupported payload type: " + payload.getType());
+        }
+        String[] function = payload.getFunction().split("::");
+        if (function.length != 3) {
+            throw new IllegalArgumentException("Invalid function: " + payload.getFunction());
+        }
+        List<?> arguments = payload.getArguments();
+        if (arguments.size() != parameterTypes.size()) {
+            throw new IllegalArgumentException("Function " + payload.getFunction() + " expects "
+                    + parameterTypes.size() + " arguments but got " + arguments.size());
+        }
+
+        serializer.writeUleb128(PAYLOAD_SCRIPT_FUNCTION);
+        serializer.writeFixedBytes(decodeAddress(function[0]));
+        serializer.writeString(function[1]);
+        serializer.writeString(function[2]);
+
+        List<String> typeArguments = payload.getTypeArguments();
+        serializer.writeUleb128(typeArguments.size());
+        for (String typeArgument : typeArguments) {
+            encodeTypeTag(serializer, typeArgument.trim());
+        }
+
+        serializer.writeUleb128(arguments.size());
+        for (int i = 0; i < arguments.size(); i++) {
+            BcsSerializer argument = new BcsSerializer(64);
+            encodeArgument(argument, parameterTypes.get(i), arguments.get(i));
+            serializer.writeBytes(argument.toByteArray());
+        }
+    }
+
+    private static void encodeTypeTag(BcsSerializer serializer, String type) {
+        switch (type) {
+            case "bool":
+                serializer.writeUleb128(TYPE_TAG_BOOL);
+                return;
+            case "u8":
+                serializer.writeUleb128(TYPE_TAG_U8);
+                return;
+            case "u64":
+                serializer.writeUleb128(TYPE_TAG_U64);
+                return;
+            case "u128":
+                serializer.writeUleb128(TYPE_TAG_U128);
+                return;
+            case "address":
+                serializer.writeUleb128(TYPE_TAG_ADDRESS);
+                return;
+            case "signer":
+                serializer.writeUleb128(TYPE_TAG_SIGNER);
+                return;
+            default:
+        }
+        if (type.startsWith("vector<") && type.endsWith(">")) {
+            serializer.writeUleb128(TYPE_TAG_VECTOR);
+            encodeTypeTag(serializer, type.substring("vector<".length(), type.length() - 1).trim());
+            return;
+        }
+
+        String name = type;
+        List<String> typeParams = new ArrayList<>();
+        int genericStart = type.indexOf('<');
+        if (genericStart > 0) {
+            if (!type.endsWith(">")) {
+                throw new IllegalArgumentException("Invalid type tag: " + type);
+            }
+            name = type.substring(0, genericStart);
+            typeParams = splitTopLevel(type.substring(genericStart + 1, type.length() - 1));
+        }
+        String[] parts = name.split("::");
+        if (parts.length != 3) {
+            throw new IllegalArgumentException("Invalid type tag: " + type);
+        }
+        serializer.writeUleb128(TYPE_TAG_STRUCT);
+        serializer.writeFixedBytes(decodeAddress(parts[0]));
+        serializer.writeString(parts[1]);
+        serializer.writeString(parts[2]);
+        serializer.writeUleb128(typeParams.size());
+        for (String typeParam : typeParams) {
+            encodeTypeTag(serializer, typeParam);
+        }
+    }
+
+    private static void encodeArgument(BcsSerializer serializer, String type, Object value) {
+        switch (type) {
+            case "bool":
+                serializer.writeBool(value instanceof Boolean ? (Boolean) value : Boolean.parseBoolean(value.toString()));
+                return;
+            case "u8":
+                serializer.writeU8(checkU8(Integer.parseInt(value.toString())));
+                return;
+            case "u64":
+                serializer.writeU64(parseU64(value.toString()));
+                return;
+            case "u128":
+                serializer.writeU128(new BigInteger(value.toString()));
+                return;
+            case "address":
+                serializer.writeFixedBytes(decodeAddress(value.toString()));
+                return;
+            case "vector<u8>":
+                serializer.writeBytes(value instanceof byte[] ? (byte[]) value : Hex.decode(strip0x(value.toString())));
+                return;
+            case STRING_TYPE:
+                serializer.writeString(value.toString());
+                return;
+            default:
+        }
+        if (type.startsWith("vector<") && type.endsWith(">") && value instanceof Collection) {
+            String elementType = type.substring("vector<".length(), type.length() - 1).trim();
+            Collection<?> elements = (Collection<?>) value;
+            serializer.writeUleb128(elements.size());
+            for (Object element : elements) {
+                encodeArgument(serializer, elementType, element);
+            }
+            return;
+        }
+        throw new IllegalArgumentException("Unsupported argument type: " + type);
+    }
+
+    private static List<String> splitTopLevel(String types) {
+        List<String> result = new ArrayList<>();
+        int depth = 0;
+        int start = 0;
+        for (int i = 0; i < types.length(); i++) {
+            char c = types.charAt(i);
+            if (c == '<') {
+                depth++;
+            } else if (c == '>') {
+                depth--;
+            } else if (c == ',' && depth == 0) {
+                result.add(types.substring(start, i).trim());
+                start = i + 1;
+            }
+        }
+        result.add(types.substring(start).trim());
+        return result;
+    }
+
+    private static long parseU64(String value) {
+        BigInteger number = new BigInteger(value);
+        if (number.signum() < 0 || number.bitLength() > 64) {
+            throw new IllegalArgumentException("u64 out of range: " + value);
+        }
+        return number.longValue();
+    }
+
+    private static int checkU8(int value) {
+        if (value < 0 || value > 0xFF) {
+            throw new IllegalArgumentException("u8 out of range: " + value);
+        }
+        return value;
+    }
+
+    private static String strip0x(String hex) {
+        return hex.startsWith("0x") || hex.startsWith("0X") ? hex.substring(2) : hex;
+    }
+}
@@ -0,0 +1,104 @@
+package indi.vincent.aptos.tools;
+
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * BCS (Binary Canonical Serialization) 编码器
+ * <p>
+ * 整数使用小端序，变长数据使用 ULEB128 编码的长度前缀。
+ * <p>
+ * Spec: https://github.com/diem/bcs
+ */
+public class BcsSerializer {
+
+    private static final BigInteger U128_MAX = BigInteger.ONE.shiftLeft(128).subtract(BigInteger.ONE);
+
+    private byte[] buffer;
+    private int position;
+
+    public BcsSerializer() {
+        this(256);
+    }
+
+    public BcsSerializer(int initialCapacity) {
+        this.buffer = new byte[initialCapacity];
+    }
+
+    public BcsSerializer writeU8(int value) {
+        ensureCapacity(1);
+        this.buffer[this.position++] = (byte) value;
+        return this;
+    }
+
+    public BcsSerializer writeBool(boolean value) {
+        return writeU8(value ? 1 : 0);
+    }
+
+    public BcsSerializer writeU64(long value) {
+        ensureCapacity(8);
+        for (int i = 0; i < 8; i++) {
+            this.buffer[this.position++] = (byte) (value >>> (8 * i));
+        }
+        return this;
+    }
+
+    public BcsSerializer writeU128(BigInteger value) {
+        if (value.signum() < 0 || value.compareTo(U128_MAX) > 0) {
+            throw new IllegalArgumentException("u128 out of range: " + value);
+        }
+        ensureCapacity(16);
+        byte[] bigEndian = value.toByteArray();
+        for (int i = 0; i < 16; i++) {
+            int index = bigEndian.length - 1 - i;
+            this.buffer[this.position++] = index >= 0 ? bigEndian[index] : 0;
+        }
+        return this;
+    }
+
+    public BcsSerializer writeUleb128(int value) {
+        long remaining = value & 0xFFFFFFFFL;
+        while (remaining >= 0x80) {
+            writeU8((int) ((remaining & 0x7F) | 0x80));
+            remaining >>>= 7;
+        }
+        return writeU8((int) remaining);
+    }
+
+    /**
+     * 写入固定长度的字节，不带长度前缀
+     */
+    public BcsSerializer writeFixedBytes(byte[] bytes) {
+        ensureCapacity(bytes.length);
+        System.arraycopy(bytes, 0, this.buffer, this.position, bytes.length);
+        this.position += bytes.length;
+        return this;
+    }
+
+    /**
+     * 写入带长度前缀的字节序列
+     */
+    public BcsSerializer writeBytes(byte[] bytes) {
+        writeUleb128(bytes.length);
+        return writeFixedBytes(bytes);
+    }
+
+    public BcsSerializer writeString(String value) {
+        return writeBytes(value.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public int size() {
+        return this.position;
+    }
+
+    public byte[] toByteArray() {
+        return Arrays.copyOf(this.buffer, this.position);
+    }
+
+    private void ensureCapacity(int extra) {
+        if (this.position + extra > this.buffer.length) {
+            this.buffer = Arrays.copyOf(this.buffer, Math.max(this.buffer.length << 1, this.position + extra));
+        }
+    }
+}
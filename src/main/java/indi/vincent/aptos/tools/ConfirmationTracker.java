@@ -0,0 +1,250 @@
+package indi.vincent.aptos.tools;
+
+import cn.hutool.core.thread.NamedThreadFactory;
+import lombok.Value;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 交易确认跟踪
+ * <p>
+ * 所有已提交的交易由一个调度线程定时轮询 /transactions/by_hash，查询本身通过 OkHttp 异步发出，
+ * 同时进行的查询数量由信号量限制，拿不到许可的交易推迟到下一轮。
+ * 每个交易的轮询间隔从 initialDelay 开始指数增长，最大为 maxDelay。
+ * 交易超过过期时间（加上 expirationGrace 容忍本地与链上的时钟偏差）仍未上链时视为过期。
+ */
+@Slf4j
+public class ConfirmationTracker implements AutoCloseable {
+
+    private static final String USER_TRANSACTION = "user_transaction";
+    private static final String PENDING_TRANSACTION = "pending_transaction";
+    private static final String NOT_FOUND = "404";
+    private static final int MAX_BACKOFF_SHIFT = 16;
+
+    private final AptosClient aptosClient;
+    private final Semaphore permits;
+    private final long initialDelayMillis;
+    private final long maxDelayMillis;
+    private final long expirationGraceMillis;
+    private final ScheduledExecutorService scheduler;
+
+    private final Map<String, TrackedTransaction> tracked = new ConcurrentHashMap<>();
+
+    private final LongAdder succeeded = new LongAdder();
+    private final LongAdder vmFailures = new LongAdder();
+    private final LongAdder expired = new LongAdder();
+    private final LongAdder polls = new LongAdder();
+
+    /**
+     * @param aptosClient           查询交易的客户端
+     * @param maxConcurrency        同时进行的查询数量上限
+     * @param initialDelayMillis    提交后第一次查询的延迟，也是最小轮询间隔
+     * @param maxDelayMillis        最大轮询间隔
+     * @param expirationGraceMillis 过期时间之后继续等待的时间
+     */
+    public ConfirmationTracker(AptosClient aptosClient, int maxConcurrency, long initialDelayMillis, long maxDelayMillis,
+                               long expirationGraceMillis) {
+        if (initialDelayMillis <= 0 || maxDelayMillis < initialDelayMillis) {
+            throw new IllegalArgumentException("Invalid poll delay: " + initialDelayMillis + " / " + maxDelayMillis);
+        }
+        this.aptosClient = aptosClient;
+        this.permits = new Semaphore(maxConcurrency);
+        this.initialDelayMillis = initialDelayMillis;
+        this.maxDelayMillis = maxDelayMillis;
+        this.expirationGraceMillis = expirationGraceMillis;
+        ScheduledThreadPoolExecutor executor = new ScheduledThreadPoolExecutor(1, new NamedThreadFactory("aptos-confirm-", true));
+        executor.setRemoveOnCancelPolicy(true);
+        this.scheduler = executor;
+    }
+
+    /**
+     * 开始跟踪一个已提交的交易，同一个哈希重复跟踪时返回同一个 Future
+     *
+     * @param hash                    交易哈希
+     * @param expirationTimestampSecs 交易的过期时间，单位：秒
+     * @return 交易上链或过期后结束
+     */
+    public CompletableFuture<Confirmation> track(String hash, long expirationTimestampSecs) {
+        TrackedTransaction transaction = new TrackedTransaction(hash, TimeUnit.SECONDS.toMillis(expirationTimestampSecs));
+        TrackedTransaction existing = this.tracked.putIfAbsent(hash, transaction);
+        if (existing != null) {
+            return existing.future;
+        }
+        this.schedule(transaction, this.initialDelayMillis);
+        return transaction.future;
+    }
+
+    /**
+     * @return 正在等待确认的交易数量
+     */
+    public int getPending() {
+        return this.tracked.size();
+    }
+
+    /**
+     * @return 执行成功的交易数量
+     */
+    public long getSucceeded() {
+        return this.succeeded.sum();
+    }
+
+    /**
+     * @return 上链但执行失败的交易数量
+     */
+    public long getVmFailures() {
+        return this.vmFailures.sum();
+    }
+
+    /**
+     * @return 过期未上链的交易数量
+     */
+    public long getExpired() {
+        return this.expired.sum();
+    }
+
+    /**
+     * @return 累计查询次数
+     */
+    public long getPolls() {
+        return this.polls.sum();
+    }
+
+    private void schedule(TrackedTransaction transaction, long delayMillis) {
+        try {
+            this.scheduler.schedule(() -> this.poll(transaction), delayMillis, TimeUnit.MILLISECONDS);
+        } catch (RejectedExecutionException e) {
+            this.tracked.remove(transaction.hash, transaction);
+            transaction.future.completeExceptionally(new IllegalStateException("Confirmation tracker is closed"));
+        }
+    }
+
+    private void poll(TrackedTransaction transaction) {
+        if (!this.permits.tryAcquire()) {
+            this.schedule(transaction, this.initialDelayMillis);
+            return;
+        }
+        this.polls.increment();
+        CompletableFuture<AptosClient.TransactionResponse> response;
+        try {
+            response = this.aptosClient.invokeGetTransactionByHashAsync(transaction.hash);
+        } catch (RuntimeException e) {
+            response = Futures.failed(e);
+        }
+        response.whenComplete((result, error) -> {
+            this.permits.release();
+            if (error != null) {
+                log.debug("查询交易 {} 失败：{}", transaction.hash, Futures.unwrap(error).toString());
+                this.retry(transaction);
+            } else {
+                this.handle(transaction, result);
+            }
+        });
+    }
+
+    private void handle(TrackedTransaction transaction, AptosClient.TransactionResponse response) {
+        if (USER_TRANSACTION.equals(response.getType())) {
+            if (Boolean.TRUE.equals(response.getSuccess())) {
+                this.complete(transaction, Outcome.SUCCESS, response);
+            } else {
+                this.complete(transaction, Outcome.VM_FAILURE, response);
+            }
+            return;
+        }
+        // 未上链（pending_transaction）或节点上查不到（404），过期后不可能再上链
+        boolean pendingOrMissing = PENDING_TRANSACTION.equals(response.getType()) || NOT_FOUND.equals(response.getCode());
+        if (pendingOrMissing && System.currentTimeMillis() > transaction.expirationMillis + this.expirationGraceMillis) {
+            this.complete(transaction, Outcome.EXPIRED, response);
+            return;
+        }
+        if (!pendingOrMissing) {
+            log.debug("查询交易 {} 失败：{} {}", transaction.hash, response.getCode(), response.getMessage());
+        }
+        this.retry(transaction);
+    }
+
+    private void retry(TrackedTransaction transaction) {
+        int shift = Math.min(transaction.attempts++, MAX_BACKOFF_SHIFT);
+        this.schedule(transaction, Math.min(this.initialDelayMillis << shift, this.maxDelayMillis));
+    }
+
+    private void complete(TrackedTransaction transaction, Outcome outcome, AptosClient.TransactionResponse response) {
+        switch (outcome) {
+            case SUCCESS:
+                this.succeeded.increment();
+                break;
+            case VM_FAILURE:
+                this.vmFailures.increment();
+                break;
+            default:
+                this.expired.increment();
+        }
+        this.tracked.remove(transaction.hash, transaction);
+        transaction.future.complete(new Confirmation(transaction.hash, outcome, response.getVersion(), response.getVmStatus()));
+    }
+
+    @Override
+    public void close() {
+        this.scheduler.shutdownNow();
+        for (TrackedTransaction transaction : this.tracked.values()) {
+            transaction.future.completeExceptionally(new IllegalStateException("Confirmation tracker is closed"));
+        }
+        this.tracked.clear();
+    }
+
+    /**
+     * 交易的最终结果
+     */
+    public enum Outcome {
+        /**
+         * 上链并执行成功
+         */
+        SUCCESS,
+        /**
+         * 上链但 Move 执行失败，交易已经消耗 Gas 和 Sequence Number
+         */
+        VM_FAILURE,
+        /**
+         * 过期未上链
+         */
+        EXPIRED
+    }
+
+    @Value
+    public static class Confirmation {
+        String hash;
+        Outcome outcome;
+        /**
+         * 交易所在的账本版本，过期时为 null
+         */
+        String version;
+        String vmStatus;
+
+        public boolean isSuccess() {
+            return this.outcome == Outcome.SUCCESS;
+        }
+    }
+
+    private static class TrackedTransaction {
+        private final String hash;
+        private final long expirationMillis;
+        private final CompletableFuture<Confirmation> future = new CompletableFuture<>();
+        /**
+         * 只在调度线程和 OkHttp 回调线程之间交替访问，同一时刻只有一个查询在进行
+         */
+        private int attempts;
+
+        TrackedTransaction(String hash, long expirationMillis) {
+            this.hash = hash;
+            this.expirationMillis = expirationMillis;
+        }
+    }
+}
@@ -0,0 +1,73 @@
+package indi.vincent.aptos.tools;
+
+import cn.hutool.core.thread.NamedThreadFactory;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * CompletableFuture 工具方法
+ */
+public class Futures {
+
+    private static final ScheduledExecutorService SCHEDULER =
+            Executors.newSingleThreadScheduledExecutor(new NamedThreadFactory("aptos-delay-", true));
+
+    private Futures() {
+    }
+
+    /**
+     * 创建一个在指定时间后结束的 Future，后续动作在共享的调度线程上执行，不能阻塞
+     */
+    public static CompletableFuture<Void> delay(long delayMillis) {
+        CompletableFuture<Void> future = new CompletableFuture<>();
+        SCHEDULER.schedule(() -> future.complete(null), Math.max(0, delayMillis), TimeUnit.MILLISECONDS);
+        return future;
+    }
+
+    /**
+     * 创建一个异常结束的 Future
+     */
+    public static <T> CompletableFuture<T> failed(Throwable error) {
+        CompletableFuture<T> future = new CompletableFuture<>();
+        future.completeExceptionally(error);
+        return future;
+    }
+
+    /**
+     * 等待 Future 结束，异常时抛出原始的 RuntimeException，受检异常包装为 RuntimeException
+     */
+    public static <T> T join(CompletableFuture<T> future) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            throw propagate(e);
+        }
+    }
+
+    /**
+     * 去掉 CompletionException / ExecutionException 包装，取出原始异常
+     */
+    public static Throwable unwrap(Throwable error) {
+        Throwable cause = error;
+        while ((cause instanceof CompletionException || cause instanceof ExecutionException) && cause.getCause() != null) {
+            cause = cause.getCause();
+        }
+        return cause;
+    }
+
+    private static RuntimeException propagate(Throwable error) {
+        Throwable cause = unwrap(error);
+        if (cause instanceof RuntimeException) {
+            return (RuntimeException) cause;
+        }
+        if (cause instanceof Error) {
+            throw (Error) cause;
+        }
+        return new RuntimeException(cause);
+    }
+}
@@ -0,0 +1,272 @@
+package indi.vincent.aptos.tools;
+
+import cn.hutool.core.util.StrUtil;
+import lombok.Value;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 通过模拟执行估算交易的 max_gas_amount，通过节点的 /estimate_gas_price 获取 gas_unit_price
+ * <p>
+ * 同一个入口函数、同样形状的 Payload（类型参数相同，参数个数相同，字符串参数长度按 32 向上取整后相同）
+ * 消耗的 Gas 基本一致，每种形状只模拟一次，结果和单价都缓存 ttl 时长，过期后下一笔交易重新估算。
+ * 同一种形状同时只有一次模拟在进行，其余交易等待同一个结果。
+ * <p>
+ * max_gas_amount 为模拟消耗的 Gas 乘以 (1 + safetyMargin)，限制在 [minGasAmount, maxGasAmount] 之间。
+ * 节点不支持模拟或请求失败时使用 maxGasAmount，同样缓存 ttl 时长，避免每笔交易都请求失败；
+ * 模拟校验或执行失败（例如 Name 已被注册）时不缓存，这笔交易使用 maxGasAmount。
+ */
+@Slf4j
+public class GasEstimator {
+
+    /**
+     * 模拟交易的签名，节点要求签名无效
+     */
+    private static final String EMPTY_SIGNATURE = AptosCryptoUtil.toPrefixedHex(new byte[AptosCryptoUtil.SIGNATURE_SIZE]);
+    private static final String VALIDATION_ERROR = "Invalid transaction";
+    private static final int STRING_LENGTH_BUCKET = 32;
+
+    private final AptosClient aptosClient;
+    private final long ttlMillis;
+    private final double safetyMargin;
+    private final long minGasAmount;
+    private final long maxGasAmount;
+
+    private final Map<String, Cached> gasAmounts = new ConcurrentHashMap<>();
+    /**
+     * 入口函数 -> 最近一次估算的 max_gas_amount
+     */
+    private final Map<String, Long> maxGasAmounts = new ConcurrentHashMap<>();
+    private volatile Cached gasUnitPrice;
+    private volatile long lastGasUnitPrice = AptosClient.DEFAULT_GAS_UNIT_PRICE;
+
+    private final LongAdder simulations = new LongAdder();
+    private final LongAdder simulationFailures = new LongAdder();
+    private final LongAdder cacheHits = new LongAdder();
+
+    /**
+     * @param aptosClient  发送模拟请求的客户端
+     * @param ttlMillis    估算结果的缓存时长
+     * @param safetyMargin 在模拟消耗的 Gas 之上额外预留的比例
+     * @param minGasAmount max_gas_amount 的最小值
+     * @param maxGasAmount max_gas_amount 的最大值，也是模拟时使用的上限
+     */
+    public GasEstimator(AptosClient aptosClient, long ttlMillis, double safetyMargin, long minGasAmount, long maxGasAmount) {
+        if (minGasAmount < 1 || maxGasAmount < minGasAmount) {
+            throw new IllegalArgumentException("Invalid gas amount range: " + minGasAmount + " / " + maxGasAmount);
+        }
+        this.aptosClient = aptosClient;
+        this.ttlMillis = ttlMillis;
+        this.safetyMargin = safetyMargin;
+        this.minGasAmount = minGasAmount;
+        this.maxGasAmount = maxGasAmount;
+    }
+
+    /**
+     * 估算一笔交易的 Gas，不会失败
+     *
+     * @param sender                发送方，模拟时需要公钥
+     * @param signatureMessageParam 已分配 Sequence Number 的交易数据
+     * @return 估算结果
+     */
+    public CompletableFuture<Estimate> estimateAsync(AptosAccount sender, AptosClient.SignatureMessageParam signatureMessageParam) {
+        return this.gasUnitPriceAsync().thenCompose(price -> this.gasAmountAsync(sender, signatureMessageParam, price)
+                .thenApply(amount -> {
+                    this.maxGasAmounts.put(signatureMessageParam.getPayload().getFunction(), amount);
+                    return new Estimate(amount, price);
+                }));
+    }
+
+    /**
+     * @param function 入口函数
+     * @return 最近一次估算的 max_gas_amount 按最近的单价计算的最大手续费，还没有估算过时按 maxGasAmount 计算
+     */
+    public long getMaxFee(String function) {
+        return this.maxGasAmount(function) * this.lastGasUnitPrice;
+    }
+
+    /**
+     * 与 {@link #getMaxFee} 相同，但 Gas 单价过期时先重新获取
+     *
+     * @param function 入口函数
+     * @return 最大手续费，不会失败
+     */
+    public CompletableFuture<Long> getMaxFeeAsync(String function) {
+        return this.gasUnitPriceAsync().thenApply(price -> this.maxGasAmount(function) * price);
+    }
+
+    private long maxGasAmount(String function) {
+        return this.maxGasAmounts.getOrDefault(function, this.maxGasAmount);
+    }
+
+    /**
+     * @return 最近一次获取的 Gas 单价
+     */
+    public long getGasUnitPrice() {
+        return this.lastGasUnitPrice;
+    }
+
+    public long getSimulations() {
+        return this.simulations.sum();
+    }
+
+    /**
+     * @return 请求失败或执行失败的模拟次数
+     */
+    public long getSimulationFailures() {
+        return this.simulationFailures.sum();
+    }
+
+    /**
+     * @return 使用缓存的 max_gas_amount 的次数
+     */
+    public long getCacheHits() {
+        return this.cacheHits.sum();
+    }
+
+    private CompletableFuture<Long> gasUnitPriceAsync() {
+        long now = System.currentTimeMillis();
+        Cached cached = this.gasUnitPrice;
+        if (cached != null && now < cached.expiresAt) {
+            return cached.value;
+        }
+        synchronized (this) {
+            cached = this.gasUnitPrice;
+            if (cached != null && now < cached.expiresAt) {
+                return cached.value;
+            }
+            CompletableFuture<Long> price = this.aptosClient.invokeEstimateGasPriceAsync()
+                    .handle((response, error) -> {
+                        if (error != null || response.getGasEstimate() == null) {
+                            log.debug("获取 Gas 单价失败，使用 {}：{}", this.lastGasUnitPrice,
+                                    error != null ? Futures.unwrap(error).toString() : response.getMessage());
+                            return this.lastGasUnitPrice;
+                        }
+                        long estimate = Math.max(1, response.getGasEstimate());
+                        this.lastGasUnitPrice = estimate;
+                        return estimate;
+                    });
+            this.gasUnitPrice = new Cached(price, now + this.ttlMillis);
+            return price;
+        }
+    }
+
+    private CompletableFuture<Long> gasAmountAsync(AptosAccount sender, AptosClient.SignatureMessageParam signatureMessageParam, long price) {
+        String shape = shape(signatureMessageParam.getPayload());
+        long now = System.currentTimeMillis();
+        Cached cached = this.gasAmounts.get(shape);
+        if (cached != null && now < cached.expiresAt) {
+            this.cacheHits.increment();
+            return cached.value;
+        }
+        CompletableFuture<Long> amount = new CompletableFuture<>();
+        Cached created = new Cached(amount, now + this.ttlMillis);
+        boolean owner = cached == null ? this.gasAmounts.putIfAbsent(shape, created) == null : this.gasAmounts.replace(shape, cached, created);
+        if (!owner) {
+            // 另一笔交易已经开始估算
+            return this.gasAmountAsync(sender, signatureMessageParam, price);
+        }
+        this.simulations.increment();
+        this.simulate(sender, signatureMessageParam, price).whenComplete((gasUsed, error) -> {
+            if (error != null) {
+                this.simulationFailures.increment();
+                log.warn("模拟交易 {} 失败，{} 内使用 max_gas_amount {}：{}", shape, this.ttlMillis + "ms", this.maxGasAmount,
+                        Futures.unwrap(error).toString());
+                amount.complete(this.maxGasAmount);
+                return;
+            }
+            if (gasUsed == null) {
+                this.simulationFailures.increment();
+                this.gasAmounts.remove(shape, created);
+                amount.complete(this.maxGasAmount);
+                return;
+            }
+            long estimate = Math.max(this.minGasAmount, Math.min(this.maxGasAmount, (long) Math.ceil(gasUsed * (1 + this.safetyMargin))));
+            log.info("模拟交易 {} 消耗 Gas {}，max_gas_amount 设为 {}", shape, gasUsed, estimate);
+            amount.complete(estimate);
+        });
+        return amount;
+    }
+
+    /**
+     * @return 模拟消耗的 Gas，交易校验或执行失败时为 null；请求失败或节点返回其他错误时异常结束
+     */
+    private CompletableFuture<Long> simulate(AptosAccount sender, AptosClient.SignatureMessageParam signatureMessageParam, long price) {
+        AptosClient.TransactionSignature signature = new AptosClient.TransactionSignature();
+        signature.setType("ed25519_signature");
+        signature.setPublicKey(sender.getPublicKey());
+        signature.setSignature(EMPTY_SIGNATURE);
+        AptosClient.SubmitTransactionParam simulation = AptosClient.SubmitTransactionParam.of(signatureMessageParam, signature);
+        simulation.setMaxGasAmount(String.valueOf(this.maxGasAmount));
+        simulation.setGasUnitPrice(String.valueOf(price));
+        return this.aptosClient.invokeSimulateTransactionAsync(simulation).thenApply(responses -> {
+            AptosClient.TransactionResponse response = responses.isEmpty() ? null : responses.get(0);
+            if (response != null && response.getSuccess() == null && StrUtil.contains(response.getMessage(), VALIDATION_ERROR)) {
+                // 这笔交易本身无效（例如余额不足），不影响同一形状的其他交易
+                log.debug("模拟交易校验失败：{}", response.getMessage());
+                return null;
+            }
+            if (response == null || response.getSuccess() == null) {
+                throw new IllegalStateException("Simulation rejected: " + (response == null ? "empty response" : response.getMessage()));
+            }
+            if (!response.getSuccess()) {
+                log.debug("模拟交易执行失败：{}", response.getVmStatus());
+                return null;
+            }
+            return Long.parseLong(response.getGasUsed());
+        });
+    }
+
+    /**
+     * 入口函数、类型参数和参数的形状
+     */
+    static String shape(AptosClient.TransactionPayload payload) {
+        StringBuilder builder = new StringBuilder(payload.getFunction());
+        if (payload.getTypeArguments() != null && !payload.getTypeArguments().isEmpty()) {
+            builder.append('<').append(String.join(",", payload.getTypeArguments())).append('>');
+        }
+        builder.append('(');
+        List<?> arguments = payload.getArguments() == null ? Collections.emptyList() : payload.getArguments();
+        for (int i = 0; i < arguments.size(); i++) {
+            if (i > 0) {
+                builder.append(',');
+            }
+            Object argument = arguments.get(i);
+            if (argument instanceof String) {
+                int length = ((String) argument).length();
+                builder.append("s").append((length + STRING_LENGTH_BUCKET - 1) / STRING_LENGTH_BUCKET * STRING_LENGTH_BUCKET);
+            } else if (argument instanceof Collection) {
+                builder.append("v").append(((Collection<?>) argument).size());
+            } else {
+                builder.append(argument == null ? "null" : argument.getClass().getSimpleName());
+            }
+        }
+        return builder.append(')').toString();
+    }
+
+    /**
+     * 一笔交易的 Gas 设置
+     */
+    @Value
+    public static class Estimate {
+        long maxGasAmount;
+        long gasUnitPrice;
+    }
+
+    private static class Cached {
+        private final CompletableFuture<Long> value;
+        private final long expiresAt;
+
+        Cached(CompletableFuture<Long> value, long expiresAt) {
+            this.value = value;
+            this.expiresAt = expiresAt;
+        }
+    }
+}
@@ -0,0 +1,354 @@
+package indi.vincent.aptos.tools;
+
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.StampedLock;
+
+/**
+ * 已知已被注册的 Name -> 地址索引，用于在查询 aptosnames 之前过滤掉已知的 Name
+ * <p>
+ * Name 只保存 64 位指纹，地址按 32 字节保存为 4 个 long，全部放在基本类型数组中：
+ * 开放寻址（线性探测）的哈希表每个槽位占 40 字节，没有对象头和引用。
+ * 哈希表前面是一个 Bloom Filter，大部分不在索引中的 Name 只检查几个比特就返回，不会访问哈希表。
+ * Bloom Filter 的比特由指纹计算，扩容时可以直接从哈希表重建。
+ * <p>
+ * 指纹冲突时会把一个未注册的 Name 当作已注册，一千万个 Name 中出现一次冲突的概率约为 3e-6。
+ * 读操作使用乐观读，不阻塞写操作。{@link #contains} 不分配对象，查询统计只在 contains 中记录，
+ * 调用方先用 contains 过滤，命中后再用 {@link #get} 取地址。
+ */
+public class RegisteredNameIndex {
+
+    private static final double LOAD_FACTOR = 0.75;
+    private static final int ADDRESS_LONGS = 4;
+    private static final int ADDRESS_HEX_LENGTH = 64;
+    /**
+     * addresses 数组的长度是容量的 4 倍，不能超过 int 范围
+     */
+    private static final int MAX_CAPACITY = 1 << 28;
+    private static final int MAX_HASH_FUNCTIONS = 16;
+    private static final int BLOOM_REJECTED = -1;
+    private static final int ABSENT = 0;
+    private static final int PRESENT = 1;
+
+    private final StampedLock lock = new StampedLock();
+    private final double falsePositiveRate;
+
+    private long[] bloom;
+    private int hashFunctions;
+    private long[] fingerprints;
+    private long[] addresses;
+    private int size;
+    private int threshold;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder bloomRejections = new LongAdder();
+
+    /**
+     * @param expectedNames     预计的 Name 数量，超出后自动扩容
+     * @param falsePositiveRate Bloom Filter 的误判率
+     */
+    public RegisteredNameIndex(int expectedNames, double falsePositiveRate) {
+        if (falsePositiveRate <= 0 || falsePositiveRate >= 1) {
+            throw new IllegalArgumentException("Invalid false positive rate: " + falsePositiveRate);
+        }
+        this.falsePositiveRate = falsePositiveRate;
+        int capacity = Integer.highestOneBit((int) Math.min(MAX_CAPACITY, Math.max(16, (long) (expectedNames / LOAD_FACTOR) + 1)) * 2 - 1);
+        this.allocate(capacity);
+    }
+
+    /**
+     * 查询已知的地址，不记录查询统计
+     *
+     * @param name Name Service
+     * @return 地址，不在索引中时为 null
+     */
+    public String get(String name) {
+        long[] address = new long[ADDRESS_LONGS];
+        return this.find(fingerprint(name), address) == PRESENT ? decodeAddress(address) : null;
+    }
+
+    /**
+     * 不分配对象的查询，记录命中、未命中和 Bloom Filter 排除的次数
+     *
+     * @param name Name Service
+     * @return 索引中是否有该 Name
+     */
+    public boolean contains(String name) {
+        int result = this.find(fingerprint(name), null);
+        if (result == PRESENT) {
+            this.hits.increment();
+            return true;
+        }
+        this.misses.increment();
+        if (result == BLOOM_REJECTED) {
+            this.bloomRejections.increment();
+        }
+        return false;
+    }
+
+    /**
+     * 记录已被注册的 Name，已存在时更新地址
+     *
+     * @param name    Name Service
+     * @param address 地址，可以带 0x 前缀
+     */
+    public void put(String name, String address) {
+        long fingerprint = fingerprint(name);
+        long[] encoded = encodeAddress(address);
+        long stamp = this.lock.writeLock();
+        try {
+            if (this.size >= this.threshold) {
+                if (this.fingerprints.length >= MAX_CAPACITY) {
+                    throw new IllegalStateException("Registered name index is full: " + this.size);
+                }
+                this.allocate(this.fingerprints.length * 2);
+            }
+            if (this.insert(fingerprint, encoded)) {
+                this.size++;
+            }
+        } finally {
+            this.lock.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * 移除 Name，例如注册交易没有成功上链；Bloom Filter 不支持删除，之后查询该 Name 会访问一次哈希表
+     *
+     * @param name Name Service
+     */
+    public void remove(String name) {
+        long fingerprint = fingerprint(name);
+        long stamp = this.lock.writeLock();
+        try {
+            int mask = this.fingerprints.length - 1;
+            int slot = (int) fingerprint & mask;
+            while (this.fingerprints[slot] != fingerprint) {
+                if (this.fingerprints[slot] == 0) {
+                    return;
+                }
+                slot = (slot + 1) & mask;
+            }
+            // 线性探测的删除：把后面探测链上的元素前移，不留墓碑
+            int hole = slot;
+            int next = (hole + 1) & mask;
+            while (this.fingerprints[next] != 0) {
+                int home = (int) this.fingerprints[next] & mask;
+                if (((next - home) & mask) >= ((next - hole) & mask)) {
+                    this.fingerprints[hole] = this.fingerprints[next];
+                    System.arraycopy(this.addresses, next * ADDRESS_LONGS, this.addresses, hole * ADDRESS_LONGS, ADDRESS_LONGS);
+                    hole = next;
+                }
+                next = (next + 1) & mask;
+            }
+            this.fingerprints[hole] = 0;
+            this.size--;
+        } finally {
+            this.lock.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * @return 索引中的 Name 数量
+     */
+    public int size() {
+        long stamp = this.lock.readLock();
+        try {
+            return this.size;
+        } finally {
+            this.lock.unlockRead(stamp);
+        }
+    }
+
+    /**
+     * @return 哈希表和 Bloom Filter 占用的字节数
+     */
+    public long getMemoryBytes() {
+        long stamp = this.lock.readLock();
+        try {
+            return 8L * (this.bloom.length + this.fingerprints.length + this.addresses.length);
+        } finally {
+            this.lock.unlockRead(stamp);
+        }
+    }
+
+    public long getHits() {
+        return this.hits.sum();
+    }
+
+    public long getMisses() {
+        return this.misses.sum();
+    }
+
+    /**
+     * @return 被 Bloom Filter 直接排除、没有访问哈希表的查询次数
+     */
+    public long getBloomRejections() {
+        return this.bloomRejections.sum();
+    }
+
+    /**
+     * 先乐观读，期间有写入时加读锁重新查询
+     *
+     * @param address 不为 null 时写入找到的地址
+     * @return {@link #PRESENT}、{@link #ABSENT} 或 {@link #BLOOM_REJECTED}
+     */
+    private int find(long fingerprint, long[] address) {
+        long stamp = this.lock.tryOptimisticRead();
+        int result = this.probe(fingerprint, address);
+        if (this.lock.validate(stamp)) {
+            return result;
+        }
+        stamp = this.lock.readLock();
+        try {
+            return this.probe(fingerprint, address);
+        } finally {
+            this.lock.unlockRead(stamp);
+        }
+    }
+
+    /**
+     * 乐观读时数组可能正在被修改，只依赖局部变量，探测次数不超过表长；结果在校验通过之后才可信
+     */
+    private int probe(long fingerprint, long[] address) {
+        long[] bloom = this.bloom;
+        int hashFunctions = this.hashFunctions;
+        long[] fingerprints = this.fingerprints;
+        long[] addresses = this.addresses;
+        if (!mightContain(bloom, hashFunctions, fingerprint)) {
+            return BLOOM_REJECTED;
+        }
+        int mask = fingerprints.length - 1;
+        int slot = (int) fingerprint & mask;
+        for (int probes = 0; probes < fingerprints.length; probes++) {
+            long current = fingerprints[slot];
+            if (current == 0) {
+                return ABSENT;
+            }
+            if (current == fingerprint) {
+                int offset = slot * ADDRESS_LONGS;
+                if (offset + ADDRESS_LONGS > addresses.length) {
+                    return ABSENT;
+                }
+                if (address != null) {
+                    System.arraycopy(addresses, offset, address, 0, ADDRESS_LONGS);
+                }
+                return PRESENT;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return ABSENT;
+    }
+
+    /**
+     * @return 是否新增了一个元素
+     */
+    private boolean insert(long fingerprint, long[] address) {
+        int mask = this.fingerprints.length - 1;
+        int slot = (int) fingerprint & mask;
+        while (this.fingerprints[slot] != 0 && this.fingerprints[slot] != fingerprint) {
+            slot = (slot + 1) & mask;
+        }
+        boolean added = this.fingerprints[slot] == 0;
+        System.arraycopy(address, 0, this.addresses, slot * ADDRESS_LONGS, ADDRESS_LONGS);
+        this.fingerprints[slot] = fingerprint;
+        if (added) {
+            setBloom(this.bloom, this.hashFunctions, fingerprint);
+        }
+        return added;
+    }
+
+    /**
+     * 分配新的哈希表和 Bloom Filter，并把已有元素迁移过去
+     */
+    private void allocate(int capacity) {
+        long[] oldFingerprints = this.fingerprints;
+        long[] oldAddresses = this.addresses;
+        int expected = (int) (capacity * LOAD_FACTOR);
+        // m = -n * ln(p) / ln(2)^2，k = m / n * ln(2)
+        long bits = (long) Math.ceil(-expected * Math.log(this.falsePositiveRate) / (Math.log(2) * Math.log(2)));
+        int words = Integer.highestOneBit((int) Math.min(1 << 30, Math.max(1, (bits + 63) / 64)) * 2 - 1);
+        this.bloom = new long[words];
+        this.hashFunctions = (int) Math.max(1, Math.min(MAX_HASH_FUNCTIONS, Math.round((double) words * 64 / expected * Math.log(2))));
+        this.fingerprints = new long[capacity];
+        this.addresses = new long[capacity * ADDRESS_LONGS];
+        this.threshold = expected;
+        if (oldFingerprints == null) {
+            return;
+        }
+        long[] address = new long[ADDRESS_LONGS];
+        for (int slot = 0; slot < oldFingerprints.length; slot++) {
+            if (oldFingerprints[slot] != 0) {
+                System.arraycopy(oldAddresses, slot * ADDRESS_LONGS, address, 0, ADDRESS_LONGS);
+                this.insert(oldFingerprints[slot], address);
+            }
+        }
+    }
+
+    private static boolean mightContain(long[] bloom, int hashFunctions, long fingerprint) {
+        long mask = bloom.length * 64L - 1;
+        int h1 = (int) (fingerprint >>> 32);
+        int h2 = (int) fingerprint | 1;
+        for (int i = 0; i < hashFunctions; i++) {
+            long bit = (h1 + (long) i * h2) & mask;
+            if ((bloom[(int) (bit >>> 6)] & (1L << bit)) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static void setBloom(long[] bloom, int hashFunctions, long fingerprint) {
+        long mask = bloom.length * 64L - 1;
+        int h1 = (int) (fingerprint >>> 32);
+        int h2 = (int) fingerprint | 1;
+        for (int i = 0; i < hashFunctions; i++) {
+            long bit = (h1 + (long) i * h2) & mask;
+            bloom[(int) (bit >>> 6)] |= 1L << bit;
+        }
+    }
+
+    /**
+     * 直接按 UTF-16 字符计算 FNV-1a，再用 MurmurHash3 的 fmix64 打散，不需要先编码成字节数组；0 表示空槽位
+     */
+    private static long fingerprint(String name) {
+        long hash = 0xcbf29ce484222325L;
+        for (int i = 0; i < name.length(); i++) {
+            hash = (hash ^ name.charAt(i)) * 0x100000001b3L;
+        }
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb9fe1a85ec53L;
+        hash ^= hash >>> 33;
+        return hash == 0 ? 1 : hash;
+    }
+
+    private static long[] encodeAddress(String address) {
+        String hex = address.startsWith("0x") ? address.substring(2) : address;
+        if (hex.isEmpty() || hex.length() > ADDRESS_HEX_LENGTH) {
+            throw new IllegalArgumentException("Invalid address: " + address);
+        }
+        StringBuilder padded = new StringBuilder(ADDRESS_HEX_LENGTH);
+        for (int i = hex.length(); i < ADDRESS_HEX_LENGTH; i++) {
+            padded.append('0');
+        }
+        padded.append(hex);
+        long[] encoded = new long[ADDRESS_LONGS];
+        for (int i = 0; i < ADDRESS_LONGS; i++) {
+            encoded[i] = Long.parseUnsignedLong(padded.substring(i * 16, i * 16 + 16), 16);
+        }
+        return encoded;
+    }
+
+    private static String decodeAddress(long[] address) {
+        StringBuilder builder = new StringBuilder(2 + ADDRESS_HEX_LENGTH).append("0x");
+        for (long word : address) {
+            String hex = Long.toHexString(word);
+            for (int i = hex.length(); i < 16; i++) {
+                builder.append('0');
+            }
+            builder.append(hex);
+        }
+        return builder.toString();
+    }
+}
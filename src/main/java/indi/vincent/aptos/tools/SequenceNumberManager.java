@@ -0,0 +1,273 @@
+package indi.vincent.aptos.tools;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Function;
+
+/**
+ * 本地分配交易的 Sequence Number
+ * <p>
+ * 每个地址只在第一次使用时查询一次链上的 Sequence Number，之后在本地递增，
+ * 同一个发送方可以连续提交多笔交易而不需要等待上一笔上链。
+ * 分配出去的 Sequence Number 在提交交易（或放弃提交）后通过 {@link #release(String, long)} 归还。
+ * <p>
+ * 交易因为 Sequence Number 或过期被拒绝时调用 {@link #resync(String)}：已分配的 Sequence Number 全部归还之后才重新查询，
+ * 在此期间的新分配等待查询结果，不会和还没有提交的交易拿到相同的 Sequence Number。
+ * 发送方不再发送交易时调用 {@link #evict(String)}，已分配的 Sequence Number 全部归还后移除本地状态。
+ */
+public class SequenceNumberManager {
+
+    /**
+     * resync 等待已分配的 Sequence Number 归还的最长时间，超时后视为调用方不会再归还
+     */
+    private static final long DRAIN_TIMEOUT_MILLIS = 30000;
+
+    private final Function<String, CompletableFuture<Long>> fetcher;
+    private final ConcurrentMap<String, Sender> senders = new ConcurrentHashMap<>();
+
+    /**
+     * @param fetcher 查询链上 Sequence Number 的方法
+     */
+    public SequenceNumberManager(Function<String, CompletableFuture<Long>> fetcher) {
+        this.fetcher = fetcher;
+    }
+
+    /**
+     * 分配下一个 Sequence Number
+     *
+     * @param address 发送方地址
+     * @return Sequence Number
+     */
+    public long allocate(String address) {
+        return Futures.join(this.allocateAsync(address));
+    }
+
+    /**
+     * 分配下一个 Sequence Number，同一地址的并发首次分配只会查询一次
+     *
+     * @param address 发送方地址
+     * @return Sequence Number，使用后必须调用 {@link #release(String, long)}
+     */
+    public CompletableFuture<Long> allocateAsync(String address) {
+        String key = normalize(address);
+        while (true) {
+            CompletableFuture<Long> sequenceNumber = this.senders.computeIfAbsent(key, Sender::new).allocate();
+            if (sequenceNumber != null) {
+                return sequenceNumber;
+            }
+            // 发送方刚好被移除，重新创建
+        }
+    }
+
+    /**
+     * 归还已分配的 Sequence Number，交易已提交（无论是否被接受）或不再提交时调用
+     *
+     * @param address        发送方地址
+     * @param sequenceNumber {@link #allocateAsync(String)} 分配的 Sequence Number
+     */
+    public void release(String address, long sequenceNumber) {
+        Sender sender = this.senders.get(normalize(address));
+        if (sender != null) {
+            sender.release(sequenceNumber);
+        }
+    }
+
+    /**
+     * 丢弃本地的 Sequence Number，已分配的全部归还后重新从链上查询
+     *
+     * @param address 发送方地址
+     */
+    public void resync(String address) {
+        Sender sender = this.senders.get(normalize(address));
+        if (sender != null) {
+            sender.resync();
+        }
+    }
+
+    /**
+     * 发送方不再发送交易，已分配的全部归还后移除本地状态；之后再次分配时重新查询
+     *
+     * @param address 发送方地址
+     */
+    public void evict(String address) {
+        Sender sender = this.senders.get(normalize(address));
+        if (sender != null) {
+            sender.evict();
+        }
+    }
+
+    /**
+     * @return 保存了本地状态的发送方数量
+     */
+    public int size() {
+        return this.senders.size();
+    }
+
+    /**
+     * 判断交易是否因为 Sequence Number 或过期被拒绝
+     *
+     * @param errorCode 节点返回的错误码
+     * @param message   节点返回的错误信息
+     * @return 是否需要重新同步
+     */
+    public static boolean isSequenceError(String errorCode, String message) {
+        String error = (errorCode + " " + message).toUpperCase();
+        return error.contains("SEQUENCE_NUMBER") || error.contains("TRANSACTION_EXPIRED");
+    }
+
+    private static String normalize(String address) {
+        String hex = address.startsWith("0x") ? address.substring(2) : address;
+        return hex.toLowerCase();
+    }
+
+    /**
+     * 一次链上查询得到的一段连续 Sequence Number
+     */
+    private static final class Generation {
+        private final CompletableFuture<Long> base;
+        private final CompletableFuture<Void> drained = new CompletableFuture<>();
+        private long allocated;
+        private int outstanding;
+
+        private Generation(CompletableFuture<Long> base) {
+            this.base = base;
+        }
+
+        private boolean owns(long sequenceNumber) {
+            if (!this.base.isDone() || this.base.isCompletedExceptionally()) {
+                return false;
+            }
+            long first = this.base.join();
+            return sequenceNumber >= first && sequenceNumber < first + this.allocated;
+        }
+    }
+
+    /**
+     * 单个发送方的状态，所有修改都在 Sender 的锁内完成
+     */
+    private final class Sender {
+        private final String key;
+        /**
+         * 新分配使用的一代，resync 之后为 null，下一次分配时创建
+         */
+        private Generation current;
+        /**
+         * resync 之前的一代，还有已分配的 Sequence Number 没有归还
+         */
+        private Generation draining;
+        private boolean evicting;
+        private boolean removed;
+
+        private Sender(String key) {
+            this.key = key;
+        }
+
+        private synchronized CompletableFuture<Long> allocate() {
+            if (this.removed) {
+                return null;
+            }
+            this.evicting = false;
+            Generation generation = this.current != null ? this.current : this.newGeneration();
+            long offset = generation.allocated++;
+            generation.outstanding++;
+            return generation.base.thenApply(base -> base + offset);
+        }
+
+        private synchronized void release(long sequenceNumber) {
+            Generation generation = this.draining != null && this.draining.owns(sequenceNumber) ? this.draining
+                    : this.current != null && this.current.owns(sequenceNumber) ? this.current
+                    : null;
+            if (generation == null || generation.outstanding == 0) {
+                return;
+            }
+            if (--generation.outstanding == 0) {
+                generation.drained.complete(null);
+                if (generation == this.draining) {
+                    this.draining = null;
+                }
+                this.removeIfIdle();
+            }
+        }
+
+        private synchronized void resync() {
+            Generation generation = this.current;
+            if (generation == null) {
+                return;
+            }
+            this.current = null;
+            if (generation.outstanding > 0 && !generation.base.isCompletedExceptionally()) {
+                // 更早的一代一定已经归还完毕（新一代的查询要等它归还），这里最多保留一代
+                this.draining = generation;
+            }
+            this.removeIfIdle();
+        }
+
+        private synchronized void evict() {
+            this.evicting = true;
+            this.removeIfIdle();
+        }
+
+        /**
+         * 没有未归还的 Sequence Number 时，resync 之后或 evict 之后移除
+         */
+        private void removeIfIdle() {
+            boolean idle = this.draining == null && (this.current == null || this.current.outstanding == 0);
+            if (idle && (this.current == null || this.evicting)) {
+                this.removed = true;
+                SequenceNumberManager.this.senders.remove(this.key, this);
+            }
+        }
+
+        /**
+         * 创建新一代并保存为 current。上一代还有没有归还的 Sequence Number 时，等它们归还（或超时）后才查询，查询失败时这一代作废
+         */
+        private Generation newGeneration() {
+            Generation previous = this.draining;
+            CompletableFuture<Void> ready = previous == null
+                    ? CompletableFuture.completedFuture(null)
+                    : CompletableFuture.anyOf(previous.drained, Futures.delay(DRAIN_TIMEOUT_MILLIS)).thenAccept(ignored -> this.abandon(previous));
+            Generation generation = new Generation(ready.thenCompose(ignored -> this.fetch()));
+            this.current = generation;
+            // 先保存为 current 再监听失败：查询同步失败时回调立即执行，必须能看到这一代已经是 current
+            generation.base.whenComplete((sequenceNumber, error) -> {
+                if (error != null) {
+                    this.failed(generation);
+                }
+            });
+            return generation;
+        }
+
+        private CompletableFuture<Long> fetch() {
+            try {
+                return SequenceNumberManager.this.fetcher.apply(this.key);
+            } catch (RuntimeException e) {
+                return Futures.failed(e);
+            }
+        }
+
+        /**
+         * 超时后不再等待上一代归还
+         */
+        private synchronized void abandon(Generation generation) {
+            if (this.draining == generation) {
+                this.draining = null;
+            }
+        }
+
+        /**
+         * 查询失败的一代没有分配出任何 Sequence Number，不需要归还
+         */
+        private synchronized void failed(Generation generation) {
+            generation.outstanding = 0;
+            generation.drained.complete(null);
+            if (this.current == generation) {
+                this.current = null;
+            }
+            if (this.draining == generation) {
+                this.draining = null;
+            }
+            this.removeIfIdle();
+        }
+    }
+}
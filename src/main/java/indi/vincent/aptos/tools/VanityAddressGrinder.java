@@ -0,0 +1,249 @@
+package indi.vincent.aptos.tools;
+
+import lombok.Value;
+import lombok.extern.slf4j.Slf4j;
+import org.bouncycastle.crypto.digests.SHA3Digest;
+import org.bouncycastle.math.ec.rfc8032.Ed25519;
+
+import java.security.SecureRandom;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 在所有核心上并行搜索地址以指定十六进制前缀开头的账户
+ * <p>
+ * 每个工作任务用自己的 SecureRandom 生成一个起始私钥，之后每次把私钥当作 256 位整数加一。
+ * ED_25519 私钥是 SHA-512 的种子，相邻种子得到的密钥互不相关，起始值保密时和逐个随机生成一样安全。
+ * 内循环复用私钥、公钥、地址数组和 SHA3 摘要，命中时才复制成账户。
+ * BouncyCastle 1.70 的 {@link Ed25519#generatePublicKey} 没有传入摘要的重载，每次调用内部仍会新建
+ * SHA-512 摘要和点运算的临时数组，这些短命对象在 TLAB 中分配，开销远小于标量乘法本身。
+ * <p>
+ * 每检查 {@value #CHECK_INTERVAL} 个密钥汇总一次计数，并检查是否已有任务命中或超过搜索时限。
+ * 前缀每多一个字符，期望尝试次数乘以 16。
+ */
+@Slf4j
+public class VanityAddressGrinder implements AutoCloseable {
+
+    private static final int CHECK_INTERVAL = 256;
+    private static final long REPORT_INTERVAL_NANOS = TimeUnit.SECONDS.toNanos(5);
+
+    private final String prefix;
+    private final byte[] prefixBytes;
+    private final int prefixNibbles;
+    private final long maxSearchNanos;
+    private final ForkJoinPool pool;
+
+    private final LongAdder attempts = new LongAdder();
+    private final LongAdder searchNanos = new LongAdder();
+    private final LongAdder found = new LongAdder();
+    private final LongAdder timeouts = new LongAdder();
+
+    /**
+     * @param prefix          地址前缀，不区分大小写，允许带 0x，为空时不搜索
+     * @param maxSearchMillis 单次搜索的最长时间
+     * @param parallelism     搜索线程数
+     */
+    public VanityAddressGrinder(String prefix, long maxSearchMillis, int parallelism) {
+        String hex = prefix == null ? "" : prefix.trim().toLowerCase();
+        if (hex.startsWith("0x")) {
+            hex = hex.substring(2);
+        }
+        if (hex.length() > 64) {
+            throw new IllegalArgumentException("Address prefix is longer than an address: " + prefix);
+        }
+        this.prefix = hex;
+        this.prefixNibbles = hex.length();
+        this.prefixBytes = AptosCryptoUtil.decodeHex((hex.length() & 1) == 0 ? hex : hex + "0");
+        this.maxSearchNanos = TimeUnit.MILLISECONDS.toNanos(maxSearchMillis);
+        this.pool = new ForkJoinPool(parallelism);
+    }
+
+    /**
+     * @return 去掉 0x 的小写前缀，为空表示不搜索
+     */
+    public String getPrefix() {
+        return this.prefix;
+    }
+
+    public boolean isEnabled() {
+        return this.prefixNibbles > 0;
+    }
+
+    /**
+     * @return 累计尝试的密钥数量
+     */
+    public long getAttempts() {
+        return this.attempts.sum();
+    }
+
+    /**
+     * @return 累计命中次数
+     */
+    public long getFound() {
+        return this.found.sum();
+    }
+
+    /**
+     * @return 累计超时次数
+     */
+    public long getTimeouts() {
+        return this.timeouts.sum();
+    }
+
+    /**
+     * @return 累计的平均搜索速度，单位：个/秒
+     */
+    public double getKeysPerSecond() {
+        long nanos = this.searchNanos.sum();
+        return nanos == 0 ? 0 : this.attempts.sum() * (double) TimeUnit.SECONDS.toNanos(1) / nanos;
+    }
+
+    /**
+     * 搜索一个地址以前缀开头的账户，阻塞调用线程直到命中或超时
+     *
+     * @return 搜索结果，超时时 account 为 null
+     */
+    public Result grind() {
+        Search search = new Search(System.nanoTime());
+        int tasks = this.pool.getParallelism();
+        SearchTask[] workers = new SearchTask[tasks];
+        for (int i = 0; i < tasks; i++) {
+            workers[i] = new SearchTask(search);
+        }
+        this.pool.invoke(new RecursiveAction() {
+            @Override
+            protected void compute() {
+                invokeAll(workers);
+            }
+        });
+        long elapsed = System.nanoTime() - search.start;
+        this.searchNanos.add(elapsed);
+        AptosAccount account = search.result.get();
+        Result result = new Result(account, search.attempts.sum(), elapsed);
+        if (account == null) {
+            this.timeouts.increment();
+            log.warn("{} 毫秒内没有找到前缀为 {} 的地址，尝试了 {} 个密钥，{} 个/秒",
+                    TimeUnit.NANOSECONDS.toMillis(elapsed), this.prefix, result.getAttempts(), (long) result.getKeysPerSecond());
+        } else {
+            this.found.increment();
+            log.info("找到地址 {}，尝试了 {} 个密钥，耗时 {} 毫秒，{} 个/秒",
+                    account.getAddress(), result.getAttempts(), TimeUnit.NANOSECONDS.toMillis(elapsed), (long) result.getKeysPerSecond());
+        }
+        return result;
+    }
+
+    private boolean matches(byte[] address) {
+        int fullBytes = this.prefixNibbles >>> 1;
+        for (int i = 0; i < fullBytes; i++) {
+            if (address[i] != this.prefixBytes[i]) {
+                return false;
+            }
+        }
+        return (this.prefixNibbles & 1) == 0 || ((address[fullBytes] ^ this.prefixBytes[fullBytes]) & 0xF0) == 0;
+    }
+
+    private static void increment(byte[] value) {
+        for (int i = value.length - 1; i >= 0; i--) {
+            if (++value[i] != 0) {
+                return;
+            }
+        }
+    }
+
+    @Override
+    public void close() {
+        this.pool.shutdownNow();
+    }
+
+    /**
+     * 单次搜索的结果
+     */
+    @Value
+    public static class Result {
+        AptosAccount account;
+        long attempts;
+        long elapsedNanos;
+
+        public double getKeysPerSecond() {
+            return this.elapsedNanos == 0 ? 0 : this.attempts * (double) TimeUnit.SECONDS.toNanos(1) / this.elapsedNanos;
+        }
+    }
+
+    /**
+     * 一次搜索中所有任务共享的状态
+     */
+    private class Search {
+        private final long start;
+        private final long deadline;
+        private final AtomicReference<AptosAccount> result = new AtomicReference<>();
+        private final LongAdder attempts = new LongAdder();
+        private final AtomicLong nextReport;
+
+        Search(long start) {
+            this.start = start;
+            this.deadline = start + VanityAddressGrinder.this.maxSearchNanos;
+            this.nextReport = new AtomicLong(start + REPORT_INTERVAL_NANOS);
+        }
+
+        void record(int count) {
+            this.attempts.add(count);
+            VanityAddressGrinder.this.attempts.add(count);
+        }
+
+        boolean done(long now) {
+            return this.result.get() != null || now - this.deadline >= 0;
+        }
+
+        void report(long now) {
+            long next = this.nextReport.get();
+            if (now - next >= 0 && this.nextReport.compareAndSet(next, now + REPORT_INTERVAL_NANOS)) {
+                long attempts = this.attempts.sum();
+                log.info("搜索前缀为 {} 的地址：已尝试 {} 个密钥，{} 个/秒", VanityAddressGrinder.this.prefix, attempts,
+                        (long) (attempts * (double) TimeUnit.SECONDS.toNanos(1) / (now - this.start)));
+            }
+        }
+    }
+
+    private class SearchTask extends RecursiveAction {
+
+        private final Search search;
+
+        SearchTask(Search search) {
+            this.search = search;
+        }
+
+        @Override
+        protected void compute() {
+            byte[] privateKey = new byte[Ed25519.SECRET_KEY_SIZE];
+            byte[] publicKey = new byte[Ed25519.PUBLIC_KEY_SIZE];
+            byte[] address = new byte[32];
+            SHA3Digest digest = new SHA3Digest(256);
+            new SecureRandom().nextBytes(privateKey);
+            while (true) {
+                for (int i = 0; i < CHECK_INTERVAL; i++) {
+                    increment(privateKey);
+                    // 内部每次新建 SHA-512 摘要，1.70 没有复用摘要的接口
+                    Ed25519.generatePublicKey(privateKey, 0, publicKey, 0);
+                    digest.update(publicKey, 0, publicKey.length);
+                    digest.update((byte) 0);
+                    digest.doFinal(address, 0);
+                    if (VanityAddressGrinder.this.matches(address)) {
+                        this.search.record(i + 1);
+                        this.search.result.compareAndSet(null, new AptosAccount(privateKey.clone(), publicKey.clone(), address.clone(), null));
+                        return;
+                    }
+                }
+                this.search.record(CHECK_INTERVAL);
+                long now = System.nanoTime();
+                if (this.search.done(now)) {
+                    return;
+                }
+                this.search.report(now);
+            }
+        }
+    }
+}
@@ -0,0 +1,142 @@
+package indi.vincent.aptos.controller;
+
+import indi.vincent.aptos.service.RegistrationJob;
+import indi.vincent.aptos.service.RegistrationResult;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+public class RegistrationEventStreamTest {
+
+    @Test
+    public void streamTest() {
+        RegistrationJob job = new RegistrationJob("job", 2);
+        RecordingEmitter emitter = new RecordingEmitter();
+        new RegistrationEventStream(job, emitter, Runnable::run, 16).start(0);
+        job.onResult(RegistrationResult.skipped("alice", "0xa1"));
+        job.onResult(RegistrationResult.registered("bob", "0xb1", "0xhash"));
+        Assertions.assertFalse(emitter.completed);
+        job.onComplete();
+
+        Assertions.assertEquals(Arrays.asList("status", "result 1", "result 2", "status"), emitter.events);
+        Assertions.assertTrue(emitter.completed);
+        Assertions.assertNull(emitter.error);
+    }
+
+    @Test
+    public void finishedJobTest() {
+        // 任务已经结束时只推送一次进度
+        RegistrationJob job = new RegistrationJob("job", 0);
+        job.onComplete();
+        RecordingEmitter emitter = new RecordingEmitter();
+        new RegistrationEventStream(job, emitter, Runnable::run, 16).start(0);
+        Assertions.assertEquals(Collections.singletonList("status"), emitter.events);
+        Assertions.assertTrue(emitter.completed);
+    }
+
+    @Test
+    public void replayTest() {
+        // 订阅之前的结果全部回放，回放的结果不占用队列容量
+        RegistrationJob job = new RegistrationJob("job", 5);
+        job.onResult(RegistrationResult.skipped("alice", "0xa1"));
+        job.onResult(RegistrationResult.skipped("bob", "0xb1"));
+        job.onResult(RegistrationResult.skipped("carol", "0xc1"));
+        RecordingEmitter emitter = new RecordingEmitter();
+        List<Runnable> drains = new ArrayList<>();
+        new RegistrationEventStream(job, emitter, drains::add, 2).start(0);
+        job.onResult(RegistrationResult.skipped("dave", "0xd1"));
+        Assertions.assertNull(emitter.error);
+        drains.remove(0).run();
+        Assertions.assertEquals(Arrays.asList("status", "result 1", "result 2", "result 3", "result 4"), emitter.events);
+
+        // 断线重连时只回放 Last-Event-ID 之后的结果
+        RecordingEmitter reconnected = new RecordingEmitter();
+        new RegistrationEventStream(job, reconnected, Runnable::run, 16).start(2);
+        job.onResult(RegistrationResult.skipped("eve", "0xe1"));
+        job.onComplete();
+        Assertions.assertEquals(Arrays.asList("status", "result 3", "result 4", "result 5", "status"), reconnected.events);
+        Assertions.assertTrue(reconnected.completed);
+    }
+
+    @Test
+    public void overflowTest() {
+        // 写出任务还没有执行，队列满后断开客户端，之后的结果不再入队
+        RegistrationJob job = new RegistrationJob("job", 4);
+        RecordingEmitter emitter = new RecordingEmitter();
+        List<Runnable> drains = new ArrayList<>();
+        new RegistrationEventStream(job, emitter, drains::add, 2).start(0);
+        job.onResult(RegistrationResult.skipped("alice", "0xa1"));
+        Assertions.assertNull(emitter.error);
+        job.onResult(RegistrationResult.skipped("bob", "0xb1"));
+        Assertions.assertTrue(emitter.error instanceof IllegalStateException);
+        job.onResult(RegistrationResult.skipped("carol", "0xc1"));
+        job.onComplete();
+
+        Assertions.assertEquals(1, drains.size());
+        drains.get(0).run();
+        Assertions.assertTrue(emitter.events.isEmpty());
+        Assertions.assertFalse(emitter.completed);
+    }
+
+    @Test
+    public void disconnectTest() {
+        // 客户端断开后取消订阅
+        RegistrationJob job = new RegistrationJob("job", 2);
+        RecordingEmitter emitter = new RecordingEmitter();
+        emitter.disconnected = true;
+        List<Runnable> drains = new ArrayList<>();
+        new RegistrationEventStream(job, emitter, drains::add, 16).start(0);
+        drains.remove(0).run();
+        job.onResult(RegistrationResult.skipped("alice", "0xa1"));
+        job.onComplete();
+        Assertions.assertTrue(drains.isEmpty());
+        Assertions.assertTrue(emitter.events.isEmpty());
+    }
+
+    private static class RecordingEmitter extends SseEmitter {
+        private final List<String> events = new ArrayList<>();
+        private boolean disconnected;
+        private boolean completed;
+        private Throwable error;
+
+        RecordingEmitter() {
+            super(0L);
+        }
+
+        @Override
+        public void send(SseEventBuilder builder) {
+            if (this.disconnected) {
+                throw new IllegalStateException("Disconnected");
+            }
+            // 记录为 "事件名" 或 "事件名 id"
+            String id = null;
+            String name = null;
+            for (ResponseBodyEmitter.DataWithMediaType data : builder.build()) {
+                for (String line : data.getData().toString().split("\n")) {
+                    if (line.startsWith("id:")) {
+                        id = line.substring("id:".length());
+                    } else if (line.startsWith("event:")) {
+                        name = line.substring("event:".length());
+                    }
+                }
+            }
+            this.events.add(id == null ? name : name + " " + id);
+        }
+
+        @Override
+        public synchronized void complete() {
+            this.completed = true;
+        }
+
+        @Override
+        public synchronized void completeWithError(Throwable ex) {
+            this.error = ex;
+        }
+    }
+}
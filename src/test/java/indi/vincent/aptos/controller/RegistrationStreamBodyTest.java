@@ -0,0 +1,116 @@
+package indi.vincent.aptos.controller;
+
+import cn.hutool.json.JSONObject;
+import cn.hutool.json.JSONUtil;
+import indi.vincent.aptos.service.RegistrationListener;
+import indi.vincent.aptos.service.RegistrationResult;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class RegistrationStreamBodyTest {
+
+    @Test
+    public void parseTest() {
+        Assertions.assertNull(RegistrationStreamBody.parse(""));
+        Assertions.assertNull(RegistrationStreamBody.parse(" \t"));
+        Assertions.assertEquals("alice", RegistrationStreamBody.parse("alice\r"));
+        Assertions.assertEquals("bob", RegistrationStreamBody.parse(" \"bob\" "));
+        Assertions.assertEquals("carol", RegistrationStreamBody.parse("{\"name\":\"carol\"}"));
+        Assertions.assertNull(RegistrationStreamBody.parse("{\"address\":\"0x1\"}"));
+        Assertions.assertThrows(RuntimeException.class, () -> RegistrationStreamBody.parse("{\"name\":"));
+    }
+
+    @Test
+    public void writeToTest() throws Exception {
+        // CRLF 换行和空行，非法的行直接写出失败结果，批次内去重
+        String body = "alice\r\n\r\n\"bob\"\r\n{\"name\":\"alice\"}\r\n{bad\r\n";
+        List<List<String>> batches = new ArrayList<>();
+        RegistrationStreamBody streamBody = new RegistrationStreamBody((names, listener) -> {
+            batches.add(names);
+            names.forEach(name -> listener.onResult(RegistrationResult.skipped(name, "0x1")));
+        }, new ByteArrayInputStream(body.getBytes(StandardCharsets.UTF_8)), 16, 16);
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        streamBody.writeTo(output);
+
+        Assertions.assertEquals(Arrays.asList(Arrays.asList("alice", "bob")), batches);
+        List<JSONObject> results = new ArrayList<>();
+        for (String line : new String(output.toByteArray(), StandardCharsets.UTF_8).split("\n")) {
+            results.add(JSONUtil.parseObj(line));
+        }
+        Assertions.assertEquals(3, results.size());
+        Assertions.assertEquals("{bad", results.get(0).getStr("name"));
+        Assertions.assertEquals("alice", results.get(1).getStr("name"));
+        Assertions.assertEquals("bob", results.get(2).getStr("name"));
+    }
+
+    @Test
+    public void backpressureTest() throws Exception {
+        StringBuilder body = new StringBuilder();
+        for (int i = 0; i < 10; i++) {
+            body.append("name").append(i).append('\n');
+        }
+        List<RegistrationListener> listeners = new ArrayList<>();
+        List<String> dispatched = new ArrayList<>();
+        AtomicInteger maxOutstanding = new AtomicInteger();
+        AtomicInteger completed = new AtomicInteger();
+        RegistrationStreamBody streamBody = new RegistrationStreamBody((names, listener) -> {
+            synchronized (dispatched) {
+                dispatched.addAll(names);
+                listeners.addAll(Collections.nCopies(names.size(), listener));
+                maxOutstanding.accumulateAndGet(dispatched.size() - completed.get(), Math::max);
+                dispatched.notifyAll();
+            }
+        }, new ByteArrayInputStream(body.toString().getBytes(StandardCharsets.UTF_8)), 1, 3);
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        CompletableFuture<Void> writing = CompletableFuture.runAsync(() -> {
+            try {
+                streamBody.writeTo(output);
+            } catch (Exception e) {
+                throw new IllegalStateException(e);
+            }
+        });
+
+        // 处理中的 Name 达到 maxInFlight 后停止读取，直到有结果写出
+        this.awaitDispatched(dispatched, 3);
+        Thread.sleep(200);
+        synchronized (dispatched) {
+            Assertions.assertEquals(3, dispatched.size());
+        }
+        for (int i = 0; i < 10; i++) {
+            this.awaitDispatched(dispatched, i + 1);
+            RegistrationListener listener;
+            String name;
+            synchronized (dispatched) {
+                listener = listeners.get(i);
+                name = dispatched.get(i);
+                completed.incrementAndGet();
+            }
+            listener.onResult(RegistrationResult.skipped(name, "0x1"));
+        }
+        writing.get(10, TimeUnit.SECONDS);
+
+        Assertions.assertEquals(3, maxOutstanding.get());
+        Assertions.assertEquals(10, new String(output.toByteArray(), StandardCharsets.UTF_8).split("\n").length);
+    }
+
+    private void awaitDispatched(List<String> dispatched, int count) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        synchronized (dispatched) {
+            while (dispatched.size() < count && System.currentTimeMillis() < deadline) {
+                dispatched.wait(100);
+            }
+            Assertions.assertTrue(dispatched.size() >= count, "only " + dispatched.size() + " names dispatched");
+        }
+    }
+}
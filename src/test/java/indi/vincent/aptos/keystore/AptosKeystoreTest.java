@@ -0,0 +1,132 @@
+package indi.vincent.aptos.keystore;
+
+import cn.hutool.json.JSONUtil;
+import indi.vincent.aptos.tools.AptosAccount;
+import indi.vincent.aptos.tools.AptosCryptoUtil;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+public class AptosKeystoreTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    public void appendAndReopenTest() throws Exception {
+        Path logDirectory = directory.resolve("log");
+        List<AptosAccount> accounts = new ArrayList<>();
+        try (AptosKeystore keystore = new AptosKeystore(logDirectory, 2048)) {
+            List<CompletableFuture<AptosAccount>> futures = new ArrayList<>();
+            for (int i = 0; i < 50; i++) {
+                AptosAccount account = randomAccount("name-" + i);
+                accounts.add(account);
+                futures.add(keystore.append(account));
+            }
+            CompletableFuture.allOf(futures.toArray(new CompletableFuture[0])).join();
+            Assertions.assertEquals(50, keystore.size());
+            Assertions.assertEquals(accounts.get(3), keystore.findByName("name-3"));
+        }
+        try (Stream<Path> segments = Files.list(logDirectory)) {
+            Assertions.assertTrue(segments.count() > 1, "records should span several segments");
+        }
+
+        try (AptosKeystore keystore = new AptosKeystore(logDirectory, 2048)) {
+            Assertions.assertEquals(50, keystore.size());
+            for (AptosAccount account : accounts) {
+                Assertions.assertEquals(account, keystore.findByAddress(account.getAddress().toUpperCase()));
+                Assertions.assertEquals(account, keystore.findByName(account.getName()));
+            }
+            Assertions.assertNull(keystore.findByName("unknown"));
+        }
+    }
+
+    @Test
+    public void truncatedTailTest() throws Exception {
+        Path logDirectory = directory.resolve("log");
+        AptosAccount first = randomAccount("first");
+        try (AptosKeystore keystore = new AptosKeystore(logDirectory, 1 << 20)) {
+            keystore.append(first).join();
+        }
+        Path segment;
+        try (Stream<Path> segments = Files.list(logDirectory)) {
+            segment = segments.collect(Collectors.toList()).get(0);
+        }
+        Files.write(segment, new byte[]{0, 0, 1, 0, 1, 2}, StandardOpenOption.APPEND);
+
+        try (AptosKeystore keystore = new AptosKeystore(logDirectory, 1 << 20)) {
+            Assertions.assertEquals(1, keystore.size());
+            AptosAccount second = randomAccount("second");
+            keystore.append(second).join();
+            Assertions.assertEquals(second, keystore.findByName("second"));
+        }
+        try (AptosKeystore keystore = new AptosKeystore(logDirectory, 1 << 20)) {
+            Assertions.assertEquals(2, keystore.size());
+            Assertions.assertEquals(first, keystore.findByName("first"));
+        }
+    }
+
+    @Test
+    public void zeroFilledTailTest() throws Exception {
+        Path logDirectory = directory.resolve("log");
+        AptosAccount first = randomAccount("first");
+        try (AptosKeystore keystore = new AptosKeystore(logDirectory, 1 << 20)) {
+            keystore.append(first).join();
+        }
+        Path segment;
+        try (Stream<Path> segments = Files.list(logDirectory)) {
+            segment = segments.collect(Collectors.toList()).get(0);
+        }
+        // 预分配或写了一半的零字节不是一串空记录
+        Files.write(segment, new byte[64], StandardOpenOption.APPEND);
+
+        try (AptosKeystore keystore = new AptosKeystore(logDirectory, 1 << 20)) {
+            Assertions.assertEquals(1, keystore.size());
+            keystore.append(randomAccount("second")).join();
+        }
+        try (AptosKeystore keystore = new AptosKeystore(logDirectory, 1 << 20)) {
+            Assertions.assertEquals(2, keystore.size());
+            Assertions.assertEquals(first, keystore.findByName("first"));
+        }
+        try (GroupCommitLog log = new GroupCommitLog(directory.resolve("empty"), "empty", 1 << 20, (position, payload, length) -> {
+        })) {
+            Assertions.assertThrows(IllegalArgumentException.class, () -> log.append(new byte[0]));
+        }
+    }
+
+    @Test
+    public void migrateTest() throws Exception {
+        List<AptosAccount> accounts = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            AptosAccount account = randomAccount("legacy-" + i);
+            accounts.add(account);
+            Files.write(directory.resolve(account.getAddress().toUpperCase() + ".JSON"),
+                    JSONUtil.toJsonStr(account).getBytes(StandardCharsets.UTF_8));
+        }
+        Path logDirectory = directory.resolve("log");
+        try (AptosKeystore keystore = new AptosKeystore(logDirectory, 1 << 20)) {
+            Assertions.assertEquals(5, KeystoreMigrator.migrateOnce(directory, logDirectory, keystore));
+            Assertions.assertEquals(0, KeystoreMigrator.migrateOnce(directory, logDirectory, keystore));
+            Assertions.assertEquals(0, KeystoreMigrator.migrate(directory, keystore));
+            for (AptosAccount account : accounts) {
+                Assertions.assertEquals(account, keystore.findByName(account.getName()));
+            }
+        }
+    }
+
+    private static AptosAccount randomAccount(String name) {
+        byte[] privateKeyBytes = AptosCryptoUtil.randomPrivateKey();
+        byte[] publicKeyBytes = AptosCryptoUtil.createPublicKey(privateKeyBytes);
+        return new AptosAccount(privateKeyBytes, publicKeyBytes, AptosCryptoUtil.createAddress(publicKeyBytes), name);
+    }
+}
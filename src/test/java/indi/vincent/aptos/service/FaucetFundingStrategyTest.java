@@ -0,0 +1,82 @@
+package indi.vincent.aptos.service;
+
+import cn.hutool.core.util.HexUtil;
+import indi.vincent.aptos.simulator.AptosSimulator;
+import indi.vincent.aptos.simulator.Latency;
+import indi.vincent.aptos.tools.AptosAccount;
+import indi.vincent.aptos.tools.AptosClient;
+import indi.vincent.aptos.tools.AptosCryptoUtil;
+import indi.vincent.aptos.tools.AptosFaucetClient;
+import indi.vincent.aptos.tools.GasEstimator;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+
+public class FaucetFundingStrategyTest {
+
+    private static final String FUNCTION = "0x1::service::claim_name";
+
+    private AptosSimulator simulator;
+    private FaucetFundingStrategy strategy;
+
+    @BeforeEach
+    public void setUp() throws IOException {
+        this.simulator = new AptosSimulator();
+        this.strategy = new FaucetFundingStrategy(new AptosClient(this.simulator.getUrl()),
+                new AptosFaucetClient(this.simulator.getUrl()), FundingAmount.fixed(10000));
+    }
+
+    @AfterEach
+    public void tearDown() {
+        this.simulator.close();
+    }
+
+    @Test
+    public void fundTest() {
+        AptosAccount account = newAccount();
+        this.strategy.fund(account).join();
+        Assertions.assertEquals(10000, this.simulator.getBalance(account.getAddress()));
+        Assertions.assertEquals(1, this.simulator.getRequests(AptosSimulator.Service.FAUCET));
+
+        // 水龙头请求本身不重试，确认账户不存在后才重新领取
+        this.simulator.configure(AptosSimulator.Service.FAUCET, Latency.NONE, 1, 0);
+        AptosAccount failed = newAccount();
+        Assertions.assertThrows(CompletionException.class, () -> this.strategy.fund(failed).join());
+        Assertions.assertEquals(4, this.simulator.getRequests(AptosSimulator.Service.FAUCET));
+        Assertions.assertEquals(0, this.simulator.getBalance(failed.getAddress()));
+    }
+
+    @Test
+    public void maxTransactionFeeTest() {
+        // Gas 单价 10 时 2000 * 10 的最大手续费超过配置的 10000，按手续费的 1.2 倍领取
+        this.simulator.gasUnitPrice(10);
+        AptosClient aptosClient = new AptosClient(this.simulator.getUrl());
+        aptosClient.setGasEstimator(new GasEstimator(aptosClient, TimeUnit.MINUTES.toMillis(1), 0.5, 1, 2000));
+        FaucetFundingStrategy strategy = new FaucetFundingStrategy(aptosClient, new AptosFaucetClient(this.simulator.getUrl()),
+                new FundingAmount(aptosClient, FUNCTION, 10000, 0.2));
+        AptosAccount account = newAccount();
+        strategy.fund(account).join();
+        Assertions.assertEquals(24000, this.simulator.getBalance(account.getAddress()));
+
+        // 模拟和注册交易都按 max_gas_amount * gas_unit_price 校验余额
+        AptosClient.TransactionPayload payload = new AptosClient.TransactionPayload();
+        payload.setType("script_function_payload");
+        payload.setFunction(FUNCTION);
+        payload.setArguments(Collections.singletonList(HexUtil.encodeHexStr("alice".getBytes(StandardCharsets.UTF_8))));
+        AptosClient.SubmitTransactionParam transaction = aptosClient.createSignedTransactionAsync(account, payload).join();
+        Assertions.assertNotNull(aptosClient.invokeSubmitTransactionAsync(transaction).join().getHash());
+    }
+
+    private static AptosAccount newAccount() {
+        byte[] privateKey = AptosCryptoUtil.randomPrivateKey();
+        byte[] publicKey = AptosCryptoUtil.createPublicKey(privateKey);
+        return new AptosAccount(privateKey, publicKey, AptosCryptoUtil.createAddress(publicKey), "alice");
+    }
+}
@@ -0,0 +1,161 @@
+package indi.vincent.aptos.service;
+
+import indi.vincent.aptos.config.PipelineProperties;
+import indi.vincent.aptos.keystore.AptosKeystore;
+import indi.vincent.aptos.simulator.AptosSimulator;
+import indi.vincent.aptos.simulator.Latency;
+import indi.vincent.aptos.tools.AptosClient;
+import indi.vincent.aptos.tools.AptosEndpointPool;
+import indi.vincent.aptos.tools.AptosFaucetClient;
+import indi.vincent.aptos.tools.AptosHttpClients;
+import indi.vincent.aptos.tools.AptosKeyPairPool;
+import indi.vincent.aptos.tools.AptosNameResolver;
+import indi.vincent.aptos.tools.ConfirmationTracker;
+import indi.vincent.aptos.tools.RegisteredNameIndex;
+import indi.vincent.aptos.tools.VanityAddressGrinder;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import okhttp3.OkHttpClient;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+public class RegistrationJobServiceTest {
+
+    private static final String FUNCTION = "0x1::service::claim_name";
+
+    @TempDir
+    Path directory;
+
+    private AptosSimulator simulator;
+    private AptosClient aptosClient;
+    private AptosFaucetClient faucetClient;
+    private AptosKeystore keystore;
+    private AptosKeyPairPool keyPairPool;
+    private ConfirmationTracker confirmationTracker;
+    private RegistrationJournal journal;
+    private RegistrationPipeline pipeline;
+    private RegistrationJobService service;
+
+    @BeforeEach
+    public void setUp() throws IOException {
+        // aptosnames 查询很慢，流水线很快被占满
+        this.simulator = new AptosSimulator().configure(AptosSimulator.Service.NAMES, Latency.fixed(100), 0, 0);
+        OkHttpClient httpClient = AptosHttpClients.shared();
+        this.aptosClient = new AptosClient(AptosEndpointPool.of(httpClient, this.simulator.getUrl()),
+                AptosEndpointPool.of(httpClient, this.simulator.getUrl()));
+        this.faucetClient = new AptosFaucetClient(this.simulator.getUrl(), httpClient);
+        this.keystore = new AptosKeystore(this.directory.resolve("keystore"), 1 << 20);
+        this.keyPairPool = new AptosKeyPairPool(64, 16, 1);
+        this.confirmationTracker = new ConfirmationTracker(this.aptosClient, 16, 20, 100, 0);
+    }
+
+    @AfterEach
+    public void tearDown() {
+        this.service.destroy();
+        this.pipeline.destroy();
+        this.confirmationTracker.close();
+        this.journal.close();
+        this.keyPairPool.close();
+        this.keystore.close();
+        this.simulator.close();
+    }
+
+    @Test
+    public void submitTest() throws InterruptedException {
+        this.start(new RegistrationJournal(this.directory.resolve("journal"), 1 << 20));
+        List<String> names = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            names.add("job" + i);
+        }
+        // 同时只能处理 8 个 Name，在请求线程上分派至少需要 12 轮 aptosnames 查询
+        long start = System.nanoTime();
+        RegistrationJob job = this.service.submit(names);
+        long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        Assertions.assertTrue(elapsedMillis < 500, "submit blocked for " + elapsedMillis + " ms");
+        Assertions.assertSame(job, this.service.find(job.getId()));
+
+        await(job);
+        RegistrationJob.Status status = job.status();
+        Assertions.assertTrue(status.isFinished());
+        Assertions.assertEquals(100, status.getTotal());
+        Assertions.assertEquals(100, status.getRegistered());
+        Assertions.assertEquals(100, this.simulator.getRegisteredNames());
+    }
+
+    @Test
+    public void queueCapacityTest() throws InterruptedException {
+        this.start(new RegistrationJournal(this.directory.resolve("journal"), 1 << 20));
+        List<String> names = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            names.add("running" + i);
+        }
+        // 唯一的后台线程在分派第一个任务，第二个任务等待，队列只能容纳一个任务
+        RegistrationJob running = this.service.submit(names);
+        RegistrationJob queued = this.service.submit(Collections.singletonList("queued"));
+        Assertions.assertThrows(RejectedExecutionException.class, () -> this.service.submit(Collections.singletonList("rejected")));
+
+        await(running);
+        await(queued);
+        Assertions.assertEquals(20, running.status().getRegistered());
+        Assertions.assertEquals(1, queued.status().getRegistered());
+        Assertions.assertNull(this.simulator.getRegisteredAddress("rejected"));
+    }
+
+    @Test
+    public void resumeTest() throws InterruptedException {
+        try (RegistrationJournal previous = new RegistrationJournal(this.directory.resolve("journal"), 1 << 20)) {
+            previous.accepted(Arrays.asList("alice", "bob"));
+        }
+        this.start(new RegistrationJournal(this.directory.resolve("journal"), 1 << 20));
+
+        RegistrationJob job = this.service.resume();
+        Assertions.assertNotNull(job);
+        await(job);
+        Assertions.assertEquals(2, job.status().getRegistered());
+        Assertions.assertNotNull(this.simulator.getRegisteredAddress("alice"));
+        Assertions.assertNotNull(this.simulator.getRegisteredAddress("bob"));
+    }
+
+    private void start(RegistrationJournal journal) {
+        this.journal = journal;
+        PipelineProperties properties = new PipelineProperties();
+        properties.setLookupBatchSize(4);
+        properties.setMaxInFlight(8);
+        // 队列刚好容纳准入许可允许的任务数，运行中不会被拒绝
+        properties.setLookup(new PipelineProperties.Stage(2, 6));
+        properties.setKeygen(new PipelineProperties.Stage(2, 6));
+        properties.setFund(new PipelineProperties.Stage(2, 6));
+        properties.setSign(new PipelineProperties.Stage(2, 6));
+        properties.setSubmit(new PipelineProperties.Stage(2, 6));
+        this.pipeline = new RegistrationPipeline(this.aptosClient, new FaucetFundingStrategy(this.aptosClient, this.faucetClient, FundingAmount.fixed(10000)),
+                new AptosNameResolver(this.aptosClient, 1000, TimeUnit.HOURS.toMillis(1), TimeUnit.MINUTES.toMillis(1)),
+                new RegisteredNameIndex(1000, 0.01), this.keyPairPool, this.keystore, this.confirmationTracker, journal,
+                new VanityAddressGrinder("", 0, 1), properties, new SimpleMeterRegistry(), FUNCTION);
+        this.service = new RegistrationJobService(this.pipeline, journal, true, 16, 1, 1, 10000);
+    }
+
+    private static void await(RegistrationJob job) throws InterruptedException {
+        CountDownLatch completed = new CountDownLatch(1);
+        boolean subscribed = job.subscribe(new RegistrationListener() {
+            @Override
+            public void onComplete() {
+                completed.countDown();
+            }
+        });
+        if (subscribed) {
+            Assertions.assertTrue(completed.await(1, TimeUnit.MINUTES));
+        }
+    }
+}
@@ -0,0 +1,101 @@
+package indi.vincent.aptos.service;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+public class RegistrationJobTest {
+
+    @Test
+    public void statusTest() {
+        RegistrationJob job = new RegistrationJob("job", 3);
+        job.onStage("alice", RegistrationStage.LOOKUP);
+        job.onStage("bob", RegistrationStage.LOOKUP);
+        job.onStage("carol", RegistrationStage.LOOKUP);
+        job.onStage("bob", RegistrationStage.KEYGEN);
+        job.onResult(RegistrationResult.skipped("alice", "0xa1"));
+        job.onResult(RegistrationResult.registered("bob", "0xb1", "0xhash"));
+        Assertions.assertFalse(job.status().isFinished());
+        job.onResult(RegistrationResult.failed("carol", null, null, "error"));
+        job.onComplete();
+
+        RegistrationJob.Status status = job.status();
+        Assertions.assertEquals(3, (long) status.getStages().get(RegistrationStage.LOOKUP));
+        Assertions.assertEquals(1, (long) status.getStages().get(RegistrationStage.KEYGEN));
+        Assertions.assertEquals(0, (long) status.getStages().get(RegistrationStage.SUBMIT));
+        Assertions.assertEquals(1, status.getSkipped());
+        Assertions.assertEquals(1, status.getRegistered());
+        Assertions.assertEquals(1, status.getFailed());
+        Assertions.assertTrue(status.isFinished());
+        Assertions.assertNotNull(status.getFinishedAt());
+    }
+
+    @Test
+    public void subscribeTest() {
+        RegistrationJob job = new RegistrationJob("job", 2);
+        List<String> events = new ArrayList<>();
+        RegistrationListener subscriber = new RegistrationListener() {
+            @Override
+            public void onResult(RegistrationResult result) {
+                events.add(result.getName());
+            }
+
+            @Override
+            public void onComplete() {
+                events.add("complete");
+            }
+        };
+        RegistrationListener unsubscribed = new RegistrationListener() {
+            @Override
+            public void onResult(RegistrationResult result) {
+                events.add("unsubscribed " + result.getName());
+            }
+        };
+        Assertions.assertTrue(job.subscribe(subscriber));
+        Assertions.assertTrue(job.subscribe(unsubscribed));
+        job.unsubscribe(unsubscribed);
+
+        job.onResult(RegistrationResult.skipped("alice", "0xa1"));
+        job.onResult(RegistrationResult.skipped("bob", "0xb1"));
+        job.onComplete();
+        Assertions.assertEquals(Arrays.asList("alice", "bob", "complete"), events);
+
+        // 任务结束后订阅失败，订阅者不会再收到回调
+        Assertions.assertFalse(job.subscribe(subscriber));
+        job.onComplete();
+        Assertions.assertEquals(3, events.size());
+    }
+
+    @Test
+    public void replayTest() {
+        // 只保留最近 2 个结果
+        RegistrationJob job = new RegistrationJob("job", 4, 2);
+        List<String> events = new ArrayList<>();
+        RegistrationListener subscriber = new RegistrationListener() {
+            @Override
+            public void onResult(long sequence, RegistrationResult result) {
+                events.add(sequence + " " + result.getName());
+            }
+        };
+        job.onResult(RegistrationResult.skipped("alice", "0xa1"));
+        job.onResult(RegistrationResult.skipped("bob", "0xb1"));
+        job.onResult(RegistrationResult.skipped("carol", "0xc1"));
+        Assertions.assertEquals(3, job.getLastSequence());
+
+        Assertions.assertTrue(job.subscribe(subscriber, 0));
+        Assertions.assertEquals(Arrays.asList("2 bob", "3 carol"), events);
+        job.onResult(RegistrationResult.skipped("dave", "0xd1"));
+        Assertions.assertEquals(Arrays.asList("2 bob", "3 carol", "4 dave"), events);
+        job.unsubscribe(subscriber);
+        job.onComplete();
+
+        // 任务结束后仍然可以从某个序号之后回放
+        events.clear();
+        Assertions.assertFalse(job.subscribe(subscriber, 3));
+        Assertions.assertEquals(Collections.singletonList("4 dave"), events);
+    }
+}
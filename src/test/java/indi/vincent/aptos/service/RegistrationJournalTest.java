@@ -0,0 +1,132 @@
+package indi.vincent.aptos.service;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Stream;
+
+public class RegistrationJournalTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    public void replayTest() {
+        try (RegistrationJournal journal = new RegistrationJournal(directory, 1024)) {
+            Assertions.assertTrue(journal.getUnfinished().isEmpty());
+            journal.accepted(Arrays.asList("alice", "bob", "carol", "dave"));
+            journal.stored("alice", "0xa1");
+            journal.funded("alice", "0xa1");
+            journal.stored("bob", "0xb1");
+            journal.stored("carol", "0xc1");
+            journal.funded("carol", "0xc1");
+            journal.submitted("carol", "0xc1", "0xhash", 1660000000L);
+            journal.finished("dave");
+        }
+
+        try (RegistrationJournal journal = new RegistrationJournal(directory, 1024)) {
+            List<RegistrationJournal.Checkpoint> unfinished = journal.getUnfinished();
+            Assertions.assertEquals(Arrays.asList(
+                    new RegistrationJournal.Checkpoint("alice", RegistrationJournal.Stage.FUNDED, "0xa1", null, 0),
+                    new RegistrationJournal.Checkpoint("bob", RegistrationJournal.Stage.STORED, "0xb1", null, 0),
+                    new RegistrationJournal.Checkpoint("carol", RegistrationJournal.Stage.SUBMITTED, "0xc1", "0xhash", 1660000000L)
+            ), unfinished);
+            unfinished.forEach(checkpoint -> journal.finished(checkpoint.getName()));
+            Assertions.assertEquals(0, journal.getAppendErrors());
+        }
+
+        try (RegistrationJournal journal = new RegistrationJournal(directory, 1024)) {
+            Assertions.assertTrue(journal.getUnfinished().isEmpty());
+        }
+    }
+
+    @Test
+    public void registeredTest() throws Exception {
+        try (RegistrationJournal journal = new RegistrationJournal(directory, 256)) {
+            journal.accepted(Arrays.asList("alice", "bob"));
+            journal.submitted("alice", "0xa1", "0xhash", 1660000000L);
+            journal.registered("alice", "0xa1");
+            journal.finished("bob");
+            for (int i = 0; i < 100; i++) {
+                journal.accepted(Arrays.asList("name-" + i));
+                journal.finished("name-" + i);
+            }
+        }
+
+        // 已注册的 Name 在压缩后仍然保留，失败的 Name 不保留
+        for (int i = 0; i < 2; i++) {
+            try (RegistrationJournal journal = new RegistrationJournal(directory, 256)) {
+                Assertions.assertTrue(journal.getUnfinished().isEmpty());
+                Assertions.assertEquals(Collections.singletonMap("alice", "0xa1"), journal.getRegistered());
+            }
+        }
+        try (Stream<Path> segments = Files.list(directory)) {
+            Assertions.assertEquals(1, segments.count(), "journal should be compacted into one segment");
+        }
+
+        // 已注册的 Name 重新开始处理时仍然是未完成
+        try (RegistrationJournal journal = new RegistrationJournal(directory, 256)) {
+            journal.accepted(Collections.singletonList("alice"));
+        }
+        for (int i = 0; i < 2; i++) {
+            try (RegistrationJournal journal = new RegistrationJournal(directory, 256)) {
+                Assertions.assertEquals(Collections.singletonList(
+                        new RegistrationJournal.Checkpoint("alice", RegistrationJournal.Stage.ACCEPTED, null, null, 0)), journal.getUnfinished());
+                Assertions.assertEquals(Collections.singletonMap("alice", "0xa1"), journal.getRegistered());
+            }
+        }
+    }
+
+    @Test
+    public void clearTest() throws Exception {
+        try (RegistrationJournal journal = new RegistrationJournal(directory, 256)) {
+            for (int i = 0; i < 100; i++) {
+                journal.accepted(Arrays.asList("name-" + i));
+                journal.finished("name-" + i);
+            }
+        }
+        try (Stream<Path> segments = Files.list(directory)) {
+            Assertions.assertTrue(segments.count() > 1, "records should span several segments");
+        }
+
+        try (RegistrationJournal journal = new RegistrationJournal(directory, 256)) {
+            Assertions.assertTrue(journal.getUnfinished().isEmpty());
+        }
+        try (Stream<Path> segments = Files.list(directory)) {
+            Assertions.assertEquals(1, segments.count(), "finished journal should be cleared");
+        }
+    }
+
+    @Test
+    public void compactTest() throws Exception {
+        String escaped = "tab\tnew\nline\\";
+        try (RegistrationJournal journal = new RegistrationJournal(directory, 256)) {
+            journal.accepted(Arrays.asList("alice", escaped));
+            journal.stored(escaped, "0xe1");
+            for (int i = 0; i < 100; i++) {
+                journal.accepted(Arrays.asList("name-" + i));
+                journal.finished("name-" + i);
+            }
+        }
+
+        // 有未完成的 Name 时同样压缩，旧分段全部删除
+        List<RegistrationJournal.Checkpoint> expected = Arrays.asList(
+                new RegistrationJournal.Checkpoint("alice", RegistrationJournal.Stage.ACCEPTED, null, null, 0),
+                new RegistrationJournal.Checkpoint(escaped, RegistrationJournal.Stage.STORED, "0xe1", null, 0));
+        try (RegistrationJournal journal = new RegistrationJournal(directory, 256)) {
+            Assertions.assertEquals(expected, journal.getUnfinished());
+        }
+        try (Stream<Path> segments = Files.list(directory)) {
+            Assertions.assertEquals(1, segments.count(), "journal should be compacted into one segment");
+        }
+        try (RegistrationJournal journal = new RegistrationJournal(directory, 256)) {
+            Assertions.assertEquals(expected, journal.getUnfinished());
+        }
+    }
+}
@@ -0,0 +1,119 @@
+package indi.vincent.aptos.service;
+
+import indi.vincent.aptos.config.PipelineProperties;
+import indi.vincent.aptos.keystore.AptosKeystore;
+import indi.vincent.aptos.simulator.AptosSimulator;
+import indi.vincent.aptos.simulator.Latency;
+import indi.vincent.aptos.tools.AptosClient;
+import indi.vincent.aptos.tools.AptosEndpointPool;
+import indi.vincent.aptos.tools.AptosFaucetClient;
+import indi.vincent.aptos.tools.AptosHttpClients;
+import indi.vincent.aptos.tools.AptosKeyPairPool;
+import indi.vincent.aptos.tools.AptosNameResolver;
+import indi.vincent.aptos.tools.ConfirmationTracker;
+import indi.vincent.aptos.tools.RegisteredNameIndex;
+import indi.vincent.aptos.tools.VanityAddressGrinder;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import okhttp3.OkHttpClient;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+public class RegistrationPipelineTest {
+
+    private static final String FUNCTION = "0x1::service::claim_name";
+    private static final String OWNER = "0x0000000000000000000000000000000000000000000000000000000000000001";
+
+    @TempDir
+    Path directory;
+
+    private AptosSimulator simulator;
+    private AptosKeystore keystore;
+    private AptosKeyPairPool keyPairPool;
+    private ConfirmationTracker confirmationTracker;
+    private RegistrationJournal journal;
+    private RegisteredNameIndex registeredNameIndex;
+    private RegistrationPipeline pipeline;
+
+    @BeforeEach
+    public void setUp() throws IOException {
+        this.simulator = new AptosSimulator().commitLatency(Latency.NONE);
+        OkHttpClient httpClient = AptosHttpClients.shared();
+        AptosClient aptosClient = new AptosClient(AptosEndpointPool.of(httpClient, this.simulator.getUrl()),
+                AptosEndpointPool.of(httpClient, this.simulator.getUrl()));
+        this.keystore = new AptosKeystore(this.directory.resolve("keystore"), 1 << 20);
+        this.keyPairPool = new AptosKeyPairPool(16, 4, 1);
+        this.confirmationTracker = new ConfirmationTracker(aptosClient, 16, 20, 100, 0);
+        this.journal = new RegistrationJournal(this.directory.resolve("journal"), 1 << 20);
+        this.registeredNameIndex = new RegisteredNameIndex(1000, 0.01);
+        this.pipeline = new RegistrationPipeline(aptosClient,
+                new FaucetFundingStrategy(aptosClient, new AptosFaucetClient(this.simulator.getUrl(), httpClient), FundingAmount.fixed(10000)),
+                new AptosNameResolver(aptosClient, 1000, TimeUnit.HOURS.toMillis(1), TimeUnit.MINUTES.toMillis(1)),
+                this.registeredNameIndex, this.keyPairPool, this.keystore, this.confirmationTracker, this.journal,
+                new VanityAddressGrinder("", 0, 1), new PipelineProperties(), new SimpleMeterRegistry(), FUNCTION);
+    }
+
+    @AfterEach
+    public void tearDown() {
+        this.pipeline.destroy();
+        this.confirmationTracker.close();
+        this.journal.close();
+        this.keyPairPool.close();
+        this.keystore.close();
+        this.simulator.close();
+    }
+
+    @Test
+    public void registerTest() {
+        this.registeredNameIndex.put("taken", OWNER);
+        List<SubmitResult> results = this.pipeline.register(Arrays.asList("alice", "taken", "bob", "alice")).join();
+
+        Assertions.assertEquals(3, results.size());
+        Assertions.assertEquals("alice", results.get(0).getName());
+        Assertions.assertEquals(SubmitResult.Status.SUBMITTED, results.get(0).getStatus());
+        Assertions.assertNotNull(results.get(0).getHash());
+        Assertions.assertEquals(SubmitResult.skipped("taken", OWNER), results.get(1));
+        Assertions.assertEquals(SubmitResult.Status.SUBMITTED, results.get(2).getStatus());
+    }
+
+    @Test
+    public void confirmedRegistrationJournalTest() throws InterruptedException {
+        SubmitResult result = this.pipeline.register(Collections.singletonList("alice")).join().get(0);
+        Assertions.assertEquals(SubmitResult.Status.SUBMITTED, result.getStatus());
+        long deadline = System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(10);
+        while (!this.registeredNameIndex.contains("alice") && System.currentTimeMillis() < deadline) {
+            Thread.sleep(20);
+        }
+        Assertions.assertTrue(this.registeredNameIndex.contains("alice"));
+
+        // 重启后从进度日志恢复已确认的注册
+        this.journal.close();
+        this.journal = new RegistrationJournal(this.directory.resolve("journal"), 1 << 20);
+        Assertions.assertEquals(Collections.singletonMap("alice", result.getAddress()), this.journal.getRegistered());
+        Assertions.assertTrue(this.journal.getUnfinished().isEmpty());
+    }
+
+    @Test
+    public void failedNameTest() {
+        // 水龙头一直失败，每个 Name 单独返回失败原因，跳过的 Name 不受影响
+        this.simulator.configure(AptosSimulator.Service.FAUCET, Latency.NONE, 1, 0);
+        this.registeredNameIndex.put("taken", OWNER);
+        List<SubmitResult> results = this.pipeline.register(Arrays.asList("alice", "taken")).join();
+
+        Assertions.assertEquals(2, results.size());
+        Assertions.assertEquals("alice", results.get(0).getName());
+        Assertions.assertEquals(SubmitResult.Status.FAILED, results.get(0).getStatus());
+        Assertions.assertNull(results.get(0).getHash());
+        Assertions.assertNotNull(results.get(0).getMessage());
+        Assertions.assertEquals(SubmitResult.skipped("taken", OWNER), results.get(1));
+    }
+}
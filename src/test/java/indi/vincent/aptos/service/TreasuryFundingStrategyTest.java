@@ -0,0 +1,258 @@
+package indi.vincent.aptos.service;
+
+import cn.hutool.core.io.IoUtil;
+import cn.hutool.core.util.HexUtil;
+import cn.hutool.json.JSONUtil;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import indi.vincent.aptos.tools.AptosAccount;
+import indi.vincent.aptos.tools.AptosClient;
+import indi.vincent.aptos.tools.AptosCryptoUtil;
+import indi.vincent.aptos.tools.AptosFaucetClient;
+import indi.vincent.aptos.tools.ConfirmationTracker;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+public class TreasuryFundingStrategyTest {
+
+    private static final String HASH = "0x" + HexUtil.encodeHexStr(new byte[32]);
+
+    private final AtomicInteger mints = new AtomicInteger();
+    private final AtomicInteger submissions = new AtomicInteger();
+    private final AtomicInteger rejections = new AtomicInteger();
+    private final AtomicInteger gaps = new AtomicInteger();
+    private final AtomicInteger concurrentSubmissions = new AtomicInteger();
+    private final AtomicInteger maxConcurrentSubmissions = new AtomicInteger();
+    private volatile boolean faucetDown;
+    private volatile long submitDelayMillis;
+    /**
+     * 已接受的转账交易立即上链，链上的 Sequence Number 等于已接受的数量
+     */
+    private final AtomicLong sequenceNumber = new AtomicLong();
+
+    private HttpServer server;
+    private AptosClient aptosClient;
+    private AptosFaucetClient aptosFaucetClient;
+    private ConfirmationTracker confirmationTracker;
+    private AptosAccount treasury;
+
+    @BeforeEach
+    public void setUp() throws IOException {
+        this.server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        this.server.createContext("/", this::handle);
+        this.server.setExecutor(Executors.newCachedThreadPool());
+        this.server.start();
+        String host = "http://127.0.0.1:" + this.server.getAddress().getPort();
+        this.aptosClient = new AptosClient(host);
+        // 桩节点不提供 /transactions/signing_message
+        this.aptosClient.setVerifyFirstLocalSigning(false);
+        this.aptosFaucetClient = new AptosFaucetClient(host);
+        this.confirmationTracker = new ConfirmationTracker(this.aptosClient, 16, 10, 100, 0);
+        byte[] privateKey = AptosCryptoUtil.randomPrivateKey();
+        byte[] publicKey = AptosCryptoUtil.createPublicKey(privateKey);
+        this.treasury = new AptosAccount(privateKey, publicKey, AptosCryptoUtil.createAddress(publicKey), "@treasury");
+    }
+
+    @AfterEach
+    public void tearDown() {
+        this.confirmationTracker.close();
+        this.server.stop(0);
+    }
+
+    @Test
+    public void batchTransferTest() {
+        TreasuryFundingStrategy strategy = new TreasuryFundingStrategy(this.aptosClient, this.aptosFaucetClient, this.confirmationTracker,
+                this.treasury, FundingAmount.fixed(10000), 1000000, 0, "0x1::aptos_account::transfer", "0x1::aptos_account::batch_transfer",
+                Collections.emptyList(), 8, 500, 4);
+        List<AptosAccount> accounts = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            accounts.add(account());
+        }
+        List<CompletableFuture<Void>> fundings = new ArrayList<>();
+        for (AptosAccount account : accounts) {
+            fundings.add(strategy.fund(account));
+        }
+        CompletableFuture.allOf(fundings.toArray(new CompletableFuture[0])).orTimeout(10, TimeUnit.SECONDS).join();
+
+        // 8 + 8，剩下 4 个等到 batchWindow 结束
+        Assertions.assertEquals(3, strategy.getTransfers());
+        Assertions.assertEquals(1, strategy.getTopUps());
+        Assertions.assertEquals(1, this.mints.get());
+        Assertions.assertEquals(1000000 - 20 * 10000 - 3 * 2000, strategy.getBalance());
+    }
+
+    @Test
+    public void concurrentTransferTest() {
+        TreasuryFundingStrategy strategy = new TreasuryFundingStrategy(this.aptosClient, this.aptosFaucetClient, this.confirmationTracker,
+                this.treasury, FundingAmount.fixed(10000), 1000000, 0, "0x1::aptos_account::transfer", null, Collections.emptyList(), 1, 0, 8);
+        this.submitDelayMillis = 50;
+        List<CompletableFuture<Void>> fundings = new ArrayList<>();
+        for (int i = 0; i < 16; i++) {
+            fundings.add(strategy.fund(account()));
+        }
+        CompletableFuture.allOf(fundings.toArray(new CompletableFuture[0])).orTimeout(10, TimeUnit.SECONDS).join();
+
+        // 转账并发签名和提交，不等上一笔提交有结果
+        Assertions.assertTrue(this.maxConcurrentSubmissions.get() > 1, "max concurrent submissions " + this.maxConcurrentSubmissions.get());
+        Assertions.assertEquals(16, this.sequenceNumber.get());
+        Assertions.assertEquals(16, strategy.getTransfers());
+    }
+
+    @Test
+    public void topUpTest() {
+        TreasuryFundingStrategy strategy = new TreasuryFundingStrategy(this.aptosClient, this.aptosFaucetClient, this.confirmationTracker,
+                this.treasury, FundingAmount.fixed(10000), 30000, 0, "0x1::aptos_account::transfer", null, Collections.emptyList(), 1, 0, 4);
+        List<CompletableFuture<Void>> fundings = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            fundings.add(strategy.fund(account()));
+        }
+        CompletableFuture.allOf(fundings.toArray(new CompletableFuture[0])).orTimeout(10, TimeUnit.SECONDS).join();
+
+        // 每笔转账 10000 + 2000 Gas，第一次补充够两笔，剩余 6000 加上第二次补充够三笔
+        Assertions.assertEquals(5, this.submissions.get());
+        Assertions.assertEquals(2, strategy.getTopUps());
+        Assertions.assertEquals(0, strategy.getBalance());
+    }
+
+    @Test
+    public void rejectedTransferTest() {
+        TreasuryFundingStrategy strategy = new TreasuryFundingStrategy(this.aptosClient, this.aptosFaucetClient, this.confirmationTracker,
+                this.treasury, FundingAmount.fixed(10000), 1000000, 0, "0x1::aptos_account::transfer", null, Collections.emptyList(), 1, 0, 4);
+        this.rejections.set(1);
+        List<CompletableFuture<Void>> fundings = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            fundings.add(strategy.fund(account()));
+        }
+        int failed = 0;
+        for (CompletableFuture<Void> funding : fundings) {
+            try {
+                funding.get(10, TimeUnit.SECONDS);
+            } catch (Exception e) {
+                failed++;
+            }
+        }
+
+        // 被拒绝的转账没有用掉 Sequence Number，因为空洞被拒绝的转账重新同步后重新签名，全部上链
+        Assertions.assertEquals(1, failed);
+        Assertions.assertEquals(9, this.sequenceNumber.get());
+        Assertions.assertEquals(9, strategy.getTransfers());
+        Assertions.assertEquals(9 + 1 + this.gaps.get(), this.submissions.get());
+    }
+
+    @Test
+    public void topUpFailureTest() {
+        TreasuryFundingStrategy strategy = new TreasuryFundingStrategy(this.aptosClient, this.aptosFaucetClient, this.confirmationTracker,
+                this.treasury, FundingAmount.fixed(10000), 30000, 0, "0x1::aptos_account::transfer", null, Collections.emptyList(), 1, 0, 4);
+        this.faucetDown = true;
+        CompletableFuture<Void> funding = strategy.fund(account());
+        Assertions.assertThrows(Exception.class, () -> funding.get(10, TimeUnit.SECONDS));
+
+        // 补充失败时没有扣除费用，也不应该退回费用
+        Assertions.assertEquals(0, strategy.getBalance());
+        Assertions.assertEquals(0, this.submissions.get());
+    }
+
+    private static AptosAccount account() {
+        byte[] privateKey = AptosCryptoUtil.randomPrivateKey();
+        byte[] publicKey = AptosCryptoUtil.createPublicKey(privateKey);
+        return new AptosAccount(privateKey, publicKey, AptosCryptoUtil.createAddress(publicKey), null);
+    }
+
+    /**
+     * 并发提交的请求到达顺序不确定，前面的 Sequence Number 短时间内还没有上链时才视为空洞
+     */
+    private void awaitSequenceNumber(long sequenceNumber) {
+        long deadline = System.currentTimeMillis() + 200;
+        synchronized (this.sequenceNumber) {
+            long remaining;
+            while (this.sequenceNumber.get() < sequenceNumber && (remaining = deadline - System.currentTimeMillis()) > 0) {
+                try {
+                    this.sequenceNumber.wait(remaining);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+        }
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        String path = exchange.getRequestURI().getPath();
+        String body;
+        int status = 200;
+        if (path.startsWith("/mint")) {
+            this.mints.incrementAndGet();
+            if (this.faucetDown) {
+                status = 500;
+                body = "{\"message\":\"faucet unavailable\"}";
+            } else {
+                body = "[\"" + HASH.substring(2) + "\"]";
+            }
+        } else if (path.contains("/module/")) {
+            body = "{\"abi\":{\"address\":\"0x1\",\"name\":\"aptos_account\",\"exposed_functions\":["
+                    + "{\"name\":\"transfer\",\"is_entry\":true,\"generic_type_params\":[],\"params\":[\"&signer\",\"address\",\"u64\"],\"return\":[]},"
+                    + "{\"name\":\"batch_transfer\",\"is_entry\":true,\"generic_type_params\":[],"
+                    + "\"params\":[\"&signer\",\"vector<address>\",\"vector<u64>\"],\"return\":[]}]}}";
+        } else if (path.startsWith("/accounts/")) {
+            body = "{\"sequence_number\":\"" + this.sequenceNumber.get() + "\"}";
+        } else if (path.startsWith("/transactions/by_hash/")) {
+            body = "{\"type\":\"user_transaction\",\"hash\":\"" + HASH + "\",\"version\":\"1\",\"success\":true}";
+        } else if (path.equals("/transactions")) {
+            this.submissions.incrementAndGet();
+            int concurrent = this.concurrentSubmissions.incrementAndGet();
+            this.maxConcurrentSubmissions.accumulateAndGet(concurrent, Math::max);
+            sleep(this.submitDelayMillis);
+            long sequenceNumber = Long.parseLong(JSONUtil.parseObj(IoUtil.readUtf8(exchange.getRequestBody())).getStr("sequence_number"));
+            this.awaitSequenceNumber(sequenceNumber);
+            this.concurrentSubmissions.decrementAndGet();
+            if (this.rejections.getAndUpdate(count -> Math.max(0, count - 1)) > 0) {
+                status = 400;
+                body = "{\"message\":\"Invalid transaction: Type: Validation Code: GAS_UNIT_PRICE_BELOW_MIN_BOUND\",\"error_code\":\"vm_error\"}";
+            } else if (!this.sequenceNumber.compareAndSet(sequenceNumber, sequenceNumber + 1)) {
+                // 前面缺号的交易会一直停在 mempool 中
+                this.gaps.incrementAndGet();
+                status = 400;
+                body = "{\"message\":\"Invalid transaction: Type: Validation Code: SEQUENCE_NUMBER_TOO_NEW\",\"error_code\":\"vm_error\"}";
+            } else {
+                synchronized (this.sequenceNumber) {
+                    this.sequenceNumber.notifyAll();
+                }
+                status = 202;
+                body = "{\"type\":\"pending_transaction\",\"hash\":\"" + HASH + "\"}";
+            }
+        } else if (path.equals("/")) {
+            body = "{\"chain_id\":34}";
+        } else {
+            status = 404;
+            body = "{}";
+        }
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream output = exchange.getResponseBody()) {
+            output.write(bytes);
+        }
+    }
+}
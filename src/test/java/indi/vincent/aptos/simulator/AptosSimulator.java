@@ -0,0 +1,709 @@
+package indi.vincent.aptos.simulator;
+
+import cn.hutool.core.io.IoUtil;
+import cn.hutool.core.thread.NamedThreadFactory;
+import cn.hutool.core.util.HexUtil;
+import cn.hutool.core.util.StrUtil;
+import cn.hutool.json.JSONArray;
+import cn.hutool.json.JSONObject;
+import cn.hutool.json.JSONUtil;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import indi.vincent.aptos.tools.AptosClient;
+import indi.vincent.aptos.tools.AptosCryptoUtil;
+import indi.vincent.aptos.tools.AptosJsonCodec;
+import indi.vincent.aptos.tools.AptosTransactionEncoder;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 进程内的 Aptos 全节点、水龙头和 aptosnames 模拟器，三者共用一个地址
+ * <p>
+ * 每类服务可以单独配置延迟分布、500 和 429 的比例。全节点维护账户的 Sequence Number 和余额：
+ * 提交的交易进入发送方的 mempool，经过 commitLatency 后按 Sequence Number 顺序执行，
+ * 中间缺号的交易一直等待，过期后被丢弃，按哈希查询返回 404。
+ * 重复提交还在 mempool 中的交易返回 202，重复提交已经执行的交易返回 SEQUENCE_NUMBER_TOO_OLD。
+ * claim_name 注册 Name，重复注册执行失败；名称以 ::transfer 结尾的函数在账户之间转账；其他函数只扣手续费。
+ * <p>
+ * 不验证签名，只检查公钥和发送方地址是否对应；只支持 JSON 格式提交交易。
+ * /transactions/signing_message 用 {@link AptosTransactionEncoder} 计算，与客户端的本地编码一致，不能代替真实节点校验编码。
+ * 模拟交易只校验、不执行，签名必须全为 0，claim_name 已被注册的 Name 返回执行失败。
+ */
+public class AptosSimulator implements AutoCloseable {
+
+    public static final int CHAIN_ID = 34;
+    /**
+     * 每笔交易实际消耗的 Gas
+     */
+    public static final long GAS_USED = 10;
+    /**
+     * 每个账户在 mempool 中最多排队的交易数
+     */
+    private static final long MAX_PENDING = 100;
+    /**
+     * 每个模块都包含的入口函数 -> 除 signer 以外的参数类型
+     */
+    private static final Map<String, List<String>> FUNCTIONS = new LinkedHashMap<>();
+
+    static {
+        FUNCTIONS.put("claim_name", Collections.singletonList("vector<u8>"));
+        FUNCTIONS.put("transfer", Arrays.asList("address", "u64"));
+    }
+
+    private final HttpServer server;
+    private final ExecutorService executor;
+    private final ScheduledExecutorService scheduler;
+    private final Map<Service, Behavior> behaviors = new EnumMap<>(Service.class);
+    private final Map<Service, LongAdder> requests = new EnumMap<>(Service.class);
+    private final LongAdder throttled = new LongAdder();
+    private final LongAdder errors = new LongAdder();
+    private volatile Latency commitLatency = Latency.fixed(50);
+    private volatile long gasUnitPrice = 1;
+    private final LongAdder simulations = new LongAdder();
+    private final LongAdder signingMessages = new LongAdder();
+    private final AtomicInteger droppedSubmitResponses = new AtomicInteger();
+
+    /**
+     * 以下状态由 this 保护
+     */
+    private final Map<String, Account> accounts = new HashMap<>();
+    private final Map<String, Transaction> transactions = new HashMap<>();
+    private final Map<String, String> names = new ConcurrentHashMap<>();
+    private long ledgerVersion;
+    private long committed;
+
+    public AptosSimulator() throws IOException {
+        for (Service service : Service.values()) {
+            this.behaviors.put(service, new Behavior(Latency.NONE, 0, 0));
+            this.requests.put(service, new LongAdder());
+        }
+        this.executor = Executors.newCachedThreadPool(new NamedThreadFactory("aptos-simulator-", true));
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(new NamedThreadFactory("aptos-simulator-commit-", true));
+        this.server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 1024);
+        this.server.setExecutor(this.executor);
+        this.server.createContext("/", this::handle);
+        this.server.start();
+    }
+
+    /**
+     * @return 全节点、水龙头和 aptosnames 的地址
+     */
+    public String getUrl() {
+        return "http://127.0.0.1:" + this.server.getAddress().getPort();
+    }
+
+    /**
+     * @param latency      响应延迟
+     * @param errorRate    返回 500 的比例
+     * @param throttleRate 返回 429 的比例
+     */
+    public AptosSimulator configure(Service service, Latency latency, double errorRate, double throttleRate) {
+        this.behaviors.put(service, new Behavior(latency, errorRate, throttleRate));
+        return this;
+    }
+
+    /**
+     * @param commitLatency 交易从提交到执行的时间
+     */
+    public AptosSimulator commitLatency(Latency commitLatency) {
+        this.commitLatency = commitLatency;
+        return this;
+    }
+
+    /**
+     * GET /estimate_gas_price 返回的单价
+     */
+    public AptosSimulator gasUnitPrice(long gasUnitPrice) {
+        this.gasUnitPrice = gasUnitPrice;
+        return this;
+    }
+
+    /**
+     * 之后的 count 次提交正常处理，但响应替换为 502，模拟响应在返回途中丢失
+     */
+    public AptosSimulator dropSubmitResponses(int count) {
+        this.droppedSubmitResponses.set(count);
+        return this;
+    }
+
+    public long getSimulations() {
+        return this.simulations.sum();
+    }
+
+    /**
+     * @return POST /transactions/signing_message 的次数
+     */
+    public long getSigningMessages() {
+        return this.signingMessages.sum();
+    }
+
+    public long getRequests(Service service) {
+        return this.requests.get(service).sum();
+    }
+
+    public long getThrottled() {
+        return this.throttled.sum();
+    }
+
+    public long getErrors() {
+        return this.errors.sum();
+    }
+
+    /**
+     * @return 已经执行的用户交易数量，包括执行失败的交易
+     */
+    public synchronized long getCommitted() {
+        return this.committed;
+    }
+
+    /**
+     * @return Name 当前指向的地址，未注册时为 null
+     */
+    public String getRegisteredAddress(String name) {
+        return this.names.get(name);
+    }
+
+    public int getRegisteredNames() {
+        return this.names.size();
+    }
+
+    /**
+     * @return 账户下一笔交易的 Sequence Number，账户不存在时为 -1
+     */
+    public synchronized long getSequenceNumber(String address) {
+        Account account = this.accounts.get(normalize(address));
+        return account == null ? -1 : account.sequenceNumber;
+    }
+
+    public synchronized long getBalance(String address) {
+        Account account = this.accounts.get(normalize(address));
+        return account == null ? 0 : account.balance;
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try {
+            String path = exchange.getRequestURI().getPath();
+            Service service = Service.of(path);
+            Behavior behavior = this.behaviors.get(service);
+            this.requests.get(service).increment();
+            long latency = behavior.latency.sampleMillis();
+            if (latency > 0) {
+                Thread.sleep(latency);
+            }
+            double roll = ThreadLocalRandom.current().nextDouble();
+            if (roll < behavior.throttleRate) {
+                this.throttled.increment();
+                respond(exchange, 429, error(429, "Too many requests"));
+                return;
+            }
+            if (roll < behavior.throttleRate + behavior.errorRate) {
+                this.errors.increment();
+                respond(exchange, 500, error(500, "Simulated failure"));
+                return;
+            }
+            byte[] body = readBody(exchange.getRequestBody());
+            Reply reply = this.route(exchange.getRequestMethod(), path, exchange.getRequestURI().getQuery(),
+                    exchange.getRequestHeaders().getFirst("Content-Type"), body);
+            if (path.equals("/transactions") && this.droppedSubmitResponses.getAndUpdate(count -> Math.max(0, count - 1)) > 0) {
+                this.errors.increment();
+                respond(exchange, 502, error(502, "Simulated lost response"));
+                return;
+            }
+            respond(exchange, reply.status, reply.body);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (RuntimeException e) {
+            respond(exchange, 500, error(500, e.toString()));
+        } finally {
+            exchange.close();
+        }
+    }
+
+    private Reply route(String method, String path, String query, String contentType, byte[] body) {
+        String[] segments = StrUtil.splitToArray(StrUtil.removePrefix(path, "/"), '/');
+        boolean get = "GET".equals(method);
+        if (path.equals("/") && get) {
+            return this.ledgerInfo();
+        }
+        if (path.equals("/estimate_gas_price") && get) {
+            return new Reply(200, new JSONObject().set("gas_estimate", this.gasUnitPrice).toString());
+        }
+        if (path.equals("/mint") && "POST".equals(method)) {
+            return this.mint(query);
+        }
+        if (path.startsWith("/api/v1/address/") && get) {
+            String address = this.names.get(segments[3]);
+            return new Reply(200, address == null ? "{}" : new JSONObject().set("address", address).toString());
+        }
+        if (segments[0].equals("accounts") && get) {
+            if (segments.length == 2) {
+                return this.account(segments[1]);
+            }
+            if (segments.length == 4 && segments[2].equals("module")) {
+                return module(segments[1], segments[3]);
+            }
+            if (segments.length == 3 && segments[2].equals("transactions")) {
+                Map<String, String> params = params(query);
+                return this.accountTransactions(segments[1], Long.parseLong(params.getOrDefault("start", "0")),
+                        Integer.parseInt(params.getOrDefault("limit", "25")));
+            }
+        }
+        if (segments[0].equals("transactions")) {
+            if (segments.length == 1 && "POST".equals(method)) {
+                if (contentType != null && !contentType.startsWith("application/json")) {
+                    return new Reply(415, error(415, "Unsupported content type: " + contentType));
+                }
+                return this.submit(body);
+            }
+            if (segments.length == 2 && segments[1].equals("simulate") && "POST".equals(method)) {
+                return this.simulate(body);
+            }
+            if (segments.length == 2 && segments[1].equals("signing_message") && "POST".equals(method)) {
+                return this.signingMessage(body);
+            }
+            if (segments.length == 3 && segments[1].equals("by_hash") && get) {
+                return this.transaction(segments[2]);
+            }
+        }
+        return new Reply(404, error(404, "Not found: " + method + " " + path));
+    }
+
+    private synchronized Reply ledgerInfo() {
+        return new Reply(200, new JSONObject()
+                .set("chain_id", CHAIN_ID)
+                .set("ledger_version", String.valueOf(this.ledgerVersion))
+                .set("ledger_timestamp", String.valueOf(TimeUnit.MILLISECONDS.toMicros(System.currentTimeMillis())))
+                .toString());
+    }
+
+    private synchronized Reply account(String address) {
+        Account account = this.accounts.get(normalize(address));
+        if (account == null) {
+            return new Reply(404, error(404, "Account not found: " + address));
+        }
+        return new Reply(200, new JSONObject()
+                .set("sequence_number", String.valueOf(account.sequenceNumber))
+                .set("authentication_key", "0x" + normalize(address))
+                .toString());
+    }
+
+    /**
+     * 发送方已经执行的交易，按 Sequence Number 从 start 开始
+     */
+    private synchronized Reply accountTransactions(String address, long start, int limit) {
+        String sender = normalize(address);
+        if (!this.accounts.containsKey(sender)) {
+            return new Reply(404, error(404, "Account not found: " + address));
+        }
+        TreeMap<Long, Transaction> committed = new TreeMap<>();
+        for (Transaction transaction : this.transactions.values()) {
+            if (transaction.committed && sender.equals(transaction.sender) && transaction.sequenceNumber >= start) {
+                committed.put(transaction.sequenceNumber, transaction);
+            }
+        }
+        JSONArray list = new JSONArray();
+        for (Transaction transaction : committed.values()) {
+            if (list.size() >= limit) {
+                break;
+            }
+            list.add(userTransaction(transaction));
+        }
+        return new Reply(200, list.toString());
+    }
+
+    /**
+     * 签名消息按节点的方式计算：SHA3-256("APTOS::RawTransaction") || BCS(RawTransaction)
+     */
+    private Reply signingMessage(byte[] body) {
+        this.signingMessages.increment();
+        try {
+            AptosClient.SignatureMessageParam param = AptosJsonCodec.read(new ByteArrayInputStream(body), AptosClient.SignatureMessageParam.class);
+            String function = param.getPayload().getFunction();
+            List<String> parameterTypes = FUNCTIONS.get(StrUtil.subAfter(function, "::", true));
+            if (parameterTypes == null) {
+                return new Reply(400, error(400, "Function not found: " + function));
+            }
+            byte[] rawTransaction = AptosTransactionEncoder.encodeRawTransaction(param, parameterTypes, CHAIN_ID);
+            byte[] signingMessage = AptosTransactionEncoder.createSigningMessage(rawTransaction);
+            return new Reply(200, new JSONObject().set("message", AptosCryptoUtil.toPrefixedHex(signingMessage)).toString());
+        } catch (IOException | IllegalArgumentException e) {
+            return new Reply(400, error(400, "Invalid transaction: " + e.getMessage()));
+        }
+    }
+
+    private static Reply module(String address, String name) {
+        JSONArray functions = new JSONArray();
+        for (Map.Entry<String, List<String>> entry : FUNCTIONS.entrySet()) {
+            functions.set(function(entry.getKey(), entry.getValue()));
+        }
+        JSONObject abi = new JSONObject()
+                .set("address", address)
+                .set("name", name)
+                .set("friends", new JSONArray())
+                .set("exposed_functions", functions)
+                .set("structs", new JSONArray());
+        return new Reply(200, new JSONObject().set("bytecode", "0x").set("abi", abi).toString());
+    }
+
+    private static JSONObject function(String name, List<String> params) {
+        JSONArray types = new JSONArray().set("&signer");
+        for (String param : params) {
+            types.set(param);
+        }
+        return new JSONObject()
+                .set("name", name)
+                .set("visibility", "public")
+                .set("is_entry", true)
+                .set("generic_type_params", new JSONArray())
+                .set("params", types)
+                .set("return", new JSONArray());
+    }
+
+    private Reply mint(String query) {
+        Map<String, String> params = params(query);
+        String address = params.get("address");
+        if (address == null) {
+            return new Reply(400, error(400, "Missing address"));
+        }
+        long amount = Long.parseLong(params.getOrDefault("amount", "0"));
+        String hash = HexUtil.encodeHexStr(AptosCryptoUtil.sha3256(
+                (address + "/" + amount + "/" + System.nanoTime()).getBytes(StandardCharsets.UTF_8)));
+        synchronized (this) {
+            this.accounts.computeIfAbsent(normalize(address), key -> new Account()).balance += amount;
+            Transaction transaction = new Transaction("0x" + hash, null, 0, Long.MAX_VALUE, 0, 0, null, null, null);
+            transaction.complete(++this.ledgerVersion, true, "Executed successfully");
+            this.transactions.put(transaction.hash, transaction);
+        }
+        return new Reply(200, new JSONArray().set(hash).toString());
+    }
+
+    private Reply submit(byte[] body) {
+        JSONObject request = JSONUtil.parseObj(new String(body, StandardCharsets.UTF_8));
+        String sender = normalize(request.getStr("sender"));
+        long sequenceNumber = Long.parseLong(request.getStr("sequence_number"));
+        long maxGasAmount = Long.parseLong(request.getStr("max_gas_amount"));
+        long gasUnitPrice = Long.parseLong(request.getStr("gas_unit_price"));
+        long expirationTimestampSecs = Long.parseLong(request.getStr("expiration_timestamp_secs"));
+        JSONObject payload = request.getJSONObject("payload");
+        JSONObject signature = request.getJSONObject("signature");
+        String hash = AptosCryptoUtil.toPrefixedHex(AptosCryptoUtil.sha3256(body));
+
+        Transaction transaction;
+        synchronized (this) {
+            Transaction existing = this.transactions.get(hash);
+            if (existing != null) {
+                // 同一笔交易重复提交，已经执行过时和真实节点一样按 Sequence Number 拒绝
+                return existing.committed
+                        ? new Reply(400, validationError("SEQUENCE_NUMBER_TOO_OLD"))
+                        : new Reply(202, pending(existing));
+            }
+            Account account = this.accounts.get(sender);
+            String invalid = this.validate(account, sender, sequenceNumber, maxGasAmount, gasUnitPrice, expirationTimestampSecs, signature);
+            if (invalid != null || account.pending.containsKey(sequenceNumber)) {
+                return new Reply(400, validationError(invalid != null ? invalid : "SEQUENCE_NUMBER_TOO_OLD"));
+            }
+            transaction = new Transaction(hash, sender, sequenceNumber, expirationTimestampSecs, gasUnitPrice, maxGasAmount,
+                    payload.getStr("function"), payload.getJSONArray("arguments"), signature);
+            account.pending.put(sequenceNumber, transaction);
+            this.transactions.put(hash, transaction);
+        }
+        this.scheduler.schedule(() -> this.commit(sender), this.commitLatency.sampleMillis(), TimeUnit.MILLISECONDS);
+        return new Reply(202, pending(transaction));
+    }
+
+    /**
+     * 和提交一样校验交易，返回执行结果但不改变状态
+     */
+    private Reply simulate(byte[] body) {
+        this.simulations.increment();
+        JSONObject request = JSONUtil.parseObj(new String(body, StandardCharsets.UTF_8));
+        String sender = normalize(request.getStr("sender"));
+        long maxGasAmount = Long.parseLong(request.getStr("max_gas_amount"));
+        long gasUnitPrice = Long.parseLong(request.getStr("gas_unit_price"));
+        JSONObject payload = request.getJSONObject("payload");
+        JSONObject signature = request.getJSONObject("signature");
+        if (signature == null || !StrUtil.removePrefix(signature.getStr("signature", ""), "0x").matches("0+")) {
+            return new Reply(400, error(400, "Simulated transactions must have a non-valid signature"));
+        }
+        boolean success = true;
+        String vmStatus = "Executed successfully";
+        synchronized (this) {
+            Account account = this.accounts.get(sender);
+            String invalid = this.validate(account, sender, Long.parseLong(request.getStr("sequence_number")), maxGasAmount, gasUnitPrice,
+                    Long.parseLong(request.getStr("expiration_timestamp_secs")), signature);
+            if (invalid != null) {
+                return new Reply(400, validationError(invalid));
+            }
+            String function = StrUtil.nullToEmpty(payload.getStr("function"));
+            JSONArray arguments = payload.getJSONArray("arguments");
+            if (function.endsWith("::claim_name")
+                    && this.names.containsKey(new String(AptosCryptoUtil.decodeHex(arguments.getStr(0)), StandardCharsets.UTF_8))) {
+                success = false;
+                vmStatus = "Move abort: ENAME_ALREADY_REGISTERED";
+            } else if (function.endsWith("::transfer") && account.balance < GAS_USED * gasUnitPrice + Long.parseLong(arguments.getStr(1))) {
+                success = false;
+                vmStatus = "Move abort: INSUFFICIENT_BALANCE";
+            }
+        }
+        return new Reply(200, new JSONArray().set(new JSONObject()
+                .set("type", "user_transaction")
+                .set("sender", "0x" + sender)
+                .set("success", success)
+                .set("vm_status", vmStatus)
+                .set("gas_used", String.valueOf(Math.min(GAS_USED, maxGasAmount)))).toString());
+    }
+
+    /**
+     * @return 校验失败的错误码，通过时为 null
+     */
+    private String validate(Account account, String sender, long sequenceNumber, long maxGasAmount, long gasUnitPrice,
+                            long expirationTimestampSecs, JSONObject signature) {
+        if (expirationTimestampSecs <= TimeUnit.MILLISECONDS.toSeconds(System.currentTimeMillis())) {
+            return "TRANSACTION_EXPIRED";
+        }
+        if (account == null) {
+            return "SENDING_ACCOUNT_DOES_NOT_EXIST";
+        }
+        String publicKey = signature == null ? null : signature.getStr("public_key");
+        if (publicKey == null || !HexUtil.encodeHexStr(AptosCryptoUtil.createAddress(AptosCryptoUtil.decodeHex(publicKey))).equals(sender)) {
+            return "INVALID_AUTH_KEY";
+        }
+        if (sequenceNumber < account.sequenceNumber) {
+            return "SEQUENCE_NUMBER_TOO_OLD";
+        }
+        if (sequenceNumber >= account.sequenceNumber + MAX_PENDING) {
+            return "SEQUENCE_NUMBER_TOO_NEW";
+        }
+        if (account.balance < maxGasAmount * gasUnitPrice) {
+            return "INSUFFICIENT_BALANCE_FOR_TRANSACTION_FEE";
+        }
+        return null;
+    }
+
+    /**
+     * 按 Sequence Number 顺序执行发送方 mempool 中连续的交易
+     */
+    private synchronized void commit(String sender) {
+        Account account = this.accounts.get(sender);
+        Transaction transaction;
+        while ((transaction = account.pending.remove(account.sequenceNumber)) != null) {
+            if (transaction.isExpired()) {
+                this.transactions.remove(transaction.hash);
+                continue;
+            }
+            this.execute(account, transaction);
+            account.sequenceNumber++;
+            this.committed++;
+        }
+    }
+
+    private void execute(Account sender, Transaction transaction) {
+        sender.balance -= Math.min(GAS_USED, transaction.maxGasAmount) * transaction.gasUnitPrice;
+        String function = StrUtil.nullToEmpty(transaction.function);
+        boolean success = true;
+        String vmStatus = "Executed successfully";
+        if (function.endsWith("::claim_name")) {
+            String name = new String(AptosCryptoUtil.decodeHex(transaction.arguments.getStr(0)), StandardCharsets.UTF_8);
+            if (this.names.putIfAbsent(name, "0x" + transaction.sender) != null) {
+                success = false;
+                vmStatus = "Move abort: ENAME_ALREADY_REGISTERED";
+            }
+        } else if (function.endsWith("::transfer")) {
+            long amount = Long.parseLong(transaction.arguments.getStr(1));
+            if (sender.balance < amount) {
+                success = false;
+                vmStatus = "Move abort: INSUFFICIENT_BALANCE";
+            } else {
+                sender.balance -= amount;
+                this.accounts.computeIfAbsent(normalize(transaction.arguments.getStr(0)), key -> new Account()).balance += amount;
+            }
+        }
+        transaction.complete(++this.ledgerVersion, success, vmStatus);
+    }
+
+    private synchronized Reply transaction(String hash) {
+        Transaction transaction = this.transactions.get(hash.toLowerCase());
+        if (transaction != null && !transaction.committed && transaction.isExpired()) {
+            this.transactions.remove(transaction.hash);
+            this.accounts.get(transaction.sender).pending.remove(transaction.sequenceNumber);
+            transaction = null;
+        }
+        if (transaction == null) {
+            return new Reply(404, error(404, "Transaction not found: " + hash));
+        }
+        if (!transaction.committed) {
+            return new Reply(200, pending(transaction));
+        }
+        return new Reply(200, userTransaction(transaction).toString());
+    }
+
+    private static JSONObject userTransaction(Transaction transaction) {
+        return new JSONObject()
+                .set("type", "user_transaction")
+                .set("hash", transaction.hash)
+                .set("sender", "0x" + transaction.sender)
+                .set("sequence_number", String.valueOf(transaction.sequenceNumber))
+                .set("signature", transaction.signature)
+                .set("version", String.valueOf(transaction.version))
+                .set("success", transaction.success)
+                .set("vm_status", transaction.vmStatus);
+    }
+
+    private static Map<String, String> params(String query) {
+        Map<String, String> params = new HashMap<>();
+        for (String pair : StrUtil.split(StrUtil.nullToEmpty(query), '&')) {
+            int separator = pair.indexOf('=');
+            if (separator > 0) {
+                params.put(pair.substring(0, separator), pair.substring(separator + 1));
+            }
+        }
+        return params;
+    }
+
+    private static String pending(Transaction transaction) {
+        return new JSONObject()
+                .set("type", "pending_transaction")
+                .set("hash", transaction.hash)
+                .set("sender", "0x" + transaction.sender)
+                .set("sequence_number", String.valueOf(transaction.sequenceNumber))
+                .toString();
+    }
+
+    private static String validationError(String code) {
+        return error(400, "Invalid transaction: Type: Validation Code: " + code);
+    }
+
+    private static String error(int code, String message) {
+        return new JSONObject().set("code", code).set("message", message).toString();
+    }
+
+    private static String normalize(String address) {
+        String hex = StrUtil.removePrefixIgnoreCase(address.trim(), "0x").toLowerCase();
+        return StrUtil.padPre(hex, 64, '0');
+    }
+
+    private static byte[] readBody(InputStream input) throws IOException {
+        try (InputStream in = input) {
+            return IoUtil.readBytes(in);
+        }
+    }
+
+    private static void respond(HttpExchange exchange, int status, String body) throws IOException {
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json");
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream output = exchange.getResponseBody()) {
+            output.write(bytes);
+        }
+    }
+
+    @Override
+    public void close() {
+        this.server.stop(0);
+        this.scheduler.shutdownNow();
+        this.executor.shutdownNow();
+    }
+
+    /**
+     * 模拟器中的三类服务，分别配置延迟和错误比例
+     */
+    public enum Service {
+        FULLNODE, FAUCET, NAMES;
+
+        static Service of(String path) {
+            if (path.startsWith("/mint")) {
+                return FAUCET;
+            }
+            return path.startsWith("/api/") ? NAMES : FULLNODE;
+        }
+    }
+
+    private static class Behavior {
+        private final Latency latency;
+        private final double errorRate;
+        private final double throttleRate;
+
+        Behavior(Latency latency, double errorRate, double throttleRate) {
+            this.latency = latency;
+            this.errorRate = errorRate;
+            this.throttleRate = throttleRate;
+        }
+    }
+
+    private static class Reply {
+        private final int status;
+        private final String body;
+
+        Reply(int status, String body) {
+            this.status = status;
+            this.body = body;
+        }
+    }
+
+    private static class Account {
+        private long sequenceNumber;
+        private long balance;
+        private final TreeMap<Long, Transaction> pending = new TreeMap<>();
+    }
+
+    private static class Transaction {
+        private final String hash;
+        private final String sender;
+        private final long sequenceNumber;
+        private final long expirationTimestampSecs;
+        private final long gasUnitPrice;
+        private final long maxGasAmount;
+        private final String function;
+        private final JSONArray arguments;
+        private final JSONObject signature;
+        private boolean committed;
+        private long version;
+        private boolean success;
+        private String vmStatus;
+
+        Transaction(String hash, String sender, long sequenceNumber, long expirationTimestampSecs, long gasUnitPrice,
+                    long maxGasAmount, String function, JSONArray arguments, JSONObject signature) {
+            this.hash = hash;
+            this.sender = sender;
+            this.sequenceNumber = sequenceNumber;
+            this.expirationTimestampSecs = expirationTimestampSecs;
+            this.gasUnitPrice = gasUnitPrice;
+            this.maxGasAmount = maxGasAmount;
+            this.function = function;
+            this.arguments = arguments;
+            this.signature = signature;
+        }
+
+        boolean isExpired() {
+            return this.expirationTimestampSecs <= TimeUnit.MILLISECONDS.toSeconds(System.currentTimeMillis());
+        }
+
+        void complete(long version, boolean success, String vmStatus) {
+            this.committed = true;
+            this.version = version;
+            this.success = success;
+            this.vmStatus = vmStatus;
+        }
+    }
+}
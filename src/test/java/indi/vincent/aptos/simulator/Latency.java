@@ -0,0 +1,34 @@
+package indi.vincent.aptos.simulator;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * 模拟器的响应延迟分布，单位：毫秒
+ */
+@FunctionalInterface
+public interface Latency {
+
+    Latency NONE = () -> 0;
+
+    long sampleMillis();
+
+    static Latency fixed(long millis) {
+        return () -> millis;
+    }
+
+    static Latency uniform(long minMillis, long maxMillis) {
+        return () -> ThreadLocalRandom.current().nextLong(minMillis, maxMillis + 1);
+    }
+
+    /**
+     * 对数正态分布，长尾接近真实网络延迟
+     *
+     * @param medianMillis 中位数
+     * @param p99Millis    99 分位
+     */
+    static Latency logNormal(double medianMillis, double p99Millis) {
+        // 标准正态分布的 99 分位为 2.326
+        double sigma = Math.log(p99Millis / medianMillis) / 2.326;
+        return () -> Math.round(medianMillis * Math.exp(sigma * ThreadLocalRandom.current().nextGaussian()));
+    }
+}
@@ -0,0 +1,169 @@
+package indi.vincent.aptos.simulator;
+
+import cn.hutool.json.JSONArray;
+import cn.hutool.json.JSONUtil;
+import indi.vincent.aptos.service.RegistrationStage;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.distribution.HistogramSnapshot;
+import io.micrometer.core.instrument.distribution.ValueAtPercentile;
+import lombok.Value;
+import okhttp3.MediaType;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.RequestBody;
+import okhttp3.Response;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 并发调用 POST /names 的压测客户端
+ * <p>
+ * clients 个线程各自循环领取下一批 Name，请求返回后立即发送下一批。
+ * 请求返回时交易已经提交，吞吐量按请求全部返回的时间计算；各阶段延迟取自流水线的 aptos.pipeline.stage 计时器，
+ * 需要配置 management.metrics.distribution.percentiles.aptos.pipeline.stage。
+ */
+public class RegistrationLoadGenerator {
+
+    private static final MediaType JSON = MediaType.get("application/json; charset=utf-8");
+
+    private final String url;
+    private final int clients;
+    private final int batchSize;
+    private final OkHttpClient httpClient;
+
+    /**
+     * @param baseUrl   机器人服务的地址
+     * @param clients   并发客户端数量
+     * @param batchSize 每个请求的 Name 数量
+     */
+    public RegistrationLoadGenerator(String baseUrl, int clients, int batchSize) {
+        this.url = baseUrl + "/names";
+        this.clients = clients;
+        this.batchSize = batchSize;
+        this.httpClient = new OkHttpClient.Builder().readTimeout(5, TimeUnit.MINUTES).build();
+    }
+
+    /**
+     * 注册 total 个以 prefix 开头的 Name，全部请求返回后结束
+     */
+    public Report run(String prefix, int total) throws Exception {
+        AtomicInteger next = new AtomicInteger();
+        LongAdder failedRequests = new LongAdder();
+        LongAdder submitted = new LongAdder();
+        List<Long> requestNanos = Collections.synchronizedList(new ArrayList<>());
+        ExecutorService executor = Executors.newFixedThreadPool(this.clients);
+        long start = System.nanoTime();
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int i = 0; i < this.clients; i++) {
+                futures.add(executor.submit(() -> {
+                    int from;
+                    while ((from = next.getAndAdd(this.batchSize)) < total) {
+                        List<String> names = new ArrayList<>(this.batchSize);
+                        for (int j = from; j < Math.min(from + this.batchSize, total); j++) {
+                            names.add(prefix + j);
+                        }
+                        long requestStart = System.nanoTime();
+                        Request request = new Request.Builder().url(this.url)
+                                .post(RequestBody.create(JSONUtil.toJsonStr(names), JSON)).build();
+                        try (Response response = this.httpClient.newCall(request).execute()) {
+                            if (response.isSuccessful() && response.body() != null) {
+                                JSONArray results = JSONUtil.parseArray(response.body().string());
+                                for (int k = 0; k < results.size(); k++) {
+                                    if ("SUBMITTED".equals(results.getJSONObject(k).getStr("status"))) {
+                                        submitted.increment();
+                                    }
+                                }
+                            } else {
+                                failedRequests.increment();
+                            }
+                        } catch (IOException e) {
+                            failedRequests.increment();
+                        }
+                        requestNanos.add(System.nanoTime() - requestStart);
+                    }
+                    return null;
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        long elapsed = System.nanoTime() - start;
+        List<Long> sorted = new ArrayList<>(requestNanos);
+        Collections.sort(sorted);
+        return new Report(total, submitted.sum(), failedRequests.sum(), elapsed,
+                percentile(sorted, 0.5), percentile(sorted, 0.99));
+    }
+
+    /**
+     * 从流水线的计时器读取各阶段成功执行的延迟分位数，单位：毫秒
+     *
+     * @return 阶段 -> [p50, p99]，阶段没有样本时不包含
+     */
+    public static Map<RegistrationStage, double[]> stagePercentiles(MeterRegistry meterRegistry) {
+        Map<RegistrationStage, double[]> percentiles = new EnumMap<>(RegistrationStage.class);
+        for (RegistrationStage stage : RegistrationStage.values()) {
+            Timer timer = meterRegistry.find("aptos.pipeline.stage")
+                    .tag("stage", stage.name().toLowerCase())
+                    .tag("outcome", "success")
+                    .timer();
+            if (timer == null || timer.count() == 0) {
+                continue;
+            }
+            HistogramSnapshot snapshot = timer.takeSnapshot();
+            double[] values = new double[]{Double.NaN, Double.NaN};
+            for (ValueAtPercentile value : snapshot.percentileValues()) {
+                if (value.percentile() == 0.5) {
+                    values[0] = value.value(TimeUnit.MILLISECONDS);
+                } else if (value.percentile() == 0.99) {
+                    values[1] = value.value(TimeUnit.MILLISECONDS);
+                }
+            }
+            percentiles.put(stage, values);
+        }
+        return percentiles;
+    }
+
+    private static double percentile(List<Long> sorted, double percentile) {
+        if (sorted.isEmpty()) {
+            return 0;
+        }
+        int index = (int) Math.min(sorted.size() - 1, Math.ceil(percentile * sorted.size()) - 1);
+        return sorted.get(Math.max(0, index)) / 1e6;
+    }
+
+    /**
+     * 一次压测的结果
+     */
+    @Value
+    public static class Report {
+        int names;
+        /**
+         * 返回了交易哈希的 Name 数量
+         */
+        long submitted;
+        long failedRequests;
+        long elapsedNanos;
+        double requestP50Millis;
+        double requestP99Millis;
+
+        public double getNamesPerSecond() {
+            return this.names * (double) TimeUnit.SECONDS.toNanos(1) / this.elapsedNanos;
+        }
+    }
+}
@@ -0,0 +1,110 @@
+package indi.vincent.aptos.simulator;
+
+import cn.hutool.core.io.FileUtil;
+import indi.vincent.aptos.service.RegistrationStage;
+import indi.vincent.aptos.tools.AptosClient;
+import indi.vincent.aptos.tools.ConfirmationTracker;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 在模拟器上启动完整的机器人服务并压测 POST /names
+ * <p>
+ * 默认只注册少量 Name 作为冒烟测试，压测时通过系统属性调整规模，例如：
+ * mvn test -Dtest=RegistrationLoadTest -Dload.names=20000 -Dload.clients=16 -Dload.batch-size=64
+ */
+@Slf4j
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+public class RegistrationLoadTest {
+
+    private static final AptosSimulator SIMULATOR;
+    private static final Path KEYSTORE;
+
+    static {
+        try {
+            SIMULATOR = new AptosSimulator()
+                    .configure(AptosSimulator.Service.FULLNODE, Latency.logNormal(5, 50), 0.01, 0.01)
+                    .configure(AptosSimulator.Service.FAUCET, Latency.logNormal(20, 200), 0.01, 0.02)
+                    .configure(AptosSimulator.Service.NAMES, Latency.logNormal(10, 100), 0.01, 0.01)
+                    .commitLatency(Latency.uniform(100, 500));
+            KEYSTORE = Files.createTempDirectory("aptos-load");
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @LocalServerPort
+    private int port;
+    @Autowired
+    private MeterRegistry meterRegistry;
+    @Autowired
+    private ConfirmationTracker confirmationTracker;
+    @Autowired
+    private AptosClient aptosClient;
+
+    @DynamicPropertySource
+    static void simulatorProperties(DynamicPropertyRegistry registry) {
+        registry.add("aptos.fullnode", SIMULATOR::getUrl);
+        registry.add("aptos.faucet", SIMULATOR::getUrl);
+        registry.add("aptos.names.host", SIMULATOR::getUrl);
+        registry.add("aptos.keystore", KEYSTORE::toString);
+        registry.add("aptos.journal.recover", () -> "false");
+        registry.add("aptos.keypool.threads", () -> "2");
+        registry.add("aptos.confirmation.initial-delay", () -> "100ms");
+        registry.add("aptos.confirmation.max-delay", () -> "1s");
+    }
+
+    @AfterAll
+    static void closeSimulator() {
+        SIMULATOR.close();
+        FileUtil.del(KEYSTORE);
+    }
+
+    @Test
+    public void registerTest() throws Exception {
+        int names = Integer.getInteger("load.names", 200);
+        RegistrationLoadGenerator generator = new RegistrationLoadGenerator("http://127.0.0.1:" + this.port,
+                Integer.getInteger("load.clients", 4), Integer.getInteger("load.batch-size", 16));
+        RegistrationLoadGenerator.Report report = generator.run("load" + System.currentTimeMillis() % 100000 + "n", names);
+
+        long deadline = System.nanoTime() + TimeUnit.MINUTES.toNanos(2);
+        while ((this.confirmationTracker.getPending() > 0 || SIMULATOR.getRegisteredNames() < report.getSubmitted())
+                && System.nanoTime() < deadline) {
+            Thread.sleep(100);
+        }
+
+        log.info("注册 {} 个 Name，耗时 {} 毫秒，{} 个/秒，请求 p50 {} 毫秒，p99 {} 毫秒，失败请求 {} 个",
+                report.getNames(), TimeUnit.NANOSECONDS.toMillis(report.getElapsedNanos()), String.format("%.1f", report.getNamesPerSecond()),
+                String.format("%.1f", report.getRequestP50Millis()), String.format("%.1f", report.getRequestP99Millis()), report.getFailedRequests());
+        for (Map.Entry<RegistrationStage, double[]> entry : RegistrationLoadGenerator.stagePercentiles(this.meterRegistry).entrySet()) {
+            log.info("阶段 {}：p50 {} 毫秒，p99 {} 毫秒", entry.getKey(),
+                    String.format("%.1f", entry.getValue()[0]), String.format("%.1f", entry.getValue()[1]));
+        }
+        log.info("模拟器：全节点 {} 次请求，水龙头 {} 次，aptosnames {} 次，429 {} 次，500 {} 次",
+                SIMULATOR.getRequests(AptosSimulator.Service.FULLNODE), SIMULATOR.getRequests(AptosSimulator.Service.FAUCET),
+                SIMULATOR.getRequests(AptosSimulator.Service.NAMES), SIMULATOR.getThrottled(), SIMULATOR.getErrors());
+
+        Assertions.assertEquals(0, report.getFailedRequests());
+        Assertions.assertEquals(names, report.getSubmitted());
+        Assertions.assertEquals(names, SIMULATOR.getRegisteredNames());
+        Assertions.assertEquals(0, this.confirmationTracker.getPending());
+        // 本地签名消息与模拟器一致，测到的是本地签名的路径，不是回退到节点的路径
+        Assertions.assertEquals(0, this.aptosClient.getSigningMismatches());
+        Assertions.assertTrue(SIMULATOR.getSigningMessages() > 0);
+    }
+}
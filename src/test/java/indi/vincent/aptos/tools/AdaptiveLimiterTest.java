@@ -0,0 +1,120 @@
+package indi.vincent.aptos.tools;
+
+import com.sun.net.httpserver.HttpServer;
+import okhttp3.Request;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class AdaptiveLimiterTest {
+
+    @Test
+    public void concurrencyLimitTest() {
+        AdaptiveLimiter limiter = new AdaptiveLimiter("test", 0, 1, 1, 2, 4, 0);
+        CompletableFuture<AdaptiveLimiter.Permit> first = limiter.acquire();
+        CompletableFuture<AdaptiveLimiter.Permit> second = limiter.acquire();
+        CompletableFuture<AdaptiveLimiter.Permit> third = limiter.acquire();
+        Assertions.assertTrue(first.isDone());
+        Assertions.assertTrue(second.isDone());
+        Assertions.assertFalse(third.isDone());
+        Assertions.assertEquals(1, limiter.getWaiting());
+
+        first.join().success();
+        Assertions.assertTrue(third.isDone());
+        Assertions.assertEquals(2, limiter.getInFlight());
+    }
+
+    @Test
+    public void additiveIncreaseMultiplicativeDecreaseTest() {
+        AdaptiveLimiter limiter = new AdaptiveLimiter("test", 0, 1, 2, 8, 16, 0);
+        for (int i = 0; i < 100; i++) {
+            limiter.acquire().join().success();
+        }
+        Assertions.assertEquals(16, limiter.getLimit());
+
+        limiter.acquire().join().throttled();
+        Assertions.assertEquals(8, limiter.getLimit());
+        for (int i = 0; i < 5; i++) {
+            limiter.acquire().join().throttled();
+        }
+        Assertions.assertEquals(2, limiter.getLimit());
+        Assertions.assertEquals(6, limiter.getThrottled());
+    }
+
+    @Test
+    public void throttledBurstTest() {
+        AdaptiveLimiter limiter = new AdaptiveLimiter("test", 0, 1, 1, 16, 16, 0);
+        List<AdaptiveLimiter.Permit> permits = new ArrayList<>();
+        for (int i = 0; i < 16; i++) {
+            permits.add(limiter.acquire().join());
+        }
+
+        // 同一轮发出的请求一起收到 429，只减半一次
+        permits.forEach(AdaptiveLimiter.Permit::throttled);
+        Assertions.assertEquals(8, limiter.getLimit());
+        Assertions.assertEquals(16, limiter.getThrottled());
+
+        // 减小之后发出的请求再收到 429 时继续减半
+        limiter.acquire().join().throttled();
+        Assertions.assertEquals(4, limiter.getLimit());
+    }
+
+    @Test
+    public void tokenBucketTest() {
+        AdaptiveLimiter limiter = new AdaptiveLimiter("test", 20, 2, 8, 8, 8, 0);
+        limiter.acquire().join().success();
+        limiter.acquire().join().success();
+        CompletableFuture<AdaptiveLimiter.Permit> third = limiter.acquire();
+        Assertions.assertFalse(third.isDone());
+        long start = System.nanoTime();
+        third.join().success();
+        Assertions.assertTrue(System.nanoTime() - start >= TimeUnit.MILLISECONDS.toNanos(20));
+    }
+
+    @Test
+    public void endpointRetryTest() throws Exception {
+        AtomicInteger requests = new AtomicInteger();
+        HttpServer server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/", exchange -> {
+            int request = requests.incrementAndGet();
+            byte[] body = (request <= 2 ? "{\"message\":\"slow down\"}" : "{\"sequence_number\":\"3\"}").getBytes(StandardCharsets.UTF_8);
+            exchange.sendResponseHeaders(request <= 2 ? 429 : 200, body.length);
+            try (OutputStream output = exchange.getResponseBody()) {
+                output.write(body);
+            }
+        });
+        server.start();
+        try {
+            String url = "http://127.0.0.1:" + server.getAddress().getPort() + "/accounts/0x1";
+            AdaptiveLimiter limiter = new AdaptiveLimiter("test", 0, 1, 1, 4, 4, 0);
+            AptosEndpoint endpoint = new AptosEndpoint(AptosHttpClients.shared(), limiter, 3, 10);
+            Request request = new Request.Builder().url(url).tag(String.class, "get_account").build();
+
+            AptosClient.AccountResponse response = endpoint.enqueue(request,
+                    body -> AptosJsonCodec.read(body.byteStream(), AptosClient.AccountResponse.class)).get(5, TimeUnit.SECONDS);
+            Assertions.assertEquals("3", response.getSequenceNumber());
+            Assertions.assertEquals(3, requests.get());
+            Assertions.assertEquals(2, limiter.getThrottled());
+            Assertions.assertEquals(1, limiter.getLimit());
+
+            requests.set(-10);
+            AptosEndpoint noRetry = new AptosEndpoint(AptosHttpClients.shared(), null, 0, 10);
+            CompletionException error = Assertions.assertThrows(CompletionException.class, () -> noRetry.enqueue(request,
+                    body -> AptosJsonCodec.read(body.byteStream(), AptosClient.AccountResponse.class)).join());
+            AptosClientException cause = (AptosClientException) error.getCause();
+            Assertions.assertEquals(429, cause.getStatus());
+            Assertions.assertEquals("get_account", cause.getOperation());
+        } finally {
+            server.stop(0);
+        }
+    }
+}
@@ -0,0 +1,121 @@
+package indi.vincent.aptos.tools;
+
+import cn.hutool.core.util.HexUtil;
+import indi.vincent.aptos.simulator.AptosSimulator;
+import indi.vincent.aptos.simulator.Latency;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+public class AptosClientTest {
+
+    private AptosSimulator simulator;
+    private AptosClient aptosClient;
+    private AptosAccount sender;
+
+    @BeforeEach
+    public void setUp() throws IOException {
+        this.simulator = new AptosSimulator().commitLatency(Latency.NONE);
+        this.aptosClient = new AptosClient(this.simulator.getUrl());
+        byte[] privateKey = AptosCryptoUtil.randomPrivateKey();
+        byte[] publicKey = AptosCryptoUtil.createPublicKey(privateKey);
+        this.sender = new AptosAccount(privateKey, publicKey, AptosCryptoUtil.createAddress(publicKey), "@sender");
+        new AptosFaucetClient(this.simulator.getUrl()).invokeMint(this.sender.getAddress(), BigInteger.valueOf(1000000));
+    }
+
+    @AfterEach
+    public void tearDown() {
+        this.simulator.close();
+    }
+
+    @Test
+    public void lostSubmitResponseTest() {
+        // 第一次提交已经上链但响应丢失，重试被 Sequence Number 拒绝，按签名找到已上链的交易
+        this.simulator.dropSubmitResponses(1);
+        AptosClient.SubmitTransactionParam transaction = this.aptosClient.createSignedTransactionAsync(this.sender, payload("alice")).join();
+        AptosClient.SubmitTransactionResponse response = this.aptosClient.invokeSubmitTransactionAsync(transaction).join();
+        Assertions.assertNotNull(response.getHash(), response.getMessage());
+        Assertions.assertEquals("Executed successfully", this.aptosClient.invokeGetTransactionByHash(response.getHash()).getVmStatus());
+        Assertions.assertEquals(1, this.simulator.getSequenceNumber(this.sender.getAddress()));
+
+        // 同一个 Sequence Number 上链的是另一笔交易时仍然是失败，并且重新同步
+        AptosClient.TransactionSignature signature = new AptosClient.TransactionSignature();
+        signature.setType(transaction.getSignature().getType());
+        signature.setPublicKey(transaction.getSignature().getPublicKey());
+        signature.setSignature("0x" + repeat('1', 128));
+        AptosClient.SubmitTransactionParam conflicting = AptosClient.SubmitTransactionParam.of(transaction, signature);
+        conflicting.setPayload(payload("bob"));
+        AptosClient.SubmitTransactionResponse rejected = this.aptosClient.invokeSubmitTransactionAsync(conflicting).join();
+        Assertions.assertNull(rejected.getHash());
+        Assertions.assertEquals("1", this.aptosClient.createSignedTransactionAsync(this.sender, payload("carol")).join().getSequenceNumber());
+    }
+
+    @Test
+    public void retriesExhaustedTest() {
+        // 所有重试的响应都丢失，交易在第一次提交时已经上链
+        this.simulator.dropSubmitResponses(AptosEndpoint.DEFAULT_MAX_RETRIES + 1);
+        AptosClient.SubmitTransactionParam transaction = this.aptosClient.createSignedTransactionAsync(this.sender, payload("alice")).join();
+        Assertions.assertNotNull(this.aptosClient.invokeSubmitTransactionAsync(transaction).join().getHash());
+
+        // 没有上链时仍然是异常
+        this.simulator.configure(AptosSimulator.Service.FULLNODE, Latency.NONE, 1, 0);
+        AptosClient.SubmitTransactionParam failed = AptosClient.SubmitTransactionParam.of(transaction, transaction.getSignature());
+        failed.setSequenceNumber("1");
+        Assertions.assertThrows(CompletionException.class, () -> this.aptosClient.invokeSubmitTransactionAsync(failed).join());
+    }
+
+    @Test
+    public void verifyFirstLocalSigningTest() {
+        // 每个入口函数只有第一笔交易请求节点计算签名消息
+        for (String name : Arrays.asList("alice", "bob", "carol")) {
+            AptosClient.SubmitTransactionParam transaction = this.aptosClient.createSignedTransactionAsync(this.sender, payload(name)).join();
+            Assertions.assertNotNull(this.aptosClient.invokeSubmitTransactionAsync(transaction).join().getHash());
+        }
+        Assertions.assertEquals(1, this.simulator.getSigningMessages());
+
+        this.aptosClient.setVerifyLocalSigning(true);
+        this.aptosClient.createSignedTransactionAsync(this.sender, payload("dave")).join();
+        Assertions.assertEquals(2, this.simulator.getSigningMessages());
+        Assertions.assertEquals(0, this.aptosClient.getSigningMismatches());
+    }
+
+    @Test
+    public void concurrentVerifyFirstLocalSigningTest() {
+        // 节点很慢，第一笔交易的校验完成前其他交易都在等待同一个校验结果
+        this.simulator.configure(AptosSimulator.Service.FULLNODE, Latency.fixed(50), 0, 0);
+        List<CompletableFuture<AptosClient.SubmitTransactionParam>> transactions = new ArrayList<>();
+        for (int i = 0; i < 16; i++) {
+            transactions.add(this.aptosClient.createSignedTransactionAsync(this.sender, payload("burst" + i)));
+        }
+        transactions.forEach(CompletableFuture::join);
+        Assertions.assertEquals(1, this.simulator.getSigningMessages());
+        Assertions.assertEquals(0, this.aptosClient.getSigningMismatches());
+    }
+
+    private static AptosClient.TransactionPayload payload(String name) {
+        AptosClient.TransactionPayload payload = new AptosClient.TransactionPayload();
+        payload.setType("script_function_payload");
+        payload.setFunction("0x1::service::claim_name");
+        payload.setArguments(Collections.singletonList(HexUtil.encodeHexStr(name.getBytes(StandardCharsets.UTF_8))));
+        return payload;
+    }
+
+    private static String repeat(char c, int count) {
+        StringBuilder builder = new StringBuilder(count);
+        for (int i = 0; i < count; i++) {
+            builder.append(c);
+        }
+        return builder.toString();
+    }
+}
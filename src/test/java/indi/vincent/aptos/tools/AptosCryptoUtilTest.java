@@ -0,0 +1,74 @@
+package indi.vincent.aptos.tools;
+
+import org.bouncycastle.jcajce.provider.digest.SHA3;
+import org.bouncycastle.util.encoders.Hex;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.BitSet;
+
+public class AptosCryptoUtilTest {
+
+    private static final byte[] MESSAGE = "APTOS::RawTransaction message".getBytes(StandardCharsets.UTF_8);
+
+    @Test
+    public void ed25519SignTest() {
+        byte[] privateKey = AptosCryptoUtil.randomPrivateKey();
+        byte[] publicKey = AptosCryptoUtil.createPublicKey(privateKey);
+
+        byte[] signature = AptosCryptoUtil.ed25519Sign(privateKey, publicKey, MESSAGE);
+        Assertions.assertEquals(AptosCryptoUtil.ed25519Signature(Hex.toHexString(privateKey), Hex.toHexString(MESSAGE)), Hex.toHexString(signature));
+        Assertions.assertTrue(AptosCryptoUtil.ed25519Validate(Hex.toHexString(publicKey), Hex.toHexString(signature), Hex.toHexString(MESSAGE)));
+
+        ByteBuffer direct = ByteBuffer.allocateDirect(MESSAGE.length);
+        direct.put(MESSAGE).flip();
+        byte[] directSignature = new byte[AptosCryptoUtil.SIGNATURE_SIZE];
+        AptosCryptoUtil.ed25519Sign(privateKey, publicKey, direct, directSignature, 0);
+        Assertions.assertArrayEquals(signature, directSignature);
+        Assertions.assertEquals(0, direct.position());
+    }
+
+    @Test
+    public void validateAllTest() {
+        int size = 300;
+        byte[][] publicKeys = new byte[size][];
+        byte[][] signatures = new byte[size][];
+        byte[][] messages = new byte[size][];
+        for (int i = 0; i < size; i++) {
+            byte[] privateKey = AptosCryptoUtil.randomPrivateKey();
+            publicKeys[i] = AptosCryptoUtil.createPublicKey(privateKey);
+            messages[i] = ("message-" + i).getBytes(StandardCharsets.UTF_8);
+            signatures[i] = AptosCryptoUtil.ed25519Sign(privateKey, publicKeys[i], messages[i]);
+        }
+        signatures[7][0] ^= 1;
+        messages[70] = MESSAGE;
+        signatures[299] = new byte[3];
+
+        BitSet valid = AptosCryptoUtil.validateAll(publicKeys, signatures, messages);
+        for (int i = 0; i < size; i++) {
+            Assertions.assertEquals(i != 7 && i != 70 && i != 299, valid.get(i), "index " + i);
+        }
+        Assertions.assertTrue(AptosCryptoUtil.validateAll(new byte[0][], new byte[0][], new byte[0][]).isEmpty());
+    }
+
+    @Test
+    public void aptosSHA256Test() {
+        byte[] publicKey = AptosCryptoUtil.createPublicKey(AptosCryptoUtil.randomPrivateKey());
+        SHA3.DigestSHA3 digestSHA3 = new SHA3.Digest256();
+        digestSHA3.update(publicKey);
+        digestSHA3.update((byte) 0);
+        Assertions.assertArrayEquals(digestSHA3.digest(), AptosCryptoUtil.aptosSHA256(publicKey));
+        Assertions.assertArrayEquals(AptosCryptoUtil.aptosSHA256(publicKey), AptosCryptoUtil.createAddress(publicKey));
+    }
+
+    @Test
+    public void hexTest() {
+        byte[] bytes = {0, 1, (byte) 0xAB, (byte) 0xFF};
+        Assertions.assertEquals("0x0001abff", AptosCryptoUtil.toPrefixedHex(bytes));
+        Assertions.assertArrayEquals(bytes, AptosCryptoUtil.decodeHex("0x0001abff"));
+        Assertions.assertArrayEquals(bytes, AptosCryptoUtil.decodeHex("0001ABFF"));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> AptosCryptoUtil.decodeHex("0x123"));
+    }
+}
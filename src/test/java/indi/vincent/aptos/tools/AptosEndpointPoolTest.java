@@ -0,0 +1,129 @@
+package indi.vincent.aptos.tools;
+
+import com.sun.net.httpserver.HttpServer;
+import okhttp3.Request;
+import okhttp3.ResponseBody;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class AptosEndpointPoolTest {
+
+    private TestNode first;
+    private TestNode second;
+    private AptosEndpointPool pool;
+
+    @BeforeEach
+    public void setUp() throws IOException {
+        this.first = new TestNode("first");
+        this.second = new TestNode("second");
+        this.pool = new AptosEndpointPool(Arrays.asList(
+                new AptosEndpointPool.Node(this.first.url, new AptosEndpoint(AptosHttpClients.shared(), null, 0, 0)),
+                new AptosEndpointPool.Node(this.second.url, new AptosEndpoint(AptosHttpClients.shared(), null, 0, 0))),
+                2, 1, 3, TimeUnit.MINUTES.toMillis(1), 0.95, 100, 64);
+    }
+
+    @AfterEach
+    public void tearDown() {
+        this.first.server.stop(0);
+        this.second.server.stop(0);
+    }
+
+    @Test
+    public void failoverTest() {
+        this.first.status = 503;
+        for (int i = 0; i < 10; i++) {
+            Assertions.assertEquals("second", this.pool.failover("test", this::request, AptosEndpointPoolTest::parse).join());
+        }
+        AptosEndpointPool.Node node = this.pool.getNodes().get(0);
+        Assertions.assertTrue(node.isEjected());
+        Assertions.assertEquals(1, node.getEjections());
+        Assertions.assertEquals(3, this.first.requests.get());
+    }
+
+    @Test
+    public void hedgedTest() {
+        for (int i = 0; i < 64; i++) {
+            this.pool.hedged("test", this::request, AptosEndpointPoolTest::parse).join();
+        }
+        // 样本不足 64 个时不对冲
+        Assertions.assertEquals(0, this.pool.getHedges());
+
+        this.first.delayMillis = 2000;
+        for (int i = 0; i < 8; i++) {
+            long start = System.nanoTime();
+            Assertions.assertEquals("second", this.pool.hedged("test", this::request, AptosEndpointPoolTest::parse).join());
+            Assertions.assertTrue(System.nanoTime() - start < TimeUnit.MILLISECONDS.toNanos(1000));
+        }
+        Assertions.assertTrue(this.pool.getHedges() > 0);
+        Assertions.assertEquals(this.pool.getHedges(), this.pool.getHedgeWins());
+    }
+
+    @Test
+    public void singleNodeHedgedTest() {
+        AptosEndpointPool single = new AptosEndpointPool(Collections.singletonList(
+                new AptosEndpointPool.Node(this.first.url, new AptosEndpoint(AptosHttpClients.shared(), null, 0, 0))),
+                2, 1, 3, TimeUnit.MINUTES.toMillis(1), 0.95, 100, 64);
+        for (int i = 0; i < 64; i++) {
+            single.hedged("test", this::request, AptosEndpointPoolTest::parse).join();
+        }
+
+        // 只有一个节点时慢请求不会重复发给同一个节点
+        this.first.delayMillis = 300;
+        for (int i = 0; i < 4; i++) {
+            Assertions.assertEquals("first", single.hedged("test", this::request, AptosEndpointPoolTest::parse).join());
+        }
+        Assertions.assertEquals(0, single.getHedges());
+        Assertions.assertEquals(68, this.first.requests.get());
+    }
+
+    private Request request(String host) {
+        return new Request.Builder().url(host + "/").get().tag(String.class, "test").build();
+    }
+
+    private static String parse(ResponseBody body) throws IOException {
+        return AptosJsonCodec.readField(body.byteStream(), "node");
+    }
+
+    private static class TestNode {
+
+        private final HttpServer server;
+        private final String url;
+        private final AtomicInteger requests = new AtomicInteger();
+        private volatile int status = 200;
+        private volatile long delayMillis;
+
+        TestNode(String name) throws IOException {
+            this.server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+            this.server.setExecutor(Executors.newCachedThreadPool());
+            this.server.createContext("/", exchange -> {
+                this.requests.incrementAndGet();
+                try {
+                    Thread.sleep(this.delayMillis);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                byte[] body = ("{\"node\":\"" + name + "\"}").getBytes(StandardCharsets.UTF_8);
+                exchange.sendResponseHeaders(this.status, body.length);
+                try (OutputStream output = exchange.getResponseBody()) {
+                    output.write(body);
+                } catch (IOException e) {
+                    // 对冲请求被取消
+                }
+            });
+            this.server.start();
+            this.url = "http://127.0.0.1:" + this.server.getAddress().getPort();
+        }
+    }
+}
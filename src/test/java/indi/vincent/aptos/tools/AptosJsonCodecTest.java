@@ -0,0 +1,87 @@
+package indi.vincent.aptos.tools;
+
+import cn.hutool.json.JSONUtil;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collections;
+
+public class AptosJsonCodecTest {
+
+    @Test
+    public void writeMatchesHutoolTest() throws IOException {
+        AptosClient.TransactionPayload payload = new AptosClient.TransactionPayload();
+        payload.setType("script_function_payload");
+        payload.setFunction("0x1::service::claim_name");
+        payload.setArguments(Collections.singletonList("6162"));
+
+        AptosClient.SignatureMessageParam param = new AptosClient.SignatureMessageParam();
+        param.setSender("0xabc");
+        param.setSequenceNumber("5");
+        param.setMaxGasAmount("2000");
+        param.setGasUnitPrice("1");
+        param.setExpirationTimestampSecs("1660000000");
+        param.setPayload(payload);
+
+        AptosClient.TransactionSignature signature = new AptosClient.TransactionSignature();
+        signature.setType("ed25519_signature");
+        signature.setPublicKey("0x01");
+        signature.setSignature("0x02");
+        AptosClient.SubmitTransactionParam submit = AptosClient.SubmitTransactionParam.of(param, signature);
+
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        AptosJsonCodec.write(submit, output);
+        Assertions.assertEquals(JSONUtil.parseObj(JSONUtil.toJsonStr(submit)), JSONUtil.parseObj(output.toString("UTF-8")));
+    }
+
+    @Test
+    public void readMatchesHutoolTest() throws IOException {
+        String account = "{\"sequence_number\":\"12\",\"authentication_key\":\"0xabc\"}";
+        Assertions.assertEquals(JSONUtil.toBean(account, AptosClient.AccountResponse.class),
+                AptosJsonCodec.read(stream(account), AptosClient.AccountResponse.class));
+
+        String error = "{\"code\":400,\"message\":\"transaction is rejected: SEQUENCE_NUMBER_TOO_OLD\",\"error_code\":\"vm_error\"}";
+        AptosClient.SubmitTransactionResponse rejected = AptosJsonCodec.read(stream(error), AptosClient.SubmitTransactionResponse.class);
+        Assertions.assertNull(rejected.getHash());
+        Assertions.assertEquals("400", rejected.getCode());
+        Assertions.assertEquals("vm_error", rejected.getErrorCode());
+
+        String pending = "{\"type\":\"pending_transaction\",\"hash\":\"0xff\",\"sender\":\"0xabc\",\"sequence_number\":\"5\","
+                + "\"payload\":{\"type\":\"script_function_payload\",\"function\":\"0x1::service::claim_name\","
+                + "\"type_arguments\":[],\"arguments\":[\"6162\",{\"nested\":[1,true]}]},"
+                + "\"signature\":{\"type\":\"ed25519_signature\",\"public_key\":\"0x01\",\"signature\":\"0x02\"}}";
+        AptosClient.SubmitTransactionResponse response = AptosJsonCodec.read(stream(pending), AptosClient.SubmitTransactionResponse.class);
+        Assertions.assertEquals("0xff", response.getHash());
+        Assertions.assertEquals("0x01", response.getSignature().getPublicKey());
+        Assertions.assertEquals("6162", response.getPayload().getArguments().get(0));
+        Assertions.assertEquals(JSONUtil.toBean(pending, AptosClient.SubmitTransactionResponse.class).getPayload().getFunction(),
+                response.getPayload().getFunction());
+
+        String module = "{\"bytecode\":\"0x00\",\"abi\":{\"address\":\"0x1\",\"name\":\"service\","
+                + "\"exposed_functions\":[{\"name\":\"claim_name\",\"is_entry\":true,\"params\":[\"&signer\",\"vector<u8>\"]}]}}";
+        AptosClient.MoveModuleResponse moveModule = AptosJsonCodec.read(stream(module), AptosClient.MoveModuleResponse.class);
+        Assertions.assertEquals(Arrays.asList("&signer", "vector<u8>"), moveModule.getAbi().getExposedFunctions().get(0).getParams());
+
+        String message = "{\"message\":\"0xb5e97db07fa0bd0e5598aa3643a9bc6f6693bddc1a9fec9e674a461eaa00b193\"}";
+        Assertions.assertEquals(JSONUtil.toBean(message, AptosClient.SignatureMessageResponse.class).getMessage(),
+                AptosJsonCodec.read(stream(message), AptosClient.SignatureMessageResponse.class).getMessage());
+    }
+
+    @Test
+    public void readFieldAndListTest() throws IOException {
+        Assertions.assertEquals("0xabc", AptosJsonCodec.readField(stream("{\"other\":{\"address\":\"x\"},\"address\":\"0xabc\"}"), "address"));
+        Assertions.assertNull(AptosJsonCodec.readField(stream("{\"address\":null}"), "address"));
+        Assertions.assertNull(AptosJsonCodec.readField(stream("{}"), "address"));
+        Assertions.assertEquals(Arrays.asList("0x1", "0x2"), AptosJsonCodec.readStringList(stream("[\"0x1\",\"0x2\"]")));
+    }
+
+    private static InputStream stream(String json) {
+        return new ByteArrayInputStream(json.getBytes(StandardCharsets.UTF_8));
+    }
+}
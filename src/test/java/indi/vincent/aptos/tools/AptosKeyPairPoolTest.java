@@ -0,0 +1,76 @@
+package indi.vincent.aptos.tools;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+
+public class AptosKeyPairPoolTest {
+
+    @Test
+    public void lowWaterMarkTest() throws InterruptedException {
+        try (AptosKeyPairPool pool = new AptosKeyPairPool(8, 4, 1)) {
+            await(() -> pool.getAvailable() == 8);
+            // 队列满后最多多生成一个等待放入的账户
+            Thread.sleep(100);
+            long generated = pool.getGenerated();
+            Assertions.assertTrue(generated <= 9, String.valueOf(generated));
+
+            // 剩余数量高于低水位时不补充
+            for (int i = 0; i < 3; i++) {
+                pool.take("name" + i);
+            }
+            Thread.sleep(100);
+            Assertions.assertEquals(5, pool.getAvailable());
+            Assertions.assertEquals(generated, pool.getGenerated());
+
+            // 降到低水位后补充到填满
+            pool.take("name3");
+            await(() -> pool.getAvailable() == 8);
+            Assertions.assertEquals(4, pool.getTaken());
+            Assertions.assertEquals(0, pool.getMisses());
+        }
+    }
+
+    @Test
+    public void missTest() {
+        try (AptosKeyPairPool pool = new AptosKeyPairPool(4, 1, 0)) {
+            AptosAccount account = pool.take("alice");
+            Assertions.assertEquals("alice", account.getName());
+            Assertions.assertArrayEquals(AptosCryptoUtil.createPublicKey(account.privateKeyBytes()), account.publicKeyBytes());
+            Assertions.assertEquals(1, pool.getMisses());
+            Assertions.assertEquals(1, pool.getTaken());
+            Assertions.assertEquals(0, pool.getGenerated());
+        }
+    }
+
+    @Test
+    public void closeTest() throws InterruptedException {
+        AptosKeyPairPool pool = new AptosKeyPairPool(8, 4, 2);
+        await(() -> pool.getAvailable() == 8);
+        pool.close();
+        long generated = pool.getGenerated();
+
+        // 取空之后后台线程不再补充，在调用线程上生成
+        Set<String> addresses = new HashSet<>();
+        for (int i = 0; i < 10; i++) {
+            addresses.add(pool.take("name" + i).getAddress());
+        }
+        Thread.sleep(100);
+        Assertions.assertEquals(10, addresses.size());
+        Assertions.assertEquals(generated, pool.getGenerated());
+        Assertions.assertEquals(0, pool.getAvailable());
+        Assertions.assertEquals(2, pool.getMisses());
+    }
+
+    private static void await(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (!condition.getAsBoolean()) {
+            Assertions.assertTrue(System.nanoTime() < deadline, "timeout");
+            Thread.sleep(10);
+        }
+    }
+}
@@ -0,0 +1,167 @@
+package indi.vincent.aptos.tools;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class AptosNameResolverTest {
+
+    private static final String ADDRESS = "0x1";
+
+    private final StubClient client = new StubClient();
+
+    @Test
+    public void ttlTest() throws InterruptedException {
+        AptosNameResolver resolver = new AptosNameResolver(this.client, 100, TimeUnit.MINUTES.toMillis(1), 50);
+        this.client.registered.put("alice", ADDRESS);
+        this.client.autoComplete = true;
+
+        Assertions.assertEquals(ADDRESS, resolver.lookup("alice"));
+        Assertions.assertNull(resolver.lookup("bob"));
+        Assertions.assertEquals(ADDRESS, resolver.lookup("alice"));
+        Assertions.assertNull(resolver.lookup("bob"));
+        Assertions.assertEquals(2, this.client.calls.get());
+
+        // 未注册的结果过期，已注册的结果仍在缓存中
+        Thread.sleep(100);
+        Assertions.assertEquals(ADDRESS, resolver.lookup("alice"));
+        Assertions.assertNull(resolver.lookup("bob"));
+        Assertions.assertEquals(3, this.client.calls.get());
+    }
+
+    @Test
+    public void singleFlightTest() throws Exception {
+        AptosNameResolver resolver = new AptosNameResolver(this.client, 100, TimeUnit.MINUTES.toMillis(1), TimeUnit.MINUTES.toMillis(1));
+        int lookups = 16;
+        ExecutorService executor = Executors.newFixedThreadPool(lookups);
+        CountDownLatch start = new CountDownLatch(1);
+        List<CompletableFuture<CompletableFuture<String>>> futures = new ArrayList<>();
+        for (int i = 0; i < lookups; i++) {
+            futures.add(CompletableFuture.supplyAsync(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                return resolver.lookupAsync("alice");
+            }, executor));
+        }
+        start.countDown();
+        List<CompletableFuture<String>> results = new ArrayList<>();
+        for (CompletableFuture<CompletableFuture<String>> future : futures) {
+            results.add(future.join());
+        }
+        executor.shutdown();
+
+        Assertions.assertEquals(1, this.client.calls.get());
+        this.client.complete("alice", ADDRESS);
+        for (CompletableFuture<String> result : results) {
+            Assertions.assertEquals(ADDRESS, result.get(1, TimeUnit.SECONDS));
+        }
+        Assertions.assertEquals(ADDRESS, resolver.lookup("alice"));
+        Assertions.assertEquals(1, this.client.calls.get());
+    }
+
+    @Test
+    public void lruTest() {
+        AptosNameResolver resolver = new AptosNameResolver(this.client, 2, TimeUnit.MINUTES.toMillis(1), TimeUnit.MINUTES.toMillis(1));
+        this.client.autoComplete = true;
+        Map<String, String> addresses = resolver.lookupAll(Arrays.asList("alice", "bob", "alice"));
+        Assertions.assertEquals(2, addresses.size());
+        Assertions.assertEquals(2, this.client.calls.get());
+
+        // 访问 alice 之后，carol 淘汰最久未使用的 bob
+        resolver.lookup("alice");
+        resolver.lookup("carol");
+        Assertions.assertEquals(3, this.client.calls.get());
+        resolver.lookup("alice");
+        Assertions.assertEquals(3, this.client.calls.get());
+        resolver.lookup("bob");
+        Assertions.assertEquals(4, this.client.calls.get());
+    }
+
+    @Test
+    public void putDuringLookupTest() throws Exception {
+        AptosNameResolver resolver = new AptosNameResolver(this.client, 100, TimeUnit.MINUTES.toMillis(1), TimeUnit.MINUTES.toMillis(1));
+        CompletableFuture<String> stale = resolver.lookupAsync("alice");
+
+        // 查询期间本机注册成功，之后返回的未注册结果不能覆盖
+        resolver.put("alice", ADDRESS);
+        this.client.complete("alice", null);
+        Assertions.assertNull(stale.get(1, TimeUnit.SECONDS));
+        Assertions.assertEquals(ADDRESS, resolver.lookup("alice"));
+        Assertions.assertEquals(1, this.client.calls.get());
+    }
+
+    @Test
+    public void invalidateDuringLookupTest() throws Exception {
+        AptosNameResolver resolver = new AptosNameResolver(this.client, 100, TimeUnit.MINUTES.toMillis(1), TimeUnit.MINUTES.toMillis(1));
+        CompletableFuture<String> stale = resolver.lookupAsync("alice");
+        resolver.invalidate("alice");
+        this.client.complete("alice", null);
+        Assertions.assertNull(stale.get(1, TimeUnit.SECONDS));
+
+        // 过时的结果没有写入缓存，重新查询
+        this.client.registered.put("alice", ADDRESS);
+        this.client.autoComplete = true;
+        Assertions.assertEquals(ADDRESS, resolver.lookup("alice"));
+        Assertions.assertEquals(2, this.client.calls.get());
+    }
+
+    @Test
+    public void synchronousFailureTest() {
+        AptosNameResolver resolver = new AptosNameResolver(this.client, 100, TimeUnit.MINUTES.toMillis(1), TimeUnit.MINUTES.toMillis(1));
+        this.client.failure = new IllegalStateException("rejected");
+        Assertions.assertThrows(IllegalStateException.class, () -> resolver.lookup("alice"));
+
+        // 失败的查询没有留在 inFlight 中
+        this.client.failure = null;
+        this.client.registered.put("alice", ADDRESS);
+        this.client.autoComplete = true;
+        Assertions.assertEquals(ADDRESS, resolver.lookup("alice"));
+        Assertions.assertEquals(2, this.client.calls.get());
+    }
+
+    /**
+     * autoComplete 为 false 时查询一直等待，直到调用 {@link #complete}
+     */
+    private static class StubClient extends AptosClient {
+
+        private final AtomicInteger calls = new AtomicInteger();
+        private final Map<String, String> registered = new ConcurrentHashMap<>();
+        private final Map<String, CompletableFuture<String>> pending = new ConcurrentHashMap<>();
+        private volatile boolean autoComplete;
+        private volatile RuntimeException failure;
+
+        StubClient() {
+            super("http://127.0.0.1:1");
+        }
+
+        @Override
+        public CompletableFuture<String> invokeGetAddressAsync(String name) {
+            this.calls.incrementAndGet();
+            if (this.failure != null) {
+                throw this.failure;
+            }
+            if (this.autoComplete) {
+                return CompletableFuture.completedFuture(this.registered.get(name));
+            }
+            return this.pending.computeIfAbsent(name, key -> new CompletableFuture<>());
+        }
+
+        void complete(String name, String address) {
+            this.pending.remove(name).complete(address);
+        }
+    }
+}
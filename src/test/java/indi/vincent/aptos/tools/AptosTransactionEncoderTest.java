@@ -0,0 +1,211 @@
+package indi.vincent.aptos.tools;
+
+import cn.hutool.core.io.FileUtil;
+import cn.hutool.json.JSONArray;
+import cn.hutool.json.JSONObject;
+import cn.hutool.json.JSONUtil;
+import org.bouncycastle.crypto.digests.SHA3Digest;
+import org.bouncycastle.util.encoders.Hex;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 除手工拼出的编码外，signing-messages 目录下的每个文件是一次真实节点的 /transactions/signing_message 请求和响应，
+ * 本地计算的签名消息必须与节点逐字节一致。
+ * <p>
+ * 录制新的样本（发送方账户必须存在，arguments 是 JSON 数组，保留数字和字符串的类型）：
+ * mvn test -Dtest=AptosTransactionEncoderTest#recordSigningMessageTest -Daptos.record.fullnode=https://fullnode.devnet.aptoslabs.com
+ * -Daptos.record.sender=0x... -Daptos.record.function=0x...::domains::register_domain -Daptos.record.arguments='["alice",1]'
+ */
+public class AptosTransactionEncoderTest {
+
+    private static final String ADDRESS_ONE = "0000000000000000000000000000000000000000000000000000000000000001";
+    private static final String FIXTURES = "signing-messages";
+
+    @Test
+    public void encodeRawTransactionTest() {
+        byte[] rawTransaction = AptosTransactionEncoder.encodeRawTransaction(claimName(), Collections.singletonList("vector<u8>"), 34);
+
+        String expected = ADDRESS_ONE
+                + "0500000000000000"
+                + "02" + ADDRESS_ONE + "07" + Hex.toHexString("service".getBytes(StandardCharsets.UTF_8))
+                + "0a" + Hex.toHexString("claim_name".getBytes(StandardCharsets.UTF_8))
+                + "00"
+                + "01" + "03" + "02" + "6162"
+                + "d007000000000000"
+                + "0100000000000000"
+                + "0097f16200000000"
+                + "22";
+        Assertions.assertEquals(expected, Hex.toHexString(rawTransaction));
+    }
+
+    @Test
+    public void createSigningMessageTest() {
+        SHA3Digest digest = new SHA3Digest(256);
+        byte[] salt = "APTOS::RawTransaction".getBytes(StandardCharsets.UTF_8);
+        digest.update(salt, 0, salt.length);
+        byte[] prefix = new byte[32];
+        digest.doFinal(prefix, 0);
+
+        byte[] rawTransaction = AptosTransactionEncoder.encodeRawTransaction(claimName(), Collections.singletonList("vector<u8>"), 34);
+        byte[] signingMessage = AptosTransactionEncoder.createSigningMessage(rawTransaction);
+
+        Assertions.assertArrayEquals(prefix, Arrays.copyOf(signingMessage, 32));
+        Assertions.assertArrayEquals(rawTransaction, Arrays.copyOfRange(signingMessage, 32, signingMessage.length));
+    }
+
+    @Test
+    public void encodeTypeArgumentsAndAddressTest() {
+        AptosClient.SignatureMessageParam param = claimName();
+        param.getPayload().setFunction("0x1::coin::transfer");
+        param.getPayload().setTypeArguments(Collections.singletonList("0x1::aptos_coin::AptosCoin"));
+        param.getPayload().setArguments(Arrays.asList("0x2", "1000"));
+
+        byte[] rawTransaction = AptosTransactionEncoder.encodeRawTransaction(param, Arrays.asList("address", "u64"), 34);
+        String hex = Hex.toHexString(rawTransaction);
+
+        String typeTag = "07" + ADDRESS_ONE
+                + "0a" + Hex.toHexString("aptos_coin".getBytes(StandardCharsets.UTF_8))
+                + "09" + Hex.toHexString("AptosCoin".getBytes(StandardCharsets.UTF_8))
+                + "00";
+        String arguments = "02"
+                + "20" + ADDRESS_ONE.substring(0, 62) + "02"
+                + "08" + "e803000000000000";
+        Assertions.assertTrue(hex.contains("01" + typeTag + arguments), hex);
+    }
+
+    @Test
+    public void unsupportedArgumentTypeTest() {
+        AptosClient.SignatureMessageParam param = claimName();
+        Assertions.assertThrows(IllegalArgumentException.class,
+                () -> AptosTransactionEncoder.encodeRawTransaction(param, Collections.singletonList("0x1::option::Option<u64>"), 34));
+        Assertions.assertThrows(IllegalArgumentException.class,
+                () -> AptosTransactionEncoder.encodeRawTransaction(param, Collections.emptyList(), 34));
+    }
+
+    @Test
+    public void u8RangeTest() {
+        AptosClient.SignatureMessageParam param = claimName();
+        param.getPayload().setArguments(Collections.singletonList("255"));
+        Assertions.assertTrue(Hex.toHexString(AptosTransactionEncoder.encodeRawTransaction(param, Collections.singletonList("u8"), 34))
+                .contains("0101ff"));
+        param.getPayload().setArguments(Collections.singletonList("256"));
+        Assertions.assertThrows(IllegalArgumentException.class,
+                () -> AptosTransactionEncoder.encodeRawTransaction(param, Collections.singletonList("u8"), 34));
+        param.getPayload().setArguments(Collections.singletonList("-1"));
+        Assertions.assertThrows(IllegalArgumentException.class,
+                () -> AptosTransactionEncoder.encodeRawTransaction(param, Collections.singletonList("u8"), 34));
+        Assertions.assertThrows(IllegalArgumentException.class,
+                () -> AptosTransactionEncoder.encodeRawTransaction(claimName(), Collections.singletonList("vector<u8>"), 256));
+    }
+
+    @Test
+    public void withoutSignerTest() {
+        Assertions.assertEquals(Collections.singletonList("vector<u8>"),
+                AptosTransactionEncoder.withoutSigner(Arrays.asList("&signer", "vector<u8>")));
+    }
+
+    private static AptosClient.SignatureMessageParam claimName() {
+        AptosClient.TransactionPayload payload = new AptosClient.TransactionPayload();
+        payload.setType("script_function_payload");
+        payload.setFunction("0x1::service::claim_name");
+        payload.setArguments(Collections.singletonList("6162"));
+
+        AptosClient.SignatureMessageParam param = new AptosClient.SignatureMessageParam();
+        param.setSender("0x1");
+        param.setSequenceNumber("5");
+        param.setMaxGasAmount("2000");
+        param.setGasUnitPrice("1");
+        param.setExpirationTimestampSecs("1660000000");
+        param.setPayload(payload);
+        return param;
+    }
+
+    @Test
+    public void recordedSigningMessagesTest() throws IOException, URISyntaxException {
+        List<File> fixtures = fixtures();
+        Assertions.assertFalse(fixtures.isEmpty(), "没有录制的签名消息，见 recordSigningMessageTest");
+        for (File fixture : fixtures) {
+            JSONObject recorded = JSONUtil.parseObj(FileUtil.readUtf8String(fixture));
+            AptosClient.SignatureMessageParam param = AptosJsonCodec.read(
+                    new ByteArrayInputStream(recorded.getJSONObject("request").toString().getBytes(StandardCharsets.UTF_8)),
+                    AptosClient.SignatureMessageParam.class);
+            byte[] rawTransaction = AptosTransactionEncoder.encodeRawTransaction(param,
+                    recorded.getJSONArray("parameter_types").toList(String.class), recorded.getInt("chain_id"));
+            Assertions.assertEquals(recorded.getStr("message"),
+                    AptosCryptoUtil.toPrefixedHex(AptosTransactionEncoder.createSigningMessage(rawTransaction)), fixture.getName());
+        }
+    }
+
+    /**
+     * 向真实节点请求签名消息，把请求和响应写入 src/test/resources/signing-messages
+     */
+    @Test
+    @EnabledIfSystemProperty(named = "aptos.record.fullnode", matches = ".+")
+    public void recordSigningMessageTest() {
+        AptosClient client = new AptosClient(System.getProperty("aptos.record.fullnode"));
+        String function = System.getProperty("aptos.record.function");
+        String[] parts = function.split("::");
+
+        AptosClient.MoveFunction moveFunction = client.invokeGetAccountModule(parts[0], parts[1]).getAbi().getExposedFunctions().stream()
+                .filter(f -> parts[2].equals(f.getName()))
+                .findFirst()
+                .orElseThrow(() -> new IllegalArgumentException("Function not found in ABI: " + function));
+        List<String> parameterTypes = AptosTransactionEncoder.withoutSigner(moveFunction.getParams());
+
+        AptosClient.TransactionPayload payload = new AptosClient.TransactionPayload();
+        payload.setType(System.getProperty("aptos.record.payload-type", "script_function_payload"));
+        payload.setFunction(function);
+        payload.setArguments(new ArrayList<>(JSONUtil.parseArray(System.getProperty("aptos.record.arguments", "[]"))));
+
+        AptosClient.SignatureMessageParam param = new AptosClient.SignatureMessageParam();
+        param.setSender(System.getProperty("aptos.record.sender"));
+        param.setSequenceNumber(client.invokeGetAccount(param.getSender()).getSequenceNumber());
+        param.setMaxGasAmount(String.valueOf(AptosClient.DEFAULT_MAX_GAS_AMOUNT));
+        param.setGasUnitPrice(String.valueOf(AptosClient.DEFAULT_GAS_UNIT_PRICE));
+        param.setExpirationTimestampSecs(String.valueOf(TimeUnit.MILLISECONDS.toSeconds(System.currentTimeMillis()) + 600));
+        param.setPayload(payload);
+
+        JSONObject recorded = new JSONObject()
+                .set("chain_id", client.invokeGetLedgerInfo().getChainId())
+                .set("parameter_types", new JSONArray(parameterTypes))
+                .set("request", JSONUtil.parseObj(new String(json(param), StandardCharsets.UTF_8)))
+                .set("message", client.invokeCreateTransactionSigningMessage(param).getMessage());
+        File output = Paths.get("src", "test", "resources", FIXTURES, parts[1] + "-" + parts[2] + "-" + System.currentTimeMillis() + ".json").toFile();
+        FileUtil.writeUtf8String(recorded.toStringPretty(), output);
+    }
+
+    private static List<File> fixtures() throws URISyntaxException {
+        URL directory = AptosTransactionEncoderTest.class.getClassLoader().getResource(FIXTURES);
+        if (directory == null) {
+            return Collections.emptyList();
+        }
+        return FileUtil.loopFiles(new File(directory.toURI()), file -> file.getName().endsWith(".json"));
+    }
+
+    private static byte[] json(Object value) {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        try {
+            AptosJsonCodec.write(value, output);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return output.toByteArray();
+    }
+}
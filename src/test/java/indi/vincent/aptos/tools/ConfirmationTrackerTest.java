@@ -0,0 +1,68 @@
+package indi.vincent.aptos.tools;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class ConfirmationTrackerTest {
+
+    @Test
+    public void trackOutcomesTest() throws Exception {
+        StubClient client = new StubClient();
+        long expiration = TimeUnit.MILLISECONDS.toSeconds(System.currentTimeMillis()) + 600;
+        try (ConfirmationTracker tracker = new ConfirmationTracker(client, 2, 10, 40, 0)) {
+            CompletableFuture<ConfirmationTracker.Confirmation> success = tracker.track("0x1", expiration);
+            CompletableFuture<ConfirmationTracker.Confirmation> failure = tracker.track("0x2", expiration);
+            CompletableFuture<ConfirmationTracker.Confirmation> expired = tracker.track("0x3", 1);
+            Assertions.assertSame(success, tracker.track("0x1", expiration));
+
+            Assertions.assertEquals(ConfirmationTracker.Outcome.SUCCESS, success.get(5, TimeUnit.SECONDS).getOutcome());
+            Assertions.assertEquals("7", success.get().getVersion());
+            Assertions.assertEquals(ConfirmationTracker.Outcome.VM_FAILURE, failure.get(5, TimeUnit.SECONDS).getOutcome());
+            Assertions.assertEquals("Move abort", failure.get().getVmStatus());
+            Assertions.assertEquals(ConfirmationTracker.Outcome.EXPIRED, expired.get(5, TimeUnit.SECONDS).getOutcome());
+
+            Assertions.assertEquals(1, tracker.getSucceeded());
+            Assertions.assertEquals(1, tracker.getVmFailures());
+            Assertions.assertEquals(1, tracker.getExpired());
+            Assertions.assertEquals(0, tracker.getPending());
+            Assertions.assertTrue(client.calls.get("0x1").get() >= 3);
+        }
+    }
+
+    /**
+     * 0x1 前两次返回 pending，之后执行成功；0x2 执行失败；其他哈希查不到
+     */
+    private static class StubClient extends AptosClient {
+
+        private final Map<String, AtomicInteger> calls = new ConcurrentHashMap<>();
+
+        StubClient() {
+            super("http://localhost");
+        }
+
+        @Override
+        public CompletableFuture<TransactionResponse> invokeGetTransactionByHashAsync(String hash) {
+            int call = this.calls.computeIfAbsent(hash, key -> new AtomicInteger()).incrementAndGet();
+            TransactionResponse response = new TransactionResponse();
+            response.setHash(hash);
+            if ("0x1".equals(hash)) {
+                response.setType(call < 3 ? "pending_transaction" : "user_transaction");
+                response.setSuccess(call >= 3);
+                response.setVersion("7");
+            } else if ("0x2".equals(hash)) {
+                response.setType("user_transaction");
+                response.setSuccess(false);
+                response.setVmStatus("Move abort");
+            } else {
+                response.setCode("404");
+            }
+            return CompletableFuture.supplyAsync(() -> response);
+        }
+    }
+}
@@ -0,0 +1,102 @@
+package indi.vincent.aptos.tools;
+
+import cn.hutool.core.util.HexUtil;
+import indi.vincent.aptos.simulator.AptosSimulator;
+import indi.vincent.aptos.simulator.Latency;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+public class GasEstimatorTest {
+
+    private static final String FUNCTION = "0x1::service::claim_name";
+
+    private AptosSimulator simulator;
+    private AptosClient aptosClient;
+    private AptosAccount sender;
+
+    @BeforeEach
+    public void setUp() throws IOException {
+        this.simulator = new AptosSimulator().gasUnitPrice(3);
+        this.aptosClient = new AptosClient(this.simulator.getUrl());
+        byte[] privateKey = AptosCryptoUtil.randomPrivateKey();
+        byte[] publicKey = AptosCryptoUtil.createPublicKey(privateKey);
+        this.sender = new AptosAccount(privateKey, publicKey, AptosCryptoUtil.createAddress(publicKey), "@sender");
+        new AptosFaucetClient(this.simulator.getUrl()).invokeMint(this.sender.getAddress(), BigInteger.valueOf(1000000));
+    }
+
+    @AfterEach
+    public void tearDown() {
+        this.simulator.close();
+    }
+
+    @Test
+    public void estimateTest() {
+        GasEstimator estimator = new GasEstimator(this.aptosClient, TimeUnit.MINUTES.toMillis(1), 0.5, 1, 2000);
+        CompletableFuture<GasEstimator.Estimate> first = estimator.estimateAsync(this.sender, this.param(0, "alice"));
+        CompletableFuture<GasEstimator.Estimate> second = estimator.estimateAsync(this.sender, this.param(1, "carol"));
+        long expected = (long) Math.ceil(AptosSimulator.GAS_USED * 1.5);
+        Assertions.assertEquals(new GasEstimator.Estimate(expected, 3), first.join());
+        Assertions.assertEquals(new GasEstimator.Estimate(expected, 3), second.join());
+
+        // 同一形状只模拟一次
+        Assertions.assertEquals(1, estimator.getSimulations());
+        Assertions.assertEquals(1, this.simulator.getSimulations());
+        Assertions.assertEquals(1, estimator.getCacheHits());
+        Assertions.assertEquals(expected * 3, estimator.getMaxFee(FUNCTION));
+
+        // 签名的交易使用估算结果，并且可以正常上链
+        this.aptosClient.setGasEstimator(estimator);
+        AptosClient.TransactionPayload payload = this.param(0, "bob").getPayload();
+        AptosClient.SubmitTransactionParam transaction = this.aptosClient.createSignedTransactionAsync(this.sender, payload).join();
+        Assertions.assertEquals(String.valueOf(expected), transaction.getMaxGasAmount());
+        Assertions.assertEquals("3", transaction.getGasUnitPrice());
+        Assertions.assertNotNull(this.aptosClient.invokeSubmitTransactionAsync(transaction).join().getHash());
+        Assertions.assertEquals(1, this.simulator.getSimulations());
+    }
+
+    @Test
+    public void fallbackTest() {
+        this.simulator.configure(AptosSimulator.Service.FULLNODE, Latency.NONE, 1, 0);
+        GasEstimator estimator = new GasEstimator(this.aptosClient, TimeUnit.MINUTES.toMillis(1), 0.5, 1, 2000);
+        GasEstimator.Estimate estimate = estimator.estimateAsync(this.sender, this.param(0, "alice")).join();
+        Assertions.assertEquals(new GasEstimator.Estimate(2000, AptosClient.DEFAULT_GAS_UNIT_PRICE), estimate);
+        Assertions.assertEquals(1, estimator.getSimulationFailures());
+
+        // 失败结果在 ttl 内复用，不再请求节点
+        this.simulator.configure(AptosSimulator.Service.FULLNODE, Latency.NONE, 0, 0);
+        Assertions.assertEquals(estimate, estimator.estimateAsync(this.sender, this.param(1, "carol")).join());
+        Assertions.assertEquals(1, estimator.getSimulations());
+    }
+
+    @Test
+    public void shapeTest() {
+        Assertions.assertEquals(GasEstimator.shape(this.param(0, "alice").getPayload()),
+                GasEstimator.shape(this.param(0, "bob").getPayload()));
+        Assertions.assertNotEquals(GasEstimator.shape(this.param(0, "alice").getPayload()),
+                GasEstimator.shape(this.param(0, "a-much-longer-name-for-registration").getPayload()));
+    }
+
+    private AptosClient.SignatureMessageParam param(long sequenceNumber, String name) {
+        AptosClient.TransactionPayload payload = new AptosClient.TransactionPayload();
+        payload.setType("script_function_payload");
+        payload.setFunction(FUNCTION);
+        payload.setArguments(Collections.singletonList(HexUtil.encodeHexStr(name.getBytes(StandardCharsets.UTF_8))));
+        AptosClient.SignatureMessageParam param = new AptosClient.SignatureMessageParam();
+        param.setSender(this.sender.getAddress());
+        param.setSequenceNumber(String.valueOf(sequenceNumber));
+        param.setMaxGasAmount(String.valueOf(AptosClient.DEFAULT_MAX_GAS_AMOUNT));
+        param.setGasUnitPrice(String.valueOf(AptosClient.DEFAULT_GAS_UNIT_PRICE));
+        param.setExpirationTimestampSecs(String.valueOf(System.currentTimeMillis() / 1000 + 600));
+        param.setPayload(payload);
+        return param;
+    }
+}
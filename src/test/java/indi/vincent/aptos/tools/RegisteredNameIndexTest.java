@@ -0,0 +1,68 @@
+package indi.vincent.aptos.tools;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+public class RegisteredNameIndexTest {
+
+    private static final String ADDRESS = "0xf4eb1f3e838411ab992f81cabb25f29ea4eb2406cd167261273da587c3615792";
+
+    @Test
+    public void putTest() {
+        // 超出预计数量后扩容，已有的 Name 仍然可以查到
+        RegisteredNameIndex index = new RegisteredNameIndex(100, 0.01);
+        for (int i = 0; i < 10000; i++) {
+            index.put("name" + i, address(i));
+        }
+        Assertions.assertEquals(10000, index.size());
+        for (int i = 0; i < 10000; i++) {
+            Assertions.assertEquals(address(i), index.get("name" + i));
+        }
+        for (int i = 0; i < 10000; i++) {
+            Assertions.assertNull(index.get("candidate" + i));
+            Assertions.assertFalse(index.contains("candidate" + i));
+        }
+        Assertions.assertTrue(index.contains("name0"));
+        Assertions.assertEquals(1, index.getHits());
+        Assertions.assertEquals(10000, index.getMisses());
+        long falsePositives = 10000 - index.getBloomRejections();
+        Assertions.assertTrue(falsePositives < 500, "Bloom filter passed " + falsePositives + " unknown names");
+
+        index.put("name0", ADDRESS);
+        Assertions.assertEquals(ADDRESS, index.get("name0"));
+        Assertions.assertEquals(10000, index.size());
+
+        // 省略前导 0 的地址补齐到 32 字节
+        index.put("short", "0x1");
+        Assertions.assertEquals("0x" + repeat('0', 63) + "1", index.get("short"));
+    }
+
+    @Test
+    public void removeTest() {
+        RegisteredNameIndex index = new RegisteredNameIndex(1000, 0.01);
+        for (int i = 0; i < 1000; i++) {
+            index.put("name" + i, address(i));
+        }
+        for (int i = 0; i < 1000; i += 2) {
+            index.remove("name" + i);
+        }
+        index.remove("missing");
+        Assertions.assertEquals(500, index.size());
+        for (int i = 0; i < 1000; i++) {
+            Assertions.assertEquals(i % 2 == 0 ? null : address(i), index.get("name" + i));
+        }
+    }
+
+    private static String address(int i) {
+        String hex = Integer.toHexString(i);
+        return "0x" + repeat('a', 64 - hex.length()) + hex;
+    }
+
+    private static String repeat(char c, int count) {
+        StringBuilder builder = new StringBuilder(count);
+        for (int i = 0; i < count; i++) {
+            builder.append(c);
+        }
+        return builder.toString();
+    }
+}
@@ -0,0 +1,82 @@
+package indi.vincent.aptos.tools;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+public class SequenceNumberManagerTest {
+
+    private final AtomicLong chain = new AtomicLong();
+    private final AtomicInteger fetches = new AtomicInteger();
+    private final SequenceNumberManager manager = new SequenceNumberManager(address -> {
+        this.fetches.incrementAndGet();
+        return CompletableFuture.completedFuture(this.chain.get());
+    });
+
+    @Test
+    public void evictTest() {
+        // 只发送一笔交易的账户提交后移除
+        for (int i = 0; i < 100; i++) {
+            String address = "0x" + Integer.toHexString(i);
+            long sequenceNumber = this.manager.allocate(address);
+            this.manager.evict(address);
+            Assertions.assertEquals(1, this.manager.size());
+            this.manager.release(address, sequenceNumber);
+        }
+        Assertions.assertEquals(0, this.manager.size());
+
+        // 没有 evict 的发送方继续在本地递增，不再查询
+        for (int i = 0; i < 3; i++) {
+            this.manager.release("0xA", this.manager.allocate("0xa"));
+        }
+        Assertions.assertEquals(101, this.fetches.get());
+        Assertions.assertEquals(3, this.manager.allocate("0xa"));
+        Assertions.assertEquals(1, this.manager.size());
+    }
+
+    @Test
+    public void resyncTest() {
+        this.chain.set(5);
+        long first = this.manager.allocate("0xa");
+        long second = this.manager.allocate("0xa");
+        Assertions.assertEquals(5, first);
+        Assertions.assertEquals(6, second);
+
+        // 已分配的 Sequence Number 还没有提交时，重新查询会再次得到 5，必须等它们归还
+        this.manager.resync("0xa");
+        CompletableFuture<Long> third = this.manager.allocateAsync("0xa");
+        this.manager.release("0xa", first);
+        Assertions.assertFalse(third.isDone());
+        this.chain.set(7);
+        this.manager.release("0xa", second);
+        Assertions.assertEquals(7, third.join());
+        Assertions.assertEquals(2, this.fetches.get());
+
+        // 没有未归还的 Sequence Number 时立即移除，下一次分配重新查询
+        this.manager.release("0xa", 7);
+        this.manager.resync("0xa");
+        Assertions.assertEquals(0, this.manager.size());
+        Assertions.assertEquals(7, this.manager.allocate("0xa"));
+        Assertions.assertEquals(3, this.fetches.get());
+    }
+
+    @Test
+    public void synchronousFetchFailureTest() {
+        AtomicInteger failures = new AtomicInteger(1);
+        SequenceNumberManager manager = new SequenceNumberManager(address -> {
+            if (failures.getAndDecrement() > 0) {
+                throw new IllegalStateException("fetch failed");
+            }
+            return CompletableFuture.completedFuture(this.chain.get());
+        });
+
+        // 查询同步失败的一代不会留在本地，下一次分配重新查询
+        Assertions.assertThrows(IllegalStateException.class, () -> manager.allocate("0xa"));
+        Assertions.assertEquals(0, manager.size());
+        Assertions.assertEquals(0, manager.allocate("0xa"));
+        Assertions.assertEquals(1, manager.allocate("0xa"));
+    }
+}
@@ -0,0 +1,36 @@
+package indi.vincent.aptos.tools;
+
+import org.bouncycastle.util.encoders.Hex;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+public class VanityAddressGrinderTest {
+
+    @Test
+    public void grindTest() {
+        try (VanityAddressGrinder grinder = new VanityAddressGrinder("0xAbC", 60000, 4)) {
+            Assertions.assertEquals("abc", grinder.getPrefix());
+            VanityAddressGrinder.Result result = grinder.grind();
+            AptosAccount account = result.getAccount();
+            Assertions.assertNotNull(account);
+            Assertions.assertTrue(account.getAddress().startsWith("abc"), account.getAddress());
+
+            byte[] publicKey = AptosCryptoUtil.createPublicKey(Hex.decode(account.getPrivateKey()));
+            Assertions.assertEquals(account.getPublicKey(), Hex.toHexString(publicKey));
+            Assertions.assertEquals(account.getAddress(), Hex.toHexString(AptosCryptoUtil.createAddress(publicKey)));
+            Assertions.assertTrue(result.getAttempts() > 0);
+            Assertions.assertEquals(1, grinder.getFound());
+        }
+    }
+
+    @Test
+    public void timeoutTest() {
+        try (VanityAddressGrinder grinder = new VanityAddressGrinder("0123456789abcdef", 200, 2)) {
+            VanityAddressGrinder.Result result = grinder.grind();
+            Assertions.assertNull(result.getAccount());
+            Assertions.assertTrue(result.getAttempts() > 0);
+            Assertions.assertTrue(result.getKeysPerSecond() > 0);
+            Assertions.assertEquals(1, grinder.getTimeouts());
+        }
+    }
+}